@@ -0,0 +1,88 @@
+package com.github.copilot.benchmarks;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files and fails when a benchmark got slower than allowed.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar com.github.copilot.benchmarks.BenchmarkCompare baseline.json current.json [maxRegressionPercent]}
+ * <p>
+ * Benchmarks are matched by name and parameters. For average time and sample time modes a higher score is worse,
+ * for throughput a lower score is worse. The default allowed regression is 10%. The exit code is 1 if any
+ * benchmark regressed, 2 if the arguments are wrong.
+ */
+public final class BenchmarkCompare {
+
+    private static final double DEFAULT_MAX_REGRESSION_PERCENT = 10.0;
+
+    private BenchmarkCompare() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkCompare baseline.json current.json [maxRegressionPercent]");
+            System.exit(2);
+        }
+        double maxRegression = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_MAX_REGRESSION_PERCENT;
+        Map<String, JSONObject> baseline = load(args[0]);
+        Map<String, JSONObject> current = load(args[1]);
+        int regressions = 0;
+        for (Map.Entry<String, JSONObject> entry : current.entrySet()) {
+            JSONObject before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %s%n", entry.getKey());
+                continue;
+            }
+            double oldScore = before.getJSONObject("primaryMetric").getDoubleValue("score");
+            double newScore = entry.getValue().getJSONObject("primaryMetric").getDoubleValue("score");
+            String unit = entry.getValue().getJSONObject("primaryMetric").getString("scoreUnit");
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().getString("mode"));
+            double change = oldScore == 0 ? 0 : (newScore - oldScore) / oldScore * 100;
+            double regression = higherIsBetter ? -change : change;
+            boolean regressed = regression > maxRegression;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %s: %.3f -> %.3f %s (%+.1f%%)%n", regressed ? "REGRESSED" : "OK",
+                    entry.getKey(), oldScore, newScore, unit, change);
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("MISSING    %s%n", key);
+            }
+        }
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, maxRegression);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JSONObject> load(String file) throws IOException {
+        JSONArray results = JSON.parseArray(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8));
+        Map<String, JSONObject> byKey = new LinkedHashMap<>();
+        for (int i = 0; i < results.size(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            byKey.put(key(result), result);
+        }
+        return byKey;
+    }
+
+    private static String key(JSONObject result) {
+        StringBuilder key = new StringBuilder(result.getString("benchmark"));
+        JSONObject params = result.getJSONObject("params");
+        if (params != null) {
+            key.append(new TreeMap<>(params.getInnerMap()));
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.copilot.benchmarks;
+
+import com.github.copilot.task.utils.BitCronExpression;
+import com.github.copilot.task.utils.CronExpression;
+import org.openjdk.jmh.annotations.*;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the next fire time search of the TreeSet and Calendar based {@link CronExpression} with the bitmask
+ * based {@link BitCronExpression}. Each operation asks for the fire time following the previous one, like a task
+ * finishing run after run. Run with {@code -prof gc} to see the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CronExpressionBenchmark {
+
+    /**
+     * 2024-01-01T00:00:00Z, restarting from here keeps the searches away from the year 2099 limit.
+     */
+    private static final long START = 1704067200000L;
+
+    private static final long END = START + TimeUnit.DAYS.toMillis(365L * 20);
+
+    @Param({"0/1 * * * * ?", "0 0/15 8-18 ? * MON-FRI", "0 15 10 ? * 6#3", "0 0 9 15W * ?"})
+    public String expression;
+
+    @Param({"UTC", "America/New_York"})
+    public String zone;
+
+    private CronExpression calendar;
+
+    private BitCronExpression bitmask;
+
+    private Date calendarTime;
+
+    private long bitmaskTime;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ParseException {
+        TimeZone timeZone = TimeZone.getTimeZone(zone);
+        calendar = new CronExpression(expression);
+        calendar.setTimeZone(timeZone);
+        bitmask = new BitCronExpression(expression, timeZone);
+        calendarTime = new Date(START);
+        bitmaskTime = START;
+    }
+
+    @Benchmark
+    public Date calendar() {
+        Date next = calendar.getNextValidTimeAfter(calendarTime);
+        calendarTime = next == null || next.getTime() > END ? new Date(START) : next;
+        return next;
+    }
+
+    @Benchmark
+    public long bitmask() {
+        long next = bitmask.nextFireTime(bitmaskTime);
+        bitmaskTime = next < 0 || next > END ? START : next;
+        return next;
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.copilot.benchmarks;
+
+import com.github.copilot.task.scheduler.DelayItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a {@link DelayQueue} of {@link DelayItem}s holding a steady number of future items.
+ * Each operation adds a due item and takes it again, so the offer sifts it up through the whole heap and the poll
+ * sifts the last item down again.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DelayItemQueueBenchmark {
+
+    private static final int MAX_DELAY_MS = 300_000;
+
+    private static final int MIN_DELAY_MS = 60_000;
+
+    @Param({"1000", "100000"})
+    public int pending;
+
+    private DelayQueue<DelayItem<Long>> queue;
+
+    private SplittableRandom random;
+
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = new DelayQueue<>();
+        random = new SplittableRandom(42);
+        for (int i = 0; i < pending; i++) {
+            queue.offer(new DelayItem<>(nextDelay(), sequence++));
+        }
+    }
+
+    @Benchmark
+    public DelayItem<Long> offerAndPoll() {
+        queue.offer(new DelayItem<>(0, sequence++));
+        return queue.poll();
+    }
+
+    private long nextDelay() {
+        return MIN_DELAY_MS + random.nextInt(MAX_DELAY_MS - MIN_DELAY_MS);
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.copilot.benchmarks;
+
+import com.github.copilot.task.common.Invocation;
+import com.github.copilot.util.ServiceProviderUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link Invocation#invoke()} for a target registered as a Spring bean, paid by the Worker on every run,
+ * compared with the former per-call path of bean lookup, reflective method lookup and a new target instance.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class InvocationBenchmark {
+
+    private StaticApplicationContext context;
+
+    private Invocation invocation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new StaticApplicationContext();
+        context.registerSingleton("target", Target.class);
+        context.refresh();
+        new ServiceProviderUtil().setApplicationContext(context);
+        invocation = new Invocation(Target.class, "add", new Class[]{long.class, long.class}, 40L, 2L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object invoke() throws Exception {
+        return invocation.invoke();
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        Object target = ServiceProviderUtil.getBean(invocation.getTargetClass());
+        Method method = target.getClass().getMethod(invocation.getMethodName(), invocation.getParameterTypes());
+        return method.invoke(invocation.getTargetClass().getDeclaredConstructor().newInstance(), invocation.getArgs());
+    }
+
+    /**
+     * A minimal task target.
+     */
+    public static class Target {
+
+        public long add(long a, long b) {
+            return a + b;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.copilot.benchmarks;
+
+import com.github.copilot.task.common.Invocation;
+import com.github.copilot.task.serializer.ObjectSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trips of the {@link Invocation} stored with every task, which the Loader deserializes for each claimed task.
+ * The blob size of each format is printed once per fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializerBenchmark {
+
+    @Param({ObjectSerializer.JDK, ObjectSerializer.COMPACT})
+    private String format;
+
+    private ObjectSerializer<Invocation> serializer;
+
+    private Invocation invocation;
+
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        serializer = ObjectSerializer.choose(format);
+        invocation = new Invocation(InvocationBenchmark.Target.class, "add",
+                new Class[]{long.class, long.class}, 40L, 2L);
+        bytes = serializer.serialize(invocation);
+        System.out.println("Blob size of " + format + ": " + bytes.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(invocation);
+    }
+
+    @Benchmark
+    public Invocation deserialize() {
+        return serializer.deserialize(bytes);
+    }
+
+    @Benchmark
+    public Invocation roundTrip() {
+        return serializer.deserialize(serializer.serialize(invocation));
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.copilot.benchmarks;
+
+import com.github.copilot.task.entity.Node;
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.strategy.Strategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of deciding whether this node takes a task, done by the Loader for every candidate task in each cycle.
+ * The current node is the last of the list, the worst case for strategies scanning the node list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StrategyBenchmark {
+
+    @Param({Strategy.WEIGHT, Strategy.CONSISTENT_HASH, Strategy.LEAST_COUNT, Strategy.DEFAULT})
+    public String strategy;
+
+    @Param({"10", "100", "1000"})
+    public int nodeCount;
+
+    private Strategy selected;
+
+    private List<Node> nodes;
+
+    private String myNodeId;
+
+    private Task task;
+
+    private long taskId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        selected = Strategy.choose(strategy);
+        nodes = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            Node node = new Node(String.format("node-%04d", i));
+            node.setWeight(1 + i % 5);
+            nodes.add(node);
+        }
+        myNodeId = nodes.get(nodeCount - 1).getNodeId();
+        task = new Task();
+    }
+
+    @Benchmark
+    public boolean accept() {
+        task.setId(taskId++);
+        return selected.accept(nodes, task, myNodeId);
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.copilot.benchmarks;
+
+import com.github.copilot.task.trigger.TriggerEngine;
+import com.github.copilot.task.trigger.TriggerHandle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the trigger engines with a steady number of pending triggers.
+ * Each operation schedules a new trigger and cancels one that is still pending, which is what the Loader
+ * and a stop request do to the engine while the Boss thread waits for due tasks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TriggerEngineBenchmark {
+
+    /**
+     * Triggers are spread over the default fetch duration of the Loader, 5 minutes.
+     */
+    private static final int MAX_DELAY_MS = 300_000;
+
+    private static final int MIN_DELAY_MS = 60_000;
+
+    @Param({TriggerEngine.WHEEL, TriggerEngine.DELAY_QUEUE})
+    public String engine;
+
+    @Param({"10000", "100000", "1000000"})
+    public int pending;
+
+    private TriggerEngine<Long> triggers;
+
+    private TriggerHandle[] handles;
+
+    private SplittableRandom random;
+
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        triggers = TriggerEngine.choose(engine, 10, 512);
+        handles = new TriggerHandle[pending];
+        random = new SplittableRandom(42);
+        for (int i = 0; i < pending; i++) {
+            handles[i] = triggers.schedule(sequence++, nextDelay());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        triggers.shutdown();
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        int slot = random.nextInt(pending);
+        boolean cancelled = handles[slot].cancel();
+        handles[slot] = triggers.schedule(sequence++, nextDelay());
+        return cancelled;
+    }
+
+    private long nextDelay() {
+        return MIN_DELAY_MS + random.nextInt(MAX_DELAY_MS - MIN_DELAY_MS);
+    }
+}
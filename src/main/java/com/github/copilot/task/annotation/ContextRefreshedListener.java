@@ -4,9 +4,13 @@ import com.github.copilot.task.common.Invocation;
 import com.github.copilot.task.config.EasyJobConfig;
 import com.github.copilot.task.entity.Task;
 import com.github.copilot.task.enums.JobEnum;
+import com.github.copilot.task.enums.MisfirePolicy;
+import com.github.copilot.task.enums.OverlapPolicy;
 import com.github.copilot.task.model.CronModel;
 import com.github.copilot.task.repository.TaskRepository;
+import com.github.copilot.task.repository.WorkflowRepository;
 import com.github.copilot.task.scheduler.ScheduleTaskExecutor;
+import com.github.copilot.task.scheduler.WorkflowCoordinator;
 import com.github.copilot.task.utils.CronUtil;
 import com.github.copilot.util.StringUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +25,7 @@ import org.springframework.stereotype.Component;
 import java.lang.reflect.Method;
 import java.time.*;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static com.github.copilot.util.DateUtil.getzonedDateTime;
 
@@ -39,11 +44,20 @@ public class ContextRefreshedListener implements ApplicationListener<ContextRefr
     @Autowired
     private EasyJobConfig config;
 
+    @Autowired
+    private WorkflowRepository workflowRepository;
+
+    @Autowired
+    private WorkflowCoordinator workflowCoordinator;
+
     // Store all task names in the database
     private List<String> allTaskNames;
 
     private Map<String, Task> taskMap = new HashMap<>();
 
+    // Upstream task names declared with Scheduled.after, by task name, resolved once all tasks are added
+    private Map<String, List<String>> upstreamNames = new HashMap<>();
+
     @Override
     public void onApplicationEvent(ContextRefreshedEvent event) {
         // Check if recovery and heartbeat functions are enabled
@@ -92,9 +106,13 @@ public class ContextRefreshedListener implements ApplicationListener<ContextRefr
                     }
                 }
 
+                // Link the tasks declaring upstreams into workflows, now that all of them exist
+                handleUpstreams();
+
                 // Since taskIdMap is only used once after spring starts, it can be cleared directly here
                 allTaskNames.clear();
                 taskMap.clear();
+                upstreamNames.clear();
             }
         }
     }
@@ -114,8 +132,16 @@ public class ContextRefreshedListener implements ApplicationListener<ContextRefr
 
         String cronExpression;
 
-        // If rate is not empty, use rate and cycle to generate cron expression
-        if (StringUtil.isNotEmpty(rate)) {
+        // A task running after other tasks has no schedule of its own, it is released when its upstreams finish
+        if (sAnn.after().length > 0) {
+            List<String> upstreams = new ArrayList<>();
+            for (String upstream : sAnn.after()) {
+                upstreams.add(upstream.contains(DOT) ? upstream : clazz.getName() + DOT + upstream);
+            }
+            upstreamNames.put(finalName, upstreams);
+            cronExpression = null;
+        } else if (StringUtil.isNotEmpty(rate)) {
+            // If rate is not empty, use rate and cycle to generate cron expression
             final int rateInt = Integer.parseInt(rate);
             final int cycleInt = Integer.parseInt(cycle);
             final CronModel cronModel = new CronModel();
@@ -141,11 +167,27 @@ public class ContextRefreshedListener implements ApplicationListener<ContextRefr
             cronExpression = CronUtil.createCronExpression(cronModel);
         }
 
+        // The schedule declared by the annotation, unset options fall back to the configured ones
+        Task declared = new Task();
+        declared.setCronExpr(cronExpression);
+        declared.setShardCount(sAnn.shards());
+        declared.setMisfirePolicy(StringUtil.isNotEmpty(sAnn.misfire()) ? MisfirePolicy.choose(sAnn.misfire()) : null);
+        declared.setMisfireThresholdMillis(sAnn.misfireThresholdMillis() >= 0 ? sAnn.misfireThresholdMillis() : null);
+        declared.setOverlapPolicy(StringUtil.isNotEmpty(sAnn.overlap()) ? OverlapPolicy.choose(sAnn.overlap()) : null);
+        declared.setMaxConcurrency(sAnn.maxConcurrency() > 0 ? sAnn.maxConcurrency() : null);
+        declared.setTimeoutMillis(sAnn.timeoutMillis() >= 0 ? sAnn.timeoutMillis() : null);
+        declared.setMaxRetries(sAnn.maxRetries() >= 0 ? sAnn.maxRetries() : null);
+        declared.setRetryBackoffMillis(sAnn.retryBackoffMillis() >= 0 ? sAnn.retryBackoffMillis() : null);
+        declared.setRetryOn(sAnn.retryOn().length > 0
+                ? Arrays.stream(sAnn.retryOn()).map(Class::getName).collect(Collectors.joining(",")) : null);
+
         // If the task name is not in the list of all task names, add the task
         if (!allTaskNames.contains(finalName)) {
             Long taskId = null;
             try {
-                taskId = scheduleTaskExecutor.addTask(finalName, cronExpression, new Invocation(clazz, name, m.getParameterTypes()));
+                Task task = new Task(finalName, cronExpression, new Invocation(clazz, name, m.getParameterTypes()));
+                copySchedule(declared, task);
+                taskId = scheduleTaskExecutor.addTask(task);
                 log.info("add taskId {} taskName{} success", taskId, finalName);
             } catch (Exception e) {
                 log.error("add taskId {} taskName{} fail", taskId, finalName);
@@ -153,13 +195,76 @@ public class ContextRefreshedListener implements ApplicationListener<ContextRefr
         } else {
             // Otherwise, update the task
             final Task task = taskMap.get(finalName);
-            if (!task.getCronExpr().equalsIgnoreCase(cronExpression)) {
-                task.setCronExpr(cronExpression);
-                taskRepository.updateTask(task);
-                log.info("update taskId {} taskName{} success", task.getId(), finalName);
+            if (scheduleChanged(task, declared)) {
+                copySchedule(declared, task);
+                try {
+                    taskRepository.updateSchedule(task);
+                    log.info("update taskId {} taskName{} success", task.getId(), finalName);
+                } catch (Exception e) {
+                    log.error("update taskId {} taskName{} fail", task.getId(), finalName);
+                }
             } else {
                 log.info("taskId {} taskName{} cronExpr is same, no need to update", task.getId(), finalName);
             }
         }
     }
-}
\ No newline at end of file
+
+    private static void copySchedule(Task from, Task to) {
+        to.setCronExpr(from.getCronExpr());
+        to.setShardCount(from.getShardCount());
+        to.setMisfirePolicy(from.getMisfirePolicy());
+        to.setMisfireThresholdMillis(from.getMisfireThresholdMillis());
+        to.setOverlapPolicy(from.getOverlapPolicy());
+        to.setMaxConcurrency(from.getMaxConcurrency());
+        to.setTimeoutMillis(from.getTimeoutMillis());
+        to.setMaxRetries(from.getMaxRetries());
+        to.setRetryBackoffMillis(from.getRetryBackoffMillis());
+        to.setRetryOn(from.getRetryOn());
+    }
+
+    private static boolean scheduleChanged(Task current, Task declared) {
+        boolean cronChanged = declared.getCronExpr() == null ? current.getCronExpr() != null
+                : !declared.getCronExpr().equalsIgnoreCase(current.getCronExpr());
+        return cronChanged
+                || !Objects.equals(current.getShardCount(), declared.getShardCount())
+                || current.getMisfirePolicy() != declared.getMisfirePolicy()
+                || !Objects.equals(current.getMisfireThresholdMillis(), declared.getMisfireThresholdMillis())
+                || current.getOverlapPolicy() != declared.getOverlapPolicy()
+                || !Objects.equals(current.getMaxConcurrency(), declared.getMaxConcurrency())
+                || !Objects.equals(current.getTimeoutMillis(), declared.getTimeoutMillis())
+                || !Objects.equals(current.getMaxRetries(), declared.getMaxRetries())
+                || !Objects.equals(current.getRetryBackoffMillis(), declared.getRetryBackoffMillis())
+                || !Objects.equals(current.getRetryOn(), declared.getRetryOn());
+    }
+
+    // Replace the upstreams of the annotated tasks whose declaration changed, other nodes starting at the same time
+    // declare the same ones
+    private void handleUpstreams() {
+        Map<String, Task> tasks = taskRepository.listAllTasks();
+        Map<Long, List<Long>> current = workflowRepository.listUpstreams();
+        for (Map.Entry<String, List<String>> entry : upstreamNames.entrySet()) {
+            Task task = tasks.get(entry.getKey());
+            if (task == null) {
+                continue;
+            }
+            Set<Long> upstreamIds = new LinkedHashSet<>();
+            for (String upstream : entry.getValue()) {
+                Task upstreamTask = tasks.get(upstream);
+                if (upstreamTask == null) {
+                    log.error("upstream task {} of task {} not found", upstream, entry.getKey());
+                    continue;
+                }
+                upstreamIds.add(upstreamTask.getId());
+            }
+            if (upstreamIds.equals(new HashSet<>(current.getOrDefault(task.getId(), Collections.emptyList())))) {
+                continue;
+            }
+            try {
+                workflowCoordinator.setUpstreams(task.getId(), upstreamIds);
+                log.info("set upstreams {} of taskId {} taskName{}", upstreamIds, task.getId(), entry.getKey());
+            } catch (Exception e) {
+                log.error("set upstreams of taskId {} taskName{} fail", task.getId(), entry.getKey(), e);
+            }
+        }
+    }
+}
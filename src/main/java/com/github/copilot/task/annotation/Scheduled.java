@@ -23,5 +23,64 @@ public @interface Scheduled {
 
     String cycle() default "";
 
+    /**
+     * The number of shards each fire is split into, spread over the nodes. Above 1 the method gets its shard from
+     * a {@link com.github.copilot.task.common.ShardContext} parameter or from ShardContext.current().
+     */
+    int shards() default 1;
+
+    /**
+     * The tasks this one runs after, as method names of the same class or fully qualified class name dot method
+     * name. A task with upstreams has no schedule of its own, the time attributes are ignored: it fires as soon
+     * as all its upstreams finished within a run of their workflow.
+     */
+    String[] after() default {};
+
+    /**
+     * What happens to the fires missed by more than the misfire threshold: skip, fire_once or fire_all. Empty uses
+     * easyjob.misfire.policy.
+     */
+    String misfire() default "";
+
+    /**
+     * The time in milliseconds a fire may be late before it counts as missed. Negative uses
+     * easyjob.misfire.thresholdMillis.
+     */
+    long misfireThresholdMillis() default -1;
+
+    /**
+     * What a node does with a fire while earlier runs of this task are still running on it: parallel, queue or
+     * skip. Empty uses easyjob.run.overlap.
+     */
+    String overlap() default "";
+
+    /**
+     * The maximum number of runs of this task at once on one node when runs overlap in parallel, 0 for no limit.
+     */
+    int maxConcurrency() default 0;
+
+    /**
+     * The time in milliseconds a run may take before it is interrupted and recorded as failed, 0 for no timeout.
+     * Negative uses easyjob.run.timeoutMillis.
+     */
+    long timeoutMillis() default -1;
+
+    /**
+     * The number of times a failed run is retried before the task is recorded as failed, 0 for none. Negative uses
+     * easyjob.retry.maxRetries.
+     */
+    int maxRetries() default -1;
+
+    /**
+     * The time in milliseconds before the first retry, doubled for each further one. Negative uses
+     * easyjob.retry.backoffMillis.
+     */
+    long retryBackoffMillis() default -1;
+
+    /**
+     * The exceptions a failed run is retried for, subclasses included. Empty retries any exception.
+     */
+    Class<? extends Throwable>[] retryOn() default {};
+
 
 }
@@ -1,16 +1,18 @@
 package com.github.copilot.task.common;
 
-import com.github.copilot.util.ServiceProviderUtil;
+import lombok.AccessLevel;
 import lombok.Data;
-import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.io.Serializable;
-import java.lang.reflect.Method;
 
 /**
  * Represents a method invocation, including the target class, method name, parameter types, and arguments.
  * This class is designed to be serializable so that method invocations can be saved in a database for later execution.
  * It utilizes Spring's context to fetch bean instances or falls back to reflection for instantiation if the bean is not found.
+ * The resolved method and target are kept in the {@link InvokerCache}, so repeated invocations skip all lookups.
  */
 @Data
 public class Invocation implements Serializable {
@@ -27,6 +29,12 @@ public class Invocation implements Serializable {
     // The arguments to be passed to the method during invocation.
     private Object[] args;
 
+    // The resolved invoker, looked up in the cache on first invocation.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient InvokerCache.Invoker invoker;
+
     /**
      * Constructs a new Invocation with the specified target class, method name, parameter types, and arguments.
      *
@@ -43,24 +51,41 @@ public class Invocation implements Serializable {
     }
 
     /**
-     * Invokes the specified method on the target class with the provided arguments.
-     * Attempts to fetch the target bean from the Spring context; if not found, it tries to instantiate the class using reflection.
+     * Invokes the specified method on the target with the provided arguments.
+     * The target is the Spring bean of the target class; if there is none, an instance created using reflection.
      *
      * @return The result of the method invocation.
-     * @throws Exception if the method cannot be invoked for any reason (e.g., no such method, illegal access, instantiation failure, etc.).
+     * @throws Exception if the method cannot be invoked for any reason (e.g., no such method, illegal access, instantiation failure, etc.),
+     *                   exceptions thrown by the method itself are wrapped in an InvocationTargetException.
      */
     public Object invoke() throws Exception {
-        Object target = null;
+        return resolve().invoke(args);
+    }
+
+    /**
+     * Invokes the method as one shard of a sharded task. Parameters of type {@link ShardContext} get the given
+     * context, which is also available from {@link ShardContext#current()} while the method runs.
+     *
+     * @param shard The shard to execute.
+     * @return The result of the method invocation.
+     * @throws Exception as {@link #invoke()}.
+     */
+    public Object invoke(ShardContext shard) throws Exception {
+        Object[] actualArgs = shard.inject(parameterTypes, args);
+        ShardContext previous = ShardContext.enter(shard);
         try {
-            // Attempt to get the bean from Spring's application context
-            target = ServiceProviderUtil.getBean(targetClass);
-        } catch (NoSuchBeanDefinitionException e) {
-            // If the bean is not found, fall back to reflection for instantiation
-            target = Class.forName(targetClass.getName());
+            return resolve().invoke(actualArgs);
+        } finally {
+            ShardContext.exit(previous);
+        }
+    }
+
+    private InvokerCache.Invoker resolve() throws ReflectiveOperationException {
+        InvokerCache.Invoker current = invoker;
+        if (current == null || !current.isCurrent()) {
+            current = InvokerCache.get(targetClass, methodName, parameterTypes);
+            invoker = current;
         }
-        // Retrieve the method to be invoked
-        Method method = target.getClass().getMethod(methodName, parameterTypes);
-        // Invoke the method with the provided arguments
-        return method.invoke(targetClass.newInstance(), args);
+        return current;
     }
-}
\ No newline at end of file
+}
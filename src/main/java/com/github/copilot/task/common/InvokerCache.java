@@ -0,0 +1,182 @@
+package com.github.copilot.task.common;
+
+import com.github.copilot.util.ServiceProviderUtil;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.context.ApplicationContext;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of resolved invokers, keyed by target class, method name and parameter types.
+ * <p>
+ * Resolving an invoker looks up the method once, turns it into a {@link MethodHandle} taking the target and the
+ * argument array, and binds the target: the Spring bean of the target class if it is a singleton, otherwise an
+ * instance created with the no-arg constructor when no bean exists. Beans of other scopes are looked up on every
+ * call. Invokers are resolved again when the application context changes.
+ */
+public final class InvokerCache {
+
+    private static final Map<Key, Invoker> CACHE = new ConcurrentHashMap<>();
+
+    private InvokerCache() {
+    }
+
+    /**
+     * Returns the invoker for a method, resolving it on first use.
+     *
+     * @param targetClass    The class declaring the method.
+     * @param methodName     The name of the method.
+     * @param parameterTypes The parameter types of the method.
+     * @return The invoker.
+     * @throws NoSuchMethodException if the method does not exist.
+     * @throws IllegalAccessException if the method can not be accessed.
+     * @throws ReflectiveOperationException if the target can not be instantiated.
+     */
+    public static Invoker get(Class<?> targetClass, String methodName, Class<?>[] parameterTypes) throws ReflectiveOperationException {
+        Key key = new Key(targetClass, methodName, parameterTypes);
+        Invoker invoker = CACHE.get(key);
+        if (invoker == null || !invoker.isCurrent()) {
+            // Resolving twice at the same time is harmless, the last one wins
+            invoker = Invoker.resolve(targetClass, methodName, parameterTypes);
+            CACHE.put(key, invoker);
+        }
+        return invoker;
+    }
+
+    /**
+     * @return The number of cached invokers.
+     */
+    public static int size() {
+        return CACHE.size();
+    }
+
+    /**
+     * Removes all cached invokers.
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    /**
+     * A resolved method, invoked with a plain method handle call.
+     */
+    public static final class Invoker {
+
+        /**
+         * Of type (Object target, Object[] args)Object, the target is ignored for static methods.
+         */
+        private final MethodHandle handle;
+
+        private final Class<?> targetClass;
+
+        /**
+         * The bound target, null for static methods and for beans that are looked up on every call.
+         */
+        private final Object target;
+
+        private final boolean lookupTarget;
+
+        private final ApplicationContext context;
+
+        private Invoker(MethodHandle handle, Class<?> targetClass, Object target, boolean lookupTarget, ApplicationContext context) {
+            this.handle = handle;
+            this.targetClass = targetClass;
+            this.target = target;
+            this.lookupTarget = lookupTarget;
+            this.context = context;
+        }
+
+        static Invoker resolve(Class<?> targetClass, String methodName, Class<?>[] parameterTypes) throws ReflectiveOperationException {
+            Method method = targetClass.getMethod(methodName, parameterTypes == null ? new Class<?>[0] : parameterTypes);
+            method.trySetAccessible();
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            boolean isStatic = Modifier.isStatic(method.getModifiers());
+            if (isStatic) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            handle = handle.asSpreader(Object[].class, method.getParameterCount())
+                    .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+
+            ApplicationContext context = ServiceProviderUtil.getApplicationContext();
+            Object target = null;
+            if (!isStatic) {
+                try {
+                    Object bean = ServiceProviderUtil.getBean(targetClass);
+                    if (ServiceProviderUtil.isSingleton(targetClass)) {
+                        target = bean;
+                    }
+                } catch (NoSuchBeanDefinitionException e) {
+                    // Not a bean, fall back to an instance of our own
+                    target = targetClass.getDeclaredConstructor().newInstance();
+                }
+            }
+            return new Invoker(handle, targetClass, target, !isStatic && target == null, context);
+        }
+
+        /**
+         * Invokes the method. Exceptions thrown by the method are wrapped in an {@link InvocationTargetException},
+         * like {@link Method#invoke(Object, Object...)} does.
+         *
+         * @param args The arguments, may be null for methods without parameters.
+         * @return The result of the method, null for void methods.
+         * @throws Exception if the target can not be found or the method throws.
+         */
+        public Object invoke(Object[] args) throws Exception {
+            Object current = lookupTarget ? ServiceProviderUtil.getBean(targetClass) : target;
+            Object[] actualArgs = args == null ? new Object[0] : args;
+            try {
+                return (Object) handle.invokeExact(current, actualArgs);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        boolean isCurrent() {
+            return context == ServiceProviderUtil.getApplicationContext();
+        }
+    }
+
+    private static final class Key {
+
+        private final Class<?> targetClass;
+
+        private final String methodName;
+
+        private final Class<?>[] parameterTypes;
+
+        private final int hash;
+
+        Key(Class<?> targetClass, String methodName, Class<?>[] parameterTypes) {
+            this.targetClass = targetClass;
+            this.methodName = methodName;
+            this.parameterTypes = parameterTypes;
+            this.hash = 31 * (31 * targetClass.hashCode() + methodName.hashCode()) + Arrays.hashCode(parameterTypes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return targetClass == other.targetClass && methodName.equals(other.methodName)
+                    && Arrays.equals(parameterTypes, other.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.copilot.task.common;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Tells a sharded task which part of the work a shard execution does. A scheduled method gets it either as a
+ * parameter of this type, filled in when the shard is invoked, or from {@link #current()}.
+ * <p>
+ * A shard typically processes the records whose key modulo {@link #getTotal()} equals {@link #getIndex()}.
+ */
+@Getter
+@ToString
+public class ShardContext {
+
+    private static final ThreadLocal<ShardContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The ID shared by all shards of one fire of the task.
+     */
+    private final String runId;
+
+    /**
+     * The index of this shard, from 0 to total - 1.
+     */
+    private final int index;
+
+    /**
+     * The number of shards of the task.
+     */
+    private final int total;
+
+    public ShardContext(String runId, int index, int total) {
+        this.runId = runId;
+        this.index = index;
+        this.total = total;
+    }
+
+    /**
+     * @return The shard the current thread executes, null outside a shard execution.
+     */
+    public static ShardContext current() {
+        return CURRENT.get();
+    }
+
+    static ShardContext enter(ShardContext context) {
+        ShardContext previous = CURRENT.get();
+        CURRENT.set(context);
+        return previous;
+    }
+
+    static void exit(ShardContext previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Puts this context into the arguments of the parameters of this type.
+     *
+     * @param parameterTypes The parameter types of the invoked method.
+     * @param args           The stored arguments, may be null.
+     * @return The arguments to invoke the method with.
+     */
+    Object[] inject(Class[] parameterTypes, Object[] args) {
+        if (parameterTypes == null) {
+            return args;
+        }
+        Object[] actual = args;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (parameterTypes[i] == ShardContext.class) {
+                if (actual == args) {
+                    actual = new Object[parameterTypes.length];
+                    if (args != null) {
+                        System.arraycopy(args, 0, actual, 0, Math.min(args.length, actual.length));
+                    }
+                }
+                actual[i] = this;
+            }
+        }
+        return actual;
+    }
+}
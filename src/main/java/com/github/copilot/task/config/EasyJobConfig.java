@@ -33,17 +33,36 @@ public class EasyJobConfig implements InitializingBean {
     private String nodeStrategy;
 
     /**
-     * The period in milliseconds for how often nodes fetch tasks. Default is 100ms.
+     * The shortest period in milliseconds between two task fetches while tasks keep changing. Default is 100ms.
      */
     @Value("${easyjob.node.fetchPeriod:100}")
     private int fetchPeriod;
 
+    /**
+     * The longest period in milliseconds between two task fetches when nothing changes. Default is 10000ms.
+     */
+    @Value("${easyjob.node.maxIdlePeriod:10000}")
+    private int maxIdlePeriod;
+
+    /**
+     * The period in milliseconds for how often nodes check the signal table for task changes made by other nodes.
+     * Default is 1000ms.
+     */
+    @Value("${easyjob.node.signalPeriod:1000}")
+    private int signalPeriod;
+
     /**
      * The duration in seconds for fetching tasks ahead of their scheduled time. Default is 300 seconds (5 minutes).
      */
     @Value("${easyjob.node.fetchDuration:300}")
     private int fetchDuration;
 
+    /**
+     * The maximum number of tasks a node claims with one statement per fetch cycle. Default is 100.
+     */
+    @Value("${easyjob.node.claimBatchSize:100}")
+    private int claimBatchSize;
+
     /**
      * The size of the queue in the thread pool. Default is 1000.
      */
@@ -62,6 +81,269 @@ public class EasyJobConfig implements InitializingBean {
     @Value("${easyjob.pool.maxSize:10}")
     private int maxPoolSize;
 
+    /**
+     * The executor running the task workers, either platform, virtual or forkjoin. Default is platform.
+     */
+    @Value("${easyjob.pool.mode:platform}")
+    private String poolMode;
+
+    /**
+     * The maximum number of tasks in flight on the executor, 0 means maxSize + queueSize. Default is 0.
+     */
+    @Value("${easyjob.pool.maxConcurrency:0}")
+    private int maxConcurrency;
+
+    /**
+     * The delay in milliseconds before a task is offered again when the executor is saturated. Default is 100ms.
+     */
+    @Value("${easyjob.pool.deferMillis:100}")
+    private long deferMillis;
+
+    /**
+     * The engine that holds claimed tasks until they are due, either wheel or delayqueue. Default is wheel.
+     */
+    @Value("${easyjob.trigger.engine:wheel}")
+    private String triggerEngine;
+
+    /**
+     * The tick duration of the timing wheel in milliseconds. Default is 10ms.
+     */
+    @Value("${easyjob.trigger.tickMs:10}")
+    private long triggerTickMs;
+
+    /**
+     * The number of buckets per level of the timing wheel, rounded up to a power of two. Default is 512.
+     */
+    @Value("${easyjob.trigger.wheelSize:512}")
+    private int triggerWheelSize;
+
+    /**
+     * How the state transitions of running tasks are written, either direct or writebehind. Default is direct.
+     */
+    @Value("${easyjob.state.mode:direct}")
+    private String stateMode;
+
+    /**
+     * The longest time in milliseconds a task result waits in memory before it is written, writebehind only.
+     * Default is 50ms.
+     */
+    @Value("${easyjob.state.flushMillis:50}")
+    private long stateFlushMillis;
+
+    /**
+     * The maximum number of task results written with one batch, writebehind only. Default is 200.
+     */
+    @Value("${easyjob.state.batchSize:200}")
+    private int stateBatchSize;
+
+    /**
+     * How the execution history is written, either sync, async or sampled. Default is sync.
+     */
+    @Value("${easyjob.history.mode:sync}")
+    private String historyMode;
+
+    /**
+     * The number of task details the async and sampled history writers can buffer. Default is 10000.
+     */
+    @Value("${easyjob.history.bufferSize:10000}")
+    private int historyBufferSize;
+
+    /**
+     * The maximum number of task details inserted with one batch. Default is 200.
+     */
+    @Value("${easyjob.history.batchSize:200}")
+    private int historyBatchSize;
+
+    /**
+     * The time in milliseconds the history flusher waits for new details and before retrying a failed batch.
+     * Default is 200ms.
+     */
+    @Value("${easyjob.history.flushMillis:200}")
+    private long historyFlushMillis;
+
+    /**
+     * The share of successful runs the sampled history writer keeps, failed runs are always kept. Default is 0.1.
+     */
+    @Value("${easyjob.history.sampleRate:0.1}")
+    private double historySampleRate;
+
+    /**
+     * The number of task detail IDs taken from the sequence with one query. Default is 100.
+     */
+    @Value("${easyjob.history.idBlockSize:100}")
+    private int historyIdBlockSize;
+
+    /**
+     * Whether a leader elected with a lease in schedule_node dispatches the tasks to the nodes, instead of every
+     * node fetching and claiming tasks itself. Needs the heartbeat. Default is false.
+     */
+    @Value("${easyjob.leader.enable:false}")
+    private boolean leaderEnable;
+
+    /**
+     * The duration in seconds of the leader lease, zero uses two thirds of the heartbeat period so a dead leader
+     * is replaced within one heartbeat period. Default is 0.
+     */
+    @Value("${easyjob.leader.leaseSeconds:0}")
+    private int leaderLeaseSeconds;
+
+    /**
+     * The period in milliseconds the node firing a sharded task checks whether its shards ended. Default is 500ms.
+     */
+    @Value("${easyjob.shard.pollMillis:500}")
+    private long shardPollMillis;
+
+    /**
+     * The time in seconds the shards of a fire may take, unfinished shards are stopped after it and the fire fails.
+     * Default is 3600 seconds.
+     */
+    @Value("${easyjob.shard.timeoutSeconds:3600}")
+    private int shardTimeoutSeconds;
+
+    /**
+     * What happens to the fires of a task missed by more than the misfire threshold, unless the task sets its own
+     * policy: skip, fire_once or fire_all. Default is skip.
+     */
+    @Value("${easyjob.misfire.policy:skip}")
+    private String misfirePolicy;
+
+    /**
+     * The time in milliseconds a fire may be late before it counts as missed, unless the task sets its own
+     * threshold. Default is 60000ms.
+     */
+    @Value("${easyjob.misfire.thresholdMillis:60000}")
+    private long misfireThresholdMillis;
+
+    /**
+     * The maximum number of missed fires a node claims per second to catch up, zero for no limit. Default is 10.
+     */
+    @Value("${easyjob.misfire.catchUpPerSecond:10}")
+    private double misfireCatchUpPerSecond;
+
+    /**
+     * What a node does with a fire of a task while earlier runs of it are still running on the node, unless the
+     * task sets its own policy: parallel, queue or skip. Default is parallel.
+     */
+    @Value("${easyjob.run.overlap:parallel}")
+    private String runOverlap;
+
+    /**
+     * The time in milliseconds a run may take before it is interrupted and recorded as failed, unless the task sets
+     * its own timeout, zero for none. Default is 0.
+     */
+    @Value("${easyjob.run.timeoutMillis:0}")
+    private long runTimeoutMillis;
+
+    /**
+     * The period in milliseconds the watchdog looks for runs past their timeout. Default is 1000ms.
+     */
+    @Value("${easyjob.run.watchdogMillis:1000}")
+    private long runWatchdogMillis;
+
+    /**
+     * The number of times a failed run is retried before the task is recorded as failed, unless the task sets its
+     * own, zero for none. Default is 0.
+     */
+    @Value("${easyjob.retry.maxRetries:0}")
+    private int retryMaxRetries;
+
+    /**
+     * The time in milliseconds before the first retry of a failed run, doubled for each further one, unless the task
+     * sets its own. Default is 1000ms.
+     */
+    @Value("${easyjob.retry.backoffMillis:1000}")
+    private long retryBackoffMillis;
+
+    /**
+     * The longest time in milliseconds between two retries, however many there were before. Default is 300000ms.
+     */
+    @Value("${easyjob.retry.maxBackoffMillis:300000}")
+    private long retryMaxBackoffMillis;
+
+    /**
+     * The period in milliseconds a node polls its command queue, commands a node sends to itself are handled right
+     * away. Default is 200ms.
+     */
+    @Value("${easyjob.command.pollMillis:200}")
+    private long commandPollMillis;
+
+    /**
+     * The maximum number of commands a node takes from its queue at once. Default is 50.
+     */
+    @Value("${easyjob.command.batchSize:50}")
+    private int commandBatchSize;
+
+    /**
+     * The maximum time in seconds a draining node waits for its running tasks before interrupting them, on shutdown
+     * or on a DRAIN command without a timeout. Default is 30 seconds.
+     */
+    @Value("${easyjob.drain.timeoutSeconds:30}")
+    private int drainTimeoutSeconds;
+
+    /**
+     * The time in seconds a node keeps the task dependencies of the workflows in memory before reading them again.
+     * Default is 30 seconds.
+     */
+    @Value("${easyjob.workflow.refreshSeconds:30}")
+    private int workflowRefreshSeconds;
+
+    /**
+     * Whether old execution history is rolled up into hourly aggregates and removed. Default is false.
+     */
+    @Value("${easyjob.retention.enable:false}")
+    private boolean retentionEnable;
+
+    /**
+     * The number of days task details are kept, unless the task sets its own retention. Default is 7 days.
+     */
+    @Value("${easyjob.retention.days:7}")
+    private int retentionDays;
+
+    /**
+     * The number of days the hourly aggregates are kept. Default is 90 days.
+     */
+    @Value("${easyjob.retention.rollupDays:90}")
+    private int retentionRollupDays;
+
+    /**
+     * The period in seconds of the retention thread. Default is 600 seconds.
+     */
+    @Value("${easyjob.retention.seconds:600}")
+    private int retentionSeconds;
+
+    /**
+     * The time in seconds an hour is left open after its end before it is rolled up, so runs still ending are
+     * counted. Default is 600 seconds.
+     */
+    @Value("${easyjob.retention.graceSeconds:600}")
+    private int retentionGraceSeconds;
+
+    /**
+     * The maximum number of hours rolled up per period, bounding the catch up after a long pause. Default is 24.
+     */
+    @Value("${easyjob.retention.maxHours:24}")
+    private int retentionMaxHours;
+
+    /**
+     * The maximum number of task details removed with one delete statement. Default is 5000.
+     */
+    @Value("${easyjob.retention.deleteChunkSize:5000}")
+    private int retentionDeleteChunkSize;
+
+    /**
+     * Whether schedule_task_detail is range partitioned by start_time, old partitions are then dropped instead of
+     * deleting their rows. Default is false.
+     */
+    @Value("${easyjob.retention.partitioned:false}")
+    private boolean retentionPartitioned;
+
+    /**
+     * The format task invocations are stored in, either compact or jdk. Rows in the other format are migrated when
+     * they are read. Default is compact.
+     */
+    @Value("${easyjob.serializer:compact}")
+    private String serializer;
+
     /**
      * The period in seconds for node heartbeat signals. Default is 20 seconds.
      */
@@ -86,6 +368,41 @@ public class EasyJobConfig implements InitializingBean {
     @Value("${easyjob.recover.seconds:60}")
     private int recoverSeconds;
 
+    /**
+     * The suspicion level, phi, above which a node is considered dead: its tasks are recovered and it gets no new
+     * task. Phi is -log10 of the chance the heartbeat is only late, so 8 means one false positive in a hundred
+     * million. Nodes above half of it are marked suspect. Default is 8.
+     */
+    @Value("${easyjob.detector.phiThreshold:8}")
+    private double detectorPhiThreshold;
+
+    /**
+     * The period in milliseconds a node reads the heartbeats of the other nodes, it should be well below the
+     * heartbeat period. Default is 1000ms.
+     */
+    @Value("${easyjob.detector.pollMillis:1000}")
+    private long detectorPollMillis;
+
+    /**
+     * The number of heartbeat intervals of a node the suspicion level is computed from. Default is 100.
+     */
+    @Value("${easyjob.detector.windowSize:100}")
+    private int detectorWindowSize;
+
+    /**
+     * The lower bound in milliseconds of the standard deviation of the heartbeat intervals, so a little delay of a
+     * node that always beat on time is not suspected right away. Default is 500ms.
+     */
+    @Value("${easyjob.detector.minStdDeviationMillis:500}")
+    private long detectorMinStdDeviationMillis;
+
+    /**
+     * The pause in milliseconds a heartbeat may take on top of the usual interval without raising the suspicion
+     * much, for garbage collection pauses and the like. Default is 3000ms.
+     */
+    @Value("${easyjob.detector.acceptablePauseMillis:3000}")
+    private long detectorAcceptablePauseMillis;
+
     /**
      * Retrieves the node ID, which is the local IP address of the machine. If the IP address cannot be determined,
      * it logs an error and returns "unknown".
@@ -1,8 +1,12 @@
 package com.github.copilot.task.controller;
 
 import com.github.copilot.task.entity.Node;
+import com.github.copilot.task.entity.NodeCommand;
+import com.github.copilot.task.enums.NotifyCmd;
+import com.github.copilot.task.repository.NodeCommandRepository;
 import com.github.copilot.task.repository.NodeJpaRepository;
 import com.github.copilot.task.repository.NodeRepository;
+import com.github.copilot.task.scheduler.NodeCommandDispatcher;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -24,11 +28,18 @@ public class NodeController {
 
     private final NodeRepository nodeRepository;
 
+    private final NodeCommandRepository nodeCommandRepository;
+
+    private final NodeCommandDispatcher nodeCommandDispatcher;
+
 
     @Autowired
-    public NodeController(NodeJpaRepository nodeJpaRepository,NodeRepository nodeRepository) {
+    public NodeController(NodeJpaRepository nodeJpaRepository,NodeRepository nodeRepository,
+                          NodeCommandRepository nodeCommandRepository, NodeCommandDispatcher nodeCommandDispatcher) {
         this.nodeJpaRepository = nodeJpaRepository;
         this.nodeRepository = nodeRepository;
+        this.nodeCommandRepository = nodeCommandRepository;
+        this.nodeCommandDispatcher = nodeCommandDispatcher;
     }
 
     @Operation(summary = "Get all nodes", responses = {
@@ -96,4 +107,27 @@ public class NodeController {
                     return ResponseEntity.ok().build();
                 }).orElseGet(() -> ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Queue a command for a node: STOP_TASK, PAUSE, RESUME, RELOAD_STRATEGY or DRAIN", responses = {
+            @ApiResponse(description = "The ID of the queued command", responseCode = "200"),
+            @ApiResponse(description = "Unknown command", responseCode = "400")
+    })
+    @PostMapping("/{nodeId}/commands")
+    public ResponseEntity<Long> sendCommand(@PathVariable String nodeId, @RequestParam NotifyCmd cmd,
+                                            @RequestParam(required = false) String value) {
+        if (cmd == NotifyCmd.NO_NOTIFY) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(nodeCommandDispatcher.send(nodeId, cmd, value));
+    }
+
+    @Operation(summary = "Get the latest commands sent to a node, the newest first", responses = {
+            @ApiResponse(description = "Successful Operation", responseCode = "200",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = NodeCommand.class)))
+    })
+    @GetMapping("/{nodeId}/commands")
+    public List<NodeCommand> getCommands(@PathVariable String nodeId, @RequestParam(defaultValue = "20") int size) {
+        return nodeCommandRepository.listRecent(nodeId, Math.max(1, Math.min(size, 1000)));
+    }
+}
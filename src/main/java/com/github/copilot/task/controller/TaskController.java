@@ -1,9 +1,14 @@
 package com.github.copilot.task.controller;
 
 import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.WorkflowRun;
+import com.github.copilot.task.entity.WorkflowStep;
+import com.github.copilot.task.executor.WorkerExecutorMetrics;
 import com.github.copilot.task.repository.TaskJpaRepository;
 import com.github.copilot.task.repository.TaskRepository;
+import com.github.copilot.task.repository.WorkflowRepository;
 import com.github.copilot.task.scheduler.ScheduleTaskExecutor;
+import com.github.copilot.task.scheduler.WorkflowCoordinator;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -87,6 +92,16 @@ public class TaskController {
                     task.setFirstStartTime(taskDetails.getFirstStartTime());
                     task.setNextStartTime(taskDetails.getNextStartTime());
                     task.setFinalEndTime(taskDetails.getFinalEndTime());
+                    task.setHistoryRetentionDays(taskDetails.getHistoryRetentionDays());
+                    task.setShardCount(taskDetails.getShardCount());
+                    task.setMisfirePolicy(taskDetails.getMisfirePolicy());
+                    task.setMisfireThresholdMillis(taskDetails.getMisfireThresholdMillis());
+                    task.setOverlapPolicy(taskDetails.getOverlapPolicy());
+                    task.setMaxConcurrency(taskDetails.getMaxConcurrency());
+                    task.setTimeoutMillis(taskDetails.getTimeoutMillis());
+                    task.setMaxRetries(taskDetails.getMaxRetries());
+                    task.setRetryBackoffMillis(taskDetails.getRetryBackoffMillis());
+                    task.setRetryOn(taskDetails.getRetryOn());
                     Task updatedTask = taskJpaRepository.save(task);
                     return ResponseEntity.ok(updatedTask);
                 }).orElseGet(() -> ResponseEntity.notFound().build());
@@ -125,6 +140,62 @@ public class TaskController {
         return ResponseEntity.ok().build();
     }
 
+    @Autowired
+    private WorkflowCoordinator workflowCoordinator;
+
+    @Autowired
+    private WorkflowRepository workflowRepository;
+
+    @Operation(summary = "Set the tasks a task runs after; a task with upstreams should have no cron expression, it fires when its upstreams finished", responses = {
+            @ApiResponse(description = "Upstreams set successfully", responseCode = "200"),
+            @ApiResponse(description = "Task not found", responseCode = "404"),
+            @ApiResponse(description = "The upstreams would form a cycle", responseCode = "400")
+    })
+    @PutMapping("/{id}/upstreams")
+    public ResponseEntity<?> setUpstreams(@PathVariable Long id, @RequestBody List<Long> upstreamIds) {
+        if (!taskJpaRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            workflowCoordinator.setUpstreams(id, upstreamIds);
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Get the latest workflow runs started by a root task, the newest first", responses = {
+            @ApiResponse(description = "Successful Operation", responseCode = "200",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = WorkflowRun.class)))
+    })
+    @GetMapping("/{id}/workflowRuns")
+    public List<WorkflowRun> getWorkflowRuns(@PathVariable Long id, @RequestParam(defaultValue = "20") int size) {
+        return workflowRepository.listRuns(id, Math.max(1, Math.min(size, 1000)));
+    }
+
+    @Operation(summary = "Get the state of each task of a workflow run", responses = {
+            @ApiResponse(description = "Successful Operation", responseCode = "200",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = WorkflowStep.class)))
+    })
+    @GetMapping("/workflowRuns/{runId}/steps")
+    public List<WorkflowStep> getWorkflowSteps(@PathVariable Long runId) {
+        return workflowRepository.listSteps(runId);
+    }
+
+    @Operation(summary = "Get the saturation metrics of the task executor", responses = {
+            @ApiResponse(description = "Successful Operation", responseCode = "200",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = WorkerExecutorMetrics.class))),
+            @ApiResponse(description = "Task executor not enabled on this node", responseCode = "404")
+    })
+    @GetMapping("/executor/metrics")
+    public ResponseEntity<WorkerExecutorMetrics> getExecutorMetrics() {
+        WorkerExecutorMetrics metrics = taskExecutor.workerMetrics();
+        return metrics == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(metrics);
+    }
+
     @Operation(summary = "Reinitialize all tasks", responses = {
             @ApiResponse(description = "Tasks reinitialized successfully", responseCode = "200"),
             @ApiResponse(description = "Operation failed", responseCode = "500")
@@ -1,6 +1,8 @@
 package com.github.copilot.task.controller;
 
 import com.github.copilot.task.entity.TaskDetail;
+import com.github.copilot.task.entity.TaskDetailHourly;
+import com.github.copilot.task.repository.TaskDetailHourlyJpaRepository;
 import com.github.copilot.task.repository.TaskDetailJpaRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -8,10 +10,13 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Date;
 import java.util.List;
 
 @Tag(name = "TaskDetail Controller", description = "API for managing task details")
@@ -19,33 +24,57 @@ import java.util.List;
 @RequestMapping("/taskDetails")
 public class TaskDetailController {
 
+    /**
+     * The largest page of task details returned at once.
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final TaskDetailJpaRepository taskDetailRepository;
 
+    private final TaskDetailHourlyJpaRepository taskDetailHourlyRepository;
+
     @Autowired
-    public TaskDetailController(TaskDetailJpaRepository taskDetailRepository) {
+    public TaskDetailController(TaskDetailJpaRepository taskDetailRepository,
+                                TaskDetailHourlyJpaRepository taskDetailHourlyRepository) {
         this.taskDetailRepository = taskDetailRepository;
+        this.taskDetailHourlyRepository = taskDetailHourlyRepository;
     }
 
-    @Operation(summary = "Get all task details", responses = {
+    @Operation(summary = "Get a page of task details by descending ID, roughly the newest first since nodes take IDs in blocks; pass the smallest ID of a page as beforeId to get the next one", responses = {
             @ApiResponse(description = "Successful Operation", responseCode = "200",
                     content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = TaskDetail.class))),
             @ApiResponse(description = "No task details found", responseCode = "404")
     })
     @GetMapping
-    public List<TaskDetail> getAllTaskDetails() {
-        return taskDetailRepository.findAll();
+    public List<TaskDetail> getAllTaskDetails(@RequestParam(defaultValue = "" + Long.MAX_VALUE) Long beforeId,
+                                              @RequestParam(defaultValue = "100") int size) {
+        return taskDetailRepository.findByIdLessThanOrderByIdDesc(beforeId, page(size));
     }
 
-    @Operation(summary = "Get task details by task ID", responses = {
+    @Operation(summary = "Get a page of task details by task ID, by descending ID, roughly the newest first since nodes take IDs in blocks; pass the smallest ID of a page as beforeId to get the next one", responses = {
             @ApiResponse(description = "Successful Operation", responseCode = "200",
                     content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = TaskDetail.class))),
             @ApiResponse(description = "Task details not found", responseCode = "404")
     })
     @GetMapping("/task/{taskId}")
-    public List<TaskDetail> getTaskDetailsByTaskId(@PathVariable Long taskId) {
-        return taskDetailRepository.findByTaskId(taskId);
+    public List<TaskDetail> getTaskDetailsByTaskId(@PathVariable Long taskId,
+                                                   @RequestParam(defaultValue = "" + Long.MAX_VALUE) Long beforeId,
+                                                   @RequestParam(defaultValue = "100") int size) {
+        return taskDetailRepository.findByTaskIdAndIdLessThanOrderByIdDesc(taskId, beforeId, page(size));
+    }
+
+    @Operation(summary = "Get the hourly run statistics of a task", responses = {
+            @ApiResponse(description = "Successful Operation", responseCode = "200",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = TaskDetailHourly.class)))
+    })
+    @GetMapping("/task/{taskId}/hourly")
+    public List<TaskDetailHourly> getHourlyByTaskId(@PathVariable Long taskId,
+                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        return taskDetailHourlyRepository.findByTaskIdAndHourStartGreaterThanEqualAndHourStartLessThanOrderByHourStartAsc(taskId, from, to);
     }
 
     @Operation(summary = "Create a new task detail", responses = {
@@ -91,4 +120,8 @@ public class TaskDetailController {
                     return ResponseEntity.ok().build();
                 }).orElseGet(() -> ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+
+    private static PageRequest page(int size) {
+        return PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+    }
+}
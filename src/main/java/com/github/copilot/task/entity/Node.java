@@ -7,13 +7,14 @@ import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.persistence.*;
+import java.util.Date;
 
 @Entity
 @Table(name = "schedule_node")
 @Getter
 @Setter
 @ToString
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @Slf4j
@@ -32,6 +33,48 @@ public class Node extends BaseEntity {
 
     private String notifyValue;
 
+    /**
+     * 正在执行的任务数，随心跳上报
+     */
+    private Integer activeCount;
+
+    /**
+     * 已经抢到还没开始执行的任务数，随心跳上报
+     */
+    private Integer queueDepth;
+
+    /**
+     * 最多同时执行的任务数，随心跳上报
+     */
+    private Integer capacity;
+
+    /**
+     * 最近执行任务耗时的p95，单位毫秒，随心跳上报
+     */
+    private Long p95Millis;
+
+    /**
+     * 只用于领导者租约行，持有租约的节点
+     */
+    private String leaseHolder;
+
+    /**
+     * 只用于领导者租约行，租约到期时间，按数据库时间
+     */
+    private Date leaseExpireTime;
+
+    /**
+     * 失效检测算出的怀疑程度，不存库
+     */
+    @Transient
+    private double phi;
+
+    /**
+     * 怀疑程度超过阈值的一半，可能已经挂了，不存库
+     */
+    @Transient
+    private boolean suspect;
+
     public Node(String nodeId) {
         this.nodeId = nodeId;
     }
@@ -0,0 +1,61 @@
+package com.github.copilot.task.entity;
+
+import com.github.copilot.db.BaseEntity;
+import com.github.copilot.task.enums.NotifyCmd;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * A control command queued for one node. The node takes its unacknowledged commands in ID order, hands each one to
+ * the {@code NotifyHandler} named after it and acknowledges the batch, so commands sent in a row are neither lost
+ * nor reordered.
+ */
+@Entity
+@Table(name = "schedule_node_command",
+        indexes = {@Index(name = "idx_node_command_pending", columnList = "node_id, ack_time")})
+@Getter
+@Setter
+@ToString
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Slf4j
+public class NodeCommand extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "schedule_node_command_seq")
+    @SequenceGenerator(name = "schedule_node_command_seq",
+            sequenceName = "schedule_node_command_seq",
+            allocationSize = 1)
+    private Long id;
+
+    /**
+     * 接收命令的节点id
+     */
+    private String nodeId;
+
+    /**
+     * 命令
+     */
+    @Enumerated(EnumType.ORDINAL)
+    private NotifyCmd notifyCmd;
+
+    /**
+     * 命令的参数，比如要停止的任务id
+     */
+    private String notifyValue;
+
+    /**
+     * 节点处理完命令的时间，为空表示还没处理
+     */
+    private Date ackTime;
+
+    /**
+     * 处理命令出错时的错误信息
+     */
+    private String errorMsg;
+}
@@ -2,9 +2,12 @@ package com.github.copilot.task.entity;
 
 import com.github.copilot.db.BaseEntity;
 import com.github.copilot.task.common.Invocation;
+import com.github.copilot.task.enums.MisfirePolicy;
+import com.github.copilot.task.enums.OverlapPolicy;
 import com.github.copilot.task.enums.TaskStatus;
 import com.github.copilot.task.serializer.JdkSerializationSerializer;
 import com.github.copilot.task.utils.CronExpression;
+import com.github.copilot.task.utils.CronExpressionCache;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
@@ -13,7 +16,8 @@ import java.text.ParseException;
 import java.util.Date;
 
 @Entity
-@Table(name = "schedule_task")
+@Table(name = "schedule_task", indexes = {
+        @Index(name = "idx_task_node_status", columnList = "node_id, status")})
 @Getter
 @Setter
 @ToString
@@ -85,6 +89,75 @@ public class Task extends BaseEntity {
      * 下次开始时间
      */
     private Date finalEndTime;
+    /**
+     * 执行明细保留天数，为空时使用全局配置
+     */
+    private Integer historyRetentionDays;
+
+    /**
+     * 分片数，大于1时每次触发拆成这么多个分片分发到各个节点执行
+     */
+    private Integer shardCount;
+
+    /**
+     * 最近一次放行该任务的工作流运行id，只有依赖上游的任务才有
+     */
+    private Long workflowRunId;
+
+    /**
+     * 错过触发的处理策略，0表示跳过，1表示立即补跑一次，2表示逐个补跑所有错过的触发，为空时使用全局配置
+     */
+    @Enumerated(EnumType.ORDINAL)
+    private MisfirePolicy misfirePolicy;
+
+    /**
+     * 晚了超过这么多毫秒才算错过触发，为空时使用全局配置
+     */
+    private Long misfireThresholdMillis;
+
+    /**
+     * 上一次执行还没结束时又触发了的处理策略，0表示并行执行，1表示排队等上一次结束，2表示跳过，为空时使用全局配置
+     */
+    @Enumerated(EnumType.ORDINAL)
+    private OverlapPolicy overlapPolicy;
+
+    /**
+     * 并行执行时一个节点上同时执行的上限，为空或者小于等于0时不限
+     */
+    private Integer maxConcurrency;
+
+    /**
+     * 执行超时时间，超时后中断执行并记为失败，为空时使用全局配置，小于等于0表示不超时
+     */
+    private Long timeoutMillis;
+
+    /**
+     * 执行失败后最多重试的次数，为空时使用全局配置，0表示不重试
+     */
+    private Integer maxRetries;
+
+    /**
+     * 第一次重试前等待的时间，之后每次翻倍，为空时使用全局配置
+     */
+    private Long retryBackoffMillis;
+
+    /**
+     * 需要重试的异常类名，多个用逗号分隔，子类也算，为空时任何异常都重试
+     */
+    private String retryOn;
+
+    /**
+     * 本次触发已经重试的次数，重试成功或者重试次数用完后清零
+     */
+    @Transient
+    private int retryAttempt;
+
+    /**
+     * 本次执行是在补跑一次错过的触发，执行完后从这次的触发时间往后算下次开始时间
+     */
+    @Transient
+    private boolean catchUp;
+
     /**
      * 任务的执行者
      */
@@ -98,4 +171,33 @@ public class Task extends BaseEntity {
         this.invocation = invocation;
     }
 
+    /**
+     * @return 是否是分片任务
+     */
+    public boolean isSharded() {
+        return shardCount != null && shardCount > 1;
+    }
+
+    /**
+     * 本次执行完后的下次开始时间，补跑错过的触发时从这次的触发时间往后算，还是错过的下一轮接着补，否则从现在往后算
+     *
+     * @param now 当前时间
+     * @return 下次开始时间，不再触发或者没有cron表达式时为空
+     * @throws ParseException cron表达式不合法
+     */
+    public Date nextStartTimeAfterRun(Date now) throws ParseException {
+        if (!isCronTriggered()) {
+            return null;
+        }
+        Date after = catchUp && nextStartTime != null && nextStartTime.before(now) ? nextStartTime : now;
+        return CronExpressionCache.nextFireTime(cronExpr, after);
+    }
+
+    /**
+     * @return 是否按cron表达式触发，依赖上游的任务没有cron表达式，由上游完成后放行
+     */
+    public boolean isCronTriggered() {
+        return cronExpr != null;
+    }
+
 }
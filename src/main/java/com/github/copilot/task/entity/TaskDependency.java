@@ -0,0 +1,43 @@
+package com.github.copilot.task.entity;
+
+import com.github.copilot.db.BaseEntity;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.*;
+
+/**
+ * An edge of a workflow: a task that only runs after another task finished. A task without upstreams and with a
+ * cron expression is the root of a workflow, each of its fires starts a {@link WorkflowRun} over all the tasks
+ * reachable from it.
+ */
+@Entity
+@Table(name = "schedule_task_dependency", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_task_dependency", columnNames = {"task_id", "upstream_task_id"})})
+@Getter
+@Setter
+@ToString
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Slf4j
+public class TaskDependency extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "schedule_task_dependency_seq")
+    @SequenceGenerator(name = "schedule_task_dependency_seq",
+            sequenceName = "schedule_task_dependency_seq",
+            allocationSize = 1)
+    private Long id;
+
+    /**
+     * 下游任务id
+     */
+    private Long taskId;
+
+    /**
+     * 上游任务id，上游完成后下游才会执行
+     */
+    private Long upstreamTaskId;
+}
@@ -9,7 +9,9 @@ import javax.persistence.*;
 import java.util.Date;
 
 @Entity
-@Table(name = "schedule_task_detail")
+@Table(name = "schedule_task_detail", indexes = {
+        @Index(name = "idx_task_detail_task_id", columnList = "task_id, id"),
+        @Index(name = "idx_task_detail_start_time", columnList = "start_time")})
 @Getter
 @Setter
 @ToString
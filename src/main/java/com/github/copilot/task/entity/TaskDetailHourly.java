@@ -0,0 +1,68 @@
+package com.github.copilot.task.entity;
+
+import com.github.copilot.db.BaseEntity;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Aggregate of the runs of one task started within one hour, kept after the runs themselves were deleted by the
+ * retention job.
+ */
+@Entity
+@Table(name = "schedule_task_detail_hourly",
+        uniqueConstraints = @UniqueConstraint(name = "uk_task_detail_hourly", columnNames = {"task_id", "hour_start"}))
+@Getter
+@Setter
+@ToString
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Slf4j
+public class TaskDetailHourly extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "schedule_task_detail_hourly_seq")
+    @SequenceGenerator(name = "schedule_task_detail_hourly_seq",
+            sequenceName = "schedule_task_detail_hourly_seq",
+            allocationSize = 1)
+    private Long id;
+
+    /**
+     * 任务id
+     */
+    private Long taskId;
+
+    /**
+     * 统计的小时的开始时间
+     */
+    private Date hourStart;
+
+    /**
+     * 执行次数
+     */
+    private Long runCount;
+
+    /**
+     * 失败次数
+     */
+    private Long failCount;
+
+    /**
+     * 执行耗时的中位数，单位毫秒，只统计已结束的执行
+     */
+    private Long p50Millis;
+
+    /**
+     * 执行耗时的99分位数，单位毫秒
+     */
+    private Long p99Millis;
+
+    /**
+     * 最长执行耗时，单位毫秒
+     */
+    private Long maxMillis;
+}
@@ -0,0 +1,81 @@
+package com.github.copilot.task.entity;
+
+import com.github.copilot.db.BaseEntity;
+import com.github.copilot.task.enums.TaskStatus;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * One shard execution of one fire of a sharded task. The node firing the task creates a row per shard, assigned to
+ * a node, and aggregates their results into its own task detail once all of them ended.
+ */
+@Entity
+@Table(name = "schedule_task_shard", indexes = {
+        @Index(name = "idx_task_shard_run_id", columnList = "run_id"),
+        @Index(name = "idx_task_shard_node_status", columnList = "node_id, status")})
+@Getter
+@Setter
+@ToString
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Slf4j
+public class TaskShard extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "schedule_task_shard_seq")
+    @SequenceGenerator(name = "schedule_task_shard_seq",
+            sequenceName = "schedule_task_shard_seq",
+            allocationSize = 1)
+    private Long id;
+
+    /**
+     * 同一次触发的所有分片共用的id
+     */
+    private String runId;
+
+    /**
+     * 任务id
+     */
+    private Long taskId;
+
+    /**
+     * 分片序号，从0开始
+     */
+    private Integer shardIndex;
+
+    /**
+     * 分片总数
+     */
+    private Integer shardTotal;
+
+    /**
+     * 分配到的节点id
+     */
+    private String nodeId;
+
+    /**
+     * 状态，1表示待执行，2表示执行中，3表示异常，4表示已完成，5表示已停止
+     */
+    @Enumerated(EnumType.ORDINAL)
+    private TaskStatus status;
+
+    /**
+     * 开始时间
+     */
+    private Date startTime;
+
+    /**
+     * 结束时间
+     */
+    private Date endTime;
+
+    /**
+     * 错误信息
+     */
+    private String errorMsg;
+}
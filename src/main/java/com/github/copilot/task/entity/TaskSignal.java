@@ -0,0 +1,39 @@
+package com.github.copilot.task.entity;
+
+import com.github.copilot.db.BaseEntity;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * A change counter shared by all nodes through the database.
+ * A node bumps the sequence of a channel after it changed tasks, the other nodes compare the sequence with the
+ * last one they saw to find out whether they should load tasks again.
+ */
+@Entity
+@Table(name = "schedule_task_signal")
+@Getter
+@Setter
+@ToString
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Slf4j
+public class TaskSignal extends BaseEntity {
+
+    @Id
+    private String channel;
+
+    /**
+     * 变更序号，每次有任务变更就加1
+     */
+    @Builder.Default
+    private Long seq = 0L;
+
+    public TaskSignal(String channel) {
+        this.channel = channel;
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.copilot.task.entity;
+
+import com.github.copilot.db.BaseEntity;
+import com.github.copilot.task.enums.TaskStatus;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * One run of a workflow, started when its root task finished. The state of each task of the run is kept in a
+ * {@link WorkflowStep}, so a run survives the loss of any node and continues where it stopped.
+ */
+@Entity
+@Table(name = "schedule_workflow_run", indexes = {
+        @Index(name = "idx_workflow_run_root_status", columnList = "root_task_id, status")})
+@Getter
+@Setter
+@ToString
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Slf4j
+public class WorkflowRun extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "schedule_workflow_run_seq")
+    @SequenceGenerator(name = "schedule_workflow_run_seq",
+            sequenceName = "schedule_workflow_run_seq",
+            allocationSize = 1)
+    private Long id;
+
+    /**
+     * 根任务id
+     */
+    private Long rootTaskId;
+
+    /**
+     * 状态，2表示执行中，3表示异常，4表示已完成
+     */
+    @Enumerated(EnumType.ORDINAL)
+    private TaskStatus status;
+
+    /**
+     * 开始时间
+     */
+    private Date startTime;
+
+    /**
+     * 结束时间
+     */
+    private Date endTime;
+
+    /**
+     * 错误信息
+     */
+    private String errorMsg;
+}
@@ -0,0 +1,66 @@
+package com.github.copilot.task.entity;
+
+import com.github.copilot.db.BaseEntity;
+import com.github.copilot.task.enums.TaskStatus;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * The state of one task within one {@link WorkflowRun}. A step waits until all its upstreams within the run
+ * finished, then its task is released to be fired right away by whichever node the strategy picks.
+ */
+@Entity
+@Table(name = "schedule_workflow_step", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_workflow_step", columnNames = {"run_id", "task_id"})},
+        indexes = {@Index(name = "idx_workflow_step_status", columnList = "status")})
+@Getter
+@Setter
+@ToString
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Slf4j
+public class WorkflowStep extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "schedule_workflow_step_seq")
+    @SequenceGenerator(name = "schedule_workflow_step_seq",
+            sequenceName = "schedule_workflow_step_seq",
+            allocationSize = 1)
+    private Long id;
+
+    /**
+     * 所属的工作流运行id
+     */
+    private Long runId;
+
+    /**
+     * 任务id
+     */
+    private Long taskId;
+
+    /**
+     * 还没完成的上游数量，减到0时放行
+     */
+    private Integer remainingUpstreams;
+
+    /**
+     * 状态，0表示等待上游，1表示已放行，3表示异常，4表示已完成，5表示因为上游失败而跳过
+     */
+    @Enumerated(EnumType.ORDINAL)
+    private TaskStatus status;
+
+    /**
+     * 结束时间
+     */
+    private Date endTime;
+
+    /**
+     * 错误信息
+     */
+    private String errorMsg;
+}
@@ -0,0 +1,59 @@
+package com.github.copilot.task.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum representing what happens to the fires of a task that were missed by more than the misfire threshold,
+ * e.g. while all nodes were down.
+ */
+@Getter
+public enum MisfirePolicy {
+
+    // Drops the missed fires, the task next fires at its first valid time after now.
+    SKIP(0),
+    // Fires once right away for all the missed fires, then goes on from now.
+    FIRE_ONCE(1),
+    // Fires every missed fire one after the other, throttled, until the task caught up with its schedule.
+    FIRE_ALL(2);
+
+    public static final String SKIP_KEY = "skip";
+
+    public static final String FIRE_ONCE_KEY = "fire_once";
+
+    public static final String FIRE_ALL_KEY = "fire_all";
+
+    int id;
+
+    MisfirePolicy(int id) {
+        this.id = id;
+    }
+
+    public static MisfirePolicy valueOf(int id) {
+        switch (id) {
+            case 1:
+                return FIRE_ONCE;
+            case 2:
+                return FIRE_ALL;
+            default:
+                return SKIP;
+        }
+    }
+
+    /**
+     * @param key The configured policy, skip, fire_once or fire_all.
+     * @return The policy, SKIP for an unknown key.
+     */
+    public static MisfirePolicy choose(String key) {
+        if (key == null) {
+            return SKIP;
+        }
+        switch (key) {
+            case FIRE_ONCE_KEY:
+                return FIRE_ONCE;
+            case FIRE_ALL_KEY:
+                return FIRE_ALL;
+            default:
+                return SKIP;
+        }
+    }
+}
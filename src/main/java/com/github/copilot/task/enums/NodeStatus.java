@@ -12,7 +12,9 @@ public enum NodeStatus {
     // Indicates the node is disabled and not executing tasks.
     DISABLE(0),
     // Indicates the node is enabled and currently executing tasks.
-    ENABLE(1);
+    ENABLE(1),
+    // Indicates the node is being taken out, it finishes its running tasks but gets no new ones.
+    DRAINING(2);
 
     int id;
 
@@ -24,6 +26,8 @@ public enum NodeStatus {
         switch (id) {
             case 1:
                 return ENABLE;
+            case 2:
+                return DRAINING;
             default:
                 return DISABLE;
         }
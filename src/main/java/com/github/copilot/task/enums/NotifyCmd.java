@@ -16,7 +16,15 @@ public enum NotifyCmd {
     // Represents a command to edit a task.
     EDIT_TASK(2),
     // Represents a command to stop a task.
-    STOP_TASK(3);
+    STOP_TASK(3),
+    // Represents a command to stop claiming tasks on a node.
+    PAUSE(4),
+    // Represents a command to claim tasks on a paused node again.
+    RESUME(5),
+    // Represents a command to recreate the strategy of a node.
+    RELOAD_STRATEGY(6),
+    // Represents a command to take a node out of the cluster.
+    DRAIN(7);
 
     int id;
 
@@ -32,6 +40,14 @@ public enum NotifyCmd {
                 return EDIT_TASK;
             case 3:
                 return STOP_TASK;
+            case 4:
+                return PAUSE;
+            case 5:
+                return RESUME;
+            case 6:
+                return RELOAD_STRATEGY;
+            case 7:
+                return DRAIN;
             default:
                 return NO_NOTIFY;
         }
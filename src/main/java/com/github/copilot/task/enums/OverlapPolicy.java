@@ -0,0 +1,59 @@
+package com.github.copilot.task.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum representing what a node does with a fire of a task while earlier runs of the same task are still running
+ * on it, e.g. after a manual start or a recovery.
+ */
+@Getter
+public enum OverlapPolicy {
+
+    // Runs alongside the earlier runs, up to the task's max concurrency if it has one, later fires wait.
+    PARALLEL(0),
+    // Waits until the earlier run ended.
+    QUEUE(1),
+    // Drops the fire.
+    SKIP(2);
+
+    public static final String PARALLEL_KEY = "parallel";
+
+    public static final String QUEUE_KEY = "queue";
+
+    public static final String SKIP_KEY = "skip";
+
+    int id;
+
+    OverlapPolicy(int id) {
+        this.id = id;
+    }
+
+    public static OverlapPolicy valueOf(int id) {
+        switch (id) {
+            case 1:
+                return QUEUE;
+            case 2:
+                return SKIP;
+            default:
+                return PARALLEL;
+        }
+    }
+
+    /**
+     * @param key The configured policy, parallel, queue or skip.
+     * @return The policy, PARALLEL for an unknown key.
+     */
+    public static OverlapPolicy choose(String key) {
+        if (key == null) {
+            return PARALLEL;
+        }
+        switch (key) {
+            case QUEUE_KEY:
+                return QUEUE;
+            case SKIP_KEY:
+                return SKIP;
+            default:
+                return PARALLEL;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.copilot.task.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum representing the kinds of task changes that can make a task due for loading.
+ * Used to wake up the task Loader instead of waiting for its next polling period.
+ */
+@Getter
+public enum TaskChangeType {
+
+    // Indicates a new task has been inserted.
+    INSERT(0),
+    // Indicates a task has got a new next start time.
+    RESCHEDULE(1),
+    // Indicates tasks of a lost node have been handed back for scheduling.
+    RECOVER(2),
+    // Indicates the leader has assigned tasks to nodes.
+    ASSIGN(3),
+    // Indicates shards of a sharded task have been assigned to nodes.
+    SHARD(4);
+
+    int id;
+
+    TaskChangeType(int id) {
+        this.id = id;
+    }
+}
@@ -20,7 +20,9 @@ public enum TaskStatus {
     // Indicates the task has completed its execution successfully.
     FINISH(4),
     // Indicates the task has been manually stopped before completion.
-    STOP(5);
+    STOP(5),
+    // Indicates the leader has assigned the task to a node that has not picked it up yet.
+    ASSIGNED(6);
 
     int id;
 
@@ -40,6 +42,8 @@ public enum TaskStatus {
                 return FINISH;
             case 5:
                 return STOP;
+            case 6:
+                return ASSIGNED;
             default:
                 return NOT_STARTED;
         }
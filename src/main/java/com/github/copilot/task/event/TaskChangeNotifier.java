@@ -0,0 +1,163 @@
+package com.github.copilot.task.event;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.enums.TaskChangeType;
+import com.github.copilot.task.repository.TaskSignalRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Change notification channel used to wake up the task Loader.
+ * <p>
+ * Changes made on this node are published as {@link TaskChangedEvent} on the Spring event bus and wake up the
+ * local Loader right away. They are also counted in the {@code schedule_task_signal} table, so the Loaders of
+ * the other nodes notice them on their next signal check without any external broker. Several changes between
+ * two checks only cost one update of the counter. A node without a Loader, e.g. one only serving the API, counts
+ * each change right away since nothing else would.
+ */
+@Component
+public class TaskChangeNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskChangeNotifier.class);
+
+    /**
+     * The signal channel shared by all task changes.
+     */
+    public static final String TASK_CHANNEL = "TASK";
+
+    private final Object monitor = new Object();
+
+    /**
+     * Local changes that have not been counted in the signal table yet.
+     */
+    private final AtomicBoolean remoteDirty = new AtomicBoolean();
+
+    /**
+     * Guarded by monitor.
+     */
+    private boolean signalled;
+
+    /**
+     * The last sequence of the signal channel this node has seen.
+     */
+    private volatile long lastSeenSeq = -1;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TaskSignalRepository taskSignalRepository;
+
+    @Autowired
+    private EasyJobConfig config;
+
+    /**
+     * Publishes a task change to this node and, with the next signal check, to the other nodes.
+     *
+     * @param taskId     The ID of the changed task, null when several tasks changed at once.
+     * @param changeType The kind of change.
+     */
+    public void publish(Long taskId, TaskChangeType changeType) {
+        remoteDirty.set(true);
+        eventPublisher.publishEvent(new TaskChangedEvent(this, taskId, changeType));
+        if (!hasLoader()) {
+            flushRemote();
+        }
+    }
+
+    /**
+     * @return Whether this node runs a Loader, which counts the local changes before each wait.
+     */
+    private boolean hasLoader() {
+        return config.isRecoverEnable() && config.isHeartBeatEnable();
+    }
+
+    @EventListener
+    public void onTaskChanged(TaskChangedEvent event) {
+        synchronized (monitor) {
+            signalled = true;
+            monitor.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until a task changes on this node or another one, or until the timeout elapses.
+     * The signal table is checked every {@code easyjob.node.signalPeriod} milliseconds while waiting.
+     *
+     * @param timeoutMs The maximum time to wait, in milliseconds.
+     * @return true if a change was noticed, false if the timeout elapsed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitChange(long timeoutMs) throws InterruptedException {
+        flushRemote();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        for (; ; ) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            if (awaitLocal(Math.min(remaining, config.getSignalPeriod()))) {
+                return true;
+            }
+            if (remoteChanged()) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Counts the local changes in the signal table right away, for a node about to stop waiting for changes.
+     */
+    public void flush() {
+        flushRemote();
+    }
+
+    private boolean awaitLocal(long timeoutMs) throws InterruptedException {
+        synchronized (monitor) {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            long remaining = timeoutMs;
+            while (!signalled && remaining > 0) {
+                monitor.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            boolean result = signalled;
+            signalled = false;
+            return result;
+        }
+    }
+
+    /**
+     * Counts the local changes in the signal table so that the other nodes can see them.
+     */
+    private void flushRemote() {
+        if (!remoteDirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            taskSignalRepository.bump(TASK_CHANNEL);
+        } catch (Exception e) {
+            remoteDirty.set(true);
+            logger.error("publish task signal failed,cause by:{}", e.getMessage());
+        }
+    }
+
+    private boolean remoteChanged() {
+        try {
+            long seq = taskSignalRepository.currentSeq(TASK_CHANNEL);
+            if (seq == lastSeenSeq) {
+                return false;
+            }
+            lastSeenSeq = seq;
+            return true;
+        } catch (Exception e) {
+            logger.error("check task signal failed,cause by:{}", e.getMessage());
+            return false;
+        }
+    }
+}
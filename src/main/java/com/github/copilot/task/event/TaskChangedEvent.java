@@ -0,0 +1,35 @@
+package com.github.copilot.task.event;
+
+import com.github.copilot.task.enums.TaskChangeType;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published inside the JVM when a task has been inserted, rescheduled or recovered.
+ */
+public class TaskChangedEvent extends ApplicationEvent {
+
+    private final Long taskId;
+
+    private final TaskChangeType changeType;
+
+    /**
+     * Constructs a new TaskChangedEvent.
+     *
+     * @param source     The component that changed the task.
+     * @param taskId     The ID of the changed task, null when several tasks changed at once.
+     * @param changeType The kind of change.
+     */
+    public TaskChangedEvent(Object source, Long taskId, TaskChangeType changeType) {
+        super(source);
+        this.taskId = taskId;
+        this.changeType = changeType;
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    public TaskChangeType getChangeType() {
+        return changeType;
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.copilot.task.executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base class of the worker executors. A semaphore bounds the tasks in flight, so the underlying executor service
+ * never has to reject a command.
+ */
+public abstract class AbstractWorkerExecutor implements WorkerExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractWorkerExecutor.class);
+
+    private final int capacity;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    private final LongAdder accepted = new LongAdder();
+
+    private final LongAdder saturated = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    protected AbstractWorkerExecutor(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0: " + capacity);
+        }
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+    }
+
+    /**
+     * @return The executor service running the commands.
+     */
+    protected abstract ExecutorService executorService();
+
+    @Override
+    public boolean tryExecute(Runnable command) {
+        if (!permits.tryAcquire()) {
+            saturated.increment();
+            return false;
+        }
+        try {
+            executorService().execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    completed.increment();
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            saturated.increment();
+            logger.warn("{} worker executor rejected a task,cause by:{}", mode(), e.getMessage());
+            return false;
+        }
+        accepted.increment();
+        int inFlight = capacity - permits.availablePermits();
+        peakInFlight.accumulateAndGet(inFlight, Math::max);
+        return true;
+    }
+
+    @Override
+    public WorkerExecutorMetrics metrics() {
+        return new WorkerExecutorMetrics(mode(), capacity, capacity - permits.availablePermits(), peakInFlight.get(),
+                accepted.sum(), saturated.sum(), completed.sum());
+    }
+
+    @Override
+    public void shutdown() {
+        executorService().shutdownNow();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executorService().awaitTermination(timeout, unit);
+    }
+}
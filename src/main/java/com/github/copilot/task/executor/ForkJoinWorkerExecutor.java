@@ -0,0 +1,31 @@
+package com.github.copilot.task.executor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Worker executor backed by a dedicated work-stealing ForkJoin pool in FIFO mode.
+ */
+public class ForkJoinWorkerExecutor extends AbstractWorkerExecutor {
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelism The number of worker threads.
+     * @param capacity    The maximum number of tasks in flight.
+     */
+    public ForkJoinWorkerExecutor(int parallelism, int capacity) {
+        super(capacity);
+        this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    @Override
+    protected ExecutorService executorService() {
+        return pool;
+    }
+
+    @Override
+    public String mode() {
+        return FORK_JOIN;
+    }
+}
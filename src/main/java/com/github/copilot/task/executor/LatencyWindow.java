@@ -0,0 +1,55 @@
+package com.github.copilot.task.executor;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the execution times of the most recent task runs of a node, so the node can report a recent percentile
+ * with its heartbeat. Recording is a store into a ring buffer, the percentile is only computed on demand.
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+
+    private int next;
+
+    private int count;
+
+    /**
+     * @param size The number of most recent runs kept.
+     */
+    public LatencyWindow(int size) {
+        this.samples = new long[Math.max(1, size)];
+    }
+
+    /**
+     * Records the execution time of a run.
+     *
+     * @param millis The execution time in milliseconds.
+     */
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * Computes a percentile of the recorded execution times.
+     *
+     * @param percentile The percentile, between 0 and 1.
+     * @return The execution time in milliseconds, null if nothing was recorded yet.
+     */
+    public Long percentile(double percentile) {
+        long[] copy;
+        synchronized (this) {
+            if (count == 0) {
+                return null;
+            }
+            copy = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(percentile * copy.length) - 1;
+        return copy[Math.max(0, Math.min(index, copy.length - 1))];
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.copilot.task.executor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker executor backed by a bounded platform thread pool.
+ */
+public class PlatformWorkerExecutor extends AbstractWorkerExecutor {
+
+    private final ThreadPoolExecutor pool;
+
+    /**
+     * Threads beyond corePoolSize are created once the queue is full and reclaimed after 60s of idleness.
+     * The capacity is capped at maxPoolSize + queueSize, anything above it could not be held by the pool.
+     *
+     * @param corePoolSize The initial number of threads.
+     * @param maxPoolSize  The maximum number of threads.
+     * @param queueSize    The size of the queue.
+     * @param capacity     The maximum number of tasks in flight.
+     */
+    public PlatformWorkerExecutor(int corePoolSize, int maxPoolSize, int queueSize, int capacity) {
+        super(Math.min(capacity, maxPoolSize + queueSize));
+        this.pool = new ThreadPoolExecutor(corePoolSize, maxPoolSize, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize));
+    }
+
+    @Override
+    protected ExecutorService executorService() {
+        return pool;
+    }
+
+    @Override
+    public String mode() {
+        return PLATFORM;
+    }
+}
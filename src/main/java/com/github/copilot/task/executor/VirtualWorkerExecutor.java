@@ -0,0 +1,62 @@
+package com.github.copilot.task.executor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Worker executor starting one virtual thread per task, suited to I/O-bound tasks.
+ * <p>
+ * The project compiles against Java 11, so the virtual thread factory is looked up by reflection and only
+ * available on a JDK 21+ runtime, see {@link #isSupported()}.
+ */
+public class VirtualWorkerExecutor extends AbstractWorkerExecutor {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactory();
+
+    private final ExecutorService executor;
+
+    /**
+     * @param capacity The maximum number of tasks in flight.
+     */
+    public VirtualWorkerExecutor(int capacity) {
+        super(capacity);
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads are not supported by this runtime");
+        }
+        try {
+            this.executor = (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create the virtual thread executor", e);
+        }
+    }
+
+    /**
+     * @return true if the runtime can start virtual threads.
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    private static Method findFactory() {
+        // JDK 19 and 20 only have virtual threads as a preview feature
+        if (Runtime.version().feature() < 21) {
+            return null;
+        }
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected ExecutorService executorService() {
+        return executor;
+    }
+
+    @Override
+    public String mode() {
+        return VIRTUAL;
+    }
+}
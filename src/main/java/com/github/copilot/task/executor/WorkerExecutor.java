@@ -0,0 +1,82 @@
+package com.github.copilot.task.executor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the task Workers of a node with a bounded number of tasks in flight.
+ * <p>
+ * Unlike a plain {@link java.util.concurrent.ExecutorService} it never rejects with an exception: when the executor
+ * is saturated {@link #tryExecute(Runnable)} returns false and the caller decides what to do with the task, the
+ * scheduler puts it back into the trigger engine and tries again a bit later.
+ */
+public interface WorkerExecutor {
+
+    String PLATFORM = "platform";
+
+
+    String VIRTUAL = "virtual";
+
+
+    String FORK_JOIN = "forkjoin";
+
+
+    /**
+     * Chooses the worker executor by its configuration key, the bounded platform thread pool is used by default.
+     * Virtual threads need a JDK 21+ runtime, older runtimes fall back to the platform thread pool.
+     *
+     * @param key            The configured executor mode.
+     * @param corePoolSize   The initial number of platform threads.
+     * @param maxPoolSize    The maximum number of platform threads, also the parallelism of the ForkJoin pool.
+     * @param queueSize      The size of the platform thread pool queue.
+     * @param maxConcurrency The maximum number of tasks in flight, queued ones included. Zero or negative values
+     *                       default to maxPoolSize + queueSize.
+     * @return The worker executor.
+     */
+    static WorkerExecutor choose(String key, int corePoolSize, int maxPoolSize, int queueSize, int maxConcurrency) {
+        int capacity = maxConcurrency > 0 ? maxConcurrency : maxPoolSize + queueSize;
+        switch (key) {
+            case VIRTUAL:
+                if (VirtualWorkerExecutor.isSupported()) {
+                    return new VirtualWorkerExecutor(capacity);
+                }
+                return new PlatformWorkerExecutor(corePoolSize, maxPoolSize, queueSize, capacity);
+            case FORK_JOIN:
+                return new ForkJoinWorkerExecutor(maxPoolSize, capacity);
+            default:
+                return new PlatformWorkerExecutor(corePoolSize, maxPoolSize, queueSize, capacity);
+        }
+    }
+
+    /**
+     * Runs the command if the executor has room for it.
+     *
+     * @param command The command to run, usually a {@link java.util.concurrent.FutureTask} so it can be cancelled.
+     * @return true if the command was accepted, false if the executor is saturated.
+     */
+    boolean tryExecute(Runnable command);
+
+    /**
+     * @return The executor mode actually in use.
+     */
+    String mode();
+
+    /**
+     * @return A snapshot of the saturation metrics.
+     */
+    WorkerExecutorMetrics metrics();
+
+    /**
+     * Stops accepting commands and interrupts the running ones.
+     */
+    void shutdown();
+
+    /**
+     * Blocks until the running commands have finished after a shutdown, or the timeout elapses.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The time unit of the timeout.
+     * @return true if all commands finished, false if the timeout elapsed first.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+}
@@ -0,0 +1,49 @@
+package com.github.copilot.task.executor;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Saturation metrics of a worker executor.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkerExecutorMetrics {
+
+    /**
+     * The executor mode in use.
+     */
+    private String mode;
+
+    /**
+     * The maximum number of tasks in flight.
+     */
+    private int capacity;
+
+    /**
+     * The number of tasks currently in flight, queued ones included.
+     */
+    private int inFlight;
+
+    /**
+     * The highest number of tasks in flight seen so far.
+     */
+    private int peakInFlight;
+
+    /**
+     * The number of tasks accepted.
+     */
+    private long accepted;
+
+    /**
+     * The number of tasks turned away because the executor was saturated.
+     */
+    private long saturated;
+
+    /**
+     * The number of tasks that have run to the end, successfully or not.
+     */
+    private long completed;
+}
@@ -0,0 +1,52 @@
+package com.github.copilot.task.handles;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.scheduler.ScheduleTaskExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Handler for draining a node before a rolling restart.
+ * The node stops claiming tasks, hands the tasks it claimed but did not start back to the other nodes and waits for
+ * its running tasks. It keeps heart beating, a RESUME command brings it back.
+ */
+@Component("DRAIN")
+public class DrainHandler implements NotifyHandler<String> {
+
+    private static final Logger logger = LoggerFactory.getLogger(DrainHandler.class);
+
+    @Autowired
+    private ScheduleTaskExecutor scheduleTaskExecutor;
+
+    @Autowired
+    private EasyJobConfig config;
+
+    /**
+     * Drains this node in the background, so the commands after this one are still handled.
+     *
+     * @param value The time in seconds to wait for the running tasks, empty for the configured one.
+     */
+    @Override
+    public void update(String value) {
+        long timeoutMillis = (value == null || value.trim().isEmpty() ? config.getDrainTimeoutSeconds()
+                : Long.parseLong(value.trim())) * 1000L;
+        Thread thread = new Thread(() -> {
+            try {
+                scheduleTaskExecutor.drain(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("drain node failed,cause by:{}", e);
+            }
+        }, "node-drain");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void handle(String value) {
+        update(value);
+    }
+}
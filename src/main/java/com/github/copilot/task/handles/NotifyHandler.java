@@ -26,4 +26,15 @@ public interface NotifyHandler<T> {
      * @param t The data used for updating the task.
      */
     void update(T t);
+
+    /**
+     * Handles a command with its value as it was sent. The value of the task commands is the task ID, handlers
+     * whose data is something else override this.
+     *
+     * @param value The value sent with the command.
+     */
+    @SuppressWarnings("unchecked")
+    default void handle(String value) {
+        update((T) Long.valueOf(value));
+    }
 }
\ No newline at end of file
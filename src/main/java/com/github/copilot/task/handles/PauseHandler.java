@@ -0,0 +1,31 @@
+package com.github.copilot.task.handles;
+
+import com.github.copilot.task.scheduler.ScheduleTaskExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Handler for pausing a node.
+ * The node stops claiming tasks and shards, the tasks it already claimed still run.
+ */
+@Component("PAUSE")
+public class PauseHandler implements NotifyHandler<String> {
+
+    @Autowired
+    private ScheduleTaskExecutor scheduleTaskExecutor;
+
+    /**
+     * Pauses this node.
+     *
+     * @param value Not used.
+     */
+    @Override
+    public void update(String value) {
+        scheduleTaskExecutor.pause();
+    }
+
+    @Override
+    public void handle(String value) {
+        update(value);
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.copilot.task.handles;
+
+import com.github.copilot.task.scheduler.ScheduleTaskExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Handler for reloading the strategy of a node.
+ * The strategy is created again, dropping whatever it cached, optionally switching to another strategy.
+ */
+@Component("RELOAD_STRATEGY")
+public class ReloadStrategyHandler implements NotifyHandler<String> {
+
+    @Autowired
+    private ScheduleTaskExecutor scheduleTaskExecutor;
+
+    /**
+     * Recreates the strategy of this node.
+     *
+     * @param value The key of the strategy to switch to, empty for the configured one.
+     */
+    @Override
+    public void update(String value) {
+        scheduleTaskExecutor.reloadStrategy(value);
+    }
+
+    @Override
+    public void handle(String value) {
+        update(value);
+    }
+}
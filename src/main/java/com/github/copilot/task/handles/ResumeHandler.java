@@ -0,0 +1,30 @@
+package com.github.copilot.task.handles;
+
+import com.github.copilot.task.scheduler.ScheduleTaskExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Handler for resuming a paused node.
+ */
+@Component("RESUME")
+public class ResumeHandler implements NotifyHandler<String> {
+
+    @Autowired
+    private ScheduleTaskExecutor scheduleTaskExecutor;
+
+    /**
+     * Resumes this node, it claims tasks again right away.
+     *
+     * @param value Not used.
+     */
+    @Override
+    public void update(String value) {
+        scheduleTaskExecutor.resume();
+    }
+
+    @Override
+    public void handle(String value) {
+        update(value);
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.copilot.task.history;
+
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskDetail;
+import com.github.copilot.task.enums.TaskStatus;
+import com.github.copilot.task.repository.TaskRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes the history off the running thread. The detail of a run only lives in memory until the run ends, then it
+ * goes to a bounded buffer and a single flusher thread inserts the buffered details with JDBC batches, so a run
+ * costs no statement at all in the running thread.
+ * <p>
+ * With a sample rate below 1 only that share of the successful runs is kept, failed runs are always kept. When the
+ * buffer is full the running thread inserts its detail itself, so history is slowed down rather than lost.
+ */
+public class AsyncTaskHistoryWriter implements TaskHistoryWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncTaskHistoryWriter.class);
+
+    private final TaskRepository taskRepository;
+
+    private final BlockingQueue<TaskDetail> buffer;
+
+    private final int batchSize;
+
+    private final long flushMillis;
+
+    private final double sampleRate;
+
+    private final Thread flusher;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running = true;
+
+    /**
+     * The batch the flusher was working on when it stopped, written by shutdown.
+     */
+    private volatile List<TaskDetail> leftover = Collections.emptyList();
+
+    public AsyncTaskHistoryWriter(TaskRepository taskRepository, int bufferSize, int batchSize, long flushMillis,
+                                  double sampleRate) {
+        this.taskRepository = taskRepository;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushMillis = Math.max(1, flushMillis);
+        this.sampleRate = sampleRate;
+        this.flusher = new Thread(this::flushLoop, "task-history-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public TaskDetail start(Task task) {
+        TaskDetail detail = new TaskDetail(task.getId());
+        detail.setNodeId(task.getNodeId());
+        detail.setRetryCount(task.getRetryAttempt());
+        return detail;
+    }
+
+    @Override
+    public void end(List<TaskDetail> details) {
+        for (TaskDetail detail : details) {
+            if (detail.getStatus() == TaskStatus.FINISH && sampleRate < 1.0
+                    && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                dropped.increment();
+                continue;
+            }
+            if (!buffer.offer(detail)) {
+                taskRepository.insertDetails(Collections.singletonList(detail));
+            }
+        }
+    }
+
+    /**
+     * @return The number of details waiting in the buffer.
+     */
+    public int pending() {
+        return buffer.size();
+    }
+
+    /**
+     * @return The number of successful runs left out by sampling.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<TaskDetail> rest = new ArrayList<>(leftover);
+        buffer.drainTo(rest);
+        try {
+            taskRepository.insertDetails(rest);
+        } catch (Exception e) {
+            logger.error("write {} task details on shutdown failed,cause by:{}", rest.size(), e.getMessage());
+        }
+    }
+
+    private void flushLoop() {
+        List<TaskDetail> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    TaskDetail first = buffer.poll(flushMillis, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    buffer.drainTo(batch, batchSize - 1);
+                }
+                taskRepository.insertDetails(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                // The batch was rolled back, the details keep their IDs on the next try
+                logger.error("write task details failed,cause by:{}", e.getMessage());
+                try {
+                    Thread.sleep(flushMillis);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+            }
+        }
+        // Left over details are written by shutdown
+        leftover = batch;
+    }
+}
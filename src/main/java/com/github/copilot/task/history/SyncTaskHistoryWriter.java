@@ -0,0 +1,46 @@
+package com.github.copilot.task.history;
+
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskDetail;
+import com.github.copilot.task.repository.TaskRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes the history in the running thread: the detail is inserted when the run starts and updated when it ends,
+ * one statement each.
+ */
+public class SyncTaskHistoryWriter implements TaskHistoryWriter {
+
+    private final TaskRepository taskRepository;
+
+    public SyncTaskHistoryWriter(TaskRepository taskRepository) {
+        this.taskRepository = taskRepository;
+    }
+
+    @Override
+    public TaskDetail start(Task task) {
+        TaskDetail detail = new TaskDetail(task.getId());
+        detail.setNodeId(task.getNodeId());
+        detail.setRetryCount(task.getRetryAttempt());
+        taskRepository.insertDetails(Collections.singletonList(detail));
+        return detail;
+    }
+
+    @Override
+    public void end(List<TaskDetail> details) {
+        List<TaskDetail> inserted = new ArrayList<>(details.size());
+        List<TaskDetail> created = new ArrayList<>();
+        for (TaskDetail detail : details) {
+            (detail.getId() == null ? created : inserted).add(detail);
+        }
+        taskRepository.updateDetailResults(inserted);
+        taskRepository.insertDetails(created);
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
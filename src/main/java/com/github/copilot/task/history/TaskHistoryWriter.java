@@ -0,0 +1,65 @@
+package com.github.copilot.task.history;
+
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskDetail;
+import com.github.copilot.task.repository.TaskRepository;
+
+import java.util.List;
+
+/**
+ * Writes the execution history of the tasks, one {@link TaskDetail} per run.
+ */
+public interface TaskHistoryWriter {
+
+    String SYNC = "sync";
+
+
+    String ASYNC = "async";
+
+
+    String SAMPLED = "sampled";
+
+
+    /**
+     * Chooses the history writer by its configuration key, details are written by the running thread by default.
+     *
+     * @param key            The configured writer key.
+     * @param taskRepository The repository the details are written with.
+     * @param bufferSize     The number of details the asynchronous writers can hold.
+     * @param batchSize      The maximum number of details written with one batch.
+     * @param flushMillis    The time the flusher waits for new details and before retrying a failed batch, in milliseconds.
+     * @param sampleRate     The share of successful runs the sampled writer keeps, between 0 and 1.
+     * @return The history writer.
+     */
+    static TaskHistoryWriter choose(String key, TaskRepository taskRepository, int bufferSize, int batchSize,
+                                    long flushMillis, double sampleRate) {
+        switch (key) {
+            case ASYNC:
+                return new AsyncTaskHistoryWriter(taskRepository, bufferSize, batchSize, flushMillis, 1.0);
+            case SAMPLED:
+                return new AsyncTaskHistoryWriter(taskRepository, bufferSize, batchSize, flushMillis, sampleRate);
+            default:
+                return new SyncTaskHistoryWriter(taskRepository);
+        }
+    }
+
+    /**
+     * Creates the detail of a run that is about to start.
+     *
+     * @param task The task about to run.
+     * @return The detail of the run.
+     */
+    TaskDetail start(Task task);
+
+    /**
+     * Records the end of runs. The status, end time and error message of the details are already set.
+     *
+     * @param details The details of the ended runs.
+     */
+    void end(List<TaskDetail> details);
+
+    /**
+     * Writes the buffered details and stops the writer.
+     */
+    void shutdown();
+}
@@ -0,0 +1,72 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.enums.NodeStatus;
+import com.github.copilot.task.enums.NotifyCmd;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Repository component for the leader lease. The lease is a dedicated row of {@code schedule_node}, disabled so it
+ * is never taken for a node, whose lease columns tell which node holds the lease and until when. Acquiring and
+ * renewing is a single conditional update on that row, the database serializes competing nodes on its row lock,
+ * and expiry is checked against the database clock so clock skew between nodes does not matter.
+ */
+@Component
+public class LeaderLeaseRepository {
+
+    /**
+     * The node ID of the lease row.
+     */
+    public static final String LEASE_ID = "leader-lease";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Acquires the lease if it is free or expired, or renews it if the node already holds it.
+     *
+     * @param nodeId      The ID of the node.
+     * @param leaseMillis The lease duration, in milliseconds.
+     * @return true if the node holds the lease for the given duration from now on.
+     */
+    public boolean tryAcquire(String nodeId, long leaseMillis) {
+        if (update(nodeId, leaseMillis) > 0) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update("insert into schedule_node (node_id, node_status, weight, notify_cmd, create_date, modified_date) "
+                    + "values (?, ?, 0, ?, systimestamp, systimestamp)", LEASE_ID, NodeStatus.DISABLE.ordinal(), NotifyCmd.NO_NOTIFY.ordinal());
+        } catch (DuplicateKeyException e) {
+            // The row exists and the lease is held by another node
+            return false;
+        }
+        return update(nodeId, leaseMillis) > 0;
+    }
+
+    /**
+     * Gives the lease up, so another node can take over without waiting for the lease to expire.
+     *
+     * @param nodeId The ID of the node.
+     */
+    public void release(String nodeId) {
+        jdbcTemplate.update("update schedule_node set lease_holder = null, lease_expire_time = null "
+                + "where node_id = ? and lease_holder = ?", LEASE_ID, nodeId);
+    }
+
+    /**
+     * @return The ID of the node holding a valid lease, null if there is none.
+     */
+    public String holder() {
+        return jdbcTemplate.query("select lease_holder from schedule_node where node_id = ? and lease_expire_time > systimestamp",
+                rs -> rs.next() ? rs.getString(1) : null, LEASE_ID);
+    }
+
+    private int update(String nodeId, long leaseMillis) {
+        return jdbcTemplate.update("update schedule_node set lease_holder = ?, "
+                        + "lease_expire_time = systimestamp + numtodsinterval(?, 'SECOND'), modified_date = systimestamp "
+                        + "where node_id = ? and (lease_holder = ? or lease_holder is null or lease_expire_time < systimestamp)",
+                nodeId, leaseMillis / 1000.0, LEASE_ID, nodeId);
+    }
+}
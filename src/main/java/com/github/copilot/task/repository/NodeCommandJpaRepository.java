@@ -0,0 +1,24 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.entity.NodeCommand;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * JPA repository interface for {@link NodeCommand} entities.
+ */
+@Repository
+public interface NodeCommandJpaRepository extends JpaRepository<NodeCommand, Long> {
+
+    /**
+     * Finds the latest commands sent to a node.
+     *
+     * @param nodeId   The ID of the node.
+     * @param pageable The number of commands to return.
+     * @return The commands, the newest first.
+     */
+    List<NodeCommand> findByNodeIdOrderByIdDesc(String nodeId, Pageable pageable);
+}
@@ -0,0 +1,104 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.entity.NodeCommand;
+import com.github.copilot.task.enums.NotifyCmd;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Repository component for the command queue of the nodes. Sending a command is one insert, a node takes a batch
+ * of its pending commands with one indexed query and acknowledges them with one batched update, so polling the
+ * queue every few hundred milliseconds stays cheap.
+ */
+@Component
+public class NodeCommandRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private NodeCommandJpaRepository nodeCommandJpaRepository;
+
+    /**
+     * Queues a command for a node.
+     *
+     * @param nodeId      The ID of the node.
+     * @param cmd         The command.
+     * @param notifyValue The value of the command, such as the ID of a task, may be null.
+     * @return The ID of the command.
+     */
+    public Long send(String nodeId, NotifyCmd cmd, String notifyValue) {
+        Long id = jdbcTemplate.queryForObject("select schedule_node_command_seq.nextval from dual", Long.class);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.update("insert into schedule_node_command (id, node_id, notify_cmd, notify_value, create_date, modified_date) "
+                + "values (?, ?, ?, ?, ?, ?)", id, nodeId, cmd.ordinal(), notifyValue, now, now);
+        return id;
+    }
+
+    /**
+     * Lists the commands a node did not acknowledge yet.
+     *
+     * @param nodeId The ID of the node.
+     * @param limit  The maximum number of commands.
+     * @return The commands, the oldest first.
+     */
+    public List<NodeCommand> listPending(String nodeId, int limit) {
+        return jdbcTemplate.query("select id, notify_cmd, notify_value from (select id, notify_cmd, notify_value "
+                        + "from schedule_node_command where node_id = ? and ack_time is null order by id) where rownum <= ?",
+                (rs, i) -> {
+                    NodeCommand command = new NodeCommand();
+                    command.setId(rs.getLong(1));
+                    command.setNodeId(nodeId);
+                    command.setNotifyCmd(NotifyCmd.valueOf(rs.getInt(2)));
+                    command.setNotifyValue(rs.getString(3));
+                    return command;
+                }, nodeId, limit);
+    }
+
+    /**
+     * Acknowledges handled commands with one JDBC batch.
+     *
+     * @param commands The commands, with the error of those that failed.
+     */
+    public void ack(List<NodeCommand> commands) {
+        if (commands.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> args = new ArrayList<>(commands.size());
+        for (NodeCommand command : commands) {
+            args.add(new Object[]{now, command.getErrorMsg(), now, command.getId()});
+        }
+        jdbcTemplate.batchUpdate("update schedule_node_command set ack_time = ?, error_msg = ?, modified_date = ? "
+                + "where id = ? and ack_time is null", args);
+    }
+
+    /**
+     * @param nodeId The ID of the node.
+     * @param size   The maximum number of commands.
+     * @return The latest commands sent to the node, the newest first.
+     */
+    public List<NodeCommand> listRecent(String nodeId, int size) {
+        return nodeCommandJpaRepository.findByNodeIdOrderByIdDesc(nodeId, PageRequest.of(0, size));
+    }
+
+    /**
+     * Deletes at most one chunk of commands acknowledged before a time.
+     *
+     * @param before Commands acknowledged before this time are deleted.
+     * @param chunk  The maximum number of rows deleted.
+     * @return The number of rows deleted.
+     */
+    public int deleteAcked(Date before, int chunk) {
+        return jdbcTemplate.update("delete from schedule_node_command where ack_time < ? and rownum <= ?",
+                new Timestamp(before.getTime()), chunk);
+    }
+}
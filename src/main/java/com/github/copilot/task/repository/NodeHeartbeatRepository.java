@@ -0,0 +1,74 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.entity.Node;
+import com.github.copilot.task.enums.NodeStatus;
+import com.github.copilot.task.enums.NotifyCmd;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.CallableStatementCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * Repository component for the heartbeats of the nodes. A heartbeat is one anonymous PL/SQL block, so one round
+ * trip: it merges the node row, inserting it on the first beat, writes the load the node reports, and takes the
+ * notify command waiting for the node, clearing it in the same transaction. The merge locks the row, so a command
+ * written concurrently is either taken by this beat or left for the next one.
+ */
+@Component
+public class NodeHeartbeatRepository {
+
+    private static final String BEAT = "declare"
+            + " v_node_id schedule_node.node_id%type := ?;"
+            + " v_now schedule_node.modified_date%type := ?;"
+            + " v_active schedule_node.active_count%type := ?;"
+            + " v_queue schedule_node.queue_depth%type := ?;"
+            + " v_capacity schedule_node.capacity%type := ?;"
+            + " v_p95 schedule_node.p95_millis%type := ?;"
+            + " v_cmd schedule_node.notify_cmd%type;"
+            + " v_value schedule_node.notify_value%type;"
+            + " begin"
+            + " merge into schedule_node n using dual on (n.node_id = v_node_id)"
+            + " when matched then update set n.modified_date = v_now, n.active_count = v_active, n.queue_depth = v_queue,"
+            + " n.capacity = v_capacity, n.p95_millis = v_p95"
+            + " when not matched then insert (node_id, node_status, weight, notify_cmd, active_count, queue_depth, capacity,"
+            + " p95_millis, create_date, modified_date) values (v_node_id, " + NodeStatus.ENABLE.ordinal() + ", 1, "
+            + NotifyCmd.NO_NOTIFY.ordinal() + ", v_active, v_queue, v_capacity, v_p95, v_now, v_now);"
+            + " select notify_cmd, notify_value into v_cmd, v_value from schedule_node where node_id = v_node_id;"
+            + " if v_cmd <> " + NotifyCmd.NO_NOTIFY.ordinal() + " then"
+            + " update schedule_node set notify_cmd = " + NotifyCmd.NO_NOTIFY.ordinal() + ", notify_value = null"
+            + " where node_id = v_node_id;"
+            + " end if;"
+            + " ? := v_cmd;"
+            + " ? := v_value;"
+            + " end;";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Writes a heartbeat of a node together with the load it reports, and takes the notify command waiting for it.
+     *
+     * @param node The node ID and its current load, the load fields may be null when the node does not run tasks.
+     *             The notify command and value taken are set on it, {@link NotifyCmd#NO_NOTIFY} if there was none.
+     * @return The node.
+     */
+    public Node beat(Node node) {
+        return jdbcTemplate.execute(BEAT, (CallableStatementCallback<Node>) cs -> {
+            cs.setString(1, node.getNodeId());
+            cs.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            cs.setObject(3, node.getActiveCount(), Types.INTEGER);
+            cs.setObject(4, node.getQueueDepth(), Types.INTEGER);
+            cs.setObject(5, node.getCapacity(), Types.INTEGER);
+            cs.setObject(6, node.getP95Millis(), Types.BIGINT);
+            cs.registerOutParameter(7, Types.INTEGER);
+            cs.registerOutParameter(8, Types.VARCHAR);
+            cs.execute();
+            node.setNotifyCmd(NotifyCmd.valueOf(cs.getInt(7)));
+            node.setNotifyValue(cs.getString(8));
+            return node;
+        });
+    }
+}
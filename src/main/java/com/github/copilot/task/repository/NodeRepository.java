@@ -2,13 +2,10 @@ package com.github.copilot.task.repository;
 
 import com.github.copilot.task.entity.Node;
 import com.github.copilot.task.enums.NodeStatus;
-import com.github.copilot.task.enums.NotifyCmd;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 import java.time.LocalDateTime;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 
@@ -35,33 +32,15 @@ public class NodeRepository {
     }
 
     /**
-     * Updates the heartbeat timestamp of a node.
-     *
-     * @param nodeId The ID of the node to update.
-     * @return The updated node entity, or null if the node does not exist.
-     */
-    public Node updateHeartBeat(String nodeId) {
-        Node node = nodeJpaRepository.findByNodeId(nodeId);
-        if (Objects.nonNull(node)) {
-            node.setUpdateTime(new Date());
-            return nodeJpaRepository.save(node);
-        }
-        return null;
-    }
-
-    /**
-     * Updates the notification command and value for a node.
+     * Disables a node, preventing it from executing tasks.
      *
-     * @param nodeId The ID of the node to update.
-     * @param cmd The notification command to set.
-     * @param notifyValue The notification value to set.
-     * @return 1 if the update was successful, 0 otherwise.
+     * @param nodeDisabled The node to disable.
+     * @return 1 if the operation was successful, 0 otherwise.
      */
-    public int updateNotifyInfo(String nodeId, NotifyCmd cmd, String notifyValue) {
-        Node node = nodeJpaRepository.findByNodeId(nodeId);
+    public int disbale(Node nodeDisabled) {
+        Node node = nodeJpaRepository.findByNodeId(nodeDisabled.getNodeId());
         if (Objects.nonNull(node)) {
-            node.setNotifyCmd(cmd);
-            node.setNotifyValue(notifyValue);
+            node.setNodeStatus(NodeStatus.DISABLE);
             nodeJpaRepository.save(node);
             return 1;
         }
@@ -69,17 +48,15 @@ public class NodeRepository {
     }
 
     /**
-     * Resets the notification information for a node using optimistic locking.
+     * Enables a node, allowing it to execute tasks.
      *
-     * @param nodeId The ID of the node to reset.
-     * @param cmd The notification command to reset.
-     * @return 1 if the reset was successful, 0 otherwise.
+     * @param nodeEnabled The node to enable.
+     * @return 1 if the operation was successful, 0 otherwise.
      */
-    public int resetNotifyInfo(String nodeId, NotifyCmd cmd) {
-        Node node = nodeJpaRepository.findByNodeId(nodeId);
+    public int enable(Node nodeEnabled) {
+        Node node = nodeJpaRepository.findByNodeId(nodeEnabled.getNodeId());
         if (Objects.nonNull(node)) {
-            node.setNotifyCmd(NotifyCmd.NO_NOTIFY);
-            node.setNotifyValue("");
+            node.setNodeStatus(NodeStatus.ENABLE);
             nodeJpaRepository.save(node);
             return 1;
         }
@@ -87,15 +64,16 @@ public class NodeRepository {
     }
 
     /**
-     * Disables a node, preventing it from executing tasks.
+     * Changes the status of a node, e.g. to take it out of the cluster while it drains.
      *
-     * @param nodeDisabled The node to disable.
+     * @param nodeId The ID of the node.
+     * @param status The new status.
      * @return 1 if the operation was successful, 0 otherwise.
      */
-    public int disbale(Node nodeDisabled) {
-        Node node = nodeJpaRepository.findByNodeId(nodeDisabled.getNodeId());
+    public int updateStatus(String nodeId, NodeStatus status) {
+        Node node = nodeJpaRepository.findByNodeId(nodeId);
         if (Objects.nonNull(node)) {
-            node.setNodeStatus(NodeStatus.DISABLE);
+            node.setNodeStatus(status);
             nodeJpaRepository.save(node);
             return 1;
         }
@@ -103,33 +81,21 @@ public class NodeRepository {
     }
 
     /**
-     * Enables a node, allowing it to execute tasks.
+     * Removes a node that left the cluster, it registers again with its next heartbeat.
      *
-     * @param nodeEnabled The node to enable.
-     * @return 1 if the operation was successful, 0 otherwise.
+     * @param nodeId The ID of the node.
      */
-    public int enable(Node nodeEnabled) {
-        Node node = nodeJpaRepository.findByNodeId(nodeEnabled.getNodeId());
-        if (Objects.nonNull(node)) {
-            node.setNodeStatus(NodeStatus.ENABLE);
-            nodeJpaRepository.save(node);
-            return 1;
-        }
-        return 0;
+    public void deregister(String nodeId) {
+        nodeJpaRepository.findById(nodeId).ifPresent(nodeJpaRepository::delete);
     }
 
     /**
-     * Retrieves a list of enabled nodes that have not updated their status within a specified timeout period.
+     * Retrieves all nodes whatever their status and heartbeat, without the row of the leader lease.
      *
-     * @param timeout The timeout period in seconds.
-     * @return A list of enabled nodes.
+     * @return A list of all nodes.
      */
-    public List<Node> getEnableNodes(int timeout) {
-        Date currentDate = new Date();
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(currentDate);
-        calendar.add(Calendar.SECOND, -timeout);
-        return nodeJpaRepository.findByNodeStatusAndUpdateTimeAfter(NodeStatus.ENABLE,calendar.getTime());
+    public List<Node> listNodes() {
+        return nodeJpaRepository.findByNodeIdNot(LeaderLeaseRepository.LEASE_ID);
     }
 
     /**
@@ -0,0 +1,25 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.entity.TaskDetailHourly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * JPA repository interface for {@link TaskDetailHourly} entities.
+ */
+@Repository
+public interface TaskDetailHourlyJpaRepository extends JpaRepository<TaskDetailHourly, Long> {
+
+    /**
+     * Finds the hourly aggregates of a task within a time range.
+     *
+     * @param taskId The ID of the task.
+     * @param from   The start of the range, inclusive.
+     * @param to     The end of the range, exclusive.
+     * @return The aggregates, the oldest hour first.
+     */
+    List<TaskDetailHourly> findByTaskIdAndHourStartGreaterThanEqualAndHourStartLessThanOrderByHourStartAsc(Long taskId, Date from, Date to);
+}
@@ -1,6 +1,7 @@
 package com.github.copilot.task.repository;
 
 import com.github.copilot.task.entity.TaskDetail;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -10,4 +11,24 @@ import java.util.List;
 public interface TaskDetailJpaRepository extends JpaRepository<TaskDetail, Long> {
     List<TaskDetail> findByTaskId(Long taskId);
 
+    /**
+     * Finds one page of the details of a task by descending ID. The next page starts before the ID of the last
+     * detail of this page, so every page is an index range scan no matter how deep it is. Nodes take detail IDs in
+     * blocks, so the ID order is only roughly the start time order across nodes.
+     *
+     * @param taskId   The ID of the task.
+     * @param beforeId The page contains details with a smaller ID only.
+     * @param pageable The page size, the page number is ignored.
+     * @return The details of the page.
+     */
+    List<TaskDetail> findByTaskIdAndIdLessThanOrderByIdDesc(Long taskId, Long beforeId, Pageable pageable);
+
+    /**
+     * Finds one page of the details of all tasks by descending ID.
+     *
+     * @param beforeId The page contains details with a smaller ID only.
+     * @param pageable The page size, the page number is ignored.
+     * @return The details of the page.
+     */
+    List<TaskDetail> findByIdLessThanOrderByIdDesc(Long beforeId, Pageable pageable);
 }
@@ -0,0 +1,191 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.enums.TaskStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Repository component for the retention of the execution history: hourly rollups of {@code schedule_task_detail},
+ * chunked deletes of old details and dropping of old partitions when the table is partitioned by start time.
+ * The statements are set based, so they are written with JDBC instead of going through entities.
+ */
+@Component
+public class TaskDetailRetentionRepository {
+
+    /**
+     * The duration of a run in milliseconds, from the difference of two timestamps.
+     */
+    private static final String DURATION_MILLIS = "(extract(day from (end_time - start_time)) * 86400000"
+            + " + extract(hour from (end_time - start_time)) * 3600000"
+            + " + extract(minute from (end_time - start_time)) * 60000"
+            + " + extract(second from (end_time - start_time)) * 1000)";
+
+    private static final Pattern HIGH_VALUE = Pattern.compile("(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})");
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("[A-Z][A-Z0-9_$#]*");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return The end of the last hour rolled up, null if nothing was rolled up yet.
+     */
+    public Date rolledUpTo() {
+        Timestamp last = jdbcTemplate.queryForObject("select max(hour_start) from schedule_task_detail_hourly", Timestamp.class);
+        return last == null ? null : new Date(last.getTime() + 3600_000L);
+    }
+
+    /**
+     * Finds the start time of the first run at or after a time.
+     *
+     * @param from The time to search from, null to search from the beginning.
+     * @return The start time, null if there is no such run.
+     */
+    public Date firstStartTime(Date from) {
+        Timestamp first = from == null
+                ? jdbcTemplate.queryForObject("select min(start_time) from schedule_task_detail", Timestamp.class)
+                : jdbcTemplate.queryForObject("select min(start_time) from schedule_task_detail where start_time >= ?",
+                Timestamp.class, new Timestamp(from.getTime()));
+        return first == null ? null : new Date(first.getTime());
+    }
+
+    /**
+     * Aggregates the runs started within an hour, one row per task. Tasks already aggregated for this hour, by
+     * another node for instance, are skipped.
+     *
+     * @param hourStart The start of the hour.
+     * @return The number of aggregates written.
+     */
+    public int rollUpHour(Date hourStart) {
+        Timestamp from = new Timestamp(hourStart.getTime());
+        Timestamp to = new Timestamp(hourStart.getTime() + 3600_000L);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return jdbcTemplate.update("insert into schedule_task_detail_hourly (id, task_id, hour_start, run_count, fail_count, "
+                        + "p50_millis, p99_millis, max_millis, create_date, modified_date) "
+                        + "select schedule_task_detail_hourly_seq.nextval, a.task_id, ?, a.run_count, a.fail_count, "
+                        + "a.p50_millis, a.p99_millis, a.max_millis, ?, ? from ("
+                        + "select task_id, count(*) run_count, sum(case when status = ? then 1 else 0 end) fail_count, "
+                        + "round(percentile_cont(0.5) within group (order by " + DURATION_MILLIS + ")) p50_millis, "
+                        + "round(percentile_cont(0.99) within group (order by " + DURATION_MILLIS + ")) p99_millis, "
+                        + "round(max(" + DURATION_MILLIS + ")) max_millis "
+                        + "from schedule_task_detail d where start_time >= ? and start_time < ? "
+                        + "and not exists (select 1 from schedule_task_detail_hourly h where h.task_id = d.task_id and h.hour_start = ?) "
+                        + "group by task_id) a",
+                from, now, now, TaskStatus.ERROR.ordinal(), from, to, from);
+    }
+
+    /**
+     * @return The retention in days of the tasks that do not use the global one, by task ID.
+     */
+    public Map<Long, Integer> customRetentionDays() {
+        Map<Long, Integer> days = new HashMap<>();
+        jdbcTemplate.query("select id, history_retention_days from schedule_task where history_retention_days is not null",
+                rs -> {
+                    days.put(rs.getLong(1), rs.getInt(2));
+                });
+        return days;
+    }
+
+    /**
+     * Deletes at most one chunk of old details of a task.
+     *
+     * @param taskId The ID of the task.
+     * @param before Details of runs started before this time are deleted.
+     * @param chunk  The maximum number of rows deleted.
+     * @return The number of rows deleted.
+     */
+    public int deleteDetails(Long taskId, Date before, int chunk) {
+        return jdbcTemplate.update("delete from schedule_task_detail where task_id = ? and start_time < ? and rownum <= ?",
+                taskId, new Timestamp(before.getTime()), chunk);
+    }
+
+    /**
+     * Deletes at most one chunk of old details of the tasks using the global retention.
+     *
+     * @param before Details of runs started before this time are deleted.
+     * @param chunk  The maximum number of rows deleted.
+     * @return The number of rows deleted.
+     */
+    public int deleteDetails(Date before, int chunk) {
+        return jdbcTemplate.update("delete from schedule_task_detail d where start_time < ? and rownum <= ? and not exists "
+                        + "(select 1 from schedule_task t where t.id = d.task_id and t.history_retention_days is not null)",
+                new Timestamp(before.getTime()), chunk);
+    }
+
+    /**
+     * Deletes at most one chunk of shard executions that ended before a time.
+     *
+     * @param before Shards ended before this time are deleted.
+     * @param chunk  The maximum number of rows deleted.
+     * @return The number of rows deleted.
+     */
+    public int deleteShards(Date before, int chunk) {
+        return jdbcTemplate.update("delete from schedule_task_shard where end_time < ? and rownum <= ?",
+                new Timestamp(before.getTime()), chunk);
+    }
+
+    /**
+     * Deletes the hourly aggregates of hours before a time.
+     *
+     * @param before The time before which aggregates are deleted.
+     * @return The number of rows deleted.
+     */
+    public int deleteRollups(Date before) {
+        return jdbcTemplate.update("delete from schedule_task_detail_hourly where hour_start < ?", new Timestamp(before.getTime()));
+    }
+
+    /**
+     * Lists the partitions of the detail table that only hold runs started before a time. The first partition of
+     * an interval partitioned table can not be dropped and is never returned.
+     *
+     * @param before The time the partitions must end before.
+     * @return The names of the partitions, the oldest first.
+     */
+    public List<String> partitionsBefore(Date before) {
+        List<String> names = new ArrayList<>();
+        jdbcTemplate.query("select partition_name, high_value from user_tab_partitions "
+                + "where table_name = 'SCHEDULE_TASK_DETAIL' and partition_position > 1 order by partition_position", rs -> {
+            Date highValue = parseHighValue(rs.getString(2));
+            if (highValue != null && !highValue.after(before)) {
+                names.add(rs.getString(1));
+            }
+        });
+        return names;
+    }
+
+    /**
+     * Drops a partition of the detail table.
+     *
+     * @param name The name of the partition as listed by {@link #partitionsBefore(Date)}.
+     */
+    public void dropPartition(String name) {
+        if (!PARTITION_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid partition name: " + name);
+        }
+        jdbcTemplate.execute("alter table schedule_task_detail drop partition " + name + " update global indexes");
+    }
+
+    /**
+     * Parses the upper bound of a range partition, such as {@code TIMESTAMP' 2024-06-01 00:00:00'}.
+     *
+     * @param highValue The high value as stored in the dictionary.
+     * @return The upper bound, null if it is not a date, e.g. MAXVALUE.
+     */
+    static Date parseHighValue(String highValue) {
+        if (highValue == null) {
+            return null;
+        }
+        Matcher matcher = HIGH_VALUE.matcher(highValue);
+        return matcher.find() ? Timestamp.valueOf(matcher.group(1)) : null;
+    }
+}
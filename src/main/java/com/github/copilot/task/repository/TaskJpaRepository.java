@@ -10,6 +10,7 @@ import org.springframework.stereotype.Repository;
 import javax.transaction.Transactional;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -37,7 +38,70 @@ public interface TaskJpaRepository extends JpaRepository<Task, Long> {
      * @param date The time before which the tasks are scheduled to start.
      * @return A list of tasks matching the criteria.
      */
-    List<Task> findByStatusAndNextStartTimeBefore(TaskStatus taskStatus, Date date);
+    List<Task> findByStatusAndNextStartTimeBeforeOrderByNextStartTimeAsc(TaskStatus taskStatus, Date date);
+
+    /**
+     * Claims a batch of tasks for a node in a single statement. Only tasks that are still in the expected status are
+     * updated, so when several nodes race for the same task exactly one of them wins. The version is bumped like an
+     * optimistic lock update would do, so stale copies of the claimed tasks can no longer be saved.
+     *
+     * @param claimedStatus The status to set for the claimed tasks.
+     * @param nodeId The ID of the node claiming the tasks.
+     * @param claimTime The claim time, written to the update time of the claimed tasks.
+     * @param ids The IDs of the tasks to claim.
+     * @param expectedStatus The status the tasks must still have to be claimed.
+     * @return The number of tasks claimed.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Task t set t.status = ?1, t.nodeId = ?2, t.updateTime = ?3, t.version = t.version + 1 where t.id in ?4 and t.status = ?5")
+    int claimTasks(TaskStatus claimedStatus, String nodeId, Date claimTime, Collection<Long> ids, TaskStatus expectedStatus);
+
+    /**
+     * Finds the tasks among the given IDs that belong to a node and are in a specific status.
+     *
+     * @param ids The IDs of the tasks.
+     * @param nodeId The ID of the node the tasks belong to.
+     * @param taskStatus The status of the tasks.
+     * @return A list of tasks matching the criteria.
+     */
+    List<Task> findByIdInAndNodeIdAndStatus(Collection<Long> ids, String nodeId, TaskStatus taskStatus);
+
+    /**
+     * Finds the IDs of the tasks of a node in a specific status.
+     *
+     * @param nodeId The ID of the node the tasks belong to.
+     * @param taskStatus The status of the tasks.
+     * @return The IDs of the tasks.
+     */
+    @Query("select t.id from Task t where t.nodeId = ?1 and t.status = ?2")
+    List<Long> findIdsByNodeIdAndStatus(String nodeId, TaskStatus taskStatus);
+
+    /**
+     * Moves a batch of tasks of a node from one status to another in a single statement. Tasks that meanwhile
+     * belong to another node or left the expected status are skipped. The version is bumped like a claim.
+     *
+     * @param newStatus The status to set.
+     * @param nodeId The ID of the node the tasks must belong to.
+     * @param updateTime The update time to write.
+     * @param ids The IDs of the tasks.
+     * @param expectedStatus The status the tasks must still have.
+     * @return The number of tasks updated.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Task t set t.status = ?1, t.updateTime = ?3, t.version = t.version + 1 where t.id in ?4 and t.nodeId = ?2 and t.status = ?5")
+    int updateNodeTaskStatus(TaskStatus newStatus, String nodeId, Date updateTime, Collection<Long> ids, TaskStatus expectedStatus);
+
+    /**
+     * Rewrites the serialized invocation of a task. The version is left alone, the invocation itself does not change,
+     * only its format.
+     *
+     * @param id The ID of the task.
+     * @param invokeInfo The serialized invocation.
+     * @return The number of tasks updated.
+     */
+    @Modifying
+    @Query("update Task t set t.invokeInfoJson = ?2 where t.id = ?1")
+    int updateInvokeInfo(Long id, byte[] invokeInfo);
 
     /**
      * Updates the status of tasks assigned to a specific node.
@@ -51,11 +115,26 @@ public interface TaskJpaRepository extends JpaRepository<Task, Long> {
     int updateStatusByNodeId(TaskStatus taskStatus, String nodeId);
 
     /**
-     * Finds tasks that are in any of the specified statuses and were last updated before a given time.
+     * Finds tasks that are in any of the specified statuses and belong to one of the given nodes. Tasks in a
+     * claimed status are only returned once their start time has passed, a task claimed ahead of its start time is
+     * not late yet, and a failed task waits for its next start time.
      *
      * @param taskStatuses The statuses of the tasks to find.
-     * @param localDateTime The time before which the tasks were last updated.
+     * @param nodeIds The nodes whose tasks are returned.
+     * @param claimedStatuses The statuses of tasks waiting for their start time, claimed, assigned or failed.
+     * @param date The time the start time of the tasks in a claimed status has to be before.
+     * @return A list of tasks matching the criteria.
+     */
+    @Query("select t from Task t where t.status in ?1 and t.nodeId in ?2 and (t.status not in ?3 or t.nextStartTime < ?4)")
+    List<Task> findTasksOfNodes(Collection<TaskStatus> taskStatuses, Collection<String> nodeIds,
+                                Collection<TaskStatus> claimedStatuses, Date date);
+
+    /**
+     * Finds tasks in the given status whose next start time has passed.
+     *
+     * @param status The status of the tasks to find.
+     * @param date The time the start time of the tasks has to be before.
      * @return A list of tasks matching the criteria.
      */
-    List<Task> findByStatusInAndUpdateTimeBefore(ArrayList<TaskStatus> taskStatuses, Date date);
+    List<Task> findByStatusAndNextStartTimeBefore(TaskStatus status, Date date);
 }
\ No newline at end of file
@@ -4,18 +4,27 @@ import com.github.copilot.task.common.Invocation;
 import com.github.copilot.task.config.EasyJobConfig;
 import com.github.copilot.task.entity.Task;
 import com.github.copilot.task.entity.TaskDetail;
+import com.github.copilot.task.enums.TaskChangeType;
 import com.github.copilot.task.enums.TaskStatus;
+import com.github.copilot.task.event.TaskChangeNotifier;
+import com.github.copilot.task.serializer.CompactInvocationSerializer;
 import com.github.copilot.task.serializer.JdkSerializationSerializer;
 import com.github.copilot.task.serializer.ObjectSerializer;
-import com.github.copilot.task.utils.CronExpression;
+import com.github.copilot.task.utils.CronExpressionCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.github.copilot.task.state.TaskResult;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.persistence.OptimisticLockException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -31,9 +40,14 @@ public class TaskRepository {
     private static final Logger log = LoggerFactory.getLogger(TaskRepository.class);
 
     /**
-     * Serializer for task invocation information.
+     * Serializer for task invocation information, chosen by configuration.
      */
-    private final ObjectSerializer serializer = new JdkSerializationSerializer();
+    private ObjectSerializer<Invocation> serializer;
+
+    /**
+     * All known invocation formats, used to read rows written in another format than the configured one.
+     */
+    private final List<ObjectSerializer<Invocation>> formats = Arrays.asList(new CompactInvocationSerializer(), new JdkSerializationSerializer<>());
 
     @Resource
     private NodeJpaRepository nodeJpaRepository;
@@ -44,9 +58,25 @@ public class TaskRepository {
     @Resource
     private TaskDetailJpaRepository taskDetailJpaRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * IDs taken from the detail sequence and not used yet.
+     */
+    private final Deque<Long> detailIds = new ArrayDeque<>();
+
     @Autowired
     private EasyJobConfig config;
 
+    @Autowired
+    private TaskChangeNotifier taskChangeNotifier;
+
+    @PostConstruct
+    public void init() {
+        serializer = ObjectSerializer.choose(config.getSerializer());
+    }
+
     public Map<String,Task> listAllTasks(){
         List<Task> all = taskJpaRepository.findAll();
         Map<String, Task> map = new HashMap<>();
@@ -60,14 +90,115 @@ public class TaskRepository {
      * Lists tasks that are not started and are scheduled to start within a specified duration.
      *
      * @param duration The duration in seconds before the scheduled start time of the tasks.
-     * @return A list of tasks that meet the criteria.
+     * @return A list of tasks that meet the criteria, the earliest first.
      */
     public List<Task> listNotStartedTasks(int duration) {
         Date currentDateTime = new Date();
         Calendar calendar = Calendar.getInstance();
         calendar.setTime(currentDateTime);
-        calendar.add(Calendar.SECOND, -duration);
-        return taskJpaRepository.findByStatusAndNextStartTimeBefore(TaskStatus.NOT_STARTED, calendar.getTime());
+        calendar.add(Calendar.SECOND, duration);
+        return taskJpaRepository.findByStatusAndNextStartTimeBeforeOrderByNextStartTimeAsc(TaskStatus.NOT_STARTED, calendar.getTime());
+    }
+
+    /**
+     * Claims a batch of not started tasks for a node with a single conditional update and reads the claimed rows back.
+     * Tasks already claimed by another node in the meantime are skipped, so a fetch cycle costs two statements
+     * regardless of the number of tasks.
+     *
+     * @param ids The IDs of the tasks to claim.
+     * @param nodeId The ID of the node claiming the tasks.
+     * @return The tasks claimed by this call, in the pending status and with their invocation deserialized.
+     */
+    public List<Task> claimTasks(Collection<Long> ids, String nodeId) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int claimed = taskJpaRepository.claimTasks(TaskStatus.PENDING, nodeId, new Date(), ids, TaskStatus.NOT_STARTED);
+        if (claimed == 0) {
+            return Collections.emptyList();
+        }
+        List<Task> tasks = taskJpaRepository.findByIdInAndNodeIdAndStatus(ids, nodeId, TaskStatus.PENDING);
+        for (Task task : tasks) {
+            task.setInvocation(readInvocation(task));
+        }
+        return tasks;
+    }
+
+    /**
+     * Assigns a batch of not started tasks to a node, done by the leader. The node picks them up with
+     * {@link #claimAssignedTasks(String)}. Tasks no longer in the not started status are skipped.
+     *
+     * @param ids The IDs of the tasks to assign.
+     * @param nodeId The ID of the node the tasks are assigned to.
+     * @return The number of tasks assigned.
+     */
+    public int assignTasks(Collection<Long> ids, String nodeId) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        return taskJpaRepository.claimTasks(TaskStatus.ASSIGNED, nodeId, new Date(), ids, TaskStatus.NOT_STARTED);
+    }
+
+    /**
+     * Claims the tasks the leader has assigned to a node and reads them back.
+     *
+     * @param nodeId The ID of the node.
+     * @return The tasks claimed by this call, in the pending status and with their invocation deserialized.
+     */
+    public List<Task> claimAssignedTasks(String nodeId) {
+        List<Long> ids = taskJpaRepository.findIdsByNodeIdAndStatus(nodeId, TaskStatus.ASSIGNED);
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int claimed = taskJpaRepository.updateNodeTaskStatus(TaskStatus.PENDING, nodeId, new Date(), ids, TaskStatus.ASSIGNED);
+        if (claimed == 0) {
+            return Collections.emptyList();
+        }
+        List<Task> tasks = taskJpaRepository.findByIdInAndNodeIdAndStatus(ids, nodeId, TaskStatus.PENDING);
+        for (Task task : tasks) {
+            task.setInvocation(readInvocation(task));
+        }
+        return tasks;
+    }
+
+    /**
+     * Writes a changed schedule of a task, the next start time is computed again from the new cron expression.
+     *
+     * @param task The task with its new cron expression, shard count, misfire and run options.
+     * @return true if the task was updated.
+     * @throws Exception If the cron expression is invalid.
+     */
+    public boolean updateSchedule(Task task) throws Exception {
+        Date nextStartDate = task.isCronTriggered() ? CronExpressionCache.nextFireTime(task.getCronExpr(), new Date()) : null;
+        task.setNextStartTime(nextStartDate);
+        int retryCount = 3;
+        while (retryCount > 0) {
+            try {
+                Task latestTask = taskJpaRepository.findById(task.getId()).orElse(null);
+                if (latestTask == null) {
+                    return false;
+                }
+                latestTask.setCronExpr(task.getCronExpr());
+                latestTask.setShardCount(task.getShardCount());
+                latestTask.setMisfirePolicy(task.getMisfirePolicy());
+                latestTask.setMisfireThresholdMillis(task.getMisfireThresholdMillis());
+                latestTask.setOverlapPolicy(task.getOverlapPolicy());
+                latestTask.setMaxConcurrency(task.getMaxConcurrency());
+                latestTask.setTimeoutMillis(task.getTimeoutMillis());
+                latestTask.setMaxRetries(task.getMaxRetries());
+                latestTask.setRetryBackoffMillis(task.getRetryBackoffMillis());
+                latestTask.setRetryOn(task.getRetryOn());
+                latestTask.setNextStartTime(nextStartDate);
+                taskJpaRepository.save(latestTask);
+                taskChangeNotifier.publish(task.getId(), TaskChangeType.RESCHEDULE);
+                return true;
+            } catch (ObjectOptimisticLockingFailureException | OptimisticLockException e) {
+                log.error("Optimistic locking failure for task {}, retrying...", task.getId(), e);
+                retryCount--;
+            }
+        }
+        log.error("Failed to update the schedule of task {} after retries", task.getId());
+        return false;
     }
 
     /**
@@ -80,23 +211,60 @@ public class TaskRepository {
     }
 
     /**
-     * Lists tasks that need to be recovered. A task needs recovery if its executing node is down and the task is still marked as executing.
+     * Lists tasks that need to be recovered because their executing node is considered dead and the task is still
+     * marked as executing or claimed. Only the rows of the dead nodes are read, their failed tasks are listed by
+     * {@link #listFailedTasks()} like those of any other node.
      *
-     * @param timeout The timeout in seconds to consider a node as down.
+     * @param deadNodeIds The nodes the failure detector considers dead.
      * @return A list of tasks that meet the recovery criteria.
      */
-    public List<Task> listRecoverTasks(int timeout) {
+    public List<Task> listRecoverTasks(Collection<String> deadNodeIds) {
+        if (deadNodeIds.isEmpty()) {
+            return Collections.emptyList();
+        }
         ArrayList<TaskStatus> taskStatuses = new ArrayList<>();
         taskStatuses.add(TaskStatus.DOING);
-        taskStatuses.add(TaskStatus.ERROR);
         taskStatuses.add(TaskStatus.PENDING);
+        taskStatuses.add(TaskStatus.ASSIGNED);
+        /**
+         * 抢到或者分配到的任务等到下次开始时间过了才恢复，还没到时间的不算晚
+         */
+        return taskJpaRepository.findTasksOfNodes(taskStatuses, deadNodeIds,
+                Arrays.asList(TaskStatus.PENDING, TaskStatus.ASSIGNED), new Date());
+    }
 
+    /**
+     * Lists failed tasks whose next start time passed, on any node, they are scheduled again.
+     *
+     * @return A list of failed tasks that are due.
+     */
+    public List<Task> listFailedTasks() {
+        return taskJpaRepository.findByStatusAndNextStartTimeBefore(TaskStatus.ERROR, new Date());
+    }
 
-        Date currentDateTime = new Date();
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(currentDateTime);
-        calendar.add(Calendar.SECOND, -timeout);
-        return taskJpaRepository.findByStatusInAndUpdateTimeBefore(taskStatuses, calendar.getTime());
+    /**
+     * Recovers tasks with one JDBC batch: they go back to not started on the given node and start right away. A
+     * task changed since it was read, by its node coming back or another node recovering it, is left alone.
+     *
+     * @param tasks  The tasks to recover, as read.
+     * @param nodeId The ID of the node recovering them.
+     * @return The number of tasks recovered.
+     */
+    @Transactional
+    public int recover(Collection<Task> tasks, String nodeId) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> args = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            args.add(new Object[]{TaskStatus.NOT_STARTED.ordinal(), nodeId, now, now, task.getId(), task.getVersion()});
+        }
+        int recovered = 0;
+        if (!args.isEmpty()) {
+            for (int count : jdbcTemplate.batchUpdate("update schedule_task set status = ?, node_id = ?, next_start_time = ?, "
+                    + "version = version + 1, modified_date = ? where id = ? and version = ?", args)) {
+                recovered += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+            }
+        }
+        return recovered;
     }
 
     /**
@@ -108,11 +276,40 @@ public class TaskRepository {
     public Task get(Long id) {
         Task task = taskJpaRepository.findById(id).orElse(null);
         if (task != null) {
-            task.setInvocation((Invocation) serializer.deserialize(task.getInvokeInfoJson()));
+            task.setInvocation(readInvocation(task));
         }
         return task;
     }
 
+    /**
+     * Deserializes the invocation of a task. A row still stored in another format is rewritten in the configured
+     * format, so existing tasks migrate one by one as they are read.
+     *
+     * @param task The task read from the database.
+     * @return The invocation, or null if the task has none.
+     */
+    private Invocation readInvocation(Task task) {
+        byte[] bytes = task.getInvokeInfoJson();
+        if (bytes == null || serializer.isOwnFormat(bytes)) {
+            return serializer.deserialize(bytes);
+        }
+        for (ObjectSerializer<Invocation> format : formats) {
+            if (format.isOwnFormat(bytes)) {
+                Invocation invocation = format.deserialize(bytes);
+                byte[] migrated = serializer.serialize(invocation);
+                try {
+                    taskJpaRepository.updateInvokeInfo(task.getId(), migrated);
+                    task.setInvokeInfoJson(migrated);
+                } catch (Exception e) {
+                    // 迁移失败不影响本次读取，下次读取时再迁移
+                    log.warn("Failed to migrate invocation format of task {}", task.getId(), e);
+                }
+                return invocation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown invocation format of task " + task.getId());
+    }
+
     /**
      * Retrieves a specific task detail by its ID.
      *
@@ -132,13 +329,12 @@ public class TaskRepository {
      */
     public long insert(Task task) throws Exception {
         task.setStatus(TaskStatus.NOT_STARTED);
-        CronExpression cronExpession = new CronExpression(task.getCronExpr());
-        Date nextStartDate = cronExpession.getNextValidTimeAfter(new Date());
+        Date nextStartDate = task.isCronTriggered() ? CronExpressionCache.nextFireTime(task.getCronExpr(), new Date()) : null;
         task.setFirstStartTime(nextStartDate);
         task.setNextStartTime(nextStartDate);
-        JdkSerializationSerializer<Invocation> serializer = new JdkSerializationSerializer<>();
         task.setInvokeInfoJson(serializer.serialize(task.getInvocation()));
         Task save = taskJpaRepository.save(task);
+        taskChangeNotifier.publish(save.getId(), TaskChangeType.INSERT);
         return save.getId();
     }
 
@@ -163,6 +359,7 @@ public class TaskRepository {
     public TaskDetail start(Task task) throws Exception {
         TaskDetail taskDetail = new TaskDetail(task.getId());
         taskDetail.setNodeId(task.getNodeId());
+        taskDetail.setRetryCount(task.getRetryAttempt());
         long id = insert(taskDetail);
         taskDetail.setId(id);
         return taskDetail;
@@ -176,8 +373,23 @@ public class TaskRepository {
      * @throws Exception If there is an error during the finish operation.
      */
     public void finish(Task task, TaskDetail detail) throws Exception {
-        CronExpression cronExpression = new CronExpression(task.getCronExpr());
-        Date nextStartDate = cronExpression.getNextValidTimeAfter(new Date());
+        if (finish(task)) {
+            detail.setEndTime(new Date());
+            detail.setStatus(TaskStatus.FINISH);
+            updateTaskDetail(detail);
+        }
+    }
+
+    /**
+     * Marks a task as finished and calculates the next start time based on the cron expression, the detail of the
+     * run is left to the caller.
+     *
+     * @param task The task to mark as finished.
+     * @return true if the task was updated.
+     * @throws Exception If there is an error during the finish operation.
+     */
+    public boolean finish(Task task) throws Exception {
+        Date nextStartDate = task.nextStartTimeAfterRun(new Date());
         if (nextStartDate == null) {
             task.setStatus(TaskStatus.FINISH);
         } else {
@@ -186,10 +398,12 @@ public class TaskRepository {
         task.setSuccessCount(task.getSuccessCount() + 1);
         task.setNextStartTime(nextStartDate);
         if (updateTask(task)) {
-            detail.setEndTime(new Date());
-            detail.setStatus(TaskStatus.FINISH);
-            updateTaskDetail(detail);
+            if (nextStartDate != null) {
+                taskChangeNotifier.publish(task.getId(), TaskChangeType.RESCHEDULE);
+            }
+            return true;
         }
+        return false;
     }
 
     /**
@@ -202,9 +416,7 @@ public class TaskRepository {
      */
     public void fail(Task task, TaskDetail detail, String errorMsg) throws Exception {
         if (detail == null) return;
-        task.setStatus(TaskStatus.ERROR);
-        task.setFailCount(task.getFailCount() + 1);
-        if (updateTask(task)) {
+        if (fail(task)) {
             detail.setEndTime(new Date());
             detail.setStatus(TaskStatus.ERROR);
             detail.setErrorMsg(errorMsg);
@@ -212,6 +424,155 @@ public class TaskRepository {
         }
     }
 
+    /**
+     * Records the failure of a task, the detail of the run is left to the caller. The next start time is calculated
+     * from the cron expression, the task is recovered once it passed instead of right away.
+     *
+     * @param task The task that failed.
+     * @return true if the task was updated.
+     * @throws Exception If the next start time can not be calculated.
+     */
+    public boolean fail(Task task) throws Exception {
+        task.setStatus(TaskStatus.ERROR);
+        task.setFailCount(task.getFailCount() + 1);
+        task.setNextStartTime(task.nextStartTimeAfterRun(new Date()));
+        return updateTask(task);
+    }
+
+    /**
+     * Records a failed run that is retried later, the detail of the run is left to the caller. The task stays
+     * pending on its node until the retry is due.
+     *
+     * @param task      The task that failed.
+     * @param retryTime The time the retry is due.
+     * @return true if the task was updated.
+     */
+    public boolean retry(Task task, Date retryTime) {
+        task.setStatus(TaskStatus.PENDING);
+        task.setFailCount(task.getFailCount() + 1);
+        task.setNextStartTime(retryTime);
+        return updateTask(task);
+    }
+
+    /**
+     * Inserts task details with one JDBC batch. The IDs are taken from blocks of the detail sequence, fetched with a
+     * single query each, instead of one sequence round trip per row. The batch is inserted in one transaction, and a
+     * detail keeps the ID it was given, so a batch retried after a failure does not duplicate rows.
+     *
+     * @param details The details to insert, their IDs are set if not set yet.
+     */
+    @Transactional
+    public void insertDetails(List<TaskDetail> details) {
+        if (details.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> args = new ArrayList<>(details.size());
+        for (TaskDetail detail : details) {
+            if (detail.getId() == null) {
+                detail.setId(nextDetailId());
+            }
+            detail.setVersion(0);
+            args.add(new Object[]{detail.getId(), detail.getTaskId(), detail.getNodeId(), detail.getRetryCount(),
+                    detail.getStatus() == null ? null : detail.getStatus().ordinal(), timestamp(detail.getStartTime()),
+                    timestamp(detail.getEndTime()), detail.getErrorMsg(), now, now});
+        }
+        jdbcTemplate.batchUpdate("insert into schedule_task_detail (id, task_id, node_id, retry_count, status, start_time, "
+                + "end_time, error_msg, version, create_date, modified_date) values (?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)", args);
+    }
+
+    /**
+     * Writes the end of runs to details inserted before, with one JDBC batch.
+     *
+     * @param details The details to update.
+     */
+    public void updateDetailResults(List<TaskDetail> details) {
+        if (details.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> args = new ArrayList<>(details.size());
+        for (TaskDetail detail : details) {
+            args.add(new Object[]{detail.getStatus().ordinal(), timestamp(detail.getEndTime()), detail.getErrorMsg(),
+                    now, detail.getId()});
+        }
+        jdbcTemplate.batchUpdate("update schedule_task_detail set status = ?, end_time = ?, error_msg = ?, "
+                + "version = version + 1, modified_date = ? where id = ?", args);
+    }
+
+    private synchronized long nextDetailId() {
+        if (detailIds.isEmpty()) {
+            /**
+             * 一次从序列取一整块ID，序列本身的步长不用改
+             */
+            detailIds.addAll(jdbcTemplate.queryForList("select schedule_task_detail_seq.nextval from dual connect by level <= ?",
+                    Long.class, Math.max(1, config.getHistoryIdBlockSize())));
+        }
+        return detailIds.poll();
+    }
+
+    private static Timestamp timestamp(Date date) {
+        return date == null ? null : new Timestamp(date.getTime());
+    }
+
+    /**
+     * Writes the results of several runs in one transaction with one batched conditional update of the tasks. A task
+     * is only updated if it is still pending on the node that ran it or was started manually, a task that was stopped
+     * or recovered meanwhile keeps its newer state. The details of the runs are left to the caller.
+     *
+     * @param results The results to write.
+     * @return The number of tasks updated.
+     */
+    @Transactional
+    public int saveResults(List<TaskResult> results) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<TaskResult> finished = new ArrayList<>();
+        List<Object[]> finishArgs = new ArrayList<>();
+        List<Object[]> failArgs = new ArrayList<>();
+        for (TaskResult result : results) {
+            Task task = result.getTask();
+            if (result.getDetail().getStatus() == TaskStatus.FINISH) {
+                Date nextStartTime = task.getNextStartTime();
+                finished.add(result);
+                finishArgs.add(new Object[]{task.getStatus().ordinal(),
+                        nextStartTime == null ? null : new Timestamp(nextStartTime.getTime()), now,
+                        task.getId(), TaskStatus.PENDING.ordinal(), task.getNodeId(), TaskStatus.DOING.ordinal()});
+            } else {
+                Date nextStartTime = task.getNextStartTime();
+                failArgs.add(new Object[]{task.getStatus().ordinal(),
+                        nextStartTime == null ? null : new Timestamp(nextStartTime.getTime()), now,
+                        task.getId(), TaskStatus.PENDING.ordinal(), task.getNodeId(), TaskStatus.DOING.ordinal()});
+            }
+        }
+        /**
+         * 带着待执行状态和节点的条件更新，任务在执行期间被停用或者被恢复给了别的节点就不会再覆盖它。
+         * 立即执行的任务在库里是执行中的状态，也要能更新
+         */
+        int[] finishCounts = finishArgs.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(
+                "update schedule_task set status = ?, success_count = success_count + 1, next_start_time = ?, "
+                        + "version = version + 1, modified_date = ? where id = ? and (status = ? and node_id = ? or status = ?)", finishArgs);
+        int[] failCounts = failArgs.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(
+                "update schedule_task set status = ?, fail_count = fail_count + 1, next_start_time = ?, "
+                        + "version = version + 1, modified_date = ? where id = ? and (status = ? and node_id = ? or status = ?)", failArgs);
+        int updated = 0;
+        boolean rescheduled = false;
+        for (int i = 0; i < finishCounts.length; i++) {
+            if (finishCounts[i] != 0) {
+                updated++;
+                rescheduled |= finished.get(i).getTask().getStatus() == TaskStatus.NOT_STARTED;
+            }
+        }
+        for (int count : failCounts) {
+            if (count != 0) {
+                updated++;
+            }
+        }
+        if (rescheduled) {
+            taskChangeNotifier.publish(null, TaskChangeType.RESCHEDULE);
+        }
+        return updated;
+    }
+
     /**
      * Reinitializes tasks to the NOT_STARTED status for the current node after a service restart.
      *
@@ -219,7 +580,7 @@ public class TaskRepository {
      * @throws Exception If there is an error during the reinitialization.
      */
     public int reInitTasks() {
-        return taskJpaRepository.updateStatusByNodeId(TaskStatus.NOT_STARTED, config.getNodeId());
+        return reInitTasks(config.getNodeId());
     }
 
     /**
@@ -229,7 +590,43 @@ public class TaskRepository {
      * @return The number of tasks reinitialized.
      */
     public int reInitTasks(String nodeId) {
-        return taskJpaRepository.updateStatusByNodeId(TaskStatus.NOT_STARTED, nodeId);
+        int count = taskJpaRepository.updateStatusByNodeId(TaskStatus.NOT_STARTED, nodeId);
+        if (count > 0) {
+            taskChangeNotifier.publish(null, TaskChangeType.RECOVER);
+        }
+        return count;
+    }
+
+    /**
+     * Hands the tasks a draining node claimed but did not start back to the other nodes, with one JDBC batch. The
+     * tasks keep their next start time, tasks the leader assigned to the node and it did not claim yet are handed
+     * back as well. Tasks that started running meanwhile are left alone.
+     *
+     * @param nodeId The ID of the draining node.
+     * @param ids    The IDs of the tasks it claimed and did not start.
+     * @return The number of tasks handed back.
+     */
+    @Transactional
+    public int handBack(String nodeId, Collection<Long> ids) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> args = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            args.add(new Object[]{TaskStatus.NOT_STARTED.ordinal(), now, id, nodeId, TaskStatus.PENDING.ordinal()});
+        }
+        int handedBack = 0;
+        if (!args.isEmpty()) {
+            for (int count : jdbcTemplate.batchUpdate("update schedule_task set status = ?, version = version + 1, modified_date = ? "
+                    + "where id = ? and node_id = ? and status = ?", args)) {
+                handedBack += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+            }
+        }
+        handedBack += jdbcTemplate.update("update schedule_task set status = ?, version = version + 1, modified_date = ? "
+                        + "where node_id = ? and status = ?", TaskStatus.NOT_STARTED.ordinal(), now, nodeId,
+                TaskStatus.ASSIGNED.ordinal());
+        if (handedBack > 0) {
+            taskChangeNotifier.publish(null, TaskChangeType.RECOVER);
+        }
+        return handedBack;
     }
 
     /**
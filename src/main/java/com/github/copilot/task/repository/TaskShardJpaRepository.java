@@ -0,0 +1,111 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.entity.TaskShard;
+import com.github.copilot.task.enums.TaskStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.transaction.Transactional;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * JPA repository interface for {@link TaskShard} entities.
+ */
+@Repository
+@Transactional
+public interface TaskShardJpaRepository extends JpaRepository<TaskShard, Long> {
+
+    /**
+     * Finds the shards of one fire of a task.
+     *
+     * @param runId The ID of the fire.
+     * @return The shards, by shard index.
+     */
+    List<TaskShard> findByRunIdOrderByShardIndexAsc(String runId);
+
+    /**
+     * Finds the IDs of the shards of a node in a specific status, the oldest first.
+     *
+     * @param nodeId   The ID of the node.
+     * @param status   The status of the shards.
+     * @param pageable The maximum number of IDs.
+     * @return The IDs of the shards.
+     */
+    @Query("select s.id from TaskShard s where s.nodeId = ?1 and s.status = ?2 order by s.id")
+    List<Long> findIdsByNodeIdAndStatus(String nodeId, TaskStatus status, Pageable pageable);
+
+    /**
+     * Finds the shards with the given IDs.
+     *
+     * @param ids The IDs of the shards.
+     * @return The shards.
+     */
+    List<TaskShard> findByIdIn(Collection<Long> ids);
+
+    /**
+     * Moves shards of a node from one status to another. Shards that meanwhile belong to another node or left the
+     * expected status are skipped, so exactly one node starts a shard.
+     *
+     * @param newStatus      The status to set.
+     * @param nodeId         The ID of the node the shards must belong to.
+     * @param startTime      The start time to write.
+     * @param ids            The IDs of the shards.
+     * @param expectedStatus The status the shards must still have.
+     * @return The number of shards updated.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update TaskShard s set s.status = ?1, s.startTime = ?3, s.updateTime = ?3 where s.id in ?4 and s.nodeId = ?2 and s.status = ?5")
+    int updateNodeShardStatus(TaskStatus newStatus, String nodeId, Date startTime, Collection<Long> ids, TaskStatus expectedStatus);
+
+    /**
+     * Writes the result of a shard, unless it left the expected status, e.g. because its fire timed out, or was
+     * handed to another node meanwhile.
+     *
+     * @param id             The ID of the shard.
+     * @param status         The final status.
+     * @param endTime        The end time.
+     * @param errorMsg       The error message, null on success.
+     * @param expectedStatus The status the shard must still have.
+     * @param nodeId         The ID of the node the shard must still belong to.
+     * @return The number of shards updated.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update TaskShard s set s.status = ?2, s.endTime = ?3, s.updateTime = ?3, s.errorMsg = ?4 "
+            + "where s.id = ?1 and s.status = ?5 and s.nodeId = ?6")
+    int complete(Long id, TaskStatus status, Date endTime, String errorMsg, TaskStatus expectedStatus, String nodeId);
+
+    /**
+     * Hands a shard of a lost node to another node, to be started again.
+     *
+     * @param id               The ID of the shard.
+     * @param nodeId           The ID of the new node.
+     * @param lostNodeId       The ID of the node the shard must still belong to.
+     * @param status           The status to set.
+     * @param updateTime       The update time to write.
+     * @param expectedStatuses The statuses the shard must still have.
+     * @return The number of shards updated.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update TaskShard s set s.nodeId = ?2, s.status = ?4, s.startTime = null, s.updateTime = ?5 "
+            + "where s.id = ?1 and s.nodeId = ?3 and s.status in ?6")
+    int reassign(Long id, String nodeId, String lostNodeId, TaskStatus status, Date updateTime, Collection<TaskStatus> expectedStatuses);
+
+    /**
+     * Ends the shards of a fire that did not end yet.
+     *
+     * @param runId            The ID of the fire.
+     * @param status           The status to set.
+     * @param endTime          The end time.
+     * @param errorMsg         The reason.
+     * @param expectedStatuses The statuses of the shards to end.
+     * @return The number of shards updated.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update TaskShard s set s.status = ?2, s.endTime = ?3, s.updateTime = ?3, s.errorMsg = ?4 where s.runId = ?1 and s.status in ?5")
+    int endUnfinished(String runId, TaskStatus status, Date endTime, String errorMsg, Collection<TaskStatus> expectedStatuses);
+}
@@ -0,0 +1,123 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.entity.TaskShard;
+import com.github.copilot.task.enums.TaskStatus;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Repository component for managing {@link TaskShard} entities, the shard executions of sharded tasks.
+ */
+@Component
+public class TaskShardRepository {
+
+    @Resource
+    private TaskShardJpaRepository taskShardJpaRepository;
+
+    /**
+     * Inserts the shards of one fire of a task.
+     *
+     * @param shards The shards to insert.
+     * @return The inserted shards.
+     */
+    public List<TaskShard> insert(List<TaskShard> shards) {
+        return taskShardJpaRepository.saveAll(shards);
+    }
+
+    /**
+     * Lists the shards of one fire of a task.
+     *
+     * @param runId The ID of the fire.
+     * @return The shards, by shard index.
+     */
+    public List<TaskShard> listRun(String runId) {
+        return taskShardJpaRepository.findByRunIdOrderByShardIndexAsc(runId);
+    }
+
+    /**
+     * Starts pending shards assigned to a node. Calls for the same node must not overlap, shards are only read back
+     * by ID.
+     *
+     * @param nodeId The ID of the node.
+     * @param max    The maximum number of shards to start.
+     * @return The started shards.
+     */
+    public List<TaskShard> claim(String nodeId, int max) {
+        if (max <= 0) {
+            return Collections.emptyList();
+        }
+        return claimIds(nodeId, taskShardJpaRepository.findIdsByNodeIdAndStatus(nodeId, TaskStatus.PENDING, PageRequest.of(0, max)));
+    }
+
+    private List<TaskShard> claimIds(String nodeId, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (taskShardJpaRepository.updateNodeShardStatus(TaskStatus.DOING, nodeId, new Date(), ids, TaskStatus.PENDING) == 0) {
+            return Collections.emptyList();
+        }
+        List<TaskShard> claimed = new ArrayList<>();
+        for (TaskShard shard : taskShardJpaRepository.findByIdIn(ids)) {
+            if (shard.getStatus() == TaskStatus.DOING && nodeId.equals(shard.getNodeId())) {
+                claimed.add(shard);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Puts a started shard back to pending, e.g. when the node has no room to run it.
+     *
+     * @param shard The shard.
+     * @return true if the shard is pending again.
+     */
+    public boolean release(TaskShard shard) {
+        return taskShardJpaRepository.reassign(shard.getId(), shard.getNodeId(), shard.getNodeId(), TaskStatus.PENDING,
+                new Date(), Collections.singletonList(TaskStatus.DOING)) > 0;
+    }
+
+    /**
+     * Writes the result of a running shard. Only the node the shard belongs to can write it, a late result of a
+     * node the shard was taken from is dropped.
+     *
+     * @param shard    The shard, with the ID of the node running it.
+     * @param status   The final status, finished or error.
+     * @param errorMsg The error message, null on success.
+     * @return true if the result was written, false if the shard was ended or handed over meanwhile.
+     */
+    public boolean complete(TaskShard shard, TaskStatus status, String errorMsg) {
+        return taskShardJpaRepository.complete(shard.getId(), status, new Date(), errorMsg, TaskStatus.DOING,
+                shard.getNodeId()) > 0;
+    }
+
+    /**
+     * Hands a pending or running shard of a lost node to another node.
+     *
+     * @param shard  The shard, with the lost node ID.
+     * @param nodeId The ID of the new node.
+     * @return true if the shard was handed over.
+     */
+    public boolean reassign(TaskShard shard, String nodeId) {
+        return taskShardJpaRepository.reassign(shard.getId(), nodeId, shard.getNodeId(), TaskStatus.PENDING, new Date(),
+                Arrays.asList(TaskStatus.PENDING, TaskStatus.DOING)) > 0;
+    }
+
+    /**
+     * Stops the shards of a fire that did not end yet.
+     *
+     * @param runId    The ID of the fire.
+     * @param errorMsg The reason.
+     * @return The number of shards stopped.
+     */
+    public int stopUnfinished(String runId, String errorMsg) {
+        return taskShardJpaRepository.endUnfinished(runId, TaskStatus.STOP, new Date(), errorMsg,
+                Arrays.asList(TaskStatus.PENDING, TaskStatus.DOING));
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.entity.TaskSignal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.transaction.Transactional;
+
+@Repository
+@Transactional
+public interface TaskSignalJpaRepository extends JpaRepository<TaskSignal, String> {
+
+    /**
+     * Increments the sequence of a channel in place.
+     *
+     * @param channel The channel to increment.
+     * @return The number of rows updated, 0 if the channel does not exist yet.
+     */
+    @Modifying
+    @Query("update TaskSignal s set s.seq = s.seq + 1 where s.channel = ?1")
+    int increment(String channel);
+}
@@ -0,0 +1,47 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.entity.TaskSignal;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * Repository component for managing {@link TaskSignal} entities.
+ * Provides methods for bumping and reading the change sequence of a signal channel.
+ */
+@Component
+public class TaskSignalRepository {
+
+    @Resource
+    private TaskSignalJpaRepository taskSignalJpaRepository;
+
+    /**
+     * Increments the sequence of a channel, creating the channel if it does not exist yet.
+     *
+     * @param channel The channel to increment.
+     */
+    public void bump(String channel) {
+        if (taskSignalJpaRepository.increment(channel) > 0) {
+            return;
+        }
+        try {
+            TaskSignal signal = new TaskSignal(channel);
+            signal.setSeq(1L);
+            taskSignalJpaRepository.save(signal);
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the channel at the same time
+            taskSignalJpaRepository.increment(channel);
+        }
+    }
+
+    /**
+     * Retrieves the current sequence of a channel.
+     *
+     * @param channel The channel to read.
+     * @return The current sequence, 0 if the channel does not exist yet.
+     */
+    public long currentSeq(String channel) {
+        return taskSignalJpaRepository.findById(channel).map(TaskSignal::getSeq).orElse(0L);
+    }
+}
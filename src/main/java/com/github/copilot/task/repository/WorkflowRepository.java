@@ -0,0 +1,241 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.entity.WorkflowRun;
+import com.github.copilot.task.entity.WorkflowStep;
+import com.github.copilot.task.enums.TaskStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository component for workflows: the dependencies between tasks, the runs of the workflows and the state of
+ * each task within a run. The state transitions of a run are conditional updates written with JDBC, each one in a
+ * single transaction together with the release of the tasks it makes ready, so a node dying at any point leaves
+ * the run in a state another node can continue from.
+ */
+@Component
+public class WorkflowRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private WorkflowRunJpaRepository workflowRunJpaRepository;
+
+    @Resource
+    private WorkflowStepJpaRepository workflowStepJpaRepository;
+
+    /**
+     * @return The upstream task IDs of every task that has some, by task ID.
+     */
+    public Map<Long, List<Long>> listUpstreams() {
+        Map<Long, List<Long>> upstreams = new HashMap<>();
+        jdbcTemplate.query("select task_id, upstream_task_id from schedule_task_dependency", rs -> {
+            upstreams.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getLong(2));
+        });
+        return upstreams;
+    }
+
+    /**
+     * Replaces the upstreams of a task.
+     *
+     * @param taskId      The ID of the task.
+     * @param upstreamIds The IDs of the tasks it runs after, empty to make it independent again.
+     */
+    @Transactional
+    public void replaceUpstreams(Long taskId, Collection<Long> upstreamIds) {
+        jdbcTemplate.update("delete from schedule_task_dependency where task_id = ?", taskId);
+        if (upstreamIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> args = new ArrayList<>();
+        for (Long upstreamId : upstreamIds) {
+            args.add(new Object[]{taskId, upstreamId, now, now});
+        }
+        jdbcTemplate.batchUpdate("insert into schedule_task_dependency (id, task_id, upstream_task_id, create_date, modified_date) "
+                + "values (schedule_task_dependency_seq.nextval, ?, ?, ?, ?)", args);
+    }
+
+    /**
+     * @param rootTaskId The ID of the root task.
+     * @return true if a run of the workflow did not end yet.
+     */
+    public boolean hasActiveRun(Long rootTaskId) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from schedule_workflow_run where root_task_id = ? and status = ?",
+                Integer.class, rootTaskId, TaskStatus.DOING.ordinal());
+        return count != null && count > 0;
+    }
+
+    /**
+     * Starts a run of a workflow and releases the tasks that only wait for the root.
+     *
+     * @param rootTaskId The ID of the root task, which just finished.
+     * @param remaining  The number of upstreams each task of the run waits for, the root excluded.
+     * @return The ID of the run.
+     */
+    @Transactional
+    public Long startRun(Long rootTaskId, Map<Long, Integer> remaining) {
+        Long runId = jdbcTemplate.queryForObject("select schedule_workflow_run_seq.nextval from dual", Long.class);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.update("insert into schedule_workflow_run (id, root_task_id, status, start_time, create_date, modified_date) "
+                + "values (?, ?, ?, ?, ?, ?)", runId, rootTaskId, TaskStatus.DOING.ordinal(), now, now, now);
+        List<Object[]> args = new ArrayList<>();
+        List<Long> ready = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : remaining.entrySet()) {
+            TaskStatus status = entry.getValue() == 0 ? TaskStatus.PENDING : TaskStatus.NOT_STARTED;
+            if (status == TaskStatus.PENDING) {
+                ready.add(entry.getKey());
+            }
+            args.add(new Object[]{runId, entry.getKey(), entry.getValue(), status.ordinal(), now, now});
+        }
+        jdbcTemplate.batchUpdate("insert into schedule_workflow_step (id, run_id, task_id, remaining_upstreams, status, create_date, modified_date) "
+                + "values (schedule_workflow_step_seq.nextval, ?, ?, ?, ?, ?, ?)", args);
+        release(runId, ready, now);
+        return runId;
+    }
+
+    /**
+     * Records that the task of a step finished and releases the downstream tasks it was the last upstream of.
+     * A step already ended, e.g. by an earlier attempt of the same task, is left as is.
+     *
+     * @param runId         The ID of the run.
+     * @param taskId        The ID of the task.
+     * @param downstreamIds The IDs of the tasks depending on it.
+     * @return The IDs of the tasks released.
+     */
+    @Transactional
+    public List<Long> completeStep(Long runId, Long taskId, Collection<Long> downstreamIds) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        if (endStep(runId, taskId, TaskStatus.FINISH, null, now) == 0) {
+            return new ArrayList<>();
+        }
+        List<Long> ready = new ArrayList<>();
+        for (Long downstreamId : downstreamIds) {
+            /**
+             * 两个上游同时完成时行锁让两个减一串行，只有减到0的那一个能把等待改成放行
+             */
+            jdbcTemplate.update("update schedule_workflow_step set remaining_upstreams = remaining_upstreams - 1, modified_date = ? "
+                    + "where run_id = ? and task_id = ? and status = ?", now, runId, downstreamId, TaskStatus.NOT_STARTED.ordinal());
+            if (jdbcTemplate.update("update schedule_workflow_step set status = ?, modified_date = ? "
+                            + "where run_id = ? and task_id = ? and status = ? and remaining_upstreams <= 0",
+                    TaskStatus.PENDING.ordinal(), now, runId, downstreamId, TaskStatus.NOT_STARTED.ordinal()) > 0) {
+                ready.add(downstreamId);
+            }
+        }
+        List<Long> released = release(runId, ready, now);
+        endRunIfDone(runId, now);
+        return released;
+    }
+
+    /**
+     * Records that the task of a step failed. The steps still waiting are skipped and the run fails, the steps
+     * already released keep running but release nothing more.
+     *
+     * @param runId    The ID of the run.
+     * @param taskId   The ID of the task.
+     * @param errorMsg The error of the task.
+     * @return true if the step was still running.
+     */
+    @Transactional
+    public boolean failStep(Long runId, Long taskId, String errorMsg) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        if (endStep(runId, taskId, TaskStatus.ERROR, errorMsg, now) == 0) {
+            return false;
+        }
+        failRun(runId, "task " + taskId + " failed: " + errorMsg, now);
+        return true;
+    }
+
+    /**
+     * Finds the released steps whose task already ended within the run, without the step having been updated,
+     * e.g. because the node running the task died right after writing its result. A task stopped before it
+     * started never reports a result, so stopped tasks are returned as well and fail their run.
+     *
+     * @param before Only tasks ended before this time are returned, leaving time to the node that ran them.
+     * @return Rows of run ID, task ID and task status ordinal.
+     */
+    public List<long[]> listEndedSteps(Timestamp before) {
+        return jdbcTemplate.query("select s.run_id, s.task_id, t.status from schedule_workflow_step s "
+                        + "join schedule_task t on t.id = s.task_id and t.workflow_run_id = s.run_id "
+                        + "where s.status = ? and t.status in (?, ?, ?) and t.modified_date < ?",
+                (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)},
+                TaskStatus.PENDING.ordinal(), TaskStatus.FINISH.ordinal(), TaskStatus.ERROR.ordinal(),
+                TaskStatus.STOP.ordinal(), before);
+    }
+
+    /**
+     * @param rootTaskId The ID of the root task.
+     * @param size       The maximum number of runs.
+     * @return The latest runs of the workflow, the newest first.
+     */
+    public List<WorkflowRun> listRuns(Long rootTaskId, int size) {
+        return workflowRunJpaRepository.findByRootTaskIdOrderByIdDesc(rootTaskId, PageRequest.of(0, size));
+    }
+
+    /**
+     * @param runId The ID of the run.
+     * @return The steps of the run.
+     */
+    public List<WorkflowStep> listSteps(Long runId) {
+        return workflowStepJpaRepository.findByRunIdOrderByIdAsc(runId);
+    }
+
+    private int endStep(Long runId, Long taskId, TaskStatus status, String errorMsg, Timestamp now) {
+        return jdbcTemplate.update("update schedule_workflow_step set status = ?, end_time = ?, error_msg = ?, modified_date = ? "
+                + "where run_id = ? and task_id = ? and status = ?", status.ordinal(), now, errorMsg, now, runId, taskId, TaskStatus.PENDING.ordinal());
+    }
+
+    /**
+     * Makes the tasks of released steps due now. A task that is running on its own or was stopped can not be
+     * released, its step fails and with it the run. The update is conditional on the version read just before, so a
+     * task changed in between is not released over its newer state.
+     */
+    private List<Long> release(Long runId, List<Long> taskIds, Timestamp now) {
+        List<Long> released = new ArrayList<>();
+        boolean failed = false;
+        for (Long taskId : taskIds) {
+            if (failed) {
+                endStep(runId, taskId, TaskStatus.STOP, null, now);
+                continue;
+            }
+            List<Integer> versions = jdbcTemplate.queryForList("select version from schedule_task where id = ?", Integer.class, taskId);
+            int updated = versions.isEmpty() ? 0 : jdbcTemplate.update("update schedule_task set status = ?, next_start_time = ?, "
+                            + "workflow_run_id = ?, version = version + 1, modified_date = ? where id = ? and version = ? and status in (?, ?, ?)",
+                    TaskStatus.NOT_STARTED.ordinal(), now, runId, now, taskId, versions.get(0),
+                    TaskStatus.NOT_STARTED.ordinal(), TaskStatus.FINISH.ordinal(), TaskStatus.ERROR.ordinal());
+            if (updated > 0) {
+                released.add(taskId);
+            } else {
+                endStep(runId, taskId, TaskStatus.ERROR, "task is running or stopped", now);
+                failRun(runId, "task " + taskId + " could not be released", now);
+                failed = true;
+            }
+        }
+        return released;
+    }
+
+    private void failRun(Long runId, String errorMsg, Timestamp now) {
+        jdbcTemplate.update("update schedule_workflow_step set status = ?, end_time = ?, modified_date = ? where run_id = ? and status = ?",
+                TaskStatus.STOP.ordinal(), now, now, runId, TaskStatus.NOT_STARTED.ordinal());
+        jdbcTemplate.update("update schedule_workflow_run set status = ?, end_time = ?, error_msg = ?, modified_date = ? where id = ? and status = ?",
+                TaskStatus.ERROR.ordinal(), now, errorMsg, now, runId, TaskStatus.DOING.ordinal());
+    }
+
+    private void endRunIfDone(Long runId, Timestamp now) {
+        jdbcTemplate.update("update schedule_workflow_run set status = ?, end_time = ?, modified_date = ? where id = ? and status = ? "
+                        + "and not exists (select 1 from schedule_workflow_step where run_id = ? and status in (?, ?))",
+                TaskStatus.FINISH.ordinal(), now, now, runId, TaskStatus.DOING.ordinal(),
+                runId, TaskStatus.NOT_STARTED.ordinal(), TaskStatus.PENDING.ordinal());
+    }
+}
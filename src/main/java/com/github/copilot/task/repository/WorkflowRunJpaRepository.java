@@ -0,0 +1,24 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.entity.WorkflowRun;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * JPA repository interface for {@link WorkflowRun} entities.
+ */
+@Repository
+public interface WorkflowRunJpaRepository extends JpaRepository<WorkflowRun, Long> {
+
+    /**
+     * Finds the runs of a workflow, the newest first.
+     *
+     * @param rootTaskId The ID of the root task.
+     * @param pageable   The maximum number of runs.
+     * @return The runs.
+     */
+    List<WorkflowRun> findByRootTaskIdOrderByIdDesc(Long rootTaskId, Pageable pageable);
+}
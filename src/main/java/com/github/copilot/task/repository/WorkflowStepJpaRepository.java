@@ -0,0 +1,22 @@
+package com.github.copilot.task.repository;
+
+import com.github.copilot.task.entity.WorkflowStep;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * JPA repository interface for {@link WorkflowStep} entities.
+ */
+@Repository
+public interface WorkflowStepJpaRepository extends JpaRepository<WorkflowStep, Long> {
+
+    /**
+     * Finds the steps of a run.
+     *
+     * @param runId The ID of the run.
+     * @return The steps, in creation order.
+     */
+    List<WorkflowStep> findByRunIdOrderByIdAsc(Long runId);
+}
@@ -0,0 +1,253 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.entity.Node;
+import com.github.copilot.task.enums.NodeStatus;
+import com.github.copilot.task.repository.NodeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 节点失效检测，代替固定的心跳超时时间判断节点是否还活着
+ * 1.每个节点每隔pollMillis毫秒读一次节点表，某个节点的心跳时间变了就算收到了它的一次心跳，到达时间按本节点的时钟记，
+ * 节点之间的时钟不一致也没关系
+ * 2.每个节点按自己的心跳间隔历史算出怀疑程度phi，超过阈值就认为挂了，心跳一直很准时的节点挂了几秒就能发现，
+ * 经常GC停顿的节点要等更久，不会来回误判
+ * 3.策略只拿到可用且没被认为挂了的节点，怀疑程度超过阈值一半的节点标记为可疑，策略可以少给或者不给它任务；
+ * 恢复线程恢复被认为挂了的节点的任务，有节点刚被认为挂了时马上唤醒恢复线程
+ */
+@Component
+public class FailureDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(FailureDetector.class);
+    /**
+     * 只有一个读节点表的线程
+     */
+    private final ExecutorService bossPool = Executors.newSingleThreadExecutor();
+
+    private final Map<String, PhiAccrual> histories = new ConcurrentHashMap<>();
+    @Autowired
+    private EasyJobConfig config;
+    @Autowired
+    private NodeRepository nodeRepository;
+    /**
+     * 上次读到的所有节点
+     */
+    private volatile List<Node> nodes;
+    /**
+     * 上次读节点表的时间，毫秒，按本节点的时钟
+     */
+    private volatile long polledAt;
+    /**
+     * 上次读到的每个节点的心跳时间
+     */
+    private final Map<String, Date> beats = new ConcurrentHashMap<>();
+    /**
+     * 上次读节点表时被认为挂了的节点，只在poll里读写
+     */
+    private Set<String> knownDead = Collections.emptySet();
+
+    private final Object monitor = new Object();
+    /**
+     * 有节点刚被认为挂了，guarded by monitor
+     */
+    private boolean signalled;
+
+    @PostConstruct
+    public void init() {
+        if (config.isRecoverEnable() && config.isHeartBeatEnable()) {
+            bossPool.execute(new Poller());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        bossPool.shutdownNow();
+    }
+
+    /**
+     * @return 可用并且没被认为挂了的节点，带着各自的怀疑程度。每次返回新的节点对象，
+     * 读到的节点会被多个线程同时用到，不能在上面改
+     */
+    public List<Node> liveNodes() {
+        long now = now();
+        List<Node> live = new ArrayList<>();
+        for (Node node : nodes()) {
+            if (node.getNodeStatus() != NodeStatus.ENABLE) {
+                continue;
+            }
+            double phi = phi(node.getNodeId(), now);
+            if (phi < config.getDetectorPhiThreshold()) {
+                Node copy = node.toBuilder()
+                        .phi(phi)
+                        .suspect(phi >= config.getDetectorPhiThreshold() / 2)
+                        .build();
+                copy.setUpdateTime(node.getUpdateTime());
+                live.add(copy);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * @return 被认为挂了的节点id，不管节点是什么状态
+     */
+    public Set<String> deadNodes() {
+        return dead(nodes(), now());
+    }
+
+    /**
+     * 等到有节点刚被认为挂了或者超时
+     *
+     * @param timeoutMs 最长等待的毫秒数
+     * @return 是否有节点刚被认为挂了
+     * @throws InterruptedException
+     */
+    public boolean awaitDeadNode(long timeoutMs) throws InterruptedException {
+        synchronized (monitor) {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            long remaining = timeoutMs;
+            while (!signalled && remaining > 0) {
+                monitor.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            boolean dead = signalled;
+            signalled = false;
+            return dead;
+        }
+    }
+
+    private Set<String> dead(List<Node> all, long now) {
+        Set<String> dead = new HashSet<>();
+        for (Node node : all) {
+            if (phi(node.getNodeId(), now) >= config.getDetectorPhiThreshold()) {
+                dead.add(node.getNodeId());
+            }
+        }
+        return dead;
+    }
+
+    /**
+     * @param nodeId 节点id
+     * @param now    当前时间，毫秒，按本节点的时钟
+     * @return 节点的怀疑程度，还没见过的节点为0
+     */
+    private double phi(String nodeId, long now) {
+        /**
+         * 本节点自己肯定活着
+         */
+        if (nodeId.equals(config.getNodeId())) {
+            return 0;
+        }
+        PhiAccrual history = histories.get(nodeId);
+        return history == null ? 0 : history.phi(now);
+    }
+
+    /**
+     * 读节点表的线程没在跑或者读失败了，就在这里读一次
+     */
+    private List<Node> nodes() {
+        List<Node> current = nodes;
+        if (current == null || now() - polledAt > config.getDetectorPollMillis() * 2) {
+            current = poll();
+        }
+        return current;
+    }
+
+    /**
+     * 读一次节点表，心跳时间变了的节点记一次心跳
+     *
+     * @return 所有节点
+     */
+    synchronized List<Node> poll() {
+        List<Node> all = nodeRepository.listNodes();
+        long now = now();
+        long wallNow = System.currentTimeMillis();
+        /**
+         * 本节点有一段时间没读到节点表，这段时间看不到别人的心跳，不能算到别人头上，都从现在重新等
+         */
+        boolean blind = nodes != null && now - polledAt > config.getDetectorPollMillis() * 2;
+        Set<String> seen = new HashSet<>();
+        for (Node node : all) {
+            String nodeId = node.getNodeId();
+            Date beat = node.getUpdateTime();
+            seen.add(nodeId);
+            if (beat == null) {
+                continue;
+            }
+            PhiAccrual history = histories.get(nodeId);
+            if (history == null) {
+                /**
+                 * 第一次看到的节点只能按心跳时间估计它上次心跳到现在多久了，之后都按本节点的时钟记
+                 */
+                long age = Math.max(0, wallNow - beat.getTime());
+                histories.put(nodeId, new PhiAccrual(config.getDetectorWindowSize(), config.getHeartBeatSeconds() * 1000L,
+                        config.getDetectorMinStdDeviationMillis(), config.getDetectorAcceptablePauseMillis(), now - age));
+            } else if (!beat.equals(beats.get(nodeId))) {
+                history.heartbeat(now);
+            } else if (blind) {
+                history.restart(now);
+            }
+            beats.put(nodeId, beat);
+        }
+        /**
+         * 删掉的节点不再跟踪
+         */
+        histories.keySet().retainAll(seen);
+        beats.keySet().retainAll(seen);
+        List<Node> current = Collections.unmodifiableList(all);
+        nodes = current;
+        polledAt = now;
+        Set<String> dead = dead(current, now);
+        if (!knownDead.containsAll(dead)) {
+            logger.warn("nodes {} considered dead", dead);
+            synchronized (monitor) {
+                signalled = true;
+                monitor.notifyAll();
+            }
+        }
+        knownDead = dead;
+        return current;
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    class Poller implements Runnable {
+        @Override
+        public void run() {
+            for (; ; ) {
+                try {
+                    poll();
+                    Thread.sleep(config.getDetectorPollMillis());
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    logger.error("poll nodes failed,cause by:{}", e.getMessage());
+                    try {
+                        Thread.sleep(config.getDetectorPollMillis());
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.repository.LeaderLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 领导者选举，基于schedule_node表里的一行租约，开启后只有领导者拉取未开始的任务并批量分配给各个节点，
+ * 也只有领导者恢复失联节点的任务，其它节点只执行分配给自己的任务，避免所有节点一起查询和抢任务
+ * 1.每个节点每隔四分之一个租约时间尝试获取或者续租，租约到期时间按数据库时间计算
+ * 2.领导者挂了之后租约最多一个租约时间就过期，下一次尝试就会有新的领导者，默认租约是心跳周期的三分之二，
+ * 所以一个心跳周期内就能完成切换
+ * 3.领导者连不上数据库续不了租时，本地按上次续租成功的时间判断租约过期，自己先退位，不会出现两个领导者同时分配
+ */
+@Component
+public class LeaderElector {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderElector.class);
+    /**
+     * 只有一个选举线程
+     */
+    private final ExecutorService bossPool = Executors.newSingleThreadExecutor();
+    @Autowired
+    private EasyJobConfig config;
+    @Autowired
+    private LeaderLeaseRepository leaderLeaseRepository;
+    /**
+     * 是否持有租约
+     */
+    private volatile boolean leader;
+    /**
+     * 本地判断的租约到期时间，System.nanoTime
+     */
+    private volatile long leaseDeadline;
+
+    @PostConstruct
+    public void init() {
+        if (isEnabled()) {
+            bossPool.execute(new Election());
+        }
+    }
+
+    /**
+     * 停止时主动释放租约，其它节点不用等租约过期就能接手
+     */
+    @PreDestroy
+    public void destroy() {
+        bossPool.shutdownNow();
+        if (leader) {
+            leader = false;
+            try {
+                leaderLeaseRepository.release(config.getNodeId());
+            } catch (Exception e) {
+                logger.error("release leader lease failed,cause by:{}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return 是否开启了领导者模式，依赖心跳
+     */
+    public boolean isEnabled() {
+        return config.isLeaderEnable() && config.isHeartBeatEnable();
+    }
+
+    /**
+     * @return 本节点当前是否是领导者
+     */
+    public boolean isLeader() {
+        return leader && System.nanoTime() - leaseDeadline < 0;
+    }
+
+    /**
+     * @return 租约时长，单位毫秒
+     */
+    long leaseMillis() {
+        if (config.getLeaderLeaseSeconds() > 0) {
+            return config.getLeaderLeaseSeconds() * 1000L;
+        }
+        return Math.max(1000L, config.getHeartBeatSeconds() * 1000L * 2 / 3);
+    }
+
+    /**
+     * 尝试获取或者续租一次
+     */
+    void elect() {
+        long leaseMillis = leaseMillis();
+        /**
+         * 以发起请求的时间为准，数据库里的到期时间一定不早于这个时间加租约时长
+         */
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = leaderLeaseRepository.tryAcquire(config.getNodeId(), leaseMillis);
+        } catch (Exception e) {
+            /**
+             * 续不了租就等本地租约过期，isLeader会自己变成false
+             */
+            logger.error("renew leader lease failed,cause by:{}", e.getMessage());
+            return;
+        }
+        if (acquired) {
+            leaseDeadline = start + TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+        }
+        if (acquired != leader) {
+            logger.info(acquired ? "node {} became the leader" : "node {} is no longer the leader", config.getNodeId());
+        }
+        leader = acquired;
+    }
+
+    class Election implements Runnable {
+        @Override
+        public void run() {
+            for (; ; ) {
+                try {
+                    elect();
+                    Thread.sleep(leaseMillis() / 4);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    logger.error("leader election failed,cause by:{}", e);
+                }
+            }
+        }
+    }
+}
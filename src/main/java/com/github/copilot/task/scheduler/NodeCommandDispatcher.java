@@ -0,0 +1,149 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.entity.NodeCommand;
+import com.github.copilot.task.enums.NotifyCmd;
+import com.github.copilot.task.handles.NotifyHandler;
+import com.github.copilot.task.repository.NodeCommandRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 节点命令分发器，每个节点有自己的命令队列，命令按发送的顺序处理，处理完一批确认一批
+ * 1.发命令就是往队列表插一行，同一个节点连着收到多个命令也不会互相覆盖
+ * 2.轮询线程每pollMillis毫秒取一次本节点还没确认的命令，一次最多取batchSize个，按命令名称找到NotifyHandler处理，
+ * 发给本节点自己的命令马上唤醒轮询线程，不用等下一轮
+ * 3.处理出错或者没有对应Handler的命令也确认掉，错误信息记在命令上，不会每一轮都重复处理
+ */
+@Component
+public class NodeCommandDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeCommandDispatcher.class);
+    /**
+     * 只有一个轮询线程
+     */
+    private final ExecutorService bossPool = Executors.newSingleThreadExecutor();
+
+    private final Object monitor = new Object();
+    /**
+     * 有发给本节点的新命令，guarded by monitor
+     */
+    private boolean signalled;
+    @Autowired
+    private EasyJobConfig config;
+    @Autowired
+    private NodeCommandRepository nodeCommandRepository;
+
+    @PostConstruct
+    public void init() {
+        if (config.isRecoverEnable() && config.isHeartBeatEnable()) {
+            bossPool.execute(new Poller());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        bossPool.shutdownNow();
+    }
+
+    /**
+     * 给节点发一个命令
+     *
+     * @param nodeId      节点id
+     * @param cmd         命令
+     * @param notifyValue 命令的参数，比如任务id
+     * @return 命令id
+     */
+    public Long send(String nodeId, NotifyCmd cmd, String notifyValue) {
+        Long id = nodeCommandRepository.send(nodeId, cmd, notifyValue);
+        logger.info("send command:{} {} {} to node:{}", id, cmd, notifyValue, nodeId);
+        if (config.getNodeId().equals(nodeId)) {
+            synchronized (monitor) {
+                signalled = true;
+                monitor.notifyAll();
+            }
+        }
+        return id;
+    }
+
+    /**
+     * 处理一批本节点的命令并确认
+     *
+     * @return 处理的命令数量
+     */
+    int poll() {
+        List<NodeCommand> commands = nodeCommandRepository.listPending(config.getNodeId(), Math.max(1, config.getCommandBatchSize()));
+        for (NodeCommand command : commands) {
+            command.setErrorMsg(dispatch(command.getNotifyCmd(), command.getNotifyValue()));
+        }
+        nodeCommandRepository.ack(commands);
+        return commands.size();
+    }
+
+    /**
+     * 把一个命令交给对应的Handler处理
+     *
+     * @param cmd         命令
+     * @param notifyValue 命令的参数
+     * @return 错误信息，处理成功时为空
+     */
+    public String dispatch(NotifyCmd cmd, String notifyValue) {
+        NotifyHandler handler = NotifyHandler.chooseHandler(cmd);
+        if (handler == null) {
+            logger.warn("no handler for command:{}", cmd);
+            return "no handler for " + cmd;
+        }
+        try {
+            handler.handle(notifyValue);
+            return null;
+        } catch (Exception e) {
+            logger.error("handle command:{} {} failed,cause by:{}", cmd, notifyValue, e);
+            return ScheduleTaskExecutor.errorMessage(e);
+        }
+    }
+
+    private void await(long timeoutMs) throws InterruptedException {
+        synchronized (monitor) {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            long remaining = timeoutMs;
+            while (!signalled && remaining > 0) {
+                monitor.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            signalled = false;
+        }
+    }
+
+    class Poller implements Runnable {
+        @Override
+        public void run() {
+            for (; ; ) {
+                try {
+                    /**
+                     * 取满一批说明可能还有，马上再取
+                     */
+                    if (poll() < Math.max(1, config.getCommandBatchSize())) {
+                        await(config.getCommandPollMillis());
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    logger.error("poll node commands failed,cause by:{}", e.getMessage());
+                    try {
+                        Thread.sleep(config.getCommandPollMillis());
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.entity.Node;
+import com.github.copilot.task.enums.NodeStatus;
+import com.github.copilot.task.repository.NodeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * 节点的生命周期，应用停止时先摘除本节点再注销，滚动发布时其它节点马上接手本节点的任务
+ * 1.停止时不再抢任务，已经抢到还没开始的任务交还，等执行中的任务执行完，最多等easyjob.drain.timeoutSeconds秒
+ * 2.然后停掉心跳并删掉节点，其它节点不用等心跳超时
+ * 3.这些都在Spring销毁各个组件之前完成，线程池、数据源都还能用，各个组件的线程池在销毁时再关掉
+ * 4.启动时节点如果还是上次摘除留下的摘除中状态，改回可用
+ */
+@Component
+public class NodeLifecycle implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeLifecycle.class);
+    @Autowired
+    private EasyJobConfig config;
+    @Autowired
+    private NodeRepository nodeRepository;
+    @Autowired
+    private ScheduleTaskExecutor scheduleTaskExecutor;
+    @Autowired
+    private RecoverExecutor recoverExecutor;
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        running = true;
+        if (!registered()) {
+            return;
+        }
+        try {
+            Node node = nodeRepository.getByNodeId(config.getNodeId());
+            if (node != null && node.getNodeStatus() == NodeStatus.DRAINING) {
+                nodeRepository.updateStatus(config.getNodeId(), NodeStatus.ENABLE);
+            }
+        } catch (Exception e) {
+            logger.error("enable node {} failed,cause by:{}", config.getNodeId(), e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (!registered()) {
+            return;
+        }
+        try {
+            scheduleTaskExecutor.drain(config.getDrainTimeoutSeconds() * 1000L);
+            recoverExecutor.deregister();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("drain node {} failed,cause by:{}", config.getNodeId(), e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 只有心跳的节点才在节点表里注册了
+     */
+    private boolean registered() {
+        return config.isRecoverEnable() && config.isHeartBeatEnable();
+    }
+}
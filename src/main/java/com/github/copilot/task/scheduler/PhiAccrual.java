@@ -0,0 +1,106 @@
+package com.github.copilot.task.scheduler;
+
+/**
+ * 一个节点的phi累积失效检测，记住最近若干次心跳的到达间隔，按正态分布估计下一次心跳的到达时间，
+ * 距离上次心跳越久phi越大：phi = -log10(这么久还没等到心跳的概率)，phi为1时误判的概率是10%，为8时是百万分之一。
+ * 心跳间隔稳定的节点很快就会被怀疑，间隔本来就抖得厉害的节点(比如经常GC停顿)要等更久，不用固定的超时时间
+ */
+final class PhiAccrual {
+
+    private final long[] intervals;
+
+    private final double minStdDeviation;
+
+    private final double acceptablePause;
+
+    private int count;
+
+    private int next;
+
+    private double sum;
+
+    private double squaredSum;
+
+    /**
+     * 上次心跳到达的时间，毫秒，按本节点的时钟
+     */
+    private long lastArrival;
+
+    /**
+     * @param windowSize         最多记住多少次心跳间隔
+     * @param firstInterval      还没有心跳间隔时估计的间隔，也就是心跳周期
+     * @param minStdDeviation    标准差的下限，心跳间隔一直很稳定时也不会因为一点点延迟就被怀疑
+     * @param acceptablePause    额外允许的停顿，加到平均间隔上
+     * @param firstArrival       第一次看到心跳的时间，毫秒
+     */
+    PhiAccrual(int windowSize, long firstInterval, long minStdDeviation, long acceptablePause, long firstArrival) {
+        this.intervals = new long[Math.max(1, windowSize)];
+        this.minStdDeviation = Math.max(1, minStdDeviation);
+        this.acceptablePause = Math.max(0, acceptablePause);
+        this.lastArrival = firstArrival;
+        /**
+         * 先放两个估计的间隔，平均值是心跳周期，标准差是周期的四分之一，刚启动时也能算
+         */
+        long deviation = Math.max(1, firstInterval / 4);
+        add(firstInterval - deviation);
+        add(firstInterval + deviation);
+    }
+
+    /**
+     * 记一次心跳
+     *
+     * @param arrival 心跳到达的时间，毫秒
+     */
+    synchronized void heartbeat(long arrival) {
+        if (arrival > lastArrival) {
+            add(arrival - lastArrival);
+            lastArrival = arrival;
+        }
+    }
+
+    /**
+     * 从现在重新等下一次心跳，不记间隔
+     *
+     * @param now 当前时间，毫秒
+     */
+    synchronized void restart(long now) {
+        lastArrival = Math.max(lastArrival, now);
+    }
+
+    /**
+     * @param now 当前时间，毫秒
+     * @return 怀疑程度，越大越可能已经挂了
+     */
+    synchronized double phi(long now) {
+        double mean = sum / count;
+        double variance = Math.max(0, squaredSum / count - mean * mean);
+        double deviation = Math.max(minStdDeviation, Math.sqrt(variance));
+        return phi(now - lastArrival, mean + acceptablePause, deviation);
+    }
+
+    /**
+     * 正态分布累积分布函数的logistic近似，尾部也不会因为精度丢失变成无穷大
+     */
+    static double phi(long elapsed, double mean, double deviation) {
+        double y = (elapsed - mean) / deviation;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (elapsed > mean) {
+            return -Math.log10(e / (1.0 + e));
+        }
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    private void add(long interval) {
+        if (count == intervals.length) {
+            long oldest = intervals[next];
+            sum -= oldest;
+            squaredSum -= (double) oldest * oldest;
+        } else {
+            count++;
+        }
+        intervals[next] = interval;
+        next = (next + 1) % intervals.length;
+        sum += interval;
+        squaredSum += (double) interval * interval;
+    }
+}
@@ -4,22 +4,27 @@ import com.github.copilot.task.config.EasyJobConfig;
 import com.github.copilot.task.entity.Node;
 import com.github.copilot.task.entity.Task;
 import com.github.copilot.task.enums.NotifyCmd;
-import com.github.copilot.task.enums.TaskStatus;
-import com.github.copilot.task.handles.NotifyHandler;
+import com.github.copilot.task.enums.TaskChangeType;
+import com.github.copilot.task.event.TaskChangeNotifier;
+import com.github.copilot.task.repository.NodeHeartbeatRepository;
 import com.github.copilot.task.repository.NodeRepository;
 import com.github.copilot.task.repository.TaskRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
 import javax.annotation.PostConstruct;
-import java.util.Date;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.DelayQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 恢复调度器，恢复那些属于失联的节点的未完成的任务，异常也是一种任务状态的终点，
@@ -46,6 +51,18 @@ public class RecoverExecutor {
     private TaskRepository taskRepository;
     @Autowired
     private NodeRepository nodeRepository;
+    @Autowired
+    private NodeHeartbeatRepository nodeHeartbeatRepository;
+    @Autowired
+    private FailureDetector failureDetector;
+    @Autowired
+    private NodeCommandDispatcher nodeCommandDispatcher;
+    @Autowired
+    private TaskChangeNotifier taskChangeNotifier;
+    @Autowired
+    private ScheduleTaskExecutor scheduleTaskExecutor;
+    @Autowired
+    private LeaderElector leaderElector;
 
     @PostConstruct
     public void init() {
@@ -68,68 +85,53 @@ public class RecoverExecutor {
         }
     }
 
+    @PreDestroy
+    public void destroy() {
+        bossPool.shutdownNow();
+    }
+
     /**
-     * 处理节点心跳
+     * 注销本节点：停掉心跳再删掉节点，其它节点不用等心跳超时就知道本节点下线了
      *
-     * @param node
+     * @throws InterruptedException
      */
-    private void handHeartBeat(Node node) {
-        if (node == null) {
-            return;
-        }
+    public void deregister() throws InterruptedException {
+        bossPool.shutdownNow();
         /**
-         * 先看看数据库是否存在这个节点
-         * 如果不存在：先查找下一个序号，然后设置到node对象中，最后插入
-         * 如果存在：直接根据nodeId更新当前节点的序号和时间
+         * 等正在写的心跳写完，否则删掉的节点又会被心跳插回来
          */
-        Node currNode = nodeRepository.getByNodeId(node.getNodeId());
-        if (currNode == null) {
-            nodeRepository.insert(node);
-        } else {
-            nodeRepository.updateHeartBeat(node.getNodeId());
-            NotifyCmd cmd = currNode.getNotifyCmd();
-            String notifyValue = currNode.getNotifyValue();
-            if (cmd != null && cmd != NotifyCmd.NO_NOTIFY) {
-                /**
-                 * 借助心跳做一下通知的事情，比如及时停止正在执行的任务
-                 * 根据指令名称查找Handler
-                 */
-                NotifyHandler handler = NotifyHandler.chooseHandler(currNode.getNotifyCmd());
-                if (handler == null || StringUtils.isEmpty(notifyValue)) {
-                    return;
-                }
-                /**
-                 * 先重置通知再说，以免每次心跳无限执行通知下面更新逻辑
-                 */
-                nodeRepository.resetNotifyInfo(currNode.getNodeId(), cmd);
-                /**
-                 * 执行操作
-                 */
-                handler.update(Long.valueOf(notifyValue));
-            }
-
+        if (!bossPool.awaitTermination(config.getHeartBeatSeconds(), TimeUnit.SECONDS)) {
+            logger.warn("heart beat of node {} did not stop in time", config.getNodeId());
         }
-
-
+        nodeRepository.deregister(config.getNodeId());
+        logger.info("node {} deregistered", config.getNodeId());
     }
 
     /**
-     * 选择下一个节点
+     * 处理节点心跳
      *
-     * @param nodes
-     * @param maxNodeId
-     * @param nodeId
-     * @return
+     * @param node
      */
-    private String chooseNodeId(List<Node> nodes, String maxNodeId, String nodeId) {
-        if(nodeId ==null||nodes.isEmpty() || getNodeIdHashCode(nodeId)>= getNodeIdHashCode(maxNodeId)){
-            return nodes.get(0).getNodeId();
+    private void handHeartBeat(Node node) {
+        if (node == null) {
+            return;
+        }
+        /**
+         * 顺便上报本节点当前的负载
+         */
+        scheduleTaskExecutor.reportLoad(node);
+        /**
+         * 一次往返写完心跳：节点不存在就插入，存在就更新心跳时间和负载，同时取走并清掉发给本节点的通知，
+         * 不用先查再存，心跳可以配得很短，挂掉的节点也就能更快被发现
+         */
+        nodeHeartbeatRepository.beat(node);
+        NotifyCmd cmd = node.getNotifyCmd();
+        if (cmd != null && cmd != NotifyCmd.NO_NOTIFY) {
+            /**
+             * 节点上单个的通知是命令队列之前的写法，直接修改节点写进去的通知照样借助心跳处理
+             */
+            nodeCommandDispatcher.dispatch(cmd, node.getNotifyValue());
         }
-        return nodes.stream().filter(node -> getNodeIdHashCode(node.getNodeId()) > getNodeIdHashCode(nodeId)).findFirst().get().getNodeId();
-    }
-
-    private int getNodeIdHashCode(String nodeId) {
-        return Math.abs(nodeId.hashCode());
     }
 
     class Recover implements Runnable {
@@ -138,49 +140,71 @@ public class RecoverExecutor {
             for (; ; ) {
                 try {
                     /**
-                     * 太累了，先睡会
+                     * 太累了，先睡会，有节点刚被认为挂了就马上起来恢复它的任务
+                     */
+                    failureDetector.awaitDeadNode(config.getRecoverSeconds() * 1000L);
+                    /**
+                     * 领导者模式下只有领导者恢复任务
                      */
-                    Thread.sleep(config.getRecoverSeconds() * 1000L);
+                    boolean leaderMode = leaderElector.isEnabled();
+                    if (leaderMode && !leaderElector.isLeader()) {
+                        continue;
+                    }
                     /**
-                     * 查找需要恢复的任务,这里界定需要恢复的任务是任务还没完成，并且所属执行节点超过3个
-                     * 心跳周期没有更新心跳时间。由于这些任务由于当时执行节点没有来得及执行完就挂了，所以
-                     * 只需要把状态再改回待执行，并且下次执行时间改成当前时间，让任务再次被调度一次
+                     * 查找需要恢复的任务,这里界定需要恢复的任务是任务还没完成，并且所属执行节点被失效检测认为已经挂了，
+                     * 只查挂掉的节点的任务，不用每次扫全部任务。由于这些任务由于当时执行节点没有来得及执行完就挂了，所以
+                     * 只需要把状态再改回待执行，并且下次执行时间改成当前时间，让任务再次被调度一次。
+                     * 失败的任务不管在哪个节点上，下次开始时间过了也一样重新调度。两次查询之间任务可能刚好失败，按id去重
                      */
-                    List<Task> tasks = taskRepository.listRecoverTasks(config.getHeartBeatSeconds() * 3);
-                    if (tasks == null || tasks.isEmpty()) {
-                        return;
+                    Set<String> deadNodes = failureDetector.deadNodes();
+                    Map<Long, Task> tasks = new LinkedHashMap<>();
+                    for (Task task : taskRepository.listRecoverTasks(deadNodes)) {
+                        tasks.put(task.getId(), task);
+                    }
+                    for (Task task : taskRepository.listFailedTasks()) {
+                        tasks.putIfAbsent(task.getId(), task);
+                    }
+                    if (tasks.isEmpty()) {
+                        continue;
                     }
                     /**
                      * 先获取可用的节点列表
                      */
-                    List<Node> nodes = nodeRepository.getEnableNodes(config.getHeartBeatSeconds() * 2);
-                    if (nodes == null || nodes.isEmpty()) {
-                        return;
+                    List<Node> nodes = failureDetector.liveNodes();
+                    if (nodes.isEmpty()) {
+                        continue;
                     }
-                    String maxNodeId = nodes.get(nodes.size() - 1).getNodeId();
-                    for (Task task : tasks) {
-                        /**
-                         * 每个节点有一个恢复线程，为了避免不必要的竞争,从可用节点找到一个最靠近任务所属节点的节点
-                         */
-                        String recoverNodeId = chooseNodeId(nodes, maxNodeId, task.getNodeId());
-                        String myNodeId = config.getNodeId();
+                    /**
+                     * 每个节点有一个恢复线程，为了避免不必要的竞争,从可用节点找到一个最靠近任务所属节点的节点，
+                     * 挂掉的节点的接班节点先算好
+                     */
+                    SuccessorMap successors = new SuccessorMap(nodes, deadNodes);
+                    String myNodeId = config.getNodeId();
+                    List<Task> mine = new ArrayList<>();
+                    for (Task task : tasks.values()) {
                         /**
-                         * 如果不该当前节点处理直接跳过
+                         * 如果不该当前节点处理直接跳过，领导者模式下都由领导者处理，恢复后再由领导者重新分配
                          */
-                        if (!recoverNodeId.equalsIgnoreCase( myNodeId)) {
-                            continue;
+                        if (leaderMode || successors.of(task.getNodeId()).equalsIgnoreCase(myNodeId)) {
+                            mine.add(task);
                         }
-                        /**
-                         * 直接将任务状态改成待执行，并且节点改成当前节点，有人可能会怀疑这里的安全性，可能会随着该事务的原主人节点的下一个
-                         * 正好在这时候挂了，chooseNodeId得到的下一个节点就变了，其它节点获取到的下一个节点就变了，也会进入这里。不过就算这里
-                         * 产生了竞争。如果我只是给事务换个主人。真正补偿由补偿线程完成，那边使用乐观锁去抢占事务，就会变得很安全。
-                         */
-                        task.setStatus(TaskStatus.PENDING);
-                        task.setNextStartTime(new Date());
-                        task.setNodeId(config.getNodeId());
-                        taskRepository.updateTask(task);
+                    }
+                    /**
+                     * 一批update把任务状态改成未开始，并且节点改成当前节点，带着读到的version，有人可能会怀疑这里的安全性，
+                     * 可能会随着该事务的原主人节点的下一个正好在这时候挂了，接班节点就变了，其它节点也会恢复同一个任务。
+                     * 不过先改成功的那个会把version加一，另一个就改不到了。真正补偿由Loader线程完成，那边用带状态条件的update去抢占任务
+                     */
+                    int recovered = taskRepository.recover(mine, myNodeId);
+                    /**
+                     * 通知Loader马上去抢这些任务，不用等下一个拉取周期
+                     */
+                    if (recovered > 0) {
+                        logger.info("recovered {} tasks, dead nodes {}", recovered, deadNodes);
+                        taskChangeNotifier.publish(null, TaskChangeType.RECOVER);
                     }
 
+                } catch (InterruptedException e) {
+                    return;
                 } catch (Exception e) {
                     logger.error("Get next task failed,cause by:{}", e);
                 }
@@ -204,6 +228,8 @@ public class RecoverExecutor {
                         handHeartBeat(node);
                     }
                     heartBeatQueue.offer(new DelayItem<>(config.getHeartBeatSeconds() * 1000L, new Node(config.getNodeId())));
+                } catch (InterruptedException e) {
+                    return;
                 } catch (Exception e) {
                     logger.error("task heart beat error,cause by:{} ", e);
                 }
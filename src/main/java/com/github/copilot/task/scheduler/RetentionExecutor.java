@@ -0,0 +1,184 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.repository.NodeCommandRepository;
+import com.github.copilot.task.repository.TaskDetailRetentionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 执行明细保留调度器，schedule_task_detail每次执行一行，不清理的话会无限增长，这里做三件事
+ * 1.把已经结束的整点小时按任务汇总到schedule_task_detail_hourly，包括次数、失败次数、p50/p99/最大耗时
+ * 2.删除超过保留天数的明细，任务可以配置自己的保留天数，只删除已经汇总过的时间段
+ * 3.删除超过汇总保留天数的汇总数据，以及超过保留天数的分片执行记录和已经确认的节点命令
+ * 如果明细表按start_time做了分区，超过最长保留天数的分区直接drop，比逐行删除便宜得多
+ */
+@Component
+public class RetentionExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionExecutor.class);
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    /**
+     * 只有一个清理线程
+     */
+    private final ExecutorService bossPool = Executors.newSingleThreadExecutor();
+    @Autowired
+    private EasyJobConfig config;
+    @Autowired
+    private TaskDetailRetentionRepository retentionRepository;
+    @Autowired
+    private NodeCommandRepository nodeCommandRepository;
+
+    @PostConstruct
+    public void init() {
+        if (config.isRetentionEnable()) {
+            bossPool.execute(new Retention());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        bossPool.shutdownNow();
+    }
+
+    /**
+     * 执行一轮汇总和清理
+     *
+     * @param now 当前时间
+     */
+    public void retain(Date now) {
+        /**
+         * 先汇总，得到已经汇总到的时间，之后的删除都不能超过这个时间，没汇总的明细不能删
+         */
+        Date rolledUpTo = rollUp(now);
+        int chunk = Math.max(1, config.getRetentionDeleteChunkSize());
+        Map<Long, Integer> customDays = retentionRepository.customRetentionDays();
+        /**
+         * 分区表先按最长的保留天数drop整个分区，剩下的再逐行删除
+         */
+        if (config.isRetentionPartitioned()) {
+            int maxDays = config.getRetentionDays();
+            for (Integer days : customDays.values()) {
+                maxDays = Math.max(maxDays, days);
+            }
+            Date before = earliest(new Date(now.getTime() - maxDays * DAY_MILLIS), rolledUpTo);
+            List<String> partitions = retentionRepository.partitionsBefore(before);
+            for (String partition : partitions) {
+                retentionRepository.dropPartition(partition);
+                logger.info("dropped task detail partition {}", partition);
+            }
+        }
+        Date before = earliest(new Date(now.getTime() - config.getRetentionDays() * DAY_MILLIS), rolledUpTo);
+        long deleted = deleteChunks(null, before, chunk);
+        for (Map.Entry<Long, Integer> entry : customDays.entrySet()) {
+            Date taskBefore = earliest(new Date(now.getTime() - entry.getValue() * DAY_MILLIS), rolledUpTo);
+            deleted += deleteChunks(entry.getKey(), taskBefore, chunk);
+        }
+        /**
+         * 分片执行记录的结果已经汇总到父任务的执行明细里，按全局保留天数删除
+         */
+        Date shardsBefore = new Date(now.getTime() - config.getRetentionDays() * DAY_MILLIS);
+        int shards;
+        do {
+            shards = retentionRepository.deleteShards(shardsBefore, chunk);
+            deleted += shards;
+        } while (shards >= chunk);
+        /**
+         * 已经确认的节点命令也按全局保留天数删除
+         */
+        int commands;
+        do {
+            commands = nodeCommandRepository.deleteAcked(shardsBefore, chunk);
+            deleted += commands;
+        } while (commands >= chunk);
+        int rollups = retentionRepository.deleteRollups(new Date(now.getTime() - config.getRetentionRollupDays() * DAY_MILLIS));
+        if (deleted > 0 || rollups > 0) {
+            logger.info("removed {} task details and {} hourly rollups", deleted, rollups);
+        }
+    }
+
+    /**
+     * 从上次汇总到的小时开始，逐个汇总已经结束的小时，没有执行记录的小时直接跳过
+     *
+     * @param now 当前时间
+     * @return 在这个时间之前的明细都已经汇总过了
+     */
+    private Date rollUp(Date now) {
+        /**
+         * 小时结束后再等一会，让还在执行的任务把明细写完
+         */
+        Date limit = new Date(now.getTime() - config.getRetentionGraceSeconds() * 1000L);
+        Date hour = hourOf(retentionRepository.firstStartTime(retentionRepository.rolledUpTo()));
+        int hours = 0;
+        while (hour != null && hour.getTime() + HOUR_MILLIS <= limit.getTime() && hours < config.getRetentionMaxHours()) {
+            try {
+                retentionRepository.rollUpHour(hour);
+            } catch (DataIntegrityViolationException e) {
+                /**
+                 * 其它节点同时在汇总这个小时，汇总结果是一样的，忽略即可
+                 */
+                logger.debug("hour {} rolled up by another node", hour);
+            }
+            hours++;
+            hour = hourOf(retentionRepository.firstStartTime(new Date(hour.getTime() + HOUR_MILLIS)));
+        }
+        return hour == null ? hourOf(limit) : hour;
+    }
+
+    /**
+     * 分批删除，避免一个大事务长时间锁表和撑爆undo
+     */
+    private long deleteChunks(Long taskId, Date before, int chunk) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = taskId == null
+                    ? retentionRepository.deleteDetails(before, chunk)
+                    : retentionRepository.deleteDetails(taskId, before, chunk);
+            total += deleted;
+        } while (deleted >= chunk);
+        return total;
+    }
+
+    private static Date hourOf(Date time) {
+        if (time == null) {
+            return null;
+        }
+        return new Date(time.getTime() - Math.floorMod(time.getTime(), HOUR_MILLIS));
+    }
+
+    private static Date earliest(Date a, Date b) {
+        return a.before(b) ? a : b;
+    }
+
+    class Retention implements Runnable {
+        @Override
+        public void run() {
+            for (; ; ) {
+                try {
+                    Thread.sleep(config.getRetentionSeconds() * 1000L);
+                    retain(new Date());
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    logger.error("task detail retention failed,cause by:{}", e);
+                }
+            }
+        }
+    }
+}
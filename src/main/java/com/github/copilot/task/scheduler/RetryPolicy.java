@@ -0,0 +1,84 @@
+package com.github.copilot.task.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 失败重试策略，等待时间按指数退避并加上随机抖动：第n次重试前等待 min(上限, 初始等待 * 2^n)，
+ * 其中一半固定、一半随机，同一时刻一起失败的任务不会再一起重试，下游系统恢复时不会被一下子打满
+ */
+final class RetryPolicy {
+
+    private final int maxRetries;
+
+    private final long backoffMillis;
+
+    private final long maxBackoffMillis;
+
+    private final List<String> retryOn;
+
+    /**
+     * @param maxRetries       最多重试次数，小于等于0不重试
+     * @param backoffMillis    第一次重试前的等待时间
+     * @param maxBackoffMillis 两次重试之间最长的等待时间
+     * @param retryOn          需要重试的异常类名，逗号分隔，为空时任何异常都重试
+     */
+    RetryPolicy(int maxRetries, long backoffMillis, long maxBackoffMillis, String retryOn) {
+        this.maxRetries = maxRetries;
+        this.backoffMillis = Math.max(0, backoffMillis);
+        this.maxBackoffMillis = Math.max(this.backoffMillis, maxBackoffMillis);
+        this.retryOn = parse(retryOn);
+    }
+
+    /**
+     * @param retried 已经重试的次数
+     * @param error   这次执行抛出的异常，反射调用包装的异常已经解开
+     * @return 是否还要重试
+     */
+    boolean shouldRetry(int retried, Throwable error) {
+        return retried < maxRetries && retryable(error);
+    }
+
+    /**
+     * @param retried 已经重试的次数
+     * @param random  [0, 1)之间的随机数
+     * @return 下一次重试前等待的毫秒数
+     */
+    long backoff(int retried, double random) {
+        long delay = backoffMillis;
+        for (int i = 0; i < retried && delay < maxBackoffMillis && delay < Long.MAX_VALUE / 2; i++) {
+            delay <<= 1;
+        }
+        delay = Math.min(delay, maxBackoffMillis);
+        return delay / 2 + (long) (delay / 2 * random);
+    }
+
+    private boolean retryable(Throwable error) {
+        if (retryOn.isEmpty()) {
+            return true;
+        }
+        /**
+         * 按类名比较，子类也算，不用加载配置的类
+         */
+        for (Class<?> type = error.getClass(); type != null; type = type.getSuperclass()) {
+            if (retryOn.contains(type.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> parse(String retryOn) {
+        if (retryOn == null || retryOn.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : retryOn.split(",")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskDetail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 本节点正在执行的任务登记表，Boss线程登记，Worker线程执行完删除，心跳线程停止任务、看门狗取消超时的执行都从这里找。
+ * 同一个任务可以同时有多次执行，按任务id分组，登记时按并发上限原子地检查
+ */
+final class RunRegistry {
+
+    private final Map<Long, Set<Run>> runs = new ConcurrentHashMap<>();
+
+    /**
+     * 同一个任务正在执行的次数小于上限时登记
+     *
+     * @param run   一次执行
+     * @param limit 这个任务同时执行的上限
+     * @return 是否登记了
+     */
+    boolean tryRegister(Run run, int limit) {
+        boolean[] registered = new boolean[1];
+        runs.compute(run.getTask().getId(), (id, set) -> {
+            if (set == null) {
+                set = ConcurrentHashMap.newKeySet();
+            }
+            if (set.size() < limit) {
+                registered[0] = set.add(run);
+            }
+            return set.isEmpty() ? null : set;
+        });
+        return registered[0];
+    }
+
+    void remove(Run run) {
+        runs.computeIfPresent(run.getTask().getId(), (id, set) -> {
+            set.remove(run);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * @return 任务在本节点正在执行的所有执行
+     */
+    List<Run> runs(Long taskId) {
+        Set<Run> set = runs.get(taskId);
+        return set == null ? Collections.emptyList() : new ArrayList<>(set);
+    }
+
+    boolean isRunning(Long taskId) {
+        return runs.containsKey(taskId);
+    }
+
+    boolean isEmpty() {
+        return runs.isEmpty();
+    }
+
+    /**
+     * @return 本节点正在执行的所有执行
+     */
+    List<Run> all() {
+        List<Run> all = new ArrayList<>();
+        for (Set<Run> set : runs.values()) {
+            all.addAll(set);
+        }
+        return all;
+    }
+
+    /**
+     * @param now 当前的System.nanoTime()
+     * @return 已经过了截止时间还没结束的执行
+     */
+    List<Run> overdue(long now) {
+        List<Run> overdue = new ArrayList<>();
+        for (Set<Run> set : runs.values()) {
+            for (Run run : set) {
+                if (run.isOverdue(now)) {
+                    overdue.add(run);
+                }
+            }
+        }
+        return overdue;
+    }
+
+    /**
+     * 任务的一次执行，执行完成、失败、超时和停止谁先调用end()谁负责记录结果，其它的什么也不做
+     */
+    static final class Run {
+
+        private final Task task;
+
+        /**
+         * 是否有超时时间
+         */
+        private final boolean timed;
+
+        /**
+         * 截止时间，System.nanoTime()
+         */
+        private final long deadline;
+
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private volatile Future<?> future;
+
+        private volatile TaskDetail detail;
+
+        /**
+         * @param task    任务
+         * @param timeout 超时时间，纳秒，小于等于0表示不超时
+         * @param now     当前的System.nanoTime()
+         */
+        Run(Task task, long timeout, long now) {
+            this.task = task;
+            this.timed = timeout > 0;
+            this.deadline = now + timeout;
+        }
+
+        Task getTask() {
+            return task;
+        }
+
+        TaskDetail getDetail() {
+            return detail;
+        }
+
+        void setDetail(TaskDetail detail) {
+            this.detail = detail;
+        }
+
+        void setFuture(Future<?> future) {
+            this.future = future;
+        }
+
+        boolean isOverdue(long now) {
+            return timed && now - deadline > 0 && !ended.get();
+        }
+
+        /**
+         * @return 是否是第一个结束这次执行的
+         */
+        boolean end() {
+            return ended.compareAndSet(false, true);
+        }
+
+        boolean isEnded() {
+            return ended.get();
+        }
+
+        /**
+         * 中断执行线程，任务方法要自己检查中断标记或者响应InterruptedException才能真正停下来
+         */
+        void cancel() {
+            Future<?> f = future;
+            if (f != null) {
+                f.cancel(true);
+            }
+        }
+    }
+}
@@ -5,19 +5,35 @@ import com.github.copilot.task.config.EasyJobConfig;
 import com.github.copilot.task.entity.Node;
 import com.github.copilot.task.entity.Task;
 import com.github.copilot.task.entity.TaskDetail;
+import com.github.copilot.task.entity.TaskShard;
+import com.github.copilot.task.enums.MisfirePolicy;
+import com.github.copilot.task.enums.NodeStatus;
 import com.github.copilot.task.enums.NotifyCmd;
+import com.github.copilot.task.enums.OverlapPolicy;
+import com.github.copilot.task.enums.TaskChangeType;
 import com.github.copilot.task.enums.TaskStatus;
+import com.github.copilot.task.event.TaskChangeNotifier;
+import com.github.copilot.task.executor.LatencyWindow;
+import com.github.copilot.task.executor.WorkerExecutor;
+import com.github.copilot.task.executor.WorkerExecutorMetrics;
+import com.github.copilot.task.history.TaskHistoryWriter;
 import com.github.copilot.task.repository.NodeRepository;
 import com.github.copilot.task.repository.TaskRepository;
 import com.github.copilot.task.serializer.JdkSerializationSerializer;
+import com.github.copilot.task.state.TaskStateStore;
 import com.github.copilot.task.strategy.Strategy;
-import com.github.copilot.task.utils.CronExpression;
+import com.github.copilot.task.trigger.TriggerEngine;
+import com.github.copilot.task.trigger.TriggerHandle;
+import com.github.copilot.task.utils.CronExpressionCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -32,36 +48,114 @@ public class ScheduleTaskExecutor {
 
     private static final Logger logger = LoggerFactory.getLogger(ScheduleTaskExecutor.class);
     /**
-     * 创建任务到期延时队列
+     * 已经加入触发引擎但还没到期的任务，用于取消
      */
-    private final DelayQueue<DelayItem<Task>> taskQueue = new DelayQueue<>();
+    private final Map<Long, TriggerHandle> pendingTriggers = new ConcurrentHashMap<>();
     /**
      * 可以明确知道最多只会运行2个线程，直接使用系统自带工具就可以了
      */
     private final ExecutorService bossPool = Executors.newFixedThreadPool(2);
     /**
-     * 正在执行的任务的Future
+     * 正在执行的任务，同一个任务可以同时有多次执行
      */
-    private final Map<Long, Future> doingFutures = new HashMap<>();
+    private final RunRegistry runs = new RunRegistry();
+    /**
+     * 看门狗线程，中断超时的执行
+     */
+    private final ScheduledExecutorService watchdogPool = Executors.newSingleThreadScheduledExecutor();
     @Autowired
     private TaskRepository taskRepository;
     @Autowired
     private NodeRepository nodeRepository;
     @Autowired
+    private FailureDetector failureDetector;
+    @Autowired
     private EasyJobConfig config;
+    @Autowired
+    private TaskChangeNotifier taskChangeNotifier;
+    @Autowired
+    private LeaderElector leaderElector;
+    @Autowired
+    private ShardCoordinator shardCoordinator;
+    @Autowired
+    private WorkflowCoordinator workflowCoordinator;
+    @Autowired
+    private NodeCommandDispatcher nodeCommandDispatcher;
+    /**
+     * 执行任务的工作线程池
+     */
+    private WorkerExecutor workerExecutor;
+
+    /**
+     * 获取任务的策略，可以通过命令重新加载
+     */
+    private volatile Strategy strategy;
+
+    /**
+     * 暂停后本节点不再抢任务和领取分片，已经在触发引擎里的任务照常执行
+     */
+    private volatile boolean paused;
+
+    /**
+     * 摘除中，触发引擎里到期的任务也交还给其它节点
+     */
+    private volatile boolean draining;
+
+    /**
+     * 停止中，触发引擎马上要关掉，不能再往里放任务
+     */
+    private volatile boolean shuttingDown;
+
     /**
-     * 声明工作线程池
+     * 拉取一轮任务时持有，摘除时拿到这个锁就说明没有正在进行的拉取，之后不会再有新抢到的任务
      */
-    public ThreadPoolExecutor workerPool;
+    private final Object loaderLock = new Object();
 
     /**
-     * 获取任务的策略
+     * 任务到期触发引擎
      */
-    private Strategy strategy;
+    private TriggerEngine<Task> triggerEngine;
+
+    /**
+     * 记录执行中任务的状态变化
+     */
+    private TaskStateStore stateStore;
+
+    /**
+     * 写任务执行明细
+     */
+    private TaskHistoryWriter historyWriter;
+
+    /**
+     * 最近执行任务的耗时，随心跳上报p95
+     */
+    private final LatencyWindow latencyWindow = new LatencyWindow(1024);
+
+    /**
+     * 限制补跑错过的触发的速率
+     */
+    private TokenBucket catchUpLimiter;
+
+    /**
+     * 任务没有设置时使用的错过触发处理策略
+     */
+    private MisfirePolicy defaultMisfirePolicy;
+
+    /**
+     * 任务没有设置时使用的重叠执行处理策略
+     */
+    private OverlapPolicy defaultOverlapPolicy;
 
 
     @PostConstruct
     public void init() {
+        /**
+         * 根据配置选择任务到期触发引擎，时间轮的工作线程在第一次加入任务时才会启动
+         */
+        triggerEngine = TriggerEngine.choose(config.getTriggerEngine(), config.getTriggerTickMs(), config.getTriggerWheelSize());
+        defaultMisfirePolicy = MisfirePolicy.choose(config.getMisfirePolicy());
+        defaultOverlapPolicy = OverlapPolicy.choose(config.getRunOverlap());
+        catchUpLimiter = new TokenBucket(config.getMisfireCatchUpPerSecond(), System.nanoTime());
         if (config.isRecoverEnable() && config.isHeartBeatEnable()) {
 
             /**
@@ -69,11 +163,23 @@ public class ScheduleTaskExecutor {
              */
             strategy = Strategy.choose(config.getNodeStrategy());
             /**
-             * 自定义线程池，初始线程数量corePoolSize，线程池等待队列大小queueSize，当初始线程都有任务，并且等待队列满后
-             * 线程数量会自动扩充最大线程数maxSize，当新扩充的线程空闲60s后自动回收.自定义线程池是因为Executors那几个线程工具
-             * 各有各的弊端，不适合生产使用
+             * 根据配置选择工作线程池，平台线程池、虚拟线程或者ForkJoin。不管哪种都限制了同时在途的任务数，满了之后
+             * 不会抛拒绝异常，而是把任务放回触发引擎稍后再试
+             */
+            workerExecutor = WorkerExecutor.choose(config.getPoolMode(), config.getCorePoolSize(), config.getMaxPoolSize(),
+                    config.getQueueSize(), config.getMaxConcurrency());
+            logger.info("use {} worker executor", workerExecutor.mode());
+            /**
+             * 根据配置选择执行明细的写法，同步写、异步批量写或者只抽样写一部分成功的明细
+             */
+            historyWriter = TaskHistoryWriter.choose(config.getHistoryMode(), taskRepository, config.getHistoryBufferSize(),
+                    config.getHistoryBatchSize(), config.getHistoryFlushMillis(), config.getHistorySampleRate());
+            /**
+             * 根据配置选择任务状态的写法，writebehind时执行中的状态只放在内存里，执行结果攒成一批再写库
              */
-            workerPool = new ThreadPoolExecutor(config.getCorePoolSize(), config.getMaxPoolSize(), 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(config.getQueueSize()));
+            stateStore = TaskStateStore.choose(config.getStateMode(), taskRepository, historyWriter,
+                    config.getStateFlushMillis(), config.getStateBatchSize());
+            workflowCoordinator.setStateStore(stateStore);
             /**
              * 执行待处理任务加载线程
              */
@@ -82,23 +188,220 @@ public class ScheduleTaskExecutor {
              * 执行任务调度线程
              */
             bossPool.execute(new Boss());
+            /**
+             * 看门狗定期检查超时的执行
+             */
+            watchdogPool.scheduleWithFixedDelay(this::watchdog, config.getRunWatchdogMillis(), config.getRunWatchdogMillis(),
+                    TimeUnit.MILLISECONDS);
         }
 
     }
 
     /**
-     * 完成子任务，如果父任务失败了，子任务不会执行
+     * 停止时把内存里还没写库的执行结果和执行明细写掉
+     */
+    @PreDestroy
+    public void destroy() {
+        shuttingDown = true;
+        bossPool.shutdownNow();
+        watchdogPool.shutdownNow();
+        /**
+         * 中断执行中的任务，等它们退出后再关触发引擎和写库，它们的结果还能在下面写掉
+         */
+        if (workerExecutor != null) {
+            workerExecutor.shutdown();
+            try {
+                if (!workerExecutor.awaitTermination(config.getDrainTimeoutSeconds(), TimeUnit.SECONDS)) {
+                    logger.warn("workers still running after {}s, shutting down anyway", config.getDrainTimeoutSeconds());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (triggerEngine != null) {
+            triggerEngine.shutdown();
+        }
+        if (stateStore != null) {
+            stateStore.shutdown();
+        }
+        if (historyWriter != null) {
+            historyWriter.shutdown();
+        }
+    }
+
+    /**
+     * 完成任务，再放行所有上游都已完成的下游任务，如果上游失败了，下游任务不会执行
      *
      * @param task
      * @param detail
      * @throws Exception
      */
     private void finish(Task task, TaskDetail detail) throws Exception {
+        task.setRetryAttempt(0);
+        stateStore.finish(task, detail);
+        workflowCoordinator.onFinished(task);
+    }
+
+    /**
+     * 任务执行失败，工作流里的任务让整个运行失败
+     *
+     * @param task
+     * @param detail
+     * @param errorMsg
+     * @throws Exception
+     */
+    private void fail(Task task, TaskDetail detail, String errorMsg) throws Exception {
+        task.setRetryAttempt(0);
+        stateStore.fail(task, detail, errorMsg);
+        if (detail != null) {
+            workflowCoordinator.onFailed(task, errorMsg);
+        }
+    }
+
+    /**
+     * 结束一次还在执行的执行：中断执行线程并记为失败，执行线程之后再返回什么都不会再记录
+     *
+     * @param run
+     * @param reason
+     * @return 是否是这里结束的
+     */
+    private boolean abort(RunRegistry.Run run, String reason) {
+        if (!run.end()) {
+            return false;
+        }
+        run.cancel();
+        try {
+            fail(run.getTask(), run.getDetail(), reason);
+        } catch (Exception e) {
+            logger.error("abort task:{} error,cause by:{}", run.getTask().getId(), e);
+        }
+        return true;
+    }
+
+    /**
+     * 看门狗，中断超过超时时间的执行，还没开始记录执行明细的等下一次检查
+     */
+    void watchdog() {
+        try {
+            for (RunRegistry.Run run : runs.overdue(System.nanoTime())) {
+                if (run.getDetail() != null && abort(run, "timed out after " + timeoutMillis(run.getTask()) + "ms")) {
+                    logger.warn("task:{} timed out after {}ms, interrupted", run.getTask().getId(), timeoutMillis(run.getTask()));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("watchdog failed,cause by:{}", e);
+        }
+    }
+
+    /**
+     * @param task
+     * @return 任务的执行超时时间，小于等于0表示不超时
+     */
+    long timeoutMillis(Task task) {
+        return task.getTimeoutMillis() != null ? task.getTimeoutMillis() : config.getRunTimeoutMillis();
+    }
 
-        //当没有子任务时完成父任务
-        taskRepository.finish(task, detail);
+    /**
+     * @param task
+     * @return 任务的重叠执行处理策略
+     */
+    OverlapPolicy overlapPolicy(Task task) {
+        return task.getOverlapPolicy() != null ? task.getOverlapPolicy() : defaultOverlapPolicy;
+    }
+
+    /**
+     * @param task
+     * @return 任务的失败重试策略，任务没有设置的部分使用全局配置
+     */
+    RetryPolicy retryPolicy(Task task) {
+        return new RetryPolicy(task.getMaxRetries() != null ? task.getMaxRetries() : config.getRetryMaxRetries(),
+                task.getRetryBackoffMillis() != null ? task.getRetryBackoffMillis() : config.getRetryBackoffMillis(),
+                config.getRetryMaxBackoffMillis(), task.getRetryOn());
+    }
+
+    /**
+     * 执行失败后按任务的重试策略安排重试：记下这次执行的失败，任务在库里还是本节点待执行的状态，
+     * 下次开始时间是重试的时间，再放回触发引擎等退避时间到了重新执行。节点在等待期间挂了的话，
+     * 恢复线程过了重试时间会照常恢复
+     *
+     * @param task
+     * @param detail
+     * @param e      执行抛出的异常
+     * @return 是否安排了重试，没有的话按失败处理
+     * @throws Exception
+     */
+    boolean retry(Task task, TaskDetail detail, Exception e) throws Exception {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        int retried = task.getRetryAttempt();
+        RetryPolicy policy = retryPolicy(task);
+        if (detail == null || !policy.shouldRetry(retried, cause)) {
+            return false;
+        }
+        long delay = policy.backoff(retried, ThreadLocalRandom.current().nextDouble());
+        /**
+         * 任务在执行期间被停用或者删除了就不再重试，也不用再记失败
+         */
+        if (stateStore.retry(task, detail, errorMessage(e), new Date(System.currentTimeMillis() + delay))) {
+            task.setRetryAttempt(retried + 1);
+            /**
+             * 停止中触发引擎已经关了或者马上要关，任务留在待执行的状态等恢复
+             */
+            if (shuttingDown) {
+                return true;
+            }
+            track(task.getId(), triggerEngine.schedule(task, delay));
+            logger.warn("execute task:{} failed, retry {} of {} in {}ms", task.getId(), retried + 1,
+                    task.getMaxRetries() != null ? task.getMaxRetries() : config.getRetryMaxRetries(), delay);
+        }
+        return true;
+    }
 
+    /**
+     * @param task
+     * @return 任务在本节点同时执行的上限，只有并行执行的策略可以超过1
+     */
+    int concurrencyLimit(Task task) {
+        if (overlapPolicy(task) != OverlapPolicy.PARALLEL) {
+            return 1;
+        }
+        Integer max = task.getMaxConcurrency();
+        return max == null || max <= 0 ? Integer.MAX_VALUE : max;
+    }
 
+    /**
+     * 登记一次执行，截止时间从登记开始算
+     *
+     * @param task
+     * @return 同一个任务执行的次数已经到了上限时返回null
+     */
+    RunRegistry.Run register(Task task) {
+        RunRegistry.Run run = new RunRegistry.Run(task, TimeUnit.MILLISECONDS.toNanos(timeoutMillis(task)), System.nanoTime());
+        return runs.tryRegister(run, concurrencyLimit(task)) ? run : null;
+    }
+
+    /**
+     * 工作线程池的饱和指标
+     *
+     * @return 工作线程池没有启用时返回null
+     */
+    public WorkerExecutorMetrics workerMetrics() {
+        return workerExecutor == null ? null : workerExecutor.metrics();
+    }
+
+    /**
+     * 把本节点当前的负载填到心跳的节点对象里，负载相关的获取策略根据它分配任务
+     *
+     * @param node 心跳的节点对象
+     */
+    public void reportLoad(Node node) {
+        if (workerExecutor == null) {
+            return;
+        }
+        WorkerExecutorMetrics metrics = workerExecutor.metrics();
+        node.setActiveCount(metrics.getInFlight());
+        node.setCapacity(metrics.getCapacity());
+        node.setQueueDepth(pendingTriggers.size());
+        node.setP95Millis(latencyWindow.percentile(0.95));
     }
 
     /**
@@ -111,10 +414,81 @@ public class ScheduleTaskExecutor {
      * @throws Exception
      */
     public long addTask(String name, String cronExp, Invocation invocation) throws Exception {
+        return addTask(name, cronExp, invocation, 1);
+    }
+
+    /**
+     * 添加任务，分片数大于1时每次触发拆成这么多个分片分发到各个节点执行
+     *
+     * @param name
+     * @param cronExp
+     * @param invocation
+     * @param shardCount
+     * @return
+     * @throws Exception
+     */
+    public long addTask(String name, String cronExp, Invocation invocation, int shardCount) throws Exception {
         Task task = new Task(name, cronExp, invocation);
+        task.setShardCount(shardCount);
+        return addTask(task);
+    }
+
+    /**
+     * 添加一个已经设置好名称、cron表达式、执行者和其它选项的任务
+     *
+     * @param task
+     * @return
+     * @throws Exception
+     */
+    public long addTask(Task task) throws Exception {
         return taskRepository.insert(task);
     }
 
+    /**
+     * 任务是否错过了触发，晚了超过阈值才算，由上游放行的任务没有触发时间的概念
+     *
+     * @param task
+     * @param now
+     * @return
+     */
+    boolean misfired(Task task, long now) {
+        if (!task.isCronTriggered() || task.getNextStartTime() == null) {
+            return false;
+        }
+        long threshold = task.getMisfireThresholdMillis() != null ? task.getMisfireThresholdMillis() : config.getMisfireThresholdMillis();
+        return now - task.getNextStartTime().getTime() > threshold;
+    }
+
+    /**
+     * @param task
+     * @return 任务的错过触发处理策略
+     */
+    MisfirePolicy misfirePolicy(Task task) {
+        return task.getMisfirePolicy() != null ? task.getMisfirePolicy() : defaultMisfirePolicy;
+    }
+
+    /**
+     * 要补跑的错过的触发先取令牌，取不到这次就不拿，留给下一轮，跳过的不用执行，不限速
+     *
+     * @param task
+     * @param now
+     * @return 这次能不能拿这个任务
+     */
+    boolean admit(Task task, long now) {
+        return !misfired(task, now) || misfirePolicy(task) == MisfirePolicy.SKIP || catchUpLimiter.tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * 取异常信息，反射调用的异常包在InvocationTargetException里，取里面真正的异常
+     *
+     * @param e
+     * @return
+     */
+    static String errorMessage(Exception e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName();
+    }
+
     /**
      * 立即执行任务，就是设置一下延时为0加入任务队列就好了，这个可以外部直接调用
      *
@@ -125,8 +499,11 @@ public class ScheduleTaskExecutor {
         Task task = taskRepository.get(taskId);
         task.setStatus(TaskStatus.DOING);
         taskRepository.updateTask(task);
-        DelayItem<Task> delayItem = new DelayItem<Task>(0L, task);
-        return taskQueue.offer(delayItem);
+        /**
+         * 和到期的任务一样登记触发，停止、摘除时才能取消
+         */
+        track(task.getId(), triggerEngine.schedule(task, 0L));
+        return true;
     }
 
     /**
@@ -141,18 +518,19 @@ public class ScheduleTaskExecutor {
             return false;
         }
         /**
-         * 该任务不是正在执行，直接修改task状态为已完成即可
+         * 该任务不是正在执行，直接修改task状态为已完成即可，writebehind时执行中的状态不写库，还要看一下本节点是否正在执行
          */
-        if (task.getStatus() != TaskStatus.DOING) {
+        if (task.getStatus() != TaskStatus.DOING && !runs.isRunning(taskId)) {
             task.setStatus(TaskStatus.STOP);
             taskRepository.updateTask(task);
             return true;
         }
         /**
-         * 该任务正在执行，使用节点配合心跳发布停用通知
+         * 该任务正在执行，给执行它的节点发停止命令，命令排队不会被后来的命令覆盖
          */
-        int n = nodeRepository.updateNotifyInfo(config.getNodeId(), NotifyCmd.STOP_TASK, String.valueOf(taskId));
-        return n > 0;
+        String nodeId = task.getNodeId() != null ? task.getNodeId() : config.getNodeId();
+        nodeCommandDispatcher.send(nodeId, NotifyCmd.STOP_TASK, String.valueOf(taskId));
+        return true;
     }
 
     /**
@@ -170,12 +548,22 @@ public class ScheduleTaskExecutor {
             return false;
         }
         /**
-         * 拿到正在执行任务的future，然后强制停用，并删除doingFutures的任务
+         * 任务还在触发引擎里没有到期，直接取消触发
          */
-        Future future = doingFutures.get(taskId);
-        boolean flag = future.cancel(true);
+        TriggerHandle handle = pendingTriggers.remove(taskId);
+        if (handle != null && handle.cancel()) {
+            task.setStatus(TaskStatus.STOP);
+            taskRepository.updateTask(task);
+            return true;
+        }
+        /**
+         * 中断这个任务在本节点的所有执行，记下失败，执行线程退出时会从登记表删掉
+         */
+        boolean flag = false;
+        for (RunRegistry.Run run : runs.runs(taskId)) {
+            flag |= abort(run, "task stopped");
+        }
         if (flag) {
-            doingFutures.remove(taskId);
             /**
              * 修改状态为已停用
              */
@@ -183,90 +571,331 @@ public class ScheduleTaskExecutor {
             taskRepository.updateTask(task);
         }
         /**
-         * 重置通知信息，避免重复执行停用通知
+         * 通知已经由心跳取走并清掉了，不会重复执行
          */
-        nodeRepository.resetNotifyInfo(config.getNodeId(), NotifyCmd.STOP_TASK);
         return flag;
     }
 
+    /**
+     * 暂停本节点，不再抢任务和领取分片，给暂停命令调用
+     */
+    public void pause() {
+        paused = true;
+        logger.info("node {} paused", config.getNodeId());
+    }
+
+    /**
+     * 恢复本节点，马上开始抢任务，给恢复命令调用
+     */
+    public void resume() {
+        synchronized (loaderLock) {
+            paused = false;
+            if (draining) {
+                draining = false;
+                nodeRepository.updateStatus(config.getNodeId(), NodeStatus.ENABLE);
+            }
+        }
+        logger.info("node {} resumed", config.getNodeId());
+        taskChangeNotifier.publish(null, TaskChangeType.RESCHEDULE);
+    }
+
+    /**
+     * 摘除本节点，滚动发布时先摘除再停机，其它节点马上接手，不用等恢复线程发现本节点挂了
+     * 1.不再抢任务，节点状态改成摘除中，策略和领导者都不会再把任务分给它
+     * 2.已经抢到还没开始执行的任务一次交还给其它节点，下次开始时间不变
+     * 3.等执行中的任务执行完，超过期限还没执行完的中断并记为失败，不交给别的节点再执行一次
+     * 摘除后节点照常心跳，发恢复命令可以重新加入
+     *
+     * @param timeoutMillis 等执行中的任务的最长时间
+     * @return 是否所有执行都在期限内结束了
+     * @throws InterruptedException
+     */
+    public boolean drain(long timeoutMillis) throws InterruptedException {
+        synchronized (loaderLock) {
+            paused = true;
+            draining = true;
+        }
+        logger.info("node {} draining", config.getNodeId());
+        nodeRepository.updateStatus(config.getNodeId(), NodeStatus.DRAINING);
+        int handedBack = handBack(new ArrayList<>());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!runs.isEmpty() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(100);
+        }
+        boolean drained = runs.isEmpty();
+        List<Long> notStarted = new ArrayList<>();
+        for (RunRegistry.Run run : runs.all()) {
+            /**
+             * 还没开始记录执行明细的执行，任务在库里还是待执行的状态，直接交还
+             */
+            if (run.getDetail() == null) {
+                if (run.end()) {
+                    run.cancel();
+                    notStarted.add(run.getTask().getId());
+                }
+            } else {
+                abort(run, "node drained");
+            }
+        }
+        /**
+         * 等待期间失败重试或者线程池满放回触发引擎的任务也交还
+         */
+        handedBack += handBack(notStarted);
+        taskChangeNotifier.flush();
+        logger.info("node {} drained, handed back {} tasks, {}", config.getNodeId(), handedBack,
+                drained ? "all runs finished" : "interrupted the runs past the deadline");
+        return drained;
+    }
+
+    /**
+     * 取消触发引擎里所有的任务，和另外给的任务一起交还给其它节点
+     */
+    private int handBack(List<Long> taskIds) {
+        for (Map.Entry<Long, TriggerHandle> entry : pendingTriggers.entrySet()) {
+            if (pendingTriggers.remove(entry.getKey(), entry.getValue()) && entry.getValue().cancel()) {
+                taskIds.add(entry.getKey());
+            }
+        }
+        return taskRepository.handBack(config.getNodeId(), taskIds);
+    }
+
+    /**
+     * @return 本节点是否在摘除中或者已经摘除了
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * @return 本节点是否暂停了
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * 重新创建获取任务的策略，策略里缓存的状态都会丢掉，给重新加载策略命令调用
+     *
+     * @param key 策略的配置键，为空时使用配置的策略
+     */
+    public void reloadStrategy(String key) {
+        String strategyKey = key == null || key.trim().isEmpty() ? config.getNodeStrategy() : key.trim();
+        strategy = Strategy.choose(strategyKey);
+        logger.info("node {} reloaded strategy {}", config.getNodeId(), strategyKey);
+    }
+
     class Loader implements Runnable {
 
+        /**
+         * 下一次拉取前最多等待的时间，有任务变化时缩回fetchPeriod，空闲时逐步翻倍到maxIdlePeriod
+         */
+        private long waitMillis = config.getFetchPeriod();
+
+        /**
+         * 这一轮有错过的触发因为限速没有拿
+         */
+        private boolean throttled;
+
         @Override
         public void run() {
             for (; ; ) {
                 try {
                     /**
-                     * 先休息一下
+                     * 先休息一下，本节点或其它节点有任务新增、重新调度或者恢复时会被马上唤醒
                      */
-                    // 10s 100 *100 ms
-                    Thread.sleep(config.getFetchPeriod()*100);
-                    /**
-                     * 先获取可用的节点列表
-                     */
-                    List<Node> nodes = nodeRepository.getEnableNodes(config.getHeartBeatSeconds() * 2);
-                    if (nodes == null || nodes.isEmpty()) {
-                        continue;
+                    boolean changed = taskChangeNotifier.awaitChange(waitMillis);
+                    throttled = false;
+                    int claimed;
+                    synchronized (loaderLock) {
+                        claimed = load() + runShards();
                     }
                     /**
-                     * 查找还有指定时间(单位秒)才开始的主任务列表
+                     * 补跑被限速时也保持短的拉取周期，令牌一有就能拿到
                      */
-                    List<Task> tasks = taskRepository.listNotStartedTasks(config.getFetchDuration());
-                    if (tasks == null || tasks.isEmpty()) {
-                        continue;
+                    if (changed || claimed > 0 || throttled) {
+                        waitMillis = config.getFetchPeriod();
+                    } else {
+                        waitMillis = Math.min(waitMillis * 2, config.getMaxIdlePeriod());
                     }
-                    for (Task task : tasks) {
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    logger.error("fetch task list failed,cause by:{}",e.getMessage());
+                    logger.error(e.getMessage(),e);
+                }
+            }
+        }
 
-                        boolean accept = strategy.accept(nodes, task, config.getNodeId());
-                        /**
-                         * 不该自己拿就不要抢
-                         */
-                        if (!accept) {
-                            continue;
-                        }
-                        /**
-                         * 先设置成待执行
-                         */
-                        task.setStatus(TaskStatus.PENDING);
-                        task.setNodeId(config.getNodeId());
-                        /**
-                         * 使用乐观锁尝试更新状态，如果更新成功，其他节点就不会更新成功。如果其它节点也正在查询未完成的
-                         * 任务列表和当前这段时间有节点已经更新了这个任务，version必然和查出来时候的version不一样了,这里更新
-                         * 必然会返回0了
-                         */
-                        Date nextStartTime = task.getNextStartTime();
-                        if (!taskRepository.updateTask(task) || nextStartTime == null) {
-                            continue;
-                        }
+        /**
+         * 拉取一次任务
+         *
+         * @return 本次抢到的任务数量
+         * @throws Exception
+         */
+        private int load() throws Exception {
+            /**
+             * 领导者模式下只有领导者拉取未开始的任务并分配给各个节点，每个节点包括领导者自己只领取分配给自己的任务。
+             * 暂停的领导者照常分配，只是自己不领取，暂停期间分配给本节点的任务等恢复后再领取
+             */
+            if (leaderElector.isEnabled()) {
+                int assigned = leaderElector.isLeader() ? dispatch() : 0;
+                return paused ? assigned : assigned + schedule(taskRepository.claimAssignedTasks(config.getNodeId()));
+            }
+            if (paused) {
+                return 0;
+            }
+            /**
+             * 先获取可用的节点列表
+             */
+            List<Node> nodes = failureDetector.liveNodes();
+            if (nodes == null || nodes.isEmpty()) {
+                return 0;
+            }
+            /**
+             * 查找还有指定时间(单位秒)才开始的主任务列表
+             */
+            List<Task> tasks = taskRepository.listNotStartedTasks(config.getFetchDuration());
+            if (tasks == null || tasks.isEmpty()) {
+                return 0;
+            }
+            /**
+             * 先按策略挑出该自己拿的任务，不该自己拿就不要抢，每次最多抢claimBatchSize个
+             */
+            List<Long> candidateIds = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            for (Task task : tasks) {
+                if (candidateIds.size() >= config.getClaimBatchSize()) {
+                    break;
+                }
+                if (task.getNextStartTime() != null && strategy.accept(nodes, task, config.getNodeId())) {
+                    if (admit(task, now)) {
+                        candidateIds.add(task.getId());
+                    } else {
+                        throttled = true;
+                    }
+                }
+            }
+            /**
+             * 一条update语句把这批任务设置成待执行，条件里带着未开始的状态，如果其它节点已经抢到了某个任务，
+             * 这个任务的状态就不是未开始了，这里不会更新到它。再一次查出真正抢到的任务，这些任务的version已经是最新的
+             */
+            return schedule(taskRepository.claimTasks(candidateIds, config.getNodeId()));
+        }
 
-                        /**
-                         * 如果任务的下次启动时间还在系统启动时间之前，说明时间已过期需要重新更新
-                         */
-                        if (nextStartTime != null && nextStartTime.before(config.getSysStartTime())) {
-                            /**
-                             * 如果服务停止重新启动后由于之前的任务的nextStartTime时间还是之前的就可能存在，再次启动后仍然按照之前时间执行的情况
-                             */
-                            CronExpression cronExpession = new CronExpression(task.getCronExpr());
-                            Date nextStartDate = cronExpession.getNextValidTimeAfter(config.getSysStartTime());
-                            task.setNextStartTime(nextStartDate);
-                            task.setStatus(TaskStatus.NOT_STARTED);
-                            taskRepository.updateTask(task);
-                            continue;
-                        }
+        /**
+         * 领取分配给本节点的分片，最多领取工作线程池还能接收的数量
+         *
+         * @return 本次领取的分片数量
+         */
+        private int runShards() {
+            if (paused) {
+                return 0;
+            }
+            WorkerExecutorMetrics metrics = workerExecutor.metrics();
+            List<TaskShard> shards = shardCoordinator.claim(metrics.getCapacity() - metrics.getInFlight());
+            for (TaskShard shard : shards) {
+                if (!workerExecutor.tryExecute(() -> shardCoordinator.run(shard))) {
+                    shardCoordinator.release(shard);
+                }
+            }
+            return shards.size();
+        }
+
+        /**
+         * 领导者按策略把未开始的任务分配给各个节点，每个节点一条update语句，每个节点每次最多分配claimBatchSize个
+         *
+         * @return 本次分配的任务数量
+         */
+        private int dispatch() {
+            List<Node> nodes = failureDetector.liveNodes();
+            if (nodes == null || nodes.isEmpty()) {
+                return 0;
+            }
+            List<Task> tasks = taskRepository.listNotStartedTasks(config.getFetchDuration());
+            if (tasks == null || tasks.isEmpty()) {
+                return 0;
+            }
+            Map<String, List<Long>> assignments = new HashMap<>();
+            long now = System.currentTimeMillis();
+            for (Task task : tasks) {
+                if (task.getNextStartTime() == null) {
+                    continue;
+                }
+                String nodeId = strategy.owner(nodes, task);
+                if (nodeId == null) {
+                    continue;
+                }
+                List<Long> ids = assignments.computeIfAbsent(nodeId, k -> new ArrayList<>());
+                if (ids.size() >= config.getClaimBatchSize()) {
+                    continue;
+                }
+                /**
+                 * 领导者限速就是整个集群的补跑速率
+                 */
+                if (admit(task, now)) {
+                    ids.add(task.getId());
+                } else {
+                    throttled = true;
+                }
+            }
+            /**
+             * 条件里带着未开始的状态，就算短时间内有两个领导者，一个任务也只会分配出去一次
+             */
+            int assigned = 0;
+            for (Map.Entry<String, List<Long>> entry : assignments.entrySet()) {
+                assigned += taskRepository.assignTasks(entry.getValue(), entry.getKey());
+            }
+            /**
+             * 通知各个节点马上来领取
+             */
+            if (assigned > 0) {
+                taskChangeNotifier.publish(null, TaskChangeType.ASSIGN);
+            }
+            return assigned;
+        }
 
+        /**
+         * 把抢到或者领取到的任务放入触发引擎
+         *
+         * @param claimedTasks 已经是待执行状态的任务
+         * @return 任务数量
+         */
+        private int schedule(List<Task> claimedTasks) throws Exception {
+            long now = System.currentTimeMillis();
+            for (Task task : claimedTasks) {
+                Date nextStartTime = task.getNextStartTime();
+                /**
+                 * 服务停了一段时间再启动，或者所有节点都忙不过来，任务的下次启动时间会过去很久，超过阈值就算错过了触发，
+                 * 按任务的策略处理。由上游放行的任务没有cron表达式，放行了就要执行，直接触发
+                 */
+                if (misfired(task, now)) {
+                    MisfirePolicy policy = misfirePolicy(task);
+                    if (policy == MisfirePolicy.SKIP) {
                         /**
-                         * 封装成延时对象放入延时队列,这里再查一次是因为上面乐观锁已经更新了版本，会导致后面结束任务更新不成功
+                         * 跳过错过的触发，从现在往后算下次启动时间
                          */
-                        task = taskRepository.get(task.getId());
-                        DelayItem<Task> delayItem = new DelayItem<Task>(nextStartTime.getTime() - new Date().getTime(), task);
-                        taskQueue.offer(delayItem);
-                        logger.info("add task:{} to taskQueue", task.getId());
+                        Date nextStartDate = CronExpressionCache.nextFireTime(task.getCronExpr(), new Date(now));
+                        task.setNextStartTime(nextStartDate);
+                        task.setStatus(nextStartDate == null ? TaskStatus.FINISH : TaskStatus.NOT_STARTED);
+                        taskRepository.updateTask(task);
+                        logger.info("task:{} misfired at {}, skip to {}", task.getId(), nextStartTime, nextStartDate);
+                        continue;
                     }
-
-                } catch (Exception e) {
-                    logger.error("fetch task list failed,cause by:{}",e.getMessage());
-                    logger.error(e.getMessage(),e);
+                    /**
+                     * 立即补跑，补跑一次的执行完后从现在往后算下次启动时间，逐个补跑的从这次错过的触发时间往后算
+                     */
+                    task.setCatchUp(policy == MisfirePolicy.FIRE_ALL);
+                    logger.info("task:{} misfired at {}, catch up now", task.getId(), nextStartTime);
                 }
+
+                /**
+                 * 放入触发引擎
+                 */
+                track(task.getId(), triggerEngine.schedule(task, nextStartTime.getTime() - System.currentTimeMillis()));
+                logger.info("add task:{} to trigger engine", task.getId());
             }
+            return claimedTasks.size();
         }
 
     }
@@ -277,29 +906,46 @@ public class ScheduleTaskExecutor {
             for (; ; ) {
                 try {
                     /**
-                     * 时间到了就可以从延时队列拿出任务对象,然后交给worker线程池去执行
+                     * 时间到了就可以从触发引擎拿出任务对象,然后交给worker线程池去执行
                      */
-                    DelayItem<Task> item = taskQueue.take();
-                    if (item != null && item.getItem() != null) {
-                        Task task = item.getItem();
-                        /**
-                         * 真正开始执行了设置成执行中
-                         */
-                        task.setStatus(TaskStatus.DOING);
+                    Task task = triggerEngine.take();
+                    if (task != null) {
+                        pendingTriggers.remove(task.getId());
                         /**
-                         * loader线程中已经使用乐观锁控制了，这里没必要了
+                         * 摘除中不再执行新的触发，交还给其它节点
                          */
-                        taskRepository.updateTask(task);
+                        if (draining) {
+                            taskRepository.handBack(config.getNodeId(), Collections.singletonList(task.getId()));
+                            continue;
+                        }
                         /**
-                         * 提交到线程池
+                         * 先登记再提交，避免任务执行完删除后才登记进去。同一个任务在本节点执行的次数到了上限，
+                         * 跳过的策略直接丢掉这次触发，上一次执行结束时会照常算下次时间，其它策略放回触发引擎过一会再试
                          */
-                        Future future = workerPool.submit(new Worker(task));
+                        RunRegistry.Run run = register(task);
+                        if (run == null) {
+                            if (overlapPolicy(task) == OverlapPolicy.SKIP) {
+                                logger.info("task:{} is still running, skip this fire", task.getId());
+                            } else {
+                                defer(task);
+                                logger.debug("task:{} reached its concurrency limit, defer", task.getId());
+                            }
+                            continue;
+                        }
+                        FutureTask<String> future = new FutureTask<>(new Worker(task, run));
+                        run.setFuture(future);
                         /**
-                         * 暂存在doingFutures
+                         * 提交到线程池，线程池满了就放回触发引擎，过一会再试
                          */
-                        doingFutures.put(task.getId(), future);
+                        if (!workerExecutor.tryExecute(future)) {
+                            runs.remove(run);
+                            defer(task);
+                            logger.debug("worker executor saturated, defer task:{}", task.getId());
+                        }
                     }
 
+                } catch (InterruptedException e) {
+                    return;
                 } catch (Exception e) {
                     logger.error("fetch task failed,cause by:{}", e);
                 }
@@ -308,41 +954,120 @@ public class ScheduleTaskExecutor {
 
     }
 
+    /**
+     * 放回触发引擎，过一会再试
+     */
+    private void defer(Task task) {
+        track(task.getId(), triggerEngine.schedule(task, config.getDeferMillis()));
+    }
+
+    /**
+     * 登记任务在触发引擎里的触发，同一个任务只留最新的一个，之前的还没到期就取消，
+     * 不然被替换掉的触发停止、摘除时找不到，还会照常执行
+     */
+    private void track(Long taskId, TriggerHandle handle) {
+        TriggerHandle previous = pendingTriggers.put(taskId, handle);
+        if (previous != null && previous != handle) {
+            previous.cancel();
+        }
+    }
+
     class Worker implements Callable<String> {
 
         private final Task task;
 
-        public Worker(Task task) {
+        private final RunRegistry.Run run;
+
+        public Worker(Task task, RunRegistry.Run run) {
             this.task = task;
+            this.run = run;
         }
 
         @Override
         public String call() {
             logger.info("Begin to execute task:{}", task.getId());
             TaskDetail detail = null;
+            /**
+             * 分片任务分发出去后这次执行还没结束，由协调线程记录结果后从登记表删掉
+             */
+            boolean dispatched = false;
             try {
+                /**
+                 * 真正开始执行了设置成执行中，loader线程中已经使用乐观锁控制了，这里没必要了
+                 */
                 //开始任务
-                detail = taskRepository.start(task);
+                detail = stateStore.start(task);
                 if (detail == null) return null;
+                run.setDetail(detail);
                 //执行任务
-                task.getInvocation().invoke();
-                //完成任务
-                finish(task, detail);
-                logger.info("finished execute task:{}", task.getId());
+                long begin = System.nanoTime();
                 /**
-                 * 执行完后删了
+                 * 分片任务拆成分片分发到各个节点就返回，不占着工作线程等分片，所有分片结束后在协调线程里记录结果。
+                 * 执行被停止或者超时后协调线程不再等分片
                  */
-                doingFutures.remove(task.getId());
-            } catch (Exception e) {
-                logger.error("execute task:{} error,cause by:{}", task.getId(), e);
+                if (task.isSharded()) {
+                    TaskDetail started = detail;
+                    shardCoordinator.dispatch(task, strategy, run::isEnded).whenComplete((result, error) -> {
+                        latencyWindow.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+                        end(started, error == null ? null : new ExecutionException(error));
+                    });
+                    dispatched = true;
+                    return null;
+                }
                 try {
-                    taskRepository.fail(task, detail, e.getCause().getMessage());
-                } catch (Exception e1) {
-                    logger.error("fail task:{} error,cause by:{}", task.getId(), e);
+                    task.getInvocation().invoke();
+                } finally {
+                    latencyWindow.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+                }
+                end(detail, null);
+            } catch (Exception e) {
+                end(detail, e);
+            } finally {
+                if (!dispatched) {
+                    runs.remove(run);
                 }
             }
             return null;
         }
 
+        /**
+         * 记录这次执行的结果。超时或者被停止时看门狗或者心跳线程已经记录了结果，任务方法没理会中断自己执行完了也不再记录
+         *
+         * @param detail
+         * @param e      执行抛出的异常，成功时为空
+         */
+        private void end(TaskDetail detail, Exception e) {
+            try {
+                if (!run.end()) {
+                    return;
+                }
+                if (e == null) {
+                    //完成任务
+                    finish(task, detail);
+                    logger.info("finished execute task:{}", task.getId());
+                    return;
+                }
+                logger.error("execute task:{} error,cause by:{}", task.getId(), e);
+                /**
+                 * 先从登记表删了再安排重试，退避时间很短时重试可能比这里先被Boss线程取到，
+                 * 还在登记表里的话会被当成上一次执行没结束，按不允许重叠的策略丢掉
+                 */
+                runs.remove(run);
+                /**
+                 * 还能重试的放回触发引擎，重试次数用完或者异常不需要重试的才记为失败
+                 */
+                if (!retry(task, detail, e)) {
+                    fail(task, detail, errorMessage(e));
+                }
+            } catch (Exception e1) {
+                logger.error("end task:{} error,cause by:{}", task.getId(), e1);
+            } finally {
+                /**
+                 * 不管成功失败，执行完都从登记表删了
+                 */
+                runs.remove(run);
+            }
+        }
+
     }
 }
@@ -0,0 +1,315 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.common.Invocation;
+import com.github.copilot.task.common.ShardContext;
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.entity.Node;
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskShard;
+import com.github.copilot.task.enums.TaskChangeType;
+import com.github.copilot.task.enums.TaskStatus;
+import com.github.copilot.task.event.TaskChangeNotifier;
+import com.github.copilot.task.repository.TaskRepository;
+import com.github.copilot.task.repository.TaskShardRepository;
+import com.github.copilot.task.strategy.Strategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 分片任务协调器，分片任务每次触发时拆成shardCount个分片，按获取任务的策略分配到各个可用节点
+ * 1.触发任务的节点插入所有分片后工作线程就返回，协调线程每隔shardPollMillis毫秒检查一次，所有分片结束后
+ * 把分片结果汇总成这次触发的执行明细，有一个分片失败整个任务就算失败。等分片期间不占工作线程，
+ * 也不会因为本节点工作线程都在等分片而卡住
+ * 2.各个节点包括触发任务的节点自己的Loader领取分配给自己的分片，交给工作线程池执行
+ * 3.检查时发现分片所在节点失联了，把分片重新分配给可用节点
+ */
+@Component
+public class ShardCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardCoordinator.class);
+    /**
+     * 本节点领取分片的锁，领取的update和回查之间不能有本节点的其它领取
+     */
+    private final Object claimLock = new Object();
+    /**
+     * 只有一个检查分片的线程
+     */
+    private final ScheduledExecutorService bossPool = Executors.newSingleThreadScheduledExecutor();
+    /**
+     * 本节点触发的还没结束的分片任务，按触发的id
+     */
+    private final Map<String, Fire> fires = new ConcurrentHashMap<>();
+    @Autowired
+    private EasyJobConfig config;
+    @Autowired
+    private TaskShardRepository taskShardRepository;
+    @Autowired
+    private TaskRepository taskRepository;
+    @Autowired
+    private FailureDetector failureDetector;
+    @Autowired
+    private TaskChangeNotifier taskChangeNotifier;
+
+    @PostConstruct
+    public void init() {
+        if (config.isRecoverEnable() && config.isHeartBeatEnable()) {
+            bossPool.scheduleWithFixedDelay(this::check, config.getShardPollMillis(), config.getShardPollMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        bossPool.shutdownNow();
+    }
+
+    /**
+     * 分发一次分片任务的触发，插入所有分片后就返回，所有分片结束后返回的结果才完成
+     *
+     * @param task     分片任务
+     * @param strategy 分配分片的策略
+     * @param stopped  这次执行是否已经被停止或者超时了，是的话不再等分片，还没开始的分片也不执行了
+     * @return 这次触发的结果，有分片失败、超时或者被停止时异常完成
+     */
+    public CompletableFuture<Void> dispatch(Task task, Strategy strategy, BooleanSupplier stopped) {
+        int total = task.getShardCount();
+        String runId = UUID.randomUUID().toString();
+        List<Node> nodes = liveNodes();
+        List<TaskShard> shards = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            shards.add(TaskShard.builder()
+                    .runId(runId)
+                    .taskId(task.getId())
+                    .shardIndex(i)
+                    .shardTotal(total)
+                    .nodeId(ownerOf(strategy, nodes, task, i))
+                    .status(TaskStatus.PENDING)
+                    .build());
+        }
+        taskShardRepository.insert(shards);
+        Fire fire = new Fire(task, strategy, runId, stopped,
+                System.currentTimeMillis() + config.getShardTimeoutSeconds() * 1000L);
+        fires.put(runId, fire);
+        /**
+         * 通知各个节点马上来领取分片，本节点的分片也由Loader领取
+         */
+        taskChangeNotifier.publish(task.getId(), TaskChangeType.SHARD);
+        return fire.result;
+    }
+
+    /**
+     * 检查一遍本节点触发的所有分片任务，结束了的完成结果，不再跟踪
+     */
+    void check() {
+        for (Fire fire : fires.values()) {
+            try {
+                if (check(fire)) {
+                    fires.remove(fire.runId);
+                }
+            } catch (Exception e) {
+                logger.error("check shards of task:{} failed,cause by:{}", fire.task.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return 这次触发是否结束了
+     */
+    private boolean check(Fire fire) {
+        int total = fire.task.getShardCount();
+        if (fire.stopped.getAsBoolean()) {
+            /**
+             * 任务被停止了，还没开始的分片也不用执行了
+             */
+            taskShardRepository.stopUnfinished(fire.runId, "task stopped");
+            fire.result.cancel(false);
+            return true;
+        }
+        List<TaskShard> current = taskShardRepository.listRun(fire.runId);
+        List<TaskShard> unfinished = new ArrayList<>();
+        for (TaskShard shard : current) {
+            if (shard.getStatus() == TaskStatus.PENDING || shard.getStatus() == TaskStatus.DOING) {
+                unfinished.add(shard);
+            }
+        }
+        if (unfinished.isEmpty()) {
+            try {
+                aggregate(current, total);
+                fire.result.complete(null);
+            } catch (IllegalStateException e) {
+                fire.result.completeExceptionally(e);
+            }
+            return true;
+        }
+        if (System.currentTimeMillis() > fire.deadline) {
+            taskShardRepository.stopUnfinished(fire.runId, "timed out");
+            fire.result.completeExceptionally(
+                    new TimeoutException(unfinished.size() + " of " + total + " shards did not finish in time"));
+            return true;
+        }
+        reassignLost(unfinished, fire.strategy, fire.task);
+        return false;
+    }
+
+    /**
+     * 领取分配给本节点的分片
+     *
+     * @param max 最多领取的数量
+     * @return 已经是执行中状态的分片
+     */
+    public List<TaskShard> claim(int max) {
+        synchronized (claimLock) {
+            return taskShardRepository.claim(config.getNodeId(), max);
+        }
+    }
+
+    /**
+     * 本节点没有空闲线程执行时，把领取的分片放回去
+     *
+     * @param shard 分片
+     */
+    public void release(TaskShard shard) {
+        taskShardRepository.release(shard);
+    }
+
+    /**
+     * 执行一个领取到的分片，并记录结果
+     *
+     * @param shard 分片
+     */
+    public void run(TaskShard shard) {
+        Invocation invocation;
+        try {
+            Task task = taskRepository.get(shard.getTaskId());
+            invocation = task == null ? null : task.getInvocation();
+        } catch (Exception e) {
+            logger.error("load task:{} of shard:{} error,cause by:{}", shard.getTaskId(), shard.getId(), e.getMessage());
+            taskShardRepository.complete(shard, TaskStatus.ERROR, ScheduleTaskExecutor.errorMessage(e));
+            return;
+        }
+        if (invocation == null) {
+            taskShardRepository.complete(shard, TaskStatus.ERROR, "task not found");
+            return;
+        }
+        run(shard, invocation);
+    }
+
+    private void run(TaskShard shard, Invocation invocation) {
+        ShardContext context = new ShardContext(shard.getRunId(), shard.getShardIndex(), shard.getShardTotal());
+        try {
+            invocation.invoke(context);
+            taskShardRepository.complete(shard, TaskStatus.FINISH, null);
+        } catch (Exception e) {
+            logger.error("execute shard:{} of task:{} error,cause by:{}", shard.getShardIndex(), shard.getTaskId(), e);
+            taskShardRepository.complete(shard, TaskStatus.ERROR, ScheduleTaskExecutor.errorMessage(e));
+        }
+    }
+
+    /**
+     * 有一个分片失败，整个任务就算失败，错误信息带上第一个失败的分片
+     */
+    private static void aggregate(List<TaskShard> shards, int total) {
+        List<TaskShard> failed = new ArrayList<>();
+        for (TaskShard shard : shards) {
+            if (shard.getStatus() != TaskStatus.FINISH) {
+                failed.add(shard);
+            }
+        }
+        if (!failed.isEmpty()) {
+            TaskShard first = failed.get(0);
+            throw new IllegalStateException(failed.size() + " of " + total + " shards failed, shard "
+                    + first.getShardIndex() + ": " + first.getErrorMsg());
+        }
+    }
+
+    /**
+     * 分片所在节点失联了，重新分配给可用节点
+     */
+    private void reassignLost(List<TaskShard> unfinished, Strategy strategy, Task task) {
+        List<Node> nodes = failureDetector.liveNodes();
+        if (nodes == null || nodes.isEmpty()) {
+            return;
+        }
+        Set<String> live = new HashSet<>();
+        for (Node node : nodes) {
+            live.add(node.getNodeId());
+        }
+        int reassigned = 0;
+        for (TaskShard shard : unfinished) {
+            if (!live.contains(shard.getNodeId())
+                    && taskShardRepository.reassign(shard, ownerOf(strategy, nodes, task, shard.getShardIndex()))) {
+                logger.info("shard:{} of task:{} moved from lost node {}", shard.getShardIndex(), task.getId(), shard.getNodeId());
+                reassigned++;
+            }
+        }
+        if (reassigned > 0) {
+            taskChangeNotifier.publish(task.getId(), TaskChangeType.SHARD);
+        }
+    }
+
+    /**
+     * 每个分片用一个按任务id和分片序号算出来的键去问策略，分片就会分散到各个节点
+     */
+    private String ownerOf(Strategy strategy, List<Node> nodes, Task task, int index) {
+        Task key = new Task();
+        key.setId(task.getId() * 31 + index);
+        String owner = strategy.owner(nodes, key);
+        return owner == null ? config.getNodeId() : owner;
+    }
+
+    private List<Node> liveNodes() {
+        List<Node> nodes = failureDetector.liveNodes();
+        if (nodes == null || nodes.isEmpty()) {
+            return Collections.singletonList(new Node(config.getNodeId()));
+        }
+        return nodes;
+    }
+
+    /**
+     * 本节点触发的一次分片任务
+     */
+    private static final class Fire {
+
+        private final Task task;
+
+        private final Strategy strategy;
+
+        private final String runId;
+
+        private final BooleanSupplier stopped;
+
+        /**
+         * 超过这个时间还没结束的分片停止执行，毫秒
+         */
+        private final long deadline;
+
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        Fire(Task task, Strategy strategy, String runId, BooleanSupplier stopped, long deadline) {
+            this.task = task;
+            this.strategy = strategy;
+            this.runId = runId;
+            this.stopped = stopped;
+            this.deadline = deadline;
+        }
+    }
+}
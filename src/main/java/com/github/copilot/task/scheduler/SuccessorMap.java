@@ -0,0 +1,75 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.entity.Node;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 节点的接班节点，所有节点按节点id的哈希值排成一个环，一个节点的任务由环上它后面第一个可用节点恢复，
+ * 每个节点算出来的接班节点都一样，不用商量就不会抢着恢复同一个任务。
+ * 挂掉的节点的接班节点一次算好，其它节点用到时二分查找再记下来，不用每个任务扫一遍节点列表
+ */
+final class SuccessorMap {
+
+    private final int[] hashes;
+
+    private final String[] nodeIds;
+
+    private final Map<String, String> successors = new HashMap<>();
+
+    /**
+     * @param nodes   可用的节点，不能为空
+     * @param nodeIds 要先算好接班节点的节点，比如挂掉的节点
+     */
+    SuccessorMap(List<Node> nodes, Collection<String> nodeIds) {
+        Node[] sorted = nodes.toArray(new Node[0]);
+        Arrays.sort(sorted, Comparator.comparingInt((Node node) -> hash(node.getNodeId())).thenComparing(Node::getNodeId));
+        this.hashes = new int[sorted.length];
+        this.nodeIds = new String[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            this.hashes[i] = hash(sorted[i].getNodeId());
+            this.nodeIds[i] = sorted[i].getNodeId();
+        }
+        for (String nodeId : nodeIds) {
+            successors.put(nodeId, find(nodeId));
+        }
+    }
+
+    /**
+     * @param nodeId 节点id，为空时是环上第一个节点
+     * @return 接班节点id
+     */
+    String of(String nodeId) {
+        if (nodeId == null) {
+            return nodeIds[0];
+        }
+        return successors.computeIfAbsent(nodeId, this::find);
+    }
+
+    /**
+     * 哈希值比节点大的第一个节点，没有就绕回第一个
+     */
+    private String find(String nodeId) {
+        int hash = hash(nodeId);
+        int low = 0;
+        int high = hashes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (hashes[mid] <= hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return nodeIds[low == hashes.length ? 0 : low];
+    }
+
+    private static int hash(String nodeId) {
+        return Math.abs(nodeId.hashCode());
+    }
+}
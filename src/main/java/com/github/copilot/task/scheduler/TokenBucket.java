@@ -0,0 +1,48 @@
+package com.github.copilot.task.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶，按固定速率生成令牌，最多攒一秒的量，用来限制补跑错过的触发的速率，
+ * 停机很久之后重启也不会一下子把成千上万个补跑塞给工作线程池
+ */
+final class TokenBucket {
+
+    private final double permitsPerNano;
+
+    private final double maxPermits;
+
+    private double permits;
+
+    private long refilledAt;
+
+    /**
+     * @param permitsPerSecond 每秒生成的令牌数，小于等于0时不限速
+     * @param now              当前的System.nanoTime()
+     */
+    TokenBucket(double permitsPerSecond, long now) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.maxPermits = Math.max(1, permitsPerSecond);
+        this.permits = maxPermits;
+        this.refilledAt = now;
+    }
+
+    /**
+     * 取一个令牌
+     *
+     * @param now 当前的System.nanoTime()
+     * @return 是否取到了
+     */
+    synchronized boolean tryAcquire(long now) {
+        if (permitsPerNano <= 0) {
+            return true;
+        }
+        permits = Math.min(maxPermits, permits + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+        if (permits < 1) {
+            return false;
+        }
+        permits--;
+        return true;
+    }
+}
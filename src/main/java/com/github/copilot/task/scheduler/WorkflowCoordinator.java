@@ -0,0 +1,297 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.enums.TaskChangeType;
+import com.github.copilot.task.enums.TaskStatus;
+import com.github.copilot.task.event.TaskChangeNotifier;
+import com.github.copilot.task.repository.WorkflowRepository;
+import com.github.copilot.task.state.TaskStateStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工作流协调器，任务可以声明上游任务，所有上游都完成后才执行。没有上游但有下游的任务是工作流的根，按cron表达式触发
+ * 1.根任务每次成功完成时开始一次工作流运行，给它能到达的每个任务建一个步骤，记下每个步骤在这次运行里要等的上游数量
+ * 2.一个步骤的任务完成时，把下游步骤要等的数量减一，减到0的下游任务马上放行：状态改成未开始、下次开始时间改成当前时间，
+ * 再由各个节点按策略抢或者由领导者分配，互不依赖的分支就在不同节点上并行执行，不用再靠错开cron时间来保证先后
+ * 3.任务失败时整个运行失败，还在等待的步骤都跳过，已经放行的分支执行完后不再放行任何任务
+ * 4.运行的状态都在库里，节点挂了之后它的任务由恢复线程恢复重新执行，执行完照样推进；任务结果写了但步骤没来得及推进的，
+ * 由补偿线程按任务的结果推进
+ */
+@Component
+public class WorkflowCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowCoordinator.class);
+    /**
+     * 只有一个补偿线程
+     */
+    private final ExecutorService bossPool = Executors.newSingleThreadExecutor();
+    @Autowired
+    private EasyJobConfig config;
+    @Autowired
+    private WorkflowRepository workflowRepository;
+    @Autowired
+    private TaskChangeNotifier taskChangeNotifier;
+    @Autowired
+    private LeaderElector leaderElector;
+    /**
+     * 缓存的依赖关系，每个任务完成时都要用，不能每次查库，过期或者本节点修改依赖后重新加载
+     */
+    private volatile Graph graph;
+    /**
+     * 本节点记录任务状态的方式，放行任务前先把这些任务还在内存里的结果写掉，不然之后写库时会盖掉放行
+     */
+    private volatile TaskStateStore stateStore;
+
+    @PostConstruct
+    public void init() {
+        if (config.isRecoverEnable() && config.isHeartBeatEnable()) {
+            bossPool.execute(new Resume());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        bossPool.shutdownNow();
+    }
+
+    public void setStateStore(TaskStateStore stateStore) {
+        this.stateStore = stateStore;
+    }
+
+    /**
+     * 任务成功完成，是根任务就开始一次运行，是运行中的步骤就推进运行。工作流出错不影响任务本身的结果，
+     * 没推进的步骤由补偿线程推进
+     *
+     * @param task 完成的任务
+     */
+    public void onFinished(Task task) {
+        try {
+            Graph current = graph();
+            if (current.hasUpstreams(task.getId())) {
+                /**
+                 * 手动立即执行的下游任务不属于任何运行
+                 */
+                if (task.getWorkflowRunId() != null) {
+                    flush(current.downstreams(task.getId()));
+                    published(workflowRepository.completeStep(task.getWorkflowRunId(), task.getId(), current.downstreams(task.getId())));
+                }
+            } else if (!current.downstreams(task.getId()).isEmpty()) {
+                start(task.getId(), current);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("advance workflow of task:{} failed,cause by:{}", task.getId(), e);
+        }
+    }
+
+    /**
+     * 任务失败，是运行中的步骤就让整个运行失败
+     *
+     * @param task     失败的任务
+     * @param errorMsg 错误信息
+     */
+    public void onFailed(Task task, String errorMsg) {
+        try {
+            if (task.getWorkflowRunId() != null && graph().hasUpstreams(task.getId())
+                    && workflowRepository.failStep(task.getWorkflowRunId(), task.getId(), errorMsg)) {
+                logger.warn("workflow run:{} failed at task:{}", task.getWorkflowRunId(), task.getId());
+            }
+        } catch (Exception e) {
+            logger.error("fail workflow of task:{} failed,cause by:{}", task.getId(), e);
+        }
+    }
+
+    /**
+     * 设置任务的上游任务，不能形成环
+     *
+     * @param taskId      任务id
+     * @param upstreamIds 上游任务id，为空时任务不再依赖其它任务
+     */
+    public void setUpstreams(Long taskId, Collection<Long> upstreamIds) {
+        Graph current = load();
+        Set<Long> reachable = current.reachable(taskId);
+        for (Long upstreamId : upstreamIds) {
+            if (upstreamId.equals(taskId) || reachable.contains(upstreamId)) {
+                throw new IllegalArgumentException("Task " + upstreamId + " depends on task " + taskId + ", it can not be an upstream of it");
+            }
+        }
+        workflowRepository.replaceUpstreams(taskId, new LinkedHashSet<>(upstreamIds));
+        graph = null;
+    }
+
+    /**
+     * 补偿一轮：任务已经结束但步骤还没推进的，按任务的结果推进，停止的任务和失败一样结束这次运行，
+     * 不然运行一直是执行中，根任务再也开始不了新的运行
+     *
+     * @param before 只处理在这个时间之前结束的任务，给正常推进留时间
+     * @return 推进的步骤数量
+     */
+    public int resume(Date before) throws InterruptedException {
+        List<long[]> ended = workflowRepository.listEndedSteps(new Timestamp(before.getTime()));
+        if (ended.isEmpty()) {
+            return 0;
+        }
+        Graph current = graph();
+        for (long[] step : ended) {
+            if (step[2] == TaskStatus.FINISH.ordinal()) {
+                flush(current.downstreams(step[1]));
+                published(workflowRepository.completeStep(step[0], step[1], current.downstreams(step[1])));
+            } else if (step[2] == TaskStatus.STOP.ordinal()) {
+                workflowRepository.failStep(step[0], step[1], "task stopped");
+            } else {
+                workflowRepository.failStep(step[0], step[1], "task failed");
+            }
+            logger.info("resumed workflow run:{} at task:{}", step[0], step[1]);
+        }
+        return ended.size();
+    }
+
+    private void start(Long rootTaskId, Graph current) throws InterruptedException {
+        /**
+         * 上一次运行还没结束就不再开始新的，避免同一个任务同时属于两次运行
+         */
+        if (workflowRepository.hasActiveRun(rootTaskId)) {
+            logger.warn("workflow of task:{} is still running, skip this run", rootTaskId);
+            return;
+        }
+        Map<Long, Integer> remaining = current.remaining(rootTaskId);
+        flush(remaining.keySet());
+        Long runId = workflowRepository.startRun(rootTaskId, remaining);
+        logger.info("start workflow run:{} of task:{}", runId, rootTaskId);
+        taskChangeNotifier.publish(null, TaskChangeType.RESCHEDULE);
+    }
+
+    /**
+     * 要放行的任务在本节点还有没写库的结果时，先等它们写掉
+     */
+    private void flush(Collection<Long> taskIds) throws InterruptedException {
+        TaskStateStore current = stateStore;
+        if (current != null && !taskIds.isEmpty()) {
+            current.flush(taskIds);
+        }
+    }
+
+    /**
+     * 有任务放行时通知各个节点马上来抢
+     */
+    private void published(List<Long> released) {
+        if (!released.isEmpty()) {
+            taskChangeNotifier.publish(null, TaskChangeType.RESCHEDULE);
+        }
+    }
+
+    private Graph graph() {
+        Graph current = graph;
+        if (current == null || System.nanoTime() - current.loadedAt > TimeUnit.SECONDS.toNanos(config.getWorkflowRefreshSeconds())) {
+            current = load();
+        }
+        return current;
+    }
+
+    private Graph load() {
+        Graph loaded = new Graph(workflowRepository.listUpstreams(), System.nanoTime());
+        graph = loaded;
+        return loaded;
+    }
+
+    /**
+     * 任务之间的依赖关系
+     */
+    static final class Graph {
+
+        private final Map<Long, List<Long>> upstreams;
+
+        private final Map<Long, List<Long>> downstreams = new HashMap<>();
+
+        private final long loadedAt;
+
+        Graph(Map<Long, List<Long>> upstreams, long loadedAt) {
+            this.upstreams = upstreams;
+            this.loadedAt = loadedAt;
+            for (Map.Entry<Long, List<Long>> entry : upstreams.entrySet()) {
+                for (Long upstreamId : entry.getValue()) {
+                    downstreams.computeIfAbsent(upstreamId, k -> new ArrayList<>()).add(entry.getKey());
+                }
+            }
+        }
+
+        boolean hasUpstreams(Long taskId) {
+            return upstreams.containsKey(taskId);
+        }
+
+        List<Long> downstreams(Long taskId) {
+            return downstreams.getOrDefault(taskId, Collections.emptyList());
+        }
+
+        /**
+         * @return 从任务出发沿下游能到达的所有任务，不包括它自己
+         */
+        Set<Long> reachable(Long taskId) {
+            Set<Long> reached = new LinkedHashSet<>();
+            Deque<Long> queue = new ArrayDeque<>(downstreams(taskId));
+            while (!queue.isEmpty()) {
+                Long next = queue.poll();
+                if (reached.add(next)) {
+                    queue.addAll(downstreams(next));
+                }
+            }
+            return reached;
+        }
+
+        /**
+         * 一次运行里每个步骤要等的上游数量，只算这次运行里的上游，根已经完成不算
+         *
+         * @param rootTaskId 根任务id
+         * @return 步骤的任务id和要等的上游数量
+         */
+        Map<Long, Integer> remaining(Long rootTaskId) {
+            Set<Long> steps = reachable(rootTaskId);
+            Map<Long, Integer> remaining = new LinkedHashMap<>();
+            for (Long taskId : steps) {
+                int count = 0;
+                for (Long upstreamId : upstreams.get(taskId)) {
+                    if (steps.contains(upstreamId)) {
+                        count++;
+                    }
+                }
+                remaining.put(taskId, count);
+            }
+            return remaining;
+        }
+    }
+
+    class Resume implements Runnable {
+        @Override
+        public void run() {
+            for (; ; ) {
+                try {
+                    Thread.sleep(config.getRecoverSeconds() * 1000L);
+                    /**
+                     * 领导者模式下只有领导者补偿，其它模式下各个节点都补偿，推进步骤的update带着状态条件，重复推进不会多减
+                     */
+                    if (leaderElector.isEnabled() && !leaderElector.isLeader()) {
+                        continue;
+                    }
+                    resume(new Date(System.currentTimeMillis() - config.getRecoverSeconds() * 1000L));
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    logger.error("resume workflow runs failed,cause by:{}", e);
+                }
+            }
+        }
+    }
+}
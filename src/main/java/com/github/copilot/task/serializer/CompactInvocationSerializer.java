@@ -0,0 +1,262 @@
+package com.github.copilot.task.serializer;
+
+import com.github.copilot.task.common.Invocation;
+import org.springframework.util.ClassUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Compact binary format for {@link Invocation}, replacing Java serialization of the whole object.
+ * <p>
+ * The format only depends on names, not on class descriptors, so it keeps working when {@link Invocation} or the
+ * argument classes change:
+ * <pre>
+ * magic (1 byte) version (1 byte)
+ * target class name, method name
+ * parameter count (2 bytes), parameter type names
+ * argument count (2 bytes, -1 for null), arguments
+ * </pre>
+ * Every argument starts with a one byte type tag. Common value types are written directly, any other argument is
+ * written as a length-prefixed Java serialization stream of that argument alone.
+ * <p>
+ * Bytes written by {@link JdkSerializationSerializer} are still read, so existing rows can be migrated on read.
+ */
+public class CompactInvocationSerializer implements ObjectSerializer<Invocation> {
+
+    /**
+     * The first byte of the format, it can not be confused with the first byte of a Java serialization stream.
+     */
+    static final byte MAGIC = (byte) 0xEA;
+
+    static final byte VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_BOOLEAN = 1;
+    private static final byte TAG_BYTE = 2;
+    private static final byte TAG_SHORT = 3;
+    private static final byte TAG_CHAR = 4;
+    private static final byte TAG_INT = 5;
+    private static final byte TAG_LONG = 6;
+    private static final byte TAG_FLOAT = 7;
+    private static final byte TAG_DOUBLE = 8;
+    private static final byte TAG_STRING = 9;
+    private static final byte TAG_DATE = 10;
+    private static final byte TAG_BIG_DECIMAL = 11;
+    private static final byte TAG_BIG_INTEGER = 12;
+    private static final byte TAG_BYTES = 13;
+    private static final byte TAG_CLASS = 14;
+    private static final byte TAG_ENUM = 15;
+    private static final byte TAG_SERIALIZED = 127;
+
+    private final JdkSerializationSerializer<Object> jdkSerializer = new JdkSerializationSerializer<>();
+
+    @Override
+    public byte[] serialize(Invocation invocation) {
+        if (invocation == null) {
+            return null;
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(invocation.getTargetClass().getName());
+            out.writeUTF(invocation.getMethodName());
+            Class[] parameterTypes = invocation.getParameterTypes();
+            out.writeShort(parameterTypes == null ? -1 : parameterTypes.length);
+            if (parameterTypes != null) {
+                for (Class parameterType : parameterTypes) {
+                    out.writeUTF(parameterType.getName());
+                }
+            }
+            Object[] args = invocation.getArgs();
+            out.writeShort(args == null ? -1 : args.length);
+            if (args != null) {
+                for (Object arg : args) {
+                    writeValue(out, arg);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to serialize invocation of " + invocation.getTargetClass(), e);
+        }
+        return baos.toByteArray();
+    }
+
+    @Override
+    public Invocation deserialize(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (!isOwnFormat(bytes)) {
+            if (jdkSerializer.isOwnFormat(bytes)) {
+                return (Invocation) jdkSerializer.deserialize(bytes);
+            }
+            throw new IllegalArgumentException("Unknown invocation format");
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            in.readByte();
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported invocation format version: " + version);
+            }
+            Class targetClass = forName(in.readUTF());
+            String methodName = in.readUTF();
+            short parameterCount = in.readShort();
+            Class[] parameterTypes = null;
+            if (parameterCount >= 0) {
+                parameterTypes = new Class[parameterCount];
+                for (int i = 0; i < parameterCount; i++) {
+                    parameterTypes[i] = forName(in.readUTF());
+                }
+            }
+            short argCount = in.readShort();
+            Object[] args = null;
+            if (argCount >= 0) {
+                args = new Object[argCount];
+                for (int i = 0; i < argCount; i++) {
+                    args[i] = readValue(in);
+                }
+            }
+            return new Invocation(targetClass, methodName, parameterTypes, args);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to deserialize invocation", e);
+        }
+    }
+
+    @Override
+    public boolean isOwnFormat(byte[] bytes) {
+        return bytes != null && bytes.length >= 2 && bytes[0] == MAGIC;
+    }
+
+    private void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TAG_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TAG_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte(TAG_CHAR);
+            out.writeChar((Character) value);
+        } else if (value.getClass() == Date.class) {
+            // Subclasses such as java.sql.Timestamp carry more than the millis and go through Java serialization
+            out.writeByte(TAG_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value.getClass() == BigDecimal.class) {
+            out.writeByte(TAG_BIG_DECIMAL);
+            BigDecimal decimal = (BigDecimal) value;
+            out.writeInt(decimal.scale());
+            writeBytes(out, decimal.unscaledValue().toByteArray());
+        } else if (value.getClass() == BigInteger.class) {
+            out.writeByte(TAG_BIG_INTEGER);
+            writeBytes(out, ((BigInteger) value).toByteArray());
+        } else if (value instanceof byte[]) {
+            out.writeByte(TAG_BYTES);
+            writeBytes(out, (byte[]) value);
+        } else if (value instanceof Class) {
+            out.writeByte(TAG_CLASS);
+            out.writeUTF(((Class<?>) value).getName());
+        } else if (value instanceof Enum) {
+            out.writeByte(TAG_ENUM);
+            out.writeUTF(((Enum<?>) value).getDeclaringClass().getName());
+            out.writeUTF(((Enum<?>) value).name());
+        } else {
+            out.writeByte(TAG_SERIALIZED);
+            writeBytes(out, jdkSerializer.serialize(value));
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_BOOLEAN:
+                return in.readBoolean();
+            case TAG_BYTE:
+                return in.readByte();
+            case TAG_SHORT:
+                return in.readShort();
+            case TAG_CHAR:
+                return in.readChar();
+            case TAG_INT:
+                return in.readInt();
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_FLOAT:
+                return in.readFloat();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case TAG_DATE:
+                return new Date(in.readLong());
+            case TAG_BIG_DECIMAL:
+                int scale = in.readInt();
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case TAG_BIG_INTEGER:
+                return new BigInteger(readBytes(in));
+            case TAG_BYTES:
+                return readBytes(in);
+            case TAG_CLASS:
+                return forName(in.readUTF());
+            case TAG_ENUM:
+                Class enumType = forName(in.readUTF());
+                return Enum.valueOf(enumType, in.readUTF());
+            case TAG_SERIALIZED:
+                return jdkSerializer.deserialize(readBytes(in));
+            default:
+                throw new IllegalArgumentException("Unknown argument type tag: " + tag);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Resolves a class name as returned by {@link Class#getName()}, including primitive and array types.
+     */
+    private static Class<?> forName(String name) {
+        try {
+            return ClassUtils.forName(name, ClassUtils.getDefaultClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Failed to deserialize invocation type: " + name, e);
+        }
+    }
+}
@@ -5,6 +5,11 @@ import java.io.*;
 
 public class JdkSerializationSerializer<T> implements ObjectSerializer<T> {
 
+    /**
+     * The first two bytes of every Java serialization stream.
+     */
+    static final short STREAM_MAGIC = ObjectStreamConstants.STREAM_MAGIC;
+
     @Override
     public byte[] serialize(T object) {
         if (object == null) {
@@ -39,4 +44,10 @@ public class JdkSerializationSerializer<T> implements ObjectSerializer<T> {
             }
         }
     }
+
+    @Override
+    public boolean isOwnFormat(byte[] bytes) {
+        return bytes != null && bytes.length >= 2
+                && (short) (((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF)) == STREAM_MAGIC;
+    }
 }
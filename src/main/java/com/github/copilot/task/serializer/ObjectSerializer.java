@@ -1,9 +1,43 @@
 package com.github.copilot.task.serializer;
 
 
+import com.github.copilot.task.common.Invocation;
+
 public interface ObjectSerializer<T> {
 
+    String JDK = "jdk";
+
+
+    String COMPACT = "compact";
+
+
+    /**
+     * Chooses the serializer for task invocations by its configuration key, the compact format is used by default.
+     *
+     * @param key The configured serializer key.
+     * @return The invocation serializer.
+     */
+    static ObjectSerializer<Invocation> choose(String key) {
+        switch (key) {
+            case JDK:
+                return new JdkSerializationSerializer<>();
+            default:
+                return new CompactInvocationSerializer();
+        }
+    }
+
     byte[] serialize(T t);
 
     T deserialize(byte[] bytes);
+
+    /**
+     * Tells whether the bytes were written in this serializer's format, so rows written in another format can be
+     * recognized and migrated.
+     *
+     * @param bytes The serialized bytes.
+     * @return true if this serializer wrote the bytes.
+     */
+    default boolean isOwnFormat(byte[] bytes) {
+        return true;
+    }
 }
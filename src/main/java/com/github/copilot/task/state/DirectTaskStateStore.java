@@ -0,0 +1,76 @@
+package com.github.copilot.task.state;
+
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskDetail;
+import com.github.copilot.task.enums.TaskStatus;
+import com.github.copilot.task.history.TaskHistoryWriter;
+import com.github.copilot.task.repository.TaskRepository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+
+/**
+ * Writes every transition of the task to the database right away: the running status and the result. The details
+ * of the runs go to the history writer.
+ */
+public class DirectTaskStateStore implements TaskStateStore {
+
+    private final TaskRepository taskRepository;
+
+    private final TaskHistoryWriter historyWriter;
+
+    public DirectTaskStateStore(TaskRepository taskRepository, TaskHistoryWriter historyWriter) {
+        this.taskRepository = taskRepository;
+        this.historyWriter = historyWriter;
+    }
+
+    @Override
+    public TaskDetail start(Task task) throws Exception {
+        task.setStatus(TaskStatus.DOING);
+        taskRepository.updateTask(task);
+        return historyWriter.start(task);
+    }
+
+    @Override
+    public void finish(Task task, TaskDetail detail) throws Exception {
+        if (taskRepository.finish(task)) {
+            detail.setEndTime(new Date());
+            detail.setStatus(TaskStatus.FINISH);
+            historyWriter.end(Collections.singletonList(detail));
+        }
+    }
+
+    @Override
+    public void fail(Task task, TaskDetail detail, String errorMsg) throws Exception {
+        if (detail == null) {
+            return;
+        }
+        if (taskRepository.fail(task)) {
+            detail.setEndTime(new Date());
+            detail.setStatus(TaskStatus.ERROR);
+            detail.setErrorMsg(errorMsg);
+            historyWriter.end(Collections.singletonList(detail));
+        }
+    }
+
+    @Override
+    public boolean retry(Task task, TaskDetail detail, String errorMsg, Date retryTime) throws Exception {
+        if (!taskRepository.retry(task, retryTime)) {
+            return false;
+        }
+        detail.setEndTime(new Date());
+        detail.setStatus(TaskStatus.ERROR);
+        detail.setErrorMsg(errorMsg);
+        historyWriter.end(Collections.singletonList(detail));
+        return true;
+    }
+
+    @Override
+    public void flush(Collection<Long> taskIds) {
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
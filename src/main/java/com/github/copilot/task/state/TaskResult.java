@@ -0,0 +1,19 @@
+package com.github.copilot.task.state;
+
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskDetail;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The result of one run waiting to be written: the task with its new status and next start time, and the finished
+ * detail of the run.
+ */
+@Getter
+@AllArgsConstructor
+public class TaskResult {
+
+    private final Task task;
+
+    private final TaskDetail detail;
+}
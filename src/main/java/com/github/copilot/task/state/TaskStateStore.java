@@ -0,0 +1,97 @@
+package com.github.copilot.task.state;
+
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskDetail;
+import com.github.copilot.task.history.TaskHistoryWriter;
+import com.github.copilot.task.repository.TaskRepository;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Records the state transitions of the tasks running on this node.
+ * The claim of a task is always written by the Loader right away, the store decides how the later transitions of a
+ * run reach the database.
+ */
+public interface TaskStateStore {
+
+    String DIRECT = "direct";
+
+
+    String WRITE_BEHIND = "writebehind";
+
+
+    /**
+     * Chooses the task state store by its configuration key, every transition is written right away by default.
+     *
+     * @param key            The configured store key.
+     * @param taskRepository The repository the transitions are written with.
+     * @param historyWriter  The writer the details of the runs are handed to.
+     * @param flushMillis    The longest time a result waits in memory before it is written, in milliseconds.
+     * @param batchSize      The maximum number of results written with one batch.
+     * @return The task state store.
+     */
+    static TaskStateStore choose(String key, TaskRepository taskRepository, TaskHistoryWriter historyWriter,
+                                 long flushMillis, int batchSize) {
+        switch (key) {
+            case WRITE_BEHIND:
+                return new WriteBehindTaskStateStore(taskRepository, historyWriter, flushMillis, batchSize);
+            default:
+                return new DirectTaskStateStore(taskRepository, historyWriter);
+        }
+    }
+
+    /**
+     * Marks a claimed task as running and creates the detail of this run.
+     *
+     * @param task The task about to run.
+     * @return The detail of the run.
+     * @throws Exception if the transition can not be recorded.
+     */
+    TaskDetail start(Task task) throws Exception;
+
+    /**
+     * Records a successful run and schedules the next one.
+     *
+     * @param task   The task that ran.
+     * @param detail The detail of the run.
+     * @throws Exception if the result can not be recorded.
+     */
+    void finish(Task task, TaskDetail detail) throws Exception;
+
+    /**
+     * Records a failed run.
+     *
+     * @param task     The task that ran.
+     * @param detail   The detail of the run.
+     * @param errorMsg The error message describing the failure.
+     * @throws Exception if the result can not be recorded.
+     */
+    void fail(Task task, TaskDetail detail, String errorMsg) throws Exception;
+
+    /**
+     * Records a failed run that is retried later. The task stays pending on the node until the retry is due.
+     *
+     * @param task      The task that ran.
+     * @param detail    The detail of the run.
+     * @param errorMsg  The error message describing the failure.
+     * @param retryTime The time the retry is due.
+     * @return true if the retry may be scheduled, false if the task was stopped or recovered meanwhile.
+     * @throws Exception if the result can not be recorded.
+     */
+    boolean retry(Task task, TaskDetail detail, String errorMsg, Date retryTime) throws Exception;
+
+    /**
+     * Writes the results of the given tasks still held in memory before returning, so a later write of a result does
+     * not overwrite a change made to those tasks directly in the database, e.g. a workflow releasing them.
+     *
+     * @param taskIds The IDs of the tasks.
+     * @throws InterruptedException if interrupted while waiting for the results to be written.
+     */
+    void flush(Collection<Long> taskIds) throws InterruptedException;
+
+    /**
+     * Writes the results still held in memory and stops the store.
+     */
+    void shutdown();
+}
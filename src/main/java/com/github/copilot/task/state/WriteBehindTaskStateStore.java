@@ -0,0 +1,235 @@
+package com.github.copilot.task.state;
+
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskDetail;
+import com.github.copilot.task.enums.TaskStatus;
+import com.github.copilot.task.history.TaskHistoryWriter;
+import com.github.copilot.task.repository.TaskRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the running status of a task in memory and writes the results of the runs in batches.
+ * <p>
+ * A claimed task stays pending in the database while it runs, the detail of the run is only created in memory.
+ * Once the run ends, its result is queued and a flusher thread writes the queued results with one batch of
+ * conditional task updates, then hands the details to the history writer. A task is only updated if it is still pending on this
+ * node, so results of tasks that were stopped or recovered in the meantime do not overwrite the newer state.
+ * <p>
+ * If the node dies before a result is written, the task is still pending on a node without heartbeat, which is the
+ * case the {@code RecoverExecutor} already handles: it is reset and runs again.
+ */
+public class WriteBehindTaskStateStore implements TaskStateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindTaskStateStore.class);
+
+    private final TaskRepository taskRepository;
+
+    private final TaskHistoryWriter historyWriter;
+
+    private final long flushMillis;
+
+    private final int batchSize;
+
+    private final BlockingQueue<TaskResult> results = new LinkedBlockingQueue<>();
+
+    private final Thread flusher;
+
+    private volatile boolean running = true;
+
+    /**
+     * The number of results per task not written yet, queued or in the batch being written. Guarded by itself.
+     */
+    private final Map<Long, Integer> unwritten = new HashMap<>();
+
+    public WriteBehindTaskStateStore(TaskRepository taskRepository, TaskHistoryWriter historyWriter, long flushMillis,
+                                     int batchSize) {
+        this.taskRepository = taskRepository;
+        this.historyWriter = historyWriter;
+        this.flushMillis = Math.max(1, flushMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.flusher = new Thread(this::flushLoop, "task-state-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public TaskDetail start(Task task) {
+        task.setStatus(TaskStatus.DOING);
+        TaskDetail detail = new TaskDetail(task.getId());
+        detail.setNodeId(task.getNodeId());
+        detail.setRetryCount(task.getRetryAttempt());
+        return detail;
+    }
+
+    @Override
+    public void finish(Task task, TaskDetail detail) throws Exception {
+        Date nextStartDate = task.nextStartTimeAfterRun(new Date());
+        task.setStatus(nextStartDate == null ? TaskStatus.FINISH : TaskStatus.NOT_STARTED);
+        task.setNextStartTime(nextStartDate);
+        detail.setEndTime(new Date());
+        detail.setStatus(TaskStatus.FINISH);
+        enqueue(new TaskResult(task, detail));
+    }
+
+    @Override
+    public void fail(Task task, TaskDetail detail, String errorMsg) throws Exception {
+        if (detail == null) {
+            return;
+        }
+        task.setStatus(TaskStatus.ERROR);
+        task.setNextStartTime(task.nextStartTimeAfterRun(new Date()));
+        detail.setEndTime(new Date());
+        detail.setStatus(TaskStatus.ERROR);
+        detail.setErrorMsg(errorMsg);
+        enqueue(new TaskResult(task, detail));
+    }
+
+    @Override
+    public boolean retry(Task task, TaskDetail detail, String errorMsg, Date retryTime) {
+        task.setStatus(TaskStatus.PENDING);
+        task.setNextStartTime(retryTime);
+        detail.setEndTime(new Date());
+        detail.setStatus(TaskStatus.ERROR);
+        detail.setErrorMsg(errorMsg);
+        enqueue(new TaskResult(task, detail));
+        return true;
+    }
+
+    /**
+     * Waits until the flusher has written the results of the given tasks, for at most ten seconds. A result that can
+     * not be written in time is logged and left to the flusher.
+     */
+    @Override
+    public void flush(Collection<Long> taskIds) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        synchronized (unwritten) {
+            while (!Collections.disjoint(unwritten.keySet(), taskIds)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    logger.warn("results of tasks {} were not written in time", taskIds);
+                    return;
+                }
+                unwritten.wait(remaining);
+            }
+        }
+    }
+
+    /**
+     * @return The number of results not written yet.
+     */
+    public int pending() {
+        return results.size();
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<TaskResult> rest = new ArrayList<>();
+        results.drainTo(rest);
+        try {
+            while (!rest.isEmpty()) {
+                List<TaskResult> batch = rest.subList(0, Math.min(batchSize, rest.size()));
+                write(batch);
+                batch.clear();
+            }
+        } catch (Exception e) {
+            // The tasks stay pending on this node and are recovered once its heartbeat stops
+            logger.error("write {} task results on shutdown failed,cause by:{}", rest.size(), e.getMessage());
+        }
+    }
+
+    private void flushLoop() {
+        List<TaskResult> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    collect(batch);
+                }
+                if (!batch.isEmpty()) {
+                    write(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                // Keep the batch and try again, the updates only apply to tasks still pending on this node
+                logger.error("write task results failed,cause by:{}", e.getMessage());
+                try {
+                    Thread.sleep(flushMillis);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+            }
+        }
+        // Left over results are written by shutdown
+        results.addAll(batch);
+    }
+
+    /**
+     * Waits for a first result, then collects more for up to flushMillis or until the batch is full.
+     */
+    private void collect(List<TaskResult> batch) throws InterruptedException {
+        TaskResult first = results.poll(flushMillis, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.currentTimeMillis() + flushMillis;
+        while (batch.size() < batchSize) {
+            results.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.currentTimeMillis();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            TaskResult next = results.poll(remaining, TimeUnit.MILLISECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void enqueue(TaskResult result) {
+        synchronized (unwritten) {
+            unwritten.merge(result.getTask().getId(), 1, Integer::sum);
+        }
+        results.add(result);
+    }
+
+    private void write(List<TaskResult> batch) {
+        int updated = taskRepository.saveResults(batch);
+        synchronized (unwritten) {
+            for (TaskResult result : batch) {
+                unwritten.computeIfPresent(result.getTask().getId(), (taskId, count) -> count == 1 ? null : count - 1);
+            }
+            unwritten.notifyAll();
+        }
+        List<TaskDetail> details = new ArrayList<>(batch.size());
+        for (TaskResult result : batch) {
+            details.add(result.getDetail());
+        }
+        historyWriter.end(details);
+        if (updated < batch.size()) {
+            logger.info("{} of {} task results were not applied, the tasks were stopped or recovered meanwhile",
+                    batch.size() - updated, batch.size());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.github.copilot.task.strategy;
+
+import com.github.copilot.task.entity.Node;
+import com.github.copilot.task.entity.Task;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Implements a strategy for task distribution based on a weighted consistent hash ring.
+ * Each node is placed on the ring as many virtual nodes as its weight allows, a task belongs to the first virtual
+ * node following the hash of its ID. When a node joins or leaves, only the tasks of the ring segments it takes
+ * or gives back change owner, about 1/n of them, instead of almost all tasks with a modulo.
+ * <p>
+ * The ring is only built when the membership changes, so deciding on a task is a binary search.
+ */
+public class ConsistentHashStrategy implements Strategy {
+
+    /**
+     * The number of virtual nodes per unit of weight.
+     */
+    static final int VIRTUAL_NODES = 100;
+
+    /**
+     * The ring of the last membership seen, replaced as a whole when the membership changes.
+     */
+    private volatile Ring ring = new Ring(null, new ArrayList<>(), new long[0], new String[0]);
+
+    /**
+     * Determines if the current node owns the given task on the hash ring.
+     *
+     * @param nodes The list of all nodes in the system.
+     * @param task The task to be distributed.
+     * @param myNodeId The ID of the current node.
+     * @return true if the current node should accept the task, false otherwise.
+     */
+    @Override
+    public boolean accept(List<Node> nodes, Task task, String myNodeId) {
+        String owner = owner(nodes, task);
+        return owner != null && owner.equals(myNodeId);
+    }
+
+    @Override
+    public String owner(List<Node> nodes, Task task) {
+        return ring(nodes).owner(mix(task.getId()));
+    }
+
+    /**
+     * Returns the ring of the given nodes. The Loader passes the same list for all tasks of a cycle, so the
+     * membership is only compared once per list and the ring only rebuilt when it really changed.
+     */
+    Ring ring(List<Node> nodes) {
+        Ring current = ring;
+        if (current.source == nodes) {
+            return current;
+        }
+        List<String> members = members(nodes);
+        Ring next = members.equals(current.members)
+                ? new Ring(nodes, current.members, current.hashes, current.owners)
+                : build(nodes, members);
+        ring = next;
+        return next;
+    }
+
+    /**
+     * @return The node IDs with their weights, sorted, so the same membership in another order is equal.
+     */
+    private static List<String> members(List<Node> nodes) {
+        List<String> members = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            members.add(node.getNodeId() + '#' + weight(node));
+        }
+        members.sort(Comparator.naturalOrder());
+        return members;
+    }
+
+    private static Ring build(List<Node> nodes, List<String> members) {
+        int size = 0;
+        for (Node node : nodes) {
+            size += weight(node) * VIRTUAL_NODES;
+        }
+        long[][] points = new long[size][];
+        String[] ids = new String[nodes.size()];
+        int p = 0;
+        for (int n = 0; n < nodes.size(); n++) {
+            Node node = nodes.get(n);
+            ids[n] = node.getNodeId();
+            int virtualNodes = weight(node) * VIRTUAL_NODES;
+            for (int v = 0; v < virtualNodes; v++) {
+                points[p++] = new long[]{hash(node.getNodeId() + '#' + v), n};
+            }
+        }
+        // Ties are broken by node ID so every node builds the same ring
+        Arrays.sort(points, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : ids[(int) a[1]].compareTo(ids[(int) b[1]]));
+        long[] hashes = new long[size];
+        String[] owners = new String[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = points[i][0];
+            owners[i] = ids[(int) points[i][1]];
+        }
+        return new Ring(nodes, members, hashes, owners);
+    }
+
+    private static int weight(Node node) {
+        return node.getWeight() == null ? 1 : Math.max(0, node.getWeight());
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes, then mixed. Stable across JVMs, unlike identity based hashes.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * The finalizer of MurmurHash3, spreads sequential task IDs over the whole ring.
+     */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    static final class Ring {
+
+        private final List<Node> source;
+
+        private final List<String> members;
+
+        private final long[] hashes;
+
+        private final String[] owners;
+
+        Ring(List<Node> source, List<String> members, long[] hashes, String[] owners) {
+            this.source = source;
+            this.members = members;
+            this.hashes = hashes;
+            this.owners = owners;
+        }
+
+        /**
+         * @return The owner of the first virtual node at or after the hash, wrapping around, null if the ring is empty.
+         */
+        String owner(long hash) {
+            if (hashes.length == 0) {
+                return null;
+            }
+            int i = Arrays.binarySearch(hashes, hash);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            return owners[i == hashes.length ? 0 : i];
+        }
+
+        int size() {
+            return hashes.length;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.copilot.task.strategy;
+
+import com.github.copilot.task.entity.Node;
+
+import java.util.List;
+
+/**
+ * Implements a strategy giving new tasks to the nodes expected to finish them soonest.
+ * A node's share is its weight divided by the time its current work takes, estimated as one plus the number of
+ * tasks it runs or has claimed, times its recent p95 execution time. A node slowed down by a noisy neighbour or
+ * slow dependencies therefore gets fewer tasks even when it holds as many as the others.
+ * Nodes that did not report an execution time yet are assumed to be as fast as the average node.
+ */
+public class LatencyAwareStrategy extends LoadAwareStrategy {
+
+    @Override
+    protected double share(Node node, List<Node> nodes) {
+        Long p95 = node.getP95Millis();
+        double millis = p95 != null ? p95 : averageP95(nodes);
+        return 1.0 / ((1 + load(node)) * Math.max(1.0, millis));
+    }
+
+    private static double averageP95(List<Node> nodes) {
+        long sum = 0;
+        int count = 0;
+        for (Node node : nodes) {
+            if (node.getP95Millis() != null) {
+                sum += node.getP95Millis();
+                count++;
+            }
+        }
+        return count == 0 ? 1.0 : (double) sum / count;
+    }
+}
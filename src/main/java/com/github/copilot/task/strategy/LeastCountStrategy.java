@@ -0,0 +1,18 @@
+package com.github.copilot.task.strategy;
+
+import com.github.copilot.task.entity.Node;
+
+import java.util.List;
+
+/**
+ * Implements a strategy giving new tasks to the nodes running and holding the fewest tasks.
+ * A node's share is its weight divided by one plus the number of tasks it runs or has claimed, so an idle node
+ * gets several times the tasks of a busy one and a saturated node gets none.
+ */
+public class LeastCountStrategy extends LoadAwareStrategy {
+
+    @Override
+    protected double share(Node node, List<Node> nodes) {
+        return 1.0 / (1 + load(node));
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.copilot.task.strategy;
+
+import com.github.copilot.task.entity.Node;
+import com.github.copilot.task.entity.Task;
+
+import java.util.List;
+
+/**
+ * Base of the strategies placing tasks by the load the nodes report with their heartbeat.
+ * <p>
+ * Every node reads the same heartbeat rows, turns the load of each node into a share and places a task with
+ * weighted rendezvous hashing: the task goes to the node with the highest {@code share / -ln(hash(task, node))}.
+ * So all nodes agree on the owner of a task without talking to each other, a node gets tasks in proportion to its
+ * share, and a change of load only moves the tasks needed to follow it.
+ * <p>
+ * Nodes reporting they run as many tasks as they can get no new task at all, nor do nodes the failure detector
+ * suspects, unless every node is saturated or suspect.
+ */
+public abstract class LoadAwareStrategy implements Strategy {
+
+    /**
+     * The shares of the last node list seen, the Loader passes the same list for all tasks of a cycle.
+     */
+    private volatile Shares shares = new Shares(null, new long[0], new double[0], new String[0]);
+
+    @Override
+    public boolean accept(List<Node> nodes, Task task, String myNodeId) {
+        String owner = owner(nodes, task);
+        return owner != null && owner.equals(myNodeId);
+    }
+
+    @Override
+    public String owner(List<Node> nodes, Task task) {
+        Shares current = shares(nodes);
+        long taskHash = ConsistentHashStrategy.mix(task.getId());
+        String owner = null;
+        double best = 0;
+        for (int i = 0; i < current.ids.length; i++) {
+            double share = current.shares[i];
+            if (share <= 0) {
+                continue;
+            }
+            long h = ConsistentHashStrategy.mix(taskHash ^ current.hashes[i]);
+            // A uniform value in (0, 1)
+            double u = ((h >>> 11) + 0.5) / (1L << 53);
+            double score = share / -Math.log(u);
+            if (owner == null || score > best) {
+                owner = current.ids[i];
+                best = score;
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * Computes how much of the work a node should get from its reported load, relative to the other nodes.
+     *
+     * @param node  The node with its reported load.
+     * @param nodes All nodes, for strategies comparing a node to the others.
+     * @return The share, zero or less means no task.
+     */
+    protected abstract double share(Node node, List<Node> nodes);
+
+    private Shares shares(List<Node> nodes) {
+        Shares current = shares;
+        if (current.source == nodes) {
+            return current;
+        }
+        int size = nodes.size();
+        long[] hashes = new long[size];
+        double[] values = new double[size];
+        String[] ids = new String[size];
+        boolean allAvoided = true;
+        for (int i = 0; i < size; i++) {
+            allAvoided &= avoided(nodes.get(i));
+        }
+        for (int i = 0; i < size; i++) {
+            Node node = nodes.get(i);
+            ids[i] = node.getNodeId();
+            hashes[i] = ConsistentHashStrategy.hash(node.getNodeId());
+            values[i] = !allAvoided && avoided(node) ? 0 : weight(node) * share(node, nodes);
+        }
+        Shares next = new Shares(nodes, hashes, values, ids);
+        shares = next;
+        return next;
+    }
+
+    /**
+     * @return The number of tasks a node runs or has claimed, zero when it did not report any.
+     */
+    protected static int load(Node node) {
+        int active = node.getActiveCount() == null ? 0 : node.getActiveCount();
+        int queued = node.getQueueDepth() == null ? 0 : node.getQueueDepth();
+        return Math.max(0, active) + Math.max(0, queued);
+    }
+
+    private static boolean avoided(Node node) {
+        return node.isSuspect() || saturated(node);
+    }
+
+    private static boolean saturated(Node node) {
+        return node.getCapacity() != null && node.getCapacity() > 0
+                && node.getActiveCount() != null && node.getActiveCount() >= node.getCapacity();
+    }
+
+    private static int weight(Node node) {
+        return node.getWeight() == null ? 1 : Math.max(0, node.getWeight());
+    }
+
+    private static final class Shares {
+
+        private final List<Node> source;
+
+        private final long[] hashes;
+
+        private final double[] shares;
+
+        private final String[] ids;
+
+        Shares(List<Node> source, long[] hashes, double[] shares, String[] ids) {
+            this.source = source;
+            this.hashes = hashes;
+            this.shares = shares;
+            this.ids = ids;
+        }
+    }
+}
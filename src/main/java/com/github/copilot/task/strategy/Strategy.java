@@ -14,10 +14,25 @@ public interface Strategy {
     String WEIGHT = "weight";
 
 
+    String CONSISTENT_HASH = "consistent_hash";
+
+
+    String LEAST_COUNT = "least_count";
+
+
+    String LATENCY_AWARE = "latency_aware";
+
+
     static Strategy choose(String key) {
         switch (key) {
             case WEIGHT:
                 return new WeightStrategy();
+            case CONSISTENT_HASH:
+                return new ConsistentHashStrategy();
+            case LEAST_COUNT:
+                return new LeastCountStrategy();
+            case LATENCY_AWARE:
+                return new LatencyAwareStrategy();
             default:
                 return new DefaultStrategy();
         }
@@ -25,4 +40,28 @@ public interface Strategy {
 
     boolean accept(List<Node> nodes, Task task, String myNodeId);
 
+    /**
+     * Chooses the node a task goes to, used by the leader to assign tasks. Starting from a node picked by the task
+     * ID, the first node accepting the task is chosen, so strategies accepting a task on several nodes spread the
+     * tasks evenly.
+     *
+     * @param nodes The list of all nodes in the system.
+     * @param task  The task to be distributed.
+     * @return The ID of the chosen node, null if no node accepts the task.
+     */
+    default String owner(List<Node> nodes, Task task) {
+        int size = nodes.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = (int) Math.floorMod(task.getId(), (long) size);
+        for (int i = 0; i < size; i++) {
+            Node node = nodes.get((start + i) % size);
+            if (accept(nodes, task, node.getNodeId())) {
+                return node.getNodeId();
+            }
+        }
+        return null;
+    }
+
 }
@@ -0,0 +1,64 @@
+package com.github.copilot.task.trigger;
+
+import com.github.copilot.task.scheduler.DelayItem;
+
+import java.util.concurrent.DelayQueue;
+
+/**
+ * Trigger engine backed by a single {@link DelayQueue}.
+ * Every schedule and take costs O(log n) under the queue lock and cancelling costs O(n),
+ * it is kept for comparison and for deployments that want the previous behaviour.
+ *
+ * @param <T> The type of the item being triggered.
+ */
+public class DelayQueueTriggerEngine<T> implements TriggerEngine<T> {
+
+    private final DelayQueue<DelayItem<T>> queue = new DelayQueue<>();
+
+    @Override
+    public TriggerHandle schedule(T item, long delayMillis) {
+        DelayItem<T> delayItem = new DelayItem<>(delayMillis, item);
+        queue.offer(delayItem);
+        return new Handle(delayItem);
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        return queue.take().getItem();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void shutdown() {
+        queue.clear();
+    }
+
+    private class Handle implements TriggerHandle {
+
+        private final DelayItem<T> delayItem;
+
+        private volatile boolean cancelled;
+
+        Handle(DelayItem<T> delayItem) {
+            this.delayItem = delayItem;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (cancelled || !queue.remove(delayItem)) {
+                return false;
+            }
+            cancelled = true;
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.github.copilot.task.trigger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Trigger engine backed by a hierarchical hashed timing wheel.
+ * <p>
+ * The wheel has {@value #LEVELS} levels of {@code wheelSize} buckets each. A bucket on level 0 covers one tick,
+ * a bucket on level n covers {@code wheelSize^n} ticks. Items are kept in doubly linked bucket lists, so scheduling
+ * and cancelling are O(1). A single worker thread advances the wheel once per tick, moves the items of a higher
+ * level bucket down when the wheel reaches it and hands out the items of the current level 0 bucket.
+ * <p>
+ * Callers never touch the buckets: new and cancelled items are passed to the worker through lock free queues,
+ * so the Loader and Boss threads do not contend on a shared lock.
+ *
+ * @param <T> The type of the item being triggered.
+ */
+public class HashedWheelTriggerEngine<T> implements TriggerEngine<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedWheelTriggerEngine.class);
+
+    private static final int LEVELS = 4;
+
+    private static final int MIN_WHEEL_SIZE = 16;
+
+    private static final int MAX_WHEEL_SIZE = 4096;
+
+    private final long tickNanos;
+
+    private final int bits;
+
+    private final int mask;
+
+    private final Bucket<T>[][] wheels;
+
+    /**
+     * Items scheduled by callers and not placed into a bucket yet.
+     */
+    private final Queue<Entry<T>> incoming = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Items cancelled by callers that still have to be unlinked from their bucket.
+     */
+    private final Queue<Entry<T>> cancelled = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Items that are due and waiting to be taken.
+     */
+    private final BlockingQueue<T> ready = new LinkedBlockingQueue<>();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Thread worker;
+
+    private final AtomicInteger workerState = new AtomicInteger(WORKER_INIT);
+
+    private static final int WORKER_INIT = 0;
+
+    private static final int WORKER_STARTED = 1;
+
+    private static final int WORKER_SHUTDOWN = 2;
+
+    private final CountDownLatch startLatch = new CountDownLatch(1);
+
+    private volatile long startNanos;
+
+    /**
+     * Only read and written by the worker thread.
+     */
+    private long currentTick;
+
+    /**
+     * Constructs a new timing wheel.
+     *
+     * @param tickMs    The tick duration in milliseconds, this is the resolution of the triggers.
+     * @param wheelSize The number of buckets per level, rounded up to a power of two.
+     */
+    @SuppressWarnings("unchecked")
+    public HashedWheelTriggerEngine(long tickMs, int wheelSize) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tickMs must be greater than 0: " + tickMs);
+        }
+        int size = Integer.highestOneBit(Math.max(MIN_WHEEL_SIZE, Math.min(MAX_WHEEL_SIZE, wheelSize)) * 2 - 1);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.bits = Integer.numberOfTrailingZeros(size);
+        this.mask = size - 1;
+        this.wheels = new Bucket[LEVELS][size];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < size; i++) {
+                wheels[level][i] = new Bucket<>();
+            }
+        }
+        this.worker = new Thread(new Worker(), "easyjob-trigger-wheel");
+        this.worker.setDaemon(true);
+    }
+
+    @Override
+    public TriggerHandle schedule(T item, long delayMillis) {
+        start();
+        Entry<T> entry = new Entry<>(item);
+        if (delayMillis <= 0) {
+            // Due already, there is no point in going through the wheel
+            entry.state = Entry.ST_EXPIRED;
+            ready.offer(item);
+            return entry;
+        }
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis) - startNanos;
+        entry.deadlineTick = (deadlineNanos + tickNanos - 1) / tickNanos;
+        entry.engine = this;
+        pending.incrementAndGet();
+        incoming.offer(entry);
+        return entry;
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        return ready.take();
+    }
+
+    @Override
+    public int size() {
+        return pending.get() + ready.size();
+    }
+
+    @Override
+    public void shutdown() {
+        if (workerState.getAndSet(WORKER_SHUTDOWN) == WORKER_STARTED) {
+            worker.interrupt();
+        }
+        incoming.clear();
+        cancelled.clear();
+        ready.clear();
+    }
+
+    private void start() {
+        if (workerState.get() == WORKER_INIT && workerState.compareAndSet(WORKER_INIT, WORKER_STARTED)) {
+            startNanos = System.nanoTime();
+            startLatch.countDown();
+            worker.start();
+        }
+        if (workerState.get() == WORKER_SHUTDOWN) {
+            throw new IllegalStateException("Trigger engine has been shut down");
+        }
+        // Another thread may have won the race to start the worker, wait until the start time is visible
+        boolean interrupted = false;
+        while (startLatch.getCount() > 0) {
+            try {
+                startLatch.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs one tick of the wheel, called by the worker thread only.
+     */
+    private void tick() {
+        currentTick++;
+        // Higher levels first, the items moved down may land in a lower level that is due in this tick as well
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = bits * level;
+            if ((currentTick & ((1L << shift) - 1)) == 0) {
+                cascade(wheels[level][(int) ((currentTick >>> shift) & mask)]);
+            }
+        }
+        transferIncoming();
+        removeCancelled();
+        cascade(wheels[0][(int) (currentTick & mask)]);
+    }
+
+    private void cascade(Bucket<T> bucket) {
+        Entry<T> entry = bucket.detachAll();
+        while (entry != null) {
+            Entry<T> next = entry.next;
+            entry.next = null;
+            entry.prev = null;
+            entry.bucket = null;
+            place(entry);
+            entry = next;
+        }
+    }
+
+    private void transferIncoming() {
+        Entry<T> entry;
+        while ((entry = incoming.poll()) != null) {
+            place(entry);
+        }
+    }
+
+    private void removeCancelled() {
+        Entry<T> entry;
+        while ((entry = cancelled.poll()) != null) {
+            if (entry.bucket != null) {
+                entry.bucket.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Puts an entry into the bucket matching its distance to the current tick, or hands it out if it is due.
+     */
+    private void place(Entry<T> entry) {
+        if (entry.state != Entry.ST_PENDING) {
+            return;
+        }
+        long remaining = entry.deadlineTick - currentTick;
+        if (remaining <= 0) {
+            if (entry.expire()) {
+                pending.decrementAndGet();
+                ready.offer(entry.item);
+            }
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = bits * level;
+            if (remaining < (1L << (shift + bits))) {
+                wheels[level][(int) ((entry.deadlineTick >>> shift) & mask)].add(entry);
+                return;
+            }
+        }
+        // Beyond the range of the wheel, park it in the last bucket of the top level and place it again from there
+        long parkedTick = currentTick + (1L << (bits * LEVELS)) - 1;
+        wheels[LEVELS - 1][(int) ((parkedTick >>> (bits * (LEVELS - 1))) & mask)].add(entry);
+    }
+
+    class Worker implements Runnable {
+        @Override
+        public void run() {
+            while (workerState.get() == WORKER_STARTED) {
+                try {
+                    long sleepNanos = startNanos + (currentTick + 1) * tickNanos - System.nanoTime();
+                    if (sleepNanos > 0) {
+                        LockSupport.parkNanos(HashedWheelTriggerEngine.this, sleepNanos);
+                        // Shutdown interrupts the worker, the loop condition takes care of leaving
+                        Thread.interrupted();
+                        continue;
+                    }
+                    tick();
+                } catch (Exception e) {
+                    logger.error("trigger wheel tick failed,cause by:{}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private static final class Bucket<T> {
+
+        private Entry<T> head;
+
+        private Entry<T> tail;
+
+        void add(Entry<T> entry) {
+            entry.bucket = this;
+            if (head == null) {
+                head = tail = entry;
+            } else {
+                tail.next = entry;
+                entry.prev = tail;
+                tail = entry;
+            }
+        }
+
+        void remove(Entry<T> entry) {
+            Entry<T> next = entry.next;
+            if (entry.prev != null) {
+                entry.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = entry.prev;
+            }
+            if (entry == head) {
+                head = next;
+            }
+            if (entry == tail) {
+                tail = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+            entry.bucket = null;
+        }
+
+        Entry<T> detachAll() {
+            Entry<T> entry = head;
+            head = tail = null;
+            return entry;
+        }
+    }
+
+    private static final class Entry<T> implements TriggerHandle {
+
+        static final int ST_PENDING = 0;
+
+        static final int ST_CANCELLED = 1;
+
+        static final int ST_EXPIRED = 2;
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Entry> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Entry.class, "state");
+
+        private final T item;
+
+        private volatile int state = ST_PENDING;
+
+        private HashedWheelTriggerEngine<T> engine;
+
+        private long deadlineTick;
+
+        // The fields below are only touched by the worker thread
+        private Entry<T> next;
+
+        private Entry<T> prev;
+
+        private Bucket<T> bucket;
+
+        Entry(T item) {
+            this.item = item;
+        }
+
+        boolean expire() {
+            return STATE_UPDATER.compareAndSet(this, ST_PENDING, ST_EXPIRED);
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_PENDING, ST_CANCELLED)) {
+                return false;
+            }
+            engine.pending.decrementAndGet();
+            engine.cancelled.offer(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+    }
+}
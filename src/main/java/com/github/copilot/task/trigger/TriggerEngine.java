@@ -0,0 +1,61 @@
+package com.github.copilot.task.trigger;
+
+/**
+ * Holds items until their trigger time and hands them out once they are due.
+ * The scheduler's Loader thread schedules claimed tasks here and the Boss thread takes them when they fire.
+ *
+ * @param <T> The type of the item being triggered.
+ */
+public interface TriggerEngine<T> {
+
+    String WHEEL = "wheel";
+
+
+    String DELAY_QUEUE = "delayqueue";
+
+
+    /**
+     * Chooses the trigger engine by its configuration key, the hashed timing wheel is used by default.
+     *
+     * @param key       The configured engine key.
+     * @param tickMs    The tick duration of the timing wheel, in milliseconds.
+     * @param wheelSize The number of buckets per level of the timing wheel.
+     * @param <T>       The type of the item being triggered.
+     * @return The trigger engine.
+     */
+    static <T> TriggerEngine<T> choose(String key, long tickMs, int wheelSize) {
+        switch (key) {
+            case DELAY_QUEUE:
+                return new DelayQueueTriggerEngine<>();
+            default:
+                return new HashedWheelTriggerEngine<>(tickMs, wheelSize);
+        }
+    }
+
+    /**
+     * Schedules an item to become available after the given delay.
+     *
+     * @param item        The item to trigger.
+     * @param delayMillis The delay in milliseconds, zero or negative values make the item available immediately.
+     * @return A handle that can be used to cancel the trigger.
+     */
+    TriggerHandle schedule(T item, long delayMillis);
+
+    /**
+     * Retrieves and removes the next due item, waiting if necessary until one becomes due.
+     *
+     * @return The due item.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    T take() throws InterruptedException;
+
+    /**
+     * @return The number of items that are scheduled or due but not taken yet.
+     */
+    int size();
+
+    /**
+     * Stops the engine and releases its resources. Pending items are discarded.
+     */
+    void shutdown();
+}
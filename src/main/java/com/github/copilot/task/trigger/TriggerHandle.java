@@ -0,0 +1,20 @@
+package com.github.copilot.task.trigger;
+
+/**
+ * Handle returned by {@link TriggerEngine#schedule(Object, long)} for a single pending trigger.
+ * It allows the trigger to be cancelled before it fires.
+ */
+public interface TriggerHandle {
+
+    /**
+     * Cancels the trigger if it has not fired yet.
+     *
+     * @return true if the trigger was cancelled by this call, false if it already fired or was cancelled before.
+     */
+    boolean cancel();
+
+    /**
+     * @return true if the trigger has been cancelled.
+     */
+    boolean isCancelled();
+}
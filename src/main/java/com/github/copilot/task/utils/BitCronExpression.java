@@ -0,0 +1,743 @@
+package com.github.copilot.task.utils;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cron expression engine working on bitmasks and primitive date arithmetic.
+ * <p>
+ * Expressions are parsed by {@link CronExpression}, so the syntax and the meaning of L, W, # and ? are exactly the
+ * same. The parsed fields are then turned into {@code long} bitmasks and the fire time search of
+ * {@link CronExpression#getNextValidTimeAfter(Date)} is replayed step by step: {@code TreeSet.tailSet} lookups
+ * become bit scans, and the lenient {@link java.util.Calendar} is replaced by plain {@code int} fields that are
+ * normalized with epoch-day arithmetic. Time zone offsets come from a per zone table of {@link ZoneRules}
+ * transitions, resolving skipped and repeated local times the same way {@code GregorianCalendar} does.
+ * Computing a fire time does not allocate, apart from zone lookups before 1900 or after 2200.
+ * <p>
+ * Unlike {@link CronExpression}, which compares some day-of-month candidates with the milliseconds of the wall
+ * clock, fire times are always computed on whole seconds. Results only differ from {@link CronExpression} for
+ * those candidates and only when the given instant has a millisecond part.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class BitCronExpression {
+
+    private static final int MAX_YEAR = 2999;
+
+    private static final int LAST_SPEC_YEAR = 2099;
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private static final ThreadLocal<Cursor> CURSORS = ThreadLocal.withInitial(Cursor::new);
+
+    private static final Map<ZoneId, ZoneTable> ZONE_TABLES = new ConcurrentHashMap<>();
+
+    private final String cronExpression;
+
+    private final TimeZone timeZone;
+
+    private final ZoneTable zone;
+
+    private final long seconds;
+
+    private final long minutes;
+
+    private final long hours;
+
+    private final long daysOfMonth;
+
+    private final long months;
+
+    private final long daysOfWeek;
+
+    /**
+     * Years 0 to 4095, one bit each. Later years behave the same as 4095 as nothing fires after 2999.
+     */
+    private final long[] years = new long[64];
+
+    private final boolean dayOfMonthSpec;
+
+    private final boolean dayOfWeekSpec;
+
+    private final boolean lastdayOfWeek;
+
+    private final int nthdayOfWeek;
+
+    private final boolean lastdayOfMonth;
+
+    private final boolean nearestWeekday;
+
+    /**
+     * Parses the expression in the default time zone.
+     *
+     * @param cronExpression The cron expression.
+     * @throws ParseException if the expression is invalid.
+     */
+    public BitCronExpression(String cronExpression) throws ParseException {
+        this(new CronExpression(cronExpression));
+    }
+
+    /**
+     * Parses the expression in the given time zone.
+     *
+     * @param cronExpression The cron expression.
+     * @param timeZone       The time zone the expression is evaluated in.
+     * @throws ParseException if the expression is invalid.
+     */
+    public BitCronExpression(String cronExpression, TimeZone timeZone) throws ParseException {
+        this(withTimeZone(new CronExpression(cronExpression), timeZone));
+    }
+
+    /**
+     * Compiles an expression that is already parsed, in its time zone.
+     *
+     * @param parsed The parsed expression.
+     */
+    public BitCronExpression(CronExpression parsed) {
+        this.cronExpression = parsed.getCronExpression();
+        this.timeZone = (TimeZone) parsed.getTimeZone().clone();
+        this.zone = ZONE_TABLES.computeIfAbsent(timeZone.toZoneId(), ZoneTable::new);
+        this.seconds = mask(parsed.seconds);
+        this.minutes = mask(parsed.minutes);
+        this.hours = mask(parsed.hours);
+        this.daysOfMonth = mask(parsed.daysOfMonth);
+        this.months = mask(parsed.months);
+        this.daysOfWeek = mask(parsed.daysOfWeek);
+        for (Iterator<?> it = parsed.years.iterator(); it.hasNext(); ) {
+            int year = Math.min((Integer) it.next(), years.length * 64 - 1);
+            years[year >>> 6] |= 1L << year;
+        }
+        this.dayOfMonthSpec = !parsed.daysOfMonth.contains(CronExpression.NO_SPEC);
+        this.dayOfWeekSpec = !parsed.daysOfWeek.contains(CronExpression.NO_SPEC);
+        this.lastdayOfWeek = parsed.lastdayOfWeek;
+        this.nthdayOfWeek = parsed.nthdayOfWeek;
+        this.lastdayOfMonth = parsed.lastdayOfMonth;
+        this.nearestWeekday = parsed.nearestWeekday;
+    }
+
+    private static CronExpression withTimeZone(CronExpression parsed, TimeZone timeZone) {
+        parsed.setTimeZone(timeZone);
+        return parsed;
+    }
+
+    /**
+     * ALL_SPEC and NO_SPEC are kept as flags, a field with ALL_SPEC holds every value anyway.
+     */
+    private static long mask(TreeSet<?> set) {
+        long mask = 0;
+        for (Object value : set) {
+            int v = (Integer) value;
+            if (v < 64) {
+                mask |= 1L << v;
+            }
+        }
+        return mask;
+    }
+
+    public String getCronExpression() {
+        return cronExpression;
+    }
+
+    public TimeZone getTimeZone() {
+        return (TimeZone) timeZone.clone();
+    }
+
+    @Override
+    public String toString() {
+        return cronExpression;
+    }
+
+    /**
+     * Same as {@link CronExpression#getNextValidTimeAfter(Date)}.
+     *
+     * @param date The time after which to look for the next fire time.
+     * @return The next fire time, or null if the expression never fires again.
+     */
+    public Date getNextValidTimeAfter(Date date) {
+        long next = nextFireTime(date.getTime());
+        return next < 0 ? null : new Date(next);
+    }
+
+    /**
+     * Finds the first fire time after the given instant.
+     *
+     * @param afterMillis The instant in epoch milliseconds.
+     * @return The next fire time in epoch milliseconds, or -1 if the expression never fires again.
+     */
+    public long nextFireTime(long afterMillis) {
+        Cursor cl = CURSORS.get();
+        long afterTime = Math.floorDiv(afterMillis + 1000L, 1000L);
+        cl.setTime(afterTime, zone);
+        boolean gotOne = false;
+        while (!gotOne) {
+            cl.complete(zone);
+            if (cl.year > MAX_YEAR) {
+                return -1;
+            }
+            int sec = cl.second;
+            int min = cl.minute;
+            int next = nextBit(seconds, sec);
+            if (next >= 0) {
+                sec = next;
+            } else {
+                sec = firstBit(seconds);
+                min++;
+                cl.setMinute(min);
+            }
+            cl.setSecond(sec);
+            cl.complete(zone);
+            min = cl.minute;
+            int hr = cl.hour;
+            int previous = -1;
+            next = nextBit(minutes, min);
+            if (next >= 0) {
+                previous = min;
+                min = next;
+            } else {
+                min = firstBit(minutes);
+                hr++;
+            }
+            if (min != previous) {
+                cl.setSecond(0);
+                cl.setMinute(min);
+                setCalendarHour(cl, hr);
+                continue;
+            }
+            cl.setMinute(min);
+            cl.complete(zone);
+            hr = cl.hour;
+            int day = cl.day;
+            previous = -1;
+            next = nextBit(hours, hr);
+            if (next >= 0) {
+                previous = hr;
+                hr = next;
+            } else {
+                hr = firstBit(hours);
+                day++;
+            }
+            if (hr != previous) {
+                cl.setSecond(0);
+                cl.setMinute(0);
+                cl.setDay(day);
+                setCalendarHour(cl, hr);
+                continue;
+            }
+            cl.setHour(hr);
+            cl.complete(zone);
+            day = cl.day;
+            int mon = cl.month;
+            int tmon = mon;
+            previous = -1;
+            if (dayOfMonthSpec && !dayOfWeekSpec) {
+                next = nextBit(daysOfMonth, day);
+                if (lastdayOfMonth) {
+                    previous = day;
+                    day = lastDayOfMonth(mon, cl.year);
+                    if (nearestWeekday) {
+                        day = nearestWeekday(cl.year, mon, day);
+                        if (toEpochSecond(cl.year, mon, day, hr, min, sec) < afterTime) {
+                            day = 1;
+                            mon++;
+                        }
+                    }
+                } else if (nearestWeekday) {
+                    previous = day;
+                    day = nearestWeekday(cl.year, mon, firstBit(daysOfMonth));
+                    if (toEpochSecond(cl.year, mon, day, hr, min, sec) < afterTime) {
+                        day = firstBit(daysOfMonth);
+                        mon++;
+                    }
+                } else if (next >= 0) {
+                    previous = day;
+                    day = next;
+                    if (day > lastDayOfMonth(mon, cl.year)) {
+                        day = firstBit(daysOfMonth);
+                        mon++;
+                    }
+                } else {
+                    day = firstBit(daysOfMonth);
+                    mon++;
+                }
+                if (day != previous || mon != tmon) {
+                    cl.startOfDay(day, mon);
+                    continue;
+                }
+            } else {
+                if (!dayOfWeekSpec || dayOfMonthSpec) {
+                    throw new UnsupportedOperationException("Support for specifying both a day-of-week AND a day-of-month parameter is not implemented.");
+                }
+                if (lastdayOfWeek) {
+                    int daysToAdd = daysUntil(cl.dayOfWeek, firstBit(daysOfWeek));
+                    int lastDay = lastDayOfMonth(mon, cl.year);
+                    if (day + daysToAdd > lastDay) {
+                        cl.startOfDay(1, mon + 1);
+                        continue;
+                    }
+                    while (day + daysToAdd + 7 <= lastDay) {
+                        daysToAdd += 7;
+                    }
+                    day += daysToAdd;
+                    if (daysToAdd > 0) {
+                        cl.startOfDay(day, mon);
+                        continue;
+                    }
+                } else if (nthdayOfWeek != 0) {
+                    int daysToAdd = daysUntil(cl.dayOfWeek, firstBit(daysOfWeek));
+                    boolean dayShifted = daysToAdd > 0;
+                    day += daysToAdd;
+                    int weekOfMonth = day / 7;
+                    if (day % 7 > 0) {
+                        weekOfMonth++;
+                    }
+                    daysToAdd = (nthdayOfWeek - weekOfMonth) * 7;
+                    day += daysToAdd;
+                    if (daysToAdd < 0 || day > lastDayOfMonth(mon, cl.year)) {
+                        cl.startOfDay(1, mon + 1);
+                        continue;
+                    }
+                    if (daysToAdd > 0 || dayShifted) {
+                        cl.startOfDay(day, mon);
+                        continue;
+                    }
+                } else {
+                    int dow = nextBit(daysOfWeek, cl.dayOfWeek);
+                    int daysToAdd = daysUntil(cl.dayOfWeek, dow >= 0 ? dow : firstBit(daysOfWeek));
+                    if (day + daysToAdd > lastDayOfMonth(mon, cl.year)) {
+                        cl.startOfDay(1, mon + 1);
+                        continue;
+                    }
+                    if (daysToAdd > 0) {
+                        cl.startOfDay(day + daysToAdd, mon);
+                        continue;
+                    }
+                }
+            }
+            cl.setDay(day);
+            cl.complete(zone);
+            mon = cl.month;
+            int year = cl.year;
+            previous = -1;
+            if (year > LAST_SPEC_YEAR) {
+                return -1;
+            }
+            next = nextBit(months, mon);
+            if (next >= 0) {
+                previous = mon;
+                mon = next;
+            } else {
+                mon = firstBit(months);
+                year++;
+            }
+            if (mon != previous) {
+                cl.startOfDay(1, mon);
+                cl.setYear(year);
+                continue;
+            }
+            cl.setMonth(mon);
+            cl.complete(zone);
+            year = cl.year;
+            next = nextYear(year);
+            if (next < 0) {
+                return -1;
+            }
+            if (next != year) {
+                cl.startOfDay(1, 1);
+                cl.setYear(next);
+            } else {
+                cl.setYear(year);
+                gotOne = true;
+            }
+        }
+        cl.complete(zone);
+        return cl.epochSecond * 1000L;
+    }
+
+    /**
+     * Finds the last fire time before the given instant, the reverse of {@link #nextFireTime(long)}. The search goes
+     * back in growing windows until it finds a fire time, and gives up before 1900.
+     *
+     * @param beforeMillis The instant in epoch milliseconds.
+     * @return The previous fire time in epoch milliseconds, or -1 if there is none.
+     */
+    public long previousFireTime(long beforeMillis) {
+        long window = 1000L;
+        long from = beforeMillis;
+        while (from > ZoneTable.TABLE_START * 1000L) {
+            from = beforeMillis - window;
+            long fire = nextFireTime(from - 1000L);
+            if (fire >= 0 && fire < beforeMillis) {
+                long next;
+                while ((next = nextFireTime(fire)) >= 0 && next < beforeMillis) {
+                    fire = next;
+                }
+                return fire;
+            }
+            window <<= 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Same as {@link CronExpression#isSatisfiedBy(Date)}, the milliseconds of the instant are ignored.
+     *
+     * @param millis The instant in epoch milliseconds.
+     * @return true if the expression fires at that second.
+     */
+    public boolean isSatisfiedBy(long millis) {
+        long second = Math.floorDiv(millis, 1000L) * 1000L;
+        return nextFireTime(second - 1000L) == second;
+    }
+
+    private void setCalendarHour(Cursor cl, int hour) {
+        cl.setHour(hour);
+        cl.complete(zone);
+        if (cl.hour != hour && hour != 24) {
+            cl.setHour(hour + 1);
+        }
+    }
+
+    /**
+     * Moves a W day off the weekend the way {@link CronExpression} does, without leaving the month when possible.
+     */
+    private static int nearestWeekday(int year, int month, int day) {
+        int dow = dayOfWeek(daysFromCivil(year, month, 1) + day - 1);
+        if (dow == 7 && day == 1) {
+            return day + 2;
+        } else if (dow == 7) {
+            return day - 1;
+        } else if (dow == 1 && day == lastDayOfMonth(month, year)) {
+            return day - 2;
+        } else if (dow == 1) {
+            return day + 1;
+        }
+        return day;
+    }
+
+    private long toEpochSecond(int year, int month, int day, int hour, int minute, int second) {
+        return zone.toEpochSecond(localSecond(year, month, day, hour, minute, second));
+    }
+
+    private int nextYear(int year) {
+        int from = Math.max(year, 0);
+        for (int word = from >>> 6; word < years.length; word++) {
+            long bits = years[word];
+            if (word == from >>> 6) {
+                bits &= -1L << from;
+            }
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    private static int nextBit(long mask, int from) {
+        if (from >= 64) {
+            return -1;
+        }
+        long bits = mask & (-1L << Math.max(from, 0));
+        return bits == 0 ? -1 : Long.numberOfTrailingZeros(bits);
+    }
+
+    private static int firstBit(long mask) {
+        return Long.numberOfTrailingZeros(mask);
+    }
+
+    private static int daysUntil(int fromDayOfWeek, int toDayOfWeek) {
+        if (fromDayOfWeek < toDayOfWeek) {
+            return toDayOfWeek - fromDayOfWeek;
+        }
+        if (fromDayOfWeek > toDayOfWeek) {
+            return toDayOfWeek + (7 - fromDayOfWeek);
+        }
+        return 0;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return year % 4 == 0 && year % 100 != 0 || year % 400 == 0;
+    }
+
+    private static int lastDayOfMonth(int month, int year) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            case 1:
+            case 3:
+            case 5:
+            case 7:
+            case 8:
+            case 10:
+            case 12:
+                return 31;
+            default:
+                throw new IllegalArgumentException("Illegal month number: " + month);
+        }
+    }
+
+    /**
+     * Local seconds since the epoch, out of range fields roll over like a lenient calendar.
+     */
+    private static long localSecond(int year, int month, int day, int hour, int minute, int second) {
+        int y = year + Math.floorDiv(month - 1, 12);
+        int m = Math.floorMod(month - 1, 12) + 1;
+        long epochDay = daysFromCivil(y, m, 1) + day - 1;
+        return epochDay * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+    }
+
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * @return 1 for Sunday to 7 for Saturday, like {@link java.util.Calendar#DAY_OF_WEEK}.
+     */
+    private static int dayOfWeek(long epochDay) {
+        return (int) Math.floorMod(epochDay + 4, 7L) + 1;
+    }
+
+    /**
+     * The calendar fields being worked on. Setting a field only marks the cursor dirty, the fields are normalized
+     * and turned into an instant on the next {@link #complete(ZoneTable)}, like {@link java.util.Calendar} does.
+     * One cursor per thread is reused, so no object is allocated per search.
+     */
+    private static final class Cursor {
+
+        long epochSecond;
+
+        /**
+         * The local time of epochSecond, in seconds since the local epoch.
+         */
+        long localSecond;
+
+        /**
+         * A field was set and the instant has to be computed again.
+         */
+        boolean dirty;
+
+        /**
+         * A field was set to a different value. Setting a field to its current value still resolves the local time
+         * again, which only moves the instant within a repeated hour, like {@link java.util.Calendar}.
+         */
+        boolean changed;
+
+        int year;
+
+        int month;
+
+        int day;
+
+        int hour;
+
+        int minute;
+
+        int second;
+
+        int dayOfWeek;
+
+        void setTime(long epochSecond, ZoneTable zone) {
+            this.epochSecond = epochSecond;
+            computeFields(zone);
+        }
+
+        void complete(ZoneTable zone) {
+            if (!dirty) {
+                return;
+            }
+            if (changed) {
+                epochSecond = zone.toEpochSecond(BitCronExpression.localSecond(year, month, day, hour, minute, second));
+                computeFields(zone);
+            } else {
+                epochSecond = zone.toEpochSecond(localSecond);
+                dirty = false;
+            }
+        }
+
+        void computeFields(ZoneTable zone) {
+            dirty = false;
+            changed = false;
+            long local = epochSecond + zone.offsetAt(epochSecond);
+            localSecond = local;
+            long epochDay = Math.floorDiv(local, SECONDS_PER_DAY);
+            int secondOfDay = (int) Math.floorMod(local, (long) SECONDS_PER_DAY);
+            hour = secondOfDay / 3600;
+            minute = secondOfDay / 60 % 60;
+            second = secondOfDay % 60;
+            dayOfWeek = BitCronExpression.dayOfWeek(epochDay);
+            long z = epochDay + 719468;
+            long era = Math.floorDiv(z, 146097);
+            long dayOfEra = z - era * 146097;
+            long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+            long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+            long mp = (5 * dayOfYear + 2) / 153;
+            day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+            month = (int) (mp < 10 ? mp + 3 : mp - 9);
+            year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        }
+
+        void setYear(int value) {
+            changed |= year != value;
+            year = value;
+            dirty = true;
+        }
+
+        void setMonth(int value) {
+            changed |= month != value;
+            month = value;
+            dirty = true;
+        }
+
+        void setDay(int value) {
+            changed |= day != value;
+            day = value;
+            dirty = true;
+        }
+
+        void setHour(int value) {
+            changed |= hour != value;
+            hour = value;
+            dirty = true;
+        }
+
+        void setMinute(int value) {
+            changed |= minute != value;
+            minute = value;
+            dirty = true;
+        }
+
+        void setSecond(int value) {
+            changed |= second != value;
+            second = value;
+            dirty = true;
+        }
+
+        /**
+         * Midnight of the given day, the month is 1-based and may roll over into the next year.
+         */
+        void startOfDay(int day, int month) {
+            setSecond(0);
+            setMinute(0);
+            setHour(0);
+            setDay(day);
+            setMonth(month);
+        }
+    }
+
+    /**
+     * The offset transitions of a zone between 1900 and 2200, searched with a binary search.
+     * A local time skipped by a transition uses the offset before it, a repeated local time uses the offset
+     * after it, both like {@code GregorianCalendar}.
+     */
+    private static final class ZoneTable {
+
+        static final long TABLE_START = LocalDateTime.of(1900, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+
+        static final long TABLE_END = LocalDateTime.of(2200, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+
+        private final ZoneRules rules;
+
+        private final int fixedOffset;
+
+        private final boolean fixed;
+
+        private final int initialOffset;
+
+        private final long[] transitions;
+
+        private final long[] wallTransitions;
+
+        private final int[] offsetsAfter;
+
+        ZoneTable(ZoneId zoneId) {
+            this.rules = zoneId.getRules();
+            this.fixed = rules.isFixedOffset();
+            this.fixedOffset = rules.getOffset(Instant.EPOCH).getTotalSeconds();
+            this.initialOffset = rules.getOffset(Instant.ofEpochSecond(TABLE_START)).getTotalSeconds();
+            int count = 0;
+            long[] trans = new long[64];
+            long[] walls = new long[64];
+            int[] after = new int[64];
+            ZoneOffsetTransition transition = fixed ? null : rules.nextTransition(Instant.ofEpochSecond(TABLE_START));
+            while (transition != null && transition.toEpochSecond() < TABLE_END) {
+                if (count == trans.length) {
+                    trans = Arrays.copyOf(trans, count * 2);
+                    walls = Arrays.copyOf(walls, count * 2);
+                    after = Arrays.copyOf(after, count * 2);
+                }
+                trans[count] = transition.toEpochSecond();
+                after[count] = transition.getOffsetAfter().getTotalSeconds();
+                walls[count] = trans[count] + after[count];
+                count++;
+                transition = rules.nextTransition(transition.getInstant());
+            }
+            this.transitions = Arrays.copyOf(trans, count);
+            this.wallTransitions = Arrays.copyOf(walls, count);
+            this.offsetsAfter = Arrays.copyOf(after, count);
+        }
+
+        int offsetAt(long epochSecond) {
+            if (fixed) {
+                return fixedOffset;
+            }
+            if (epochSecond < TABLE_START || epochSecond >= TABLE_END) {
+                return rules.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+            }
+            int index = floorIndex(transitions, epochSecond);
+            return index < 0 ? initialOffset : offsetsAfter[index];
+        }
+
+        long toEpochSecond(long localSecond) {
+            if (fixed) {
+                return localSecond - fixedOffset;
+            }
+            if (localSecond < TABLE_START + SECONDS_PER_DAY || localSecond >= TABLE_END - SECONDS_PER_DAY) {
+                LocalDateTime local = LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC);
+                ZoneOffsetTransition transition = rules.getTransition(local);
+                ZoneOffset offset = transition == null ? rules.getOffset(local)
+                        : transition.isGap() ? transition.getOffsetBefore() : transition.getOffsetAfter();
+                return localSecond - offset.getTotalSeconds();
+            }
+            int index = floorIndex(wallTransitions, localSecond);
+            return localSecond - (index < 0 ? initialOffset : offsetsAfter[index]);
+        }
+
+        /**
+         * @return The index of the last element less than or equal to the key, -1 if there is none.
+         */
+        private static int floorIndex(long[] sorted, long key) {
+            int low = 0;
+            int high = sorted.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid] <= key) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+    }
+}
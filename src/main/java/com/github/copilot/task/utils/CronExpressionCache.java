@@ -0,0 +1,225 @@
+package com.github.copilot.task.utils;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Bounded, thread-safe cache of compiled cron expressions.
+ * <p>
+ * Parsing an expression builds seven sorted sets, so compiled expressions are kept by expression string and time
+ * zone and the least recently used ones are evicted. For every cached expression the next fire times are also kept
+ * in a small sorted table computed with {@link BitCronExpression}: expressions firing more often than once an hour
+ * get {@value #FIRE_TABLE_SIZE} entries, the others only one. Looking up the next fire time is then a binary search, the table is only rebuilt once the
+ * asked time runs past its end.
+ * <p>
+ * Cached expressions are shared, callers must not change their time zone.
+ */
+public final class CronExpressionCache {
+
+    /**
+     * The maximum number of cached expressions.
+     */
+    static final int MAX_SIZE = 1024;
+
+    /**
+     * The number of precomputed fire times of high-frequency expressions.
+     */
+    static final int FIRE_TABLE_SIZE = 64;
+
+    /**
+     * Expressions whose first two fire times are closer than this are considered high-frequency.
+     */
+    private static final long HIGH_FREQUENCY_MILLIS = 60 * 60 * 1000L;
+
+    private static final Map<String, Entry> CACHE = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private CronExpressionCache() {
+    }
+
+    /**
+     * Returns the compiled expression in the default time zone, parsing it on first use.
+     *
+     * @param cronExpr The cron expression.
+     * @return The shared compiled expression.
+     * @throws ParseException if the expression is invalid.
+     */
+    public static CronExpression get(String cronExpr) throws ParseException {
+        return entry(cronExpr, TimeZone.getDefault()).expression;
+    }
+
+    /**
+     * Returns the compiled expression in the given time zone, parsing it on first use.
+     *
+     * @param cronExpr The cron expression.
+     * @param timeZone The time zone the expression is evaluated in.
+     * @return The shared compiled expression.
+     * @throws ParseException if the expression is invalid.
+     */
+    public static CronExpression get(String cronExpr, TimeZone timeZone) throws ParseException {
+        return entry(cronExpr, timeZone).expression;
+    }
+
+    /**
+     * Same as {@link CronExpression#getNextValidTimeAfter(Date)} in the default time zone, answered from the
+     * precomputed fire times when possible.
+     *
+     * @param cronExpr The cron expression.
+     * @param after    The time after which to look for the next fire time.
+     * @return The next fire time, or null if the expression never fires again.
+     * @throws ParseException if the expression is invalid.
+     */
+    public static Date nextFireTime(String cronExpr, Date after) throws ParseException {
+        return nextFireTime(cronExpr, TimeZone.getDefault(), after);
+    }
+
+    /**
+     * Same as {@link CronExpression#getNextValidTimeAfter(Date)}, answered from the precomputed fire times when
+     * possible.
+     *
+     * @param cronExpr The cron expression.
+     * @param timeZone The time zone the expression is evaluated in.
+     * @param after    The time after which to look for the next fire time.
+     * @return The next fire time, or null if the expression never fires again.
+     * @throws ParseException if the expression is invalid.
+     */
+    public static Date nextFireTime(String cronExpr, TimeZone timeZone, Date after) throws ParseException {
+        return entry(cronExpr, timeZone).nextFireTime(after.getTime());
+    }
+
+    /**
+     * @return The number of cached expressions.
+     */
+    public static int size() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    /**
+     * Removes all cached expressions.
+     */
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    private static Entry entry(String cronExpr, TimeZone timeZone) throws ParseException {
+        if (cronExpr == null) {
+            throw new IllegalArgumentException("cronExpression cannot be null");
+        }
+        String key = timeZone.getID() + '|' + cronExpr;
+        Entry entry;
+        synchronized (CACHE) {
+            entry = CACHE.get(key);
+        }
+        if (entry != null) {
+            return entry;
+        }
+        // Parse outside the lock, two threads parsing the same expression at once is harmless
+        CronExpression expression = new CronExpression(cronExpr);
+        expression.setTimeZone(timeZone);
+        Entry created = new Entry(expression);
+        synchronized (CACHE) {
+            entry = CACHE.putIfAbsent(key, created);
+        }
+        return entry == null ? created : entry;
+    }
+
+    private static final class Entry {
+
+        private final CronExpression expression;
+
+        private final BitCronExpression bitExpression;
+
+        /**
+         * Replaced as a whole, so readers always see a consistent table.
+         */
+        private volatile FireTable table;
+
+        Entry(CronExpression expression) {
+            this.expression = expression;
+            this.bitExpression = new BitCronExpression(expression);
+        }
+
+        Date nextFireTime(long after) {
+            FireTable current = table;
+            if (current == null || !current.covers(after)) {
+                current = FireTable.build(bitExpression, after);
+                table = current;
+            }
+            return current.next(after);
+        }
+    }
+
+    /**
+     * The fire times of an expression following {@code from}, sorted ascending. There is no fire time between
+     * {@code from} and the first entry, and none between two entries.
+     */
+    private static final class FireTable {
+
+        private final long from;
+
+        private final long[] times;
+
+        /**
+         * True if the expression never fires after the last entry.
+         */
+        private final boolean exhausted;
+
+        private FireTable(long from, long[] times, boolean exhausted) {
+            this.from = from;
+            this.times = times;
+            this.exhausted = exhausted;
+        }
+
+        static FireTable build(BitCronExpression expression, long from) {
+            long next = expression.nextFireTime(from);
+            if (next < 0) {
+                return new FireTable(from, new long[0], true);
+            }
+            long second = expression.nextFireTime(next);
+            int size = second >= 0 && second - next < HIGH_FREQUENCY_MILLIS ? FIRE_TABLE_SIZE : 1;
+            long[] times = new long[size];
+            int count = 0;
+            while (next >= 0 && count < size) {
+                times[count++] = next;
+                if (count < size) {
+                    next = expression.nextFireTime(next);
+                }
+            }
+            return new FireTable(from, count == size ? times : Arrays.copyOf(times, count), next < 0);
+        }
+
+        boolean covers(long after) {
+            if (after < from) {
+                return false;
+            }
+            return exhausted || (times.length > 0 && after < times[times.length - 1]);
+        }
+
+        Date next(long after) {
+            // The first entry greater than after
+            int low = 0;
+            int high = times.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (times[mid] <= after) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low < times.length ? new Date(times[low]) : null;
+        }
+    }
+}
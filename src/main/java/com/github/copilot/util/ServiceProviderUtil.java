@@ -59,6 +59,28 @@ public class ServiceProviderUtil implements ApplicationContextAware {
         return context.getBean(clazz);
     }
 
+    /**
+     * Checks whether the beans of a type are singletons, so a bean can be kept instead of being looked up each time.
+     *
+     * @param clazz the class type of the bean
+     * @return true if there are beans of the type and all of them are singletons
+     */
+    public static boolean isSingleton(Class clazz) {
+        if (context == null) {
+            return false;
+        }
+        String[] names = context.getBeanNamesForType(clazz);
+        if (names.length == 0) {
+            return false;
+        }
+        for (String name : names) {
+            if (!context.isSingleton(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Retrieves a bean from the ApplicationContext by its type and name.
      * This method is useful when multiple beans of the same type exist and you want to get a specific bean.
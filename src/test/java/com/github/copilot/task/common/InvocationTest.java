@@ -1,12 +1,15 @@
 package com.github.copilot.task.common;
 
 import com.github.copilot.util.ServiceProviderUtil;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.context.support.StaticApplicationContext;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,6 +33,12 @@ class InvocationTest {
         invocation = new Invocation(targetClass, methodName, parameterTypes, args);
     }
 
+    @AfterEach
+    void tearDown() {
+        InvokerCache.clear();
+        new ServiceProviderUtil().setApplicationContext(null);
+    }
+
     @Test
     void testInvocationConstructor() {
         assertEquals(targetClass, invocation.getTargetClass());
@@ -58,20 +67,88 @@ class InvocationTest {
         try (MockedStatic<ServiceProviderUtil> mocked = mockStatic(ServiceProviderUtil.class)) {
             mocked.when(() -> ServiceProviderUtil.getBean(targetClass)).thenThrow(new NoSuchBeanDefinitionException("No bean found"));
 
-            assertThrows(Exception.class, () -> invocation.invoke());
+            // Without a bean the method is invoked on an instance created by reflection
+            assertEquals("Success", invocation.invoke());
         }
     }
 
+    @Test
+    void testSingletonBeanIsBoundOnce() throws Exception {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.registerSingleton("counter", Counter.class);
+        context.refresh();
+        new ServiceProviderUtil().setApplicationContext(context);
+        Invocation increment = new Invocation(Counter.class, "increment", new Class[]{int.class}, 2);
+
+        assertEquals(2, increment.invoke());
+        assertEquals(4, increment.invoke());
+        assertEquals(6, new Invocation(Counter.class, "increment", new Class[]{int.class}, 2).invoke());
+        assertEquals(6, context.getBean(Counter.class).value);
+        assertEquals(1, InvokerCache.size());
+
+        // A new context binds its own bean
+        StaticApplicationContext other = new StaticApplicationContext();
+        other.registerSingleton("counter", Counter.class);
+        other.refresh();
+        new ServiceProviderUtil().setApplicationContext(other);
+        assertEquals(2, increment.invoke());
+    }
+
+    @Test
+    void testStaticMethodAndTargetException() throws Exception {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.refresh();
+        new ServiceProviderUtil().setApplicationContext(context);
+        assertEquals("static", new Invocation(ExampleClass.class, "staticMethod", null).invoke());
+
+        Invocation failing = new Invocation(ExampleClass.class, "failingMethod", new Class[0]);
+        InvocationTargetException e = assertThrows(InvocationTargetException.class, failing::invoke);
+        assertEquals("failed", e.getCause().getMessage());
+    }
+
     @Test
     void testInvokeException() throws Exception {
         invocation = new Invocation(targetClass, "nonExistentMethod", parameterTypes, args);
         assertThrows(Exception.class, () -> invocation.invoke());
     }
 
+    @Test
+    void testShardContextIsInjected() throws Exception {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.refresh();
+        new ServiceProviderUtil().setApplicationContext(context);
+        Invocation shard = new Invocation(ExampleClass.class, "shardMethod", new Class[]{String.class, ShardContext.class}, "users");
+
+        assertEquals("users 2/5 2", shard.invoke(new ShardContext("run", 2, 5)));
+        assertNull(ShardContext.current());
+        assertArrayEquals(new Object[]{"users"}, shard.getArgs());
+    }
+
     // Example class used for mocking
     static class ExampleClass {
         public String exampleMethod(String arg) {
             return "Success";
         }
+
+        public static String staticMethod() {
+            return "static";
+        }
+
+        public static String shardMethod(String table, ShardContext shard) {
+            return table + " " + shard.getIndex() + "/" + shard.getTotal() + " " + ShardContext.current().getIndex();
+        }
+
+        public void failingMethod() {
+            throw new IllegalStateException("failed");
+        }
+    }
+
+    public static class Counter {
+        int value;
+
+        public int increment(int delta) {
+            value += delta;
+            return value;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.github.copilot.task.event;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.enums.TaskChangeType;
+import com.github.copilot.task.repository.TaskSignalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+import static org.mockito.Mockito.*;
+
+class TaskChangeNotifierTest {
+
+    @InjectMocks
+    private TaskChangeNotifier notifier;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TaskSignalRepository taskSignalRepository;
+
+    @Mock
+    private EasyJobConfig config;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testNodeWithoutLoaderSignalsRightAway() {
+        notifier.publish(1L, TaskChangeType.RESCHEDULE);
+
+        verify(taskSignalRepository).bump(TaskChangeNotifier.TASK_CHANNEL);
+    }
+
+    @Test
+    void testNodeWithLoaderSignalsOnItsNextWait() throws Exception {
+        when(config.isRecoverEnable()).thenReturn(true);
+        when(config.isHeartBeatEnable()).thenReturn(true);
+
+        notifier.publish(1L, TaskChangeType.RESCHEDULE);
+        notifier.publish(2L, TaskChangeType.RESCHEDULE);
+        verify(taskSignalRepository, never()).bump(any());
+
+        notifier.flush();
+        verify(taskSignalRepository, times(1)).bump(TaskChangeNotifier.TASK_CHANNEL);
+    }
+}
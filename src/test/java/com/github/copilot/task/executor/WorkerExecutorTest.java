@@ -0,0 +1,91 @@
+package com.github.copilot.task.executor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkerExecutorTest {
+
+    private WorkerExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testSaturatedPlatformExecutorTurnsTasksAway() throws InterruptedException {
+        // One thread and a queue of one, so only two tasks fit
+        executor = WorkerExecutor.choose(WorkerExecutor.PLATFORM, 1, 1, 1, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        Runnable blocking = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+        assertTrue(executor.tryExecute(blocking));
+        assertTrue(executor.tryExecute(blocking));
+        assertFalse(executor.tryExecute(blocking));
+
+        WorkerExecutorMetrics metrics = executor.metrics();
+        assertEquals(2, metrics.getCapacity());
+        assertEquals(2, metrics.getInFlight());
+        assertEquals(1, metrics.getSaturated());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // The permit is released right after the task counted down
+        assertTrue(waitForInFlight(0));
+        assertTrue(executor.tryExecute(() -> { }));
+        assertEquals(3, executor.metrics().getAccepted());
+        assertEquals(2, executor.metrics().getPeakInFlight());
+    }
+
+    @Test
+    void testCancelledFutureTaskReleasesPermit() throws Exception {
+        executor = WorkerExecutor.choose(WorkerExecutor.FORK_JOIN, 1, 1, 0, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        FutureTask<String> future = new FutureTask<>(() -> {
+            started.countDown();
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            return "late";
+        });
+        assertTrue(executor.tryExecute(future));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertFalse(executor.tryExecute(() -> { }));
+
+        assertTrue(future.cancel(true));
+        assertTrue(waitForInFlight(0));
+        assertEquals(WorkerExecutor.FORK_JOIN, executor.metrics().getMode());
+    }
+
+    @Test
+    void testVirtualModeFallsBackWhenUnsupported() {
+        executor = WorkerExecutor.choose(WorkerExecutor.VIRTUAL, 1, 2, 10, 0);
+        String expected = VirtualWorkerExecutor.isSupported() ? WorkerExecutor.VIRTUAL : WorkerExecutor.PLATFORM;
+        assertEquals(expected, executor.mode());
+        assertEquals(12, executor.metrics().getCapacity());
+    }
+
+    private boolean waitForInFlight(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            if (executor.metrics().getInFlight() == expected) {
+                return true;
+            }
+            Thread.sleep(5);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.copilot.task.history;
+
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskDetail;
+import com.github.copilot.task.enums.TaskStatus;
+import com.github.copilot.task.repository.TaskRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AsyncTaskHistoryWriterTest {
+
+    private final TaskRepository taskRepository = Mockito.mock(TaskRepository.class);
+
+    private final List<TaskDetail> written = Collections.synchronizedList(new ArrayList<>());
+
+    AsyncTaskHistoryWriterTest() {
+        doAnswer(invocation -> {
+            List<TaskDetail> details = invocation.getArgument(0);
+            written.addAll(details);
+            return null;
+        }).when(taskRepository).insertDetails(anyList());
+    }
+
+    @Test
+    void testDetailsAreWrittenOffTheRunningThread() {
+        AsyncTaskHistoryWriter writer = new AsyncTaskHistoryWriter(taskRepository, 100, 10, 5, 1.0);
+        Task task = task();
+        TaskDetail detail = writer.start(task);
+        assertNull(detail.getId());
+        assertEquals(task.getId(), detail.getTaskId());
+        verifyNoInteractions(taskRepository);
+
+        List<TaskDetail> ended = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            ended.add(ended(writer.start(task), TaskStatus.FINISH));
+        }
+        writer.end(ended);
+
+        verify(taskRepository, timeout(2000).atLeast(3)).insertDetails(anyList());
+        writer.shutdown();
+        assertEquals(25, written.size());
+    }
+
+    @Test
+    void testSamplingOnlyDropsSuccessfulRuns() {
+        AsyncTaskHistoryWriter writer = new AsyncTaskHistoryWriter(taskRepository, 1000, 100, 5, 0.0);
+        List<TaskDetail> ended = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ended.add(ended(writer.start(task()), i % 2 == 0 ? TaskStatus.FINISH : TaskStatus.ERROR));
+        }
+        writer.end(ended);
+        writer.shutdown();
+
+        assertEquals(5, written.size());
+        assertTrue(written.stream().allMatch(detail -> detail.getStatus() == TaskStatus.ERROR));
+        assertEquals(5, writer.dropped());
+    }
+
+    @Test
+    void testFullBufferIsWrittenByTheRunningThread() {
+        CountDownLatch release = new CountDownLatch(1);
+        List<TaskDetail> inline = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            List<TaskDetail> details = invocation.getArgument(0);
+            if (Thread.currentThread().getName().equals("task-history-flusher")) {
+                // Block the flusher so the buffer fills up
+                release.await(5, TimeUnit.SECONDS);
+            } else if (!details.isEmpty() && release.getCount() > 0) {
+                inline.addAll(details);
+            }
+            written.addAll(details);
+            return null;
+        }).when(taskRepository).insertDetails(anyList());
+        AsyncTaskHistoryWriter writer = new AsyncTaskHistoryWriter(taskRepository, 2, 1, 5, 1.0);
+        writer.end(Collections.singletonList(ended(writer.start(task()), TaskStatus.FINISH)));
+        verify(taskRepository, timeout(2000)).insertDetails(anyList());
+
+        List<TaskDetail> more = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            more.add(ended(writer.start(task()), TaskStatus.FINISH));
+        }
+        writer.end(more);
+        // Two fit into the buffer, the other three are written by the running thread
+        assertEquals(3, inline.size());
+
+        release.countDown();
+        writer.shutdown();
+        assertEquals(6, written.size());
+    }
+
+    private static TaskDetail ended(TaskDetail detail, TaskStatus status) {
+        detail.setStatus(status);
+        detail.setEndTime(new Date());
+        return detail;
+    }
+
+    private static Task task() {
+        Task task = new Task();
+        task.setId(7L);
+        task.setNodeId("node");
+        return task;
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.repository.LeaderLeaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class LeaderElectorTest {
+
+    @InjectMocks
+    private LeaderElector elector;
+
+    @Mock
+    private EasyJobConfig config;
+
+    @Mock
+    private LeaderLeaseRepository leaderLeaseRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(config.getNodeId()).thenReturn("node-1");
+        when(config.getHeartBeatSeconds()).thenReturn(15);
+    }
+
+    @Test
+    void testLeaseDefaultsToTwoThirdsOfTheHeartbeat() {
+        assertEquals(10000L, elector.leaseMillis());
+        when(config.getLeaderLeaseSeconds()).thenReturn(3);
+        assertEquals(3000L, elector.leaseMillis());
+    }
+
+    @Test
+    void testAcquireAndLose() {
+        when(leaderLeaseRepository.tryAcquire("node-1", 10000L)).thenReturn(true, false);
+
+        elector.elect();
+        assertTrue(elector.isLeader());
+
+        elector.elect();
+        assertFalse(elector.isLeader());
+    }
+
+    @Test
+    void testStepsDownWhenTheLeaseCannotBeRenewed() throws Exception {
+        when(config.getLeaderLeaseSeconds()).thenReturn(1);
+        when(leaderLeaseRepository.tryAcquire(anyString(), anyLong()))
+                .thenReturn(true)
+                .thenThrow(new IllegalStateException("database down"));
+
+        elector.elect();
+        elector.elect();
+        // Still within the lease acquired first
+        assertTrue(elector.isLeader());
+
+        Thread.sleep(1100);
+        assertFalse(elector.isLeader());
+
+        elector.destroy();
+        verify(leaderLeaseRepository).release("node-1");
+    }
+}
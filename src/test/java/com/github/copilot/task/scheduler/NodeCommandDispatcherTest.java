@@ -0,0 +1,85 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.entity.NodeCommand;
+import com.github.copilot.task.enums.NotifyCmd;
+import com.github.copilot.task.handles.NotifyHandler;
+import com.github.copilot.task.repository.NodeCommandRepository;
+import com.github.copilot.util.ServiceProviderUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class NodeCommandDispatcherTest {
+
+    @InjectMocks
+    private NodeCommandDispatcher dispatcher;
+
+    @Mock
+    private EasyJobConfig config;
+
+    @Mock
+    private NodeCommandRepository nodeCommandRepository;
+
+    @Mock
+    private ApplicationContext context;
+
+    private final List<String> handled = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(config.getNodeId()).thenReturn("node-1");
+        when(config.getCommandBatchSize()).thenReturn(10);
+        Map<String, NotifyHandler> handlers = new HashMap<>();
+        handlers.put(NotifyCmd.STOP_TASK.name(), (NotifyHandler<Long>) taskId -> handled.add("stop " + taskId));
+        handlers.put(NotifyCmd.PAUSE.name(), (NotifyHandler<Long>) taskId -> {
+            throw new IllegalStateException("boom");
+        });
+        when(context.getBeansOfType(NotifyHandler.class)).thenReturn(handlers);
+        new ServiceProviderUtil().setApplicationContext(context);
+    }
+
+    @Test
+    void testCommandsAreHandledInOrderAndAcknowledged() {
+        List<NodeCommand> commands = Arrays.asList(command(1L, NotifyCmd.STOP_TASK, "7"), command(2L, NotifyCmd.STOP_TASK, "8"),
+                command(3L, NotifyCmd.PAUSE, "1"), command(4L, NotifyCmd.RELOAD_STRATEGY, null));
+        when(nodeCommandRepository.listPending("node-1", 10)).thenReturn(commands);
+
+        assertEquals(4, dispatcher.poll());
+
+        assertEquals(Arrays.asList("stop 7", "stop 8"), handled);
+        verify(nodeCommandRepository).ack(commands);
+        assertNull(commands.get(0).getErrorMsg());
+        assertNull(commands.get(1).getErrorMsg());
+        assertEquals("boom", commands.get(2).getErrorMsg());
+        assertNotNull(commands.get(3).getErrorMsg());
+    }
+
+    @Test
+    void testSendQueuesTheCommand() {
+        when(nodeCommandRepository.send("node-2", NotifyCmd.STOP_TASK, "7")).thenReturn(5L);
+
+        assertEquals(5L, dispatcher.send("node-2", NotifyCmd.STOP_TASK, "7"));
+    }
+
+    private static NodeCommand command(Long id, NotifyCmd cmd, String value) {
+        NodeCommand command = new NodeCommand();
+        command.setId(id);
+        command.setNotifyCmd(cmd);
+        command.setNotifyValue(value);
+        return command;
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.copilot.task.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhiAccrualTest {
+
+    @Test
+    void testPhiGrowsWithTheTimeSinceTheLastHeartbeat() {
+        PhiAccrual detector = new PhiAccrual(100, 1000, 100, 0, 0);
+        for (long t = 1000; t <= 10000; t += 1000) {
+            detector.heartbeat(t);
+        }
+
+        assertTrue(detector.phi(10500) < 1);
+        assertTrue(detector.phi(11000) < detector.phi(11300));
+        assertTrue(detector.phi(12000) > 8);
+    }
+
+    @Test
+    void testJitteryNodesAreSuspectedLater() {
+        PhiAccrual steady = new PhiAccrual(100, 1000, 10, 0, 0);
+        PhiAccrual jittery = new PhiAccrual(100, 1000, 10, 0, 0);
+        long t = 0;
+        for (int i = 0; i < 20; i++) {
+            t += 1000;
+            steady.heartbeat(t);
+            jittery.heartbeat(t + (i % 2 == 0 ? 400 : -400));
+        }
+
+        assertTrue(steady.phi(t + 1500) > jittery.phi(t + 1500));
+    }
+
+    @Test
+    void testAcceptablePauseAndRestart() {
+        PhiAccrual detector = new PhiAccrual(100, 1000, 100, 3000, 0);
+        for (long t = 1000; t <= 10000; t += 1000) {
+            detector.heartbeat(t);
+        }
+
+        assertTrue(detector.phi(13000) < 1);
+        assertTrue(detector.phi(16000) > 8);
+
+        detector.restart(16000);
+        assertTrue(detector.phi(16500) < 1);
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.repository.NodeCommandRepository;
+import com.github.copilot.task.repository.TaskDetailRetentionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class RetentionExecutorTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @InjectMocks
+    private RetentionExecutor executor;
+
+    @Mock
+    private EasyJobConfig config;
+
+    @Mock
+    private TaskDetailRetentionRepository retentionRepository;
+
+    @Mock
+    private NodeCommandRepository nodeCommandRepository;
+
+    /**
+     * An hour boundary, 30 days after the epoch.
+     */
+    private final Date now = new Date(30 * DAY);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(config.getRetentionDays()).thenReturn(7);
+        when(config.getRetentionRollupDays()).thenReturn(20);
+        when(config.getRetentionGraceSeconds()).thenReturn(600);
+        when(config.getRetentionMaxHours()).thenReturn(24);
+        when(config.getRetentionDeleteChunkSize()).thenReturn(10);
+        when(retentionRepository.customRetentionDays()).thenReturn(Collections.emptyMap());
+    }
+
+    @Test
+    void testRollsUpCompletedHoursSkippingGaps() {
+        // Runs in three hours, the last one still within the grace period
+        runsAt(now.getTime() - 10 * DAY + 5 * 60000, now.getTime() - 2 * DAY + 30 * 60000, now.getTime() - 5 * 60000);
+
+        executor.retain(now);
+
+        ArgumentCaptor<Date> hours = ArgumentCaptor.forClass(Date.class);
+        verify(retentionRepository, times(2)).rollUpHour(hours.capture());
+        assertEquals(Arrays.asList(new Date(now.getTime() - 10 * DAY), new Date(now.getTime() - 2 * DAY)),
+                hours.getAllValues());
+        verify(retentionRepository).deleteDetails(new Date(now.getTime() - 7 * DAY), 10);
+        verify(retentionRepository).deleteRollups(new Date(now.getTime() - 20 * DAY));
+    }
+
+    @Test
+    void testDeletesNeverPassTheRollupWatermark() {
+        when(config.getRetentionMaxHours()).thenReturn(2);
+        long first = now.getTime() - 10 * DAY;
+        runsAt(first, first + HOUR, first + 2 * HOUR, first + 3 * HOUR);
+        // A full chunk means there may be more rows
+        when(retentionRepository.deleteDetails(any(Date.class), anyInt())).thenReturn(10, 10, 3);
+
+        executor.retain(now);
+
+        verify(retentionRepository, times(2)).rollUpHour(any(Date.class));
+        verify(retentionRepository, times(3)).deleteDetails(new Date(first + 2 * HOUR), 10);
+    }
+
+    @Test
+    void testTaskRetentionAndPartitions() {
+        when(config.isRetentionPartitioned()).thenReturn(true);
+        when(retentionRepository.customRetentionDays()).thenReturn(Collections.singletonMap(5L, 14));
+        when(retentionRepository.partitionsBefore(any(Date.class))).thenReturn(Collections.singletonList("SYS_P101"));
+        runsAt();
+
+        executor.retain(now);
+
+        verify(retentionRepository).partitionsBefore(new Date(now.getTime() - 14 * DAY));
+        verify(retentionRepository).dropPartition("SYS_P101");
+        verify(retentionRepository).deleteDetails(new Date(now.getTime() - 7 * DAY), 10);
+        verify(retentionRepository).deleteDetails(5L, new Date(now.getTime() - 14 * DAY), 10);
+        verify(retentionRepository, never()).rollUpHour(any(Date.class));
+    }
+
+    /**
+     * Makes the repository answer as if there were runs at the given times and nothing rolled up yet.
+     */
+    private void runsAt(long... times) {
+        List<Long> starts = Arrays.stream(times).sorted().boxed().collect(Collectors.toList());
+        when(retentionRepository.firstStartTime(any())).thenAnswer(invocation -> {
+            Date from = invocation.getArgument(0);
+            return starts.stream()
+                    .filter(start -> from == null || start >= from.getTime())
+                    .findFirst()
+                    .map(Date::new)
+                    .orElse(null);
+        });
+    }
+}
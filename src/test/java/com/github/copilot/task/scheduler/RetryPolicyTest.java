@@ -0,0 +1,45 @@
+package com.github.copilot.task.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    @Test
+    void testBackoffDoublesUpToTheLimit() {
+        RetryPolicy policy = new RetryPolicy(10, 1000, 5000, null);
+
+        assertEquals(500, policy.backoff(0, 0));
+        assertEquals(999, policy.backoff(0, 0.999999));
+        assertEquals(1000, policy.backoff(1, 0));
+        assertEquals(2000, policy.backoff(2, 0));
+        assertEquals(2500, policy.backoff(3, 0));
+        assertEquals(2500, policy.backoff(1000, 0));
+        assertTrue(policy.backoff(1000, 0.999999) <= 5000);
+    }
+
+    @Test
+    void testRetriesAreLimited() {
+        RetryPolicy policy = new RetryPolicy(2, 1000, 5000, null);
+
+        assertTrue(policy.shouldRetry(0, new IllegalStateException()));
+        assertTrue(policy.shouldRetry(1, new IllegalStateException()));
+        assertFalse(policy.shouldRetry(2, new IllegalStateException()));
+        assertFalse(new RetryPolicy(0, 1000, 5000, null).shouldRetry(0, new IllegalStateException()));
+    }
+
+    @Test
+    void testOnlyListedExceptionsAreRetried() {
+        RetryPolicy policy = new RetryPolicy(3, 1000, 5000, " java.io.IOException, java.util.concurrent.TimeoutException");
+
+        assertTrue(policy.shouldRetry(0, new IOException()));
+        assertTrue(policy.shouldRetry(0, new FileNotFoundException()));
+        assertTrue(policy.shouldRetry(0, new TimeoutException()));
+        assertFalse(policy.shouldRetry(0, new IllegalArgumentException()));
+    }
+}
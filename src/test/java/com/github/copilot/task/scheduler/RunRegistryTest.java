@@ -0,0 +1,62 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.entity.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunRegistryTest {
+
+    private final RunRegistry registry = new RunRegistry();
+
+    @Test
+    void testLimitPerTask() {
+        RunRegistry.Run first = run(1L, 0);
+        RunRegistry.Run second = run(1L, 0);
+        RunRegistry.Run other = run(2L, 0);
+
+        assertTrue(registry.tryRegister(first, 1));
+        assertFalse(registry.tryRegister(second, 1));
+        assertTrue(registry.tryRegister(other, 1));
+        assertEquals(Collections.singletonList(first), registry.runs(1L));
+
+        registry.remove(first);
+        assertFalse(registry.isRunning(1L));
+        assertTrue(registry.tryRegister(second, 1));
+    }
+
+    @Test
+    void testOverdueRuns() {
+        RunRegistry.Run timed = run(1L, 100);
+        RunRegistry.Run untimed = run(2L, 0);
+        registry.tryRegister(timed, 1);
+        registry.tryRegister(untimed, 1);
+
+        assertTrue(registry.overdue(50).isEmpty());
+        assertEquals(Collections.singletonList(timed), registry.overdue(101));
+
+        timed.end();
+        assertTrue(registry.overdue(101).isEmpty());
+    }
+
+    @Test
+    void testOnlyFirstEndWins() {
+        RunRegistry.Run run = run(1L, 0);
+        FutureTask<String> future = new FutureTask<>(() -> null);
+        run.setFuture(future);
+
+        assertTrue(run.end());
+        assertFalse(run.end());
+        run.cancel();
+        assertTrue(future.isCancelled());
+    }
+
+    private static RunRegistry.Run run(Long taskId, long timeout) {
+        Task task = new Task();
+        task.setId(taskId);
+        return new RunRegistry.Run(task, timeout, 0);
+    }
+}
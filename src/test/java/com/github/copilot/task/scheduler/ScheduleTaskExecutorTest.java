@@ -0,0 +1,293 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.common.Invocation;
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskDetail;
+import com.github.copilot.task.enums.MisfirePolicy;
+import com.github.copilot.task.enums.NodeStatus;
+import com.github.copilot.task.enums.OverlapPolicy;
+import com.github.copilot.task.event.TaskChangeNotifier;
+import com.github.copilot.task.repository.NodeRepository;
+import com.github.copilot.task.repository.TaskRepository;
+import com.github.copilot.task.state.TaskStateStore;
+import com.github.copilot.task.trigger.TriggerEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ScheduleTaskExecutorTest {
+
+    private static final String EVERY_MINUTE = "0 * * * * ?";
+
+    @InjectMocks
+    private ScheduleTaskExecutor executor;
+
+    @Mock
+    private EasyJobConfig config;
+
+    @Mock
+    private TaskStateStore stateStore;
+
+    @Mock
+    private WorkflowCoordinator workflowCoordinator;
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private NodeRepository nodeRepository;
+
+    @Mock
+    private TaskChangeNotifier taskChangeNotifier;
+
+    private final long now = 1_700_000_000_000L - 1_700_000_000_000L % 60000 + 30000;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(config.getTriggerEngine()).thenReturn("delayqueue");
+        when(config.getMisfirePolicy()).thenReturn(MisfirePolicy.FIRE_ONCE_KEY);
+        when(config.getMisfireThresholdMillis()).thenReturn(60000L);
+        when(config.getMisfireCatchUpPerSecond()).thenReturn(2.0);
+        when(config.getRunOverlap()).thenReturn(OverlapPolicy.PARALLEL_KEY);
+        executor.init();
+    }
+
+    @Test
+    void testMisfireThreshold() {
+        assertFalse(executor.misfired(task(now - 60000), now));
+        assertTrue(executor.misfired(task(now - 60001), now));
+
+        Task own = task(now - 5000);
+        own.setMisfireThresholdMillis(1000L);
+        assertTrue(executor.misfired(own, now));
+
+        Task released = task(now - 3600000);
+        released.setCronExpr(null);
+        assertFalse(executor.misfired(released, now));
+    }
+
+    @Test
+    void testTaskPolicyOverridesDefault() {
+        Task task = task(now);
+        assertEquals(MisfirePolicy.FIRE_ONCE, executor.misfirePolicy(task));
+        task.setMisfirePolicy(MisfirePolicy.SKIP);
+        assertEquals(MisfirePolicy.SKIP, executor.misfirePolicy(task));
+    }
+
+    @Test
+    void testCatchUpIsThrottled() {
+        Task onTime = task(now);
+        Task missed = task(now - 3600000);
+        Task skipped = task(now - 3600000);
+        skipped.setMisfirePolicy(MisfirePolicy.SKIP);
+
+        assertTrue(executor.admit(missed, now));
+        assertTrue(executor.admit(missed, now));
+        assertFalse(executor.admit(missed, now));
+        assertTrue(executor.admit(onTime, now));
+        assertTrue(executor.admit(skipped, now));
+    }
+
+    @Test
+    void testFireAllGoesOnFromTheMissedFire() throws Exception {
+        Task task = task(now - 3 * 60000 - 30000);
+
+        assertEquals(new Date(now + 30000), task.nextStartTimeAfterRun(new Date(now)));
+
+        task.setCatchUp(true);
+        assertEquals(new Date(now - 2 * 60000 - 30000), task.nextStartTimeAfterRun(new Date(now)));
+    }
+
+    @Test
+    void testConcurrencyLimitFollowsOverlapPolicy() {
+        Task task = task(now);
+        assertEquals(Integer.MAX_VALUE, executor.concurrencyLimit(task));
+        task.setMaxConcurrency(2);
+        assertEquals(2, executor.concurrencyLimit(task));
+        assertNotNull(executor.register(task));
+        assertNotNull(executor.register(task));
+        assertNull(executor.register(task));
+
+        task.setOverlapPolicy(OverlapPolicy.QUEUE);
+        assertEquals(1, executor.concurrencyLimit(task));
+        task.setOverlapPolicy(OverlapPolicy.SKIP);
+        assertEquals(1, executor.concurrencyLimit(task));
+    }
+
+    @Test
+    void testWatchdogInterruptsOverdueRun() throws Exception {
+        Task task = task(now);
+        task.setTimeoutMillis(1L);
+        RunRegistry.Run run = executor.register(task);
+        CountDownLatch started = new CountDownLatch(1);
+        FutureTask<String> future = new FutureTask<>(() -> {
+            started.countDown();
+            Thread.sleep(60000);
+            return null;
+        });
+        run.setFuture(future);
+        new Thread(future).start();
+        started.await();
+
+        // Not started recording yet, the watchdog waits for the next round
+        Thread.sleep(5);
+        executor.watchdog();
+        assertFalse(future.isCancelled());
+
+        TaskDetail detail = new TaskDetail(task.getId());
+        run.setDetail(detail);
+        executor.watchdog();
+
+        assertTrue(future.isCancelled());
+        assertTrue(run.isEnded());
+        verify(stateStore).fail(eq(task), eq(detail), any());
+        verify(workflowCoordinator).onFailed(eq(task), any());
+
+        // A late result of the run is not recorded again
+        assertFalse(run.end());
+        executor.watchdog();
+        verify(stateStore, times(1)).fail(any(), any(), any());
+    }
+
+    @Test
+    void testFailedRunIsRetriedWithBackoff() throws Exception {
+        when(config.getRetryMaxRetries()).thenReturn(1);
+        when(config.getRetryBackoffMillis()).thenReturn(1000L);
+        when(config.getRetryMaxBackoffMillis()).thenReturn(60000L);
+        when(stateStore.retry(any(), any(), any(), any())).thenReturn(true);
+        Task task = task(now);
+        TaskDetail detail = new TaskDetail(task.getId());
+        Exception error = new InvocationTargetException(new IllegalStateException("boom"));
+
+        long before = System.currentTimeMillis();
+        assertTrue(executor.retry(task, detail, error));
+
+        ArgumentCaptor<Date> retryTime = ArgumentCaptor.forClass(Date.class);
+        verify(stateStore).retry(eq(task), eq(detail), eq("boom"), retryTime.capture());
+        assertTrue(retryTime.getValue().getTime() >= before + 500);
+        assertTrue(retryTime.getValue().getTime() <= System.currentTimeMillis() + 1000);
+        assertEquals(1, task.getRetryAttempt());
+
+        // No retries left
+        assertFalse(executor.retry(task, detail, error));
+
+        // Only the listed exceptions are retried
+        task.setRetryAttempt(0);
+        task.setRetryOn(IllegalArgumentException.class.getName());
+        assertFalse(executor.retry(task, detail, error));
+        verify(stateStore, times(1)).retry(any(), any(), any(), any());
+    }
+
+    @Test
+    void testRetryIsScheduledAfterTheRunLeftTheRegistry() throws Exception {
+        when(config.getRetryMaxRetries()).thenReturn(1);
+        when(config.getRetryBackoffMillis()).thenReturn(0L);
+        when(config.getRetryMaxBackoffMillis()).thenReturn(0L);
+        Task task = task(now);
+        task.setOverlapPolicy(OverlapPolicy.SKIP);
+        Invocation invocation = mock(Invocation.class);
+        when(invocation.invoke()).thenThrow(new IllegalStateException("boom"));
+        task.setInvocation(invocation);
+        TaskDetail detail = new TaskDetail(task.getId());
+        when(stateStore.start(task)).thenReturn(detail);
+        RunRegistry.Run run = executor.register(task);
+        when(stateStore.retry(any(), any(), any(), any())).thenAnswer(invocationOnMock -> {
+            // The Boss taking the retry right away must not see the failed run as still running
+            assertNotNull(executor.register(task));
+            return true;
+        });
+
+        executor.new Worker(task, run).call();
+
+        verify(stateStore).retry(eq(task), eq(detail), eq("boom"), any());
+        verify(stateStore, never()).fail(any(), any(), any());
+    }
+
+    @Test
+    void testNewTriggerCancelsThePreviousOneOfTheTask() throws Exception {
+        when(config.getRetryMaxRetries()).thenReturn(2);
+        when(config.getRetryBackoffMillis()).thenReturn(60000L);
+        when(config.getRetryMaxBackoffMillis()).thenReturn(60000L);
+        when(stateStore.retry(any(), any(), any(), any())).thenReturn(true);
+        Task task = task(now);
+        TaskDetail detail = new TaskDetail(task.getId());
+
+        assertTrue(executor.retry(task, detail, new IllegalStateException("boom")));
+        assertTrue(executor.retry(task, detail, new IllegalStateException("boom")));
+
+        TriggerEngine<?> triggerEngine = (TriggerEngine<?>) ReflectionTestUtils.getField(executor, "triggerEngine");
+        assertEquals(1, triggerEngine.size());
+    }
+
+    @Test
+    void testRetryDuringShutdownLeavesTheTaskPending() throws Exception {
+        when(config.getRetryMaxRetries()).thenReturn(1);
+        when(config.getRetryBackoffMillis()).thenReturn(1000L);
+        when(config.getRetryMaxBackoffMillis()).thenReturn(60000L);
+        when(stateStore.retry(any(), any(), any(), any())).thenReturn(true);
+        executor.destroy();
+        Task task = task(now);
+        TaskDetail detail = new TaskDetail(task.getId());
+
+        // The trigger engine is already shut down, the task is left for recovery
+        assertTrue(executor.retry(task, detail, new IllegalStateException("boom")));
+
+        verify(stateStore).retry(eq(task), eq(detail), eq("boom"), any());
+        verify(stateStore, never()).fail(any(), any(), any());
+    }
+
+    @Test
+    void testDrainHandsBackTriggersAndAbortsRunsPastTheDeadline() throws Exception {
+        when(config.getNodeId()).thenReturn("node-1");
+        when(config.getRetryMaxRetries()).thenReturn(1);
+        when(config.getRetryBackoffMillis()).thenReturn(60000L);
+        when(config.getRetryMaxBackoffMillis()).thenReturn(60000L);
+        when(stateStore.retry(any(), any(), any(), any())).thenReturn(true);
+        Task waiting = task(now);
+        assertTrue(executor.retry(waiting, new TaskDetail(waiting.getId()), new IllegalStateException("boom")));
+        Task running = task(now);
+        running.setId(2L);
+        RunRegistry.Run run = executor.register(running);
+        TaskDetail detail = new TaskDetail(running.getId());
+        run.setDetail(detail);
+
+        assertFalse(executor.drain(0));
+
+        assertTrue(executor.isPaused());
+        assertTrue(executor.isDraining());
+        verify(nodeRepository).updateStatus("node-1", NodeStatus.DRAINING);
+        verify(taskRepository).handBack("node-1", Collections.singletonList(1L));
+        assertTrue(run.isEnded());
+        verify(stateStore).fail(eq(running), eq(detail), eq("node drained"));
+        verify(taskChangeNotifier).flush();
+
+        executor.resume();
+        assertFalse(executor.isDraining());
+        verify(nodeRepository).updateStatus("node-1", NodeStatus.ENABLE);
+    }
+
+    private static Task task(long nextStartTime) {
+        Task task = new Task();
+        task.setId(1L);
+        task.setCronExpr(EVERY_MINUTE);
+        task.setNextStartTime(new Date(nextStartTime));
+        return task;
+    }
+}
@@ -0,0 +1,198 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.common.Invocation;
+import com.github.copilot.task.common.InvokerCache;
+import com.github.copilot.task.common.ShardContext;
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.entity.Node;
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskShard;
+import com.github.copilot.task.enums.TaskStatus;
+import com.github.copilot.task.event.TaskChangeNotifier;
+import com.github.copilot.task.repository.TaskRepository;
+import com.github.copilot.task.repository.TaskShardRepository;
+import com.github.copilot.task.strategy.Strategy;
+import com.github.copilot.util.ServiceProviderUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ShardCoordinatorTest {
+
+    private static final List<Integer> RAN = Collections.synchronizedList(new ArrayList<>());
+
+    @InjectMocks
+    private ShardCoordinator coordinator;
+
+    @Mock
+    private EasyJobConfig config;
+
+    @Mock
+    private TaskShardRepository taskShardRepository;
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private FailureDetector failureDetector;
+
+    @Mock
+    private TaskChangeNotifier taskChangeNotifier;
+
+    /**
+     * The shards as the database would hold them.
+     */
+    private final List<TaskShard> table = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.refresh();
+        new ServiceProviderUtil().setApplicationContext(context);
+        RAN.clear();
+        when(config.getNodeId()).thenReturn("a");
+        when(config.getHeartBeatSeconds()).thenReturn(10);
+        when(config.getShardPollMillis()).thenReturn(1L);
+        when(config.getShardTimeoutSeconds()).thenReturn(60);
+        when(failureDetector.liveNodes()).thenReturn(Arrays.asList(new Node("a"), new Node("b")));
+        when(taskShardRepository.insert(anyList())).thenAnswer(invocation -> {
+            table.addAll(invocation.getArgument(0));
+            return table;
+        });
+        when(taskShardRepository.claim(eq("a"), anyInt())).thenAnswer(invocation -> start("a"));
+        when(taskRepository.get(7L)).thenAnswer(invocation -> task(table.size()));
+        when(taskShardRepository.complete(any(TaskShard.class), any(TaskStatus.class), any())).thenAnswer(invocation -> {
+            TaskShard shard = invocation.getArgument(0);
+            shard.setStatus(invocation.getArgument(1));
+            shard.setErrorMsg(invocation.getArgument(2));
+            return true;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        InvokerCache.clear();
+        new ServiceProviderUtil().setApplicationContext(null);
+    }
+
+    @Test
+    void testShardsAreSpreadAndTheFireCompletesWhenAllEnded() throws Exception {
+        when(taskShardRepository.listRun(anyString())).thenAnswer(invocation -> table);
+
+        CompletableFuture<Void> result = coordinator.dispatch(task(4), Strategy.choose(Strategy.DEFAULT), () -> false);
+
+        // Nothing runs on the dispatching thread
+        assertEquals(4, table.size());
+        assertEquals(1, table.stream().map(TaskShard::getRunId).distinct().count());
+        assertTrue(RAN.isEmpty());
+        coordinator.check();
+        assertFalse(result.isDone());
+
+        // The local shards are claimed like any other node's, the other node finishes its shards
+        for (TaskShard shard : coordinator.claim(10)) {
+            coordinator.run(shard);
+        }
+        for (TaskShard shard : start("b")) {
+            shard.setStatus(TaskStatus.FINISH);
+        }
+        coordinator.check();
+
+        List<Integer> local = table.stream().filter(shard -> "a".equals(shard.getNodeId()))
+                .map(TaskShard::getShardIndex).collect(Collectors.toList());
+        assertEquals(2, local.size());
+        assertEquals(local, RAN);
+        assertTrue(table.stream().allMatch(shard -> shard.getStatus() == TaskStatus.FINISH));
+        assertNull(result.get());
+    }
+
+    @Test
+    void testFailedShardFailsTheTaskAndLostShardsMove() {
+        when(taskShardRepository.reassign(any(TaskShard.class), anyString())).thenAnswer(invocation -> {
+            TaskShard shard = invocation.getArgument(0);
+            shard.setNodeId(invocation.getArgument(1));
+            return true;
+        });
+        // Node b is lost after the shards were assigned, its shard runs here and fails
+        when(failureDetector.liveNodes())
+                .thenReturn(Arrays.asList(new Node("a"), new Node("b")))
+                .thenReturn(Collections.singletonList(new Node("a")));
+        when(taskShardRepository.listRun(anyString())).thenAnswer(invocation -> new ArrayList<>(table));
+
+        CompletableFuture<Void> result = coordinator.dispatch(task(2), Strategy.choose(Strategy.DEFAULT), () -> false);
+        coordinator.check();
+        for (TaskShard shard : coordinator.claim(10)) {
+            coordinator.run(shard);
+        }
+        coordinator.check();
+
+        verify(taskShardRepository).reassign(any(TaskShard.class), eq("a"));
+        assertTrue(table.stream().allMatch(shard -> "a".equals(shard.getNodeId())));
+        assertEquals(Arrays.asList(0, 1), RAN.stream().sorted().collect(Collectors.toList()));
+        ExecutionException e = assertThrows(ExecutionException.class, result::get);
+        assertTrue(e.getCause().getMessage().startsWith("1 of 2 shards failed"), e.getCause().getMessage());
+    }
+
+    @Test
+    void testStoppedFireStopsItsShards() {
+        AtomicBoolean stopped = new AtomicBoolean();
+        when(taskShardRepository.listRun(anyString())).thenAnswer(invocation -> table);
+
+        CompletableFuture<Void> result = coordinator.dispatch(task(2), Strategy.choose(Strategy.DEFAULT), stopped::get);
+        coordinator.check();
+        stopped.set(true);
+        coordinator.check();
+
+        verify(taskShardRepository).stopUnfinished(table.get(0).getRunId(), "task stopped");
+        assertTrue(result.isCancelled());
+        // No longer checked
+        coordinator.check();
+        verify(taskShardRepository, times(1)).listRun(anyString());
+    }
+
+    /**
+     * Starts the pending shards of a node.
+     */
+    private List<TaskShard> start(String nodeId) {
+        List<TaskShard> started = new ArrayList<>();
+        for (TaskShard shard : table) {
+            if (shard.getStatus() == TaskStatus.PENDING && nodeId.equals(shard.getNodeId())) {
+                shard.setStatus(TaskStatus.DOING);
+                started.add(shard);
+            }
+        }
+        return started;
+    }
+
+    private static Task task(int shards) {
+        Task task = new Task();
+        task.setId(7L);
+        task.setShardCount(shards);
+        task.setInvocation(new Invocation(ShardCoordinatorTest.class, "work", new Class[]{ShardContext.class}));
+        return task;
+    }
+
+    public static void work(ShardContext shard) {
+        RAN.add(shard.getIndex());
+        if (shard.getIndex() == 1 && shard.getTotal() == 2) {
+            throw new IllegalStateException("disk full");
+        }
+    }
+}
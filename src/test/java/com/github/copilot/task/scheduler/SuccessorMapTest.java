@@ -0,0 +1,48 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.entity.Node;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuccessorMapTest {
+
+    @Test
+    void testSuccessorIsTheNextLiveNodeOnTheRing() {
+        List<String> ids = new ArrayList<>(Arrays.asList("10.0.0.1", "10.0.0.2", "10.0.0.3", "10.0.0.4"));
+        ids.sort(Comparator.comparingInt(id -> Math.abs(id.hashCode())));
+        String first = ids.get(0);
+        String dead = ids.get(1);
+        String next = ids.get(2);
+        String last = ids.get(3);
+        List<Node> live = Arrays.asList(new Node(last), new Node(next), new Node(first));
+
+        SuccessorMap successors = new SuccessorMap(live, Collections.singleton(dead));
+
+        assertEquals(next, successors.of(dead));
+        assertEquals(next, successors.of(first));
+        assertEquals(last, successors.of(next));
+        assertEquals(first, successors.of(last));
+        assertEquals(first, successors.of(null));
+    }
+
+    @Test
+    void testEveryNodeComputesTheSameSuccessor() {
+        List<Node> nodes = Arrays.asList(new Node("a"), new Node("b"), new Node("c"));
+        List<Node> reversed = new ArrayList<>(nodes);
+        Collections.reverse(reversed);
+
+        SuccessorMap one = new SuccessorMap(nodes, Collections.emptyList());
+        SuccessorMap other = new SuccessorMap(reversed, Collections.emptyList());
+
+        for (String nodeId : Arrays.asList("a", "b", "c", "d", "e")) {
+            assertEquals(one.of(nodeId), other.of(nodeId));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.copilot.task.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testBurstThenRate() {
+        TokenBucket bucket = new TokenBucket(4, 0);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(bucket.tryAcquire(0));
+        }
+        assertFalse(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(SECOND / 8));
+        assertTrue(bucket.tryAcquire(SECOND / 4));
+        assertFalse(bucket.tryAcquire(SECOND / 4));
+    }
+
+    @Test
+    void testIdleTimeIsCappedToOneSecond() {
+        TokenBucket bucket = new TokenBucket(2, 0);
+        int acquired = 0;
+        while (bucket.tryAcquire(100 * SECOND)) {
+            acquired++;
+        }
+        assertEquals(2, acquired);
+    }
+
+    @Test
+    void testZeroRateIsUnlimited() {
+        TokenBucket bucket = new TokenBucket(0, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(bucket.tryAcquire(0));
+        }
+    }
+}
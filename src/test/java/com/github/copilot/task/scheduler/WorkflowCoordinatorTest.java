@@ -0,0 +1,169 @@
+package com.github.copilot.task.scheduler;
+
+import com.github.copilot.task.config.EasyJobConfig;
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.enums.TaskChangeType;
+import com.github.copilot.task.enums.TaskStatus;
+import com.github.copilot.task.event.TaskChangeNotifier;
+import com.github.copilot.task.repository.WorkflowRepository;
+import com.github.copilot.task.state.TaskStateStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WorkflowCoordinatorTest {
+
+    @InjectMocks
+    private WorkflowCoordinator coordinator;
+
+    @Mock
+    private EasyJobConfig config;
+
+    @Mock
+    private WorkflowRepository workflowRepository;
+
+    @Mock
+    private TaskChangeNotifier taskChangeNotifier;
+
+    @Mock
+    private LeaderElector leaderElector;
+
+    @Mock
+    private TaskStateStore stateStore;
+
+    /**
+     * A diamond: 1 -> 2, 1 -> 3, 2 -> 4, 3 -> 4, plus 5 -> 4 from another workflow.
+     */
+    private final Map<Long, List<Long>> upstreams = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        upstreams.put(2L, Collections.singletonList(1L));
+        upstreams.put(3L, Collections.singletonList(1L));
+        upstreams.put(4L, Arrays.asList(2L, 3L, 5L));
+        when(workflowRepository.listUpstreams()).thenReturn(upstreams);
+        when(config.getWorkflowRefreshSeconds()).thenReturn(30);
+    }
+
+    @Test
+    void testRemainingOnlyCountsUpstreamsWithinTheRun() {
+        WorkflowCoordinator.Graph graph = new WorkflowCoordinator.Graph(upstreams, 0);
+
+        Map<Long, Integer> remaining = graph.remaining(1L);
+
+        Map<Long, Integer> expected = new HashMap<>();
+        expected.put(2L, 0);
+        expected.put(3L, 0);
+        expected.put(4L, 2);
+        assertEquals(expected, remaining);
+        assertEquals(Collections.singletonMap(4L, 0), graph.remaining(5L));
+    }
+
+    @Test
+    void testRootFinishStartsRun() {
+        coordinator.onFinished(task(1L, null));
+
+        Map<Long, Integer> expected = new HashMap<>();
+        expected.put(2L, 0);
+        expected.put(3L, 0);
+        expected.put(4L, 2);
+        verify(workflowRepository).startRun(1L, expected);
+        verify(taskChangeNotifier).publish(null, TaskChangeType.RESCHEDULE);
+    }
+
+    @Test
+    void testRootFinishSkipsWhileRunActive() {
+        when(workflowRepository.hasActiveRun(1L)).thenReturn(true);
+
+        coordinator.onFinished(task(1L, null));
+
+        verify(workflowRepository, never()).startRun(anyLong(), anyMap());
+    }
+
+    @Test
+    void testStepFinishReleasesDownstreams() throws Exception {
+        when(workflowRepository.completeStep(7L, 2L, Collections.singletonList(4L))).thenReturn(Collections.singletonList(4L));
+
+        coordinator.onFinished(task(2L, 7L));
+
+        // Results of the downstreams still held in memory are written before they are released
+        InOrder inOrder = inOrder(stateStore, workflowRepository);
+        inOrder.verify(stateStore).flush(Collections.singletonList(4L));
+        inOrder.verify(workflowRepository).completeStep(7L, 2L, Collections.singletonList(4L));
+        verify(taskChangeNotifier).publish(null, TaskChangeType.RESCHEDULE);
+    }
+
+    @Test
+    void testStepStartedManuallyIsNotPartOfARun() {
+        coordinator.onFinished(task(4L, null));
+        coordinator.onFailed(task(4L, null), "boom");
+
+        verify(workflowRepository, never()).completeStep(any(), any(), any());
+        verify(workflowRepository, never()).failStep(any(), any(), any());
+        verify(workflowRepository, never()).startRun(anyLong(), anyMap());
+    }
+
+    @Test
+    void testIndependentTaskIsIgnored() {
+        coordinator.onFinished(task(9L, null));
+
+        verify(workflowRepository, never()).startRun(anyLong(), anyMap());
+        verifyNoInteractions(taskChangeNotifier);
+    }
+
+    @Test
+    void testStepFailureFailsRun() {
+        coordinator.onFailed(task(3L, 7L), "boom");
+
+        verify(workflowRepository).failStep(7L, 3L, "boom");
+    }
+
+    @Test
+    void testWorkflowErrorDoesNotFailTask() {
+        when(workflowRepository.completeStep(anyLong(), anyLong(), any())).thenThrow(new IllegalStateException("db down"));
+
+        assertDoesNotThrow(() -> coordinator.onFinished(task(2L, 7L)));
+    }
+
+    @Test
+    void testCycleIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> coordinator.setUpstreams(1L, Collections.singletonList(4L)));
+        assertThrows(IllegalArgumentException.class, () -> coordinator.setUpstreams(1L, Collections.singletonList(1L)));
+        verify(workflowRepository, never()).replaceUpstreams(any(), any());
+
+        coordinator.setUpstreams(5L, Collections.singletonList(3L));
+        verify(workflowRepository).replaceUpstreams(5L, Collections.singleton(3L));
+    }
+
+    @Test
+    void testResumeAdvancesEndedSteps() throws Exception {
+        when(workflowRepository.listEndedSteps(any())).thenReturn(Arrays.asList(
+                new long[]{7L, 2L, TaskStatus.FINISH.ordinal()},
+                new long[]{7L, 3L, TaskStatus.ERROR.ordinal()},
+                new long[]{8L, 2L, TaskStatus.STOP.ordinal()}));
+        when(workflowRepository.completeStep(anyLong(), anyLong(), any())).thenReturn(Collections.emptyList());
+
+        assertEquals(3, coordinator.resume(new Date()));
+
+        verify(workflowRepository).completeStep(7L, 2L, Collections.singletonList(4L));
+        verify(workflowRepository).failStep(eq(7L), eq(3L), anyString());
+        verify(workflowRepository).failStep(8L, 2L, "task stopped");
+    }
+
+    private static Task task(Long id, Long runId) {
+        Task task = new Task();
+        task.setId(id);
+        task.setWorkflowRunId(runId);
+        return task;
+    }
+}
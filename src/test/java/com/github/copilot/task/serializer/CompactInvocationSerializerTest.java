@@ -0,0 +1,77 @@
+package com.github.copilot.task.serializer;
+
+import com.github.copilot.task.common.Invocation;
+import com.github.copilot.task.enums.TaskStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactInvocationSerializerTest {
+
+    private final CompactInvocationSerializer serializer = new CompactInvocationSerializer();
+
+    @Test
+    void testRoundTripOfAllArgumentTypes() {
+        Object[] args = {null, true, (byte) 1, (short) 2, 'c', 3, 4L, 5.5f, 6.5d, "text 任务", new Date(1718964900000L),
+                new BigDecimal("-12.345"), new BigInteger("123456789012345678901234567890"), new byte[]{1, 2, 3},
+                String.class, TaskStatus.DOING, Arrays.asList("a", "b")};
+        Class[] parameterTypes = {Object.class, boolean.class, byte.class, short.class, char.class, int.class, long.class,
+                float.class, double.class, String.class, Date.class, BigDecimal.class, BigInteger.class, byte[].class,
+                Class.class, TaskStatus.class, List.class};
+        Invocation invocation = new Invocation(Target.class, "run", parameterTypes, args);
+
+        Invocation copy = serializer.deserialize(serializer.serialize(invocation));
+
+        assertEquals(Target.class, copy.getTargetClass());
+        assertEquals("run", copy.getMethodName());
+        assertArrayEquals(parameterTypes, copy.getParameterTypes());
+        assertArrayEquals(args, copy.getArgs());
+    }
+
+    @Test
+    void testNullArraysAreKept() {
+        Invocation copy = serializer.deserialize(serializer.serialize(new Invocation(Target.class, "run", null, (Object[]) null)));
+        assertNull(copy.getParameterTypes());
+        assertNull(copy.getArgs());
+        assertNull(serializer.serialize(null));
+        assertNull(serializer.deserialize(null));
+    }
+
+    @Test
+    void testReadsJdkSerializedInvocation() {
+        Invocation invocation = new Invocation(Target.class, "run", new Class[]{List.class}, Collections.singletonList(1));
+        byte[] jdkBytes = new JdkSerializationSerializer<Invocation>().serialize(invocation);
+
+        assertFalse(serializer.isOwnFormat(jdkBytes));
+        assertEquals(invocation, serializer.deserialize(jdkBytes));
+    }
+
+    @Test
+    void testFormatsAreTold() {
+        Invocation invocation = new Invocation(Target.class, "add", new Class[]{long.class, long.class}, 40L, 2L);
+        byte[] compact = serializer.serialize(invocation);
+        byte[] jdk = new JdkSerializationSerializer<Invocation>().serialize(invocation);
+
+        assertTrue(serializer.isOwnFormat(compact));
+        assertFalse(new JdkSerializationSerializer<Invocation>().isOwnFormat(compact));
+        assertTrue(new JdkSerializationSerializer<Invocation>().isOwnFormat(jdk));
+        assertTrue(compact.length * 4 < jdk.length, compact.length + " vs " + jdk.length);
+    }
+
+    @Test
+    void testUnknownFormatIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> serializer.deserialize(new byte[]{1, 2, 3}));
+    }
+
+    public static class Target {
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.copilot.task.state;
+
+import com.github.copilot.task.entity.Task;
+import com.github.copilot.task.entity.TaskDetail;
+import com.github.copilot.task.enums.TaskStatus;
+import com.github.copilot.task.history.TaskHistoryWriter;
+import com.github.copilot.task.repository.TaskRepository;
+import com.github.copilot.task.utils.CronExpressionCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class WriteBehindTaskStateStoreTest {
+
+    private final TaskRepository taskRepository = Mockito.mock(TaskRepository.class);
+
+    private final TaskHistoryWriter historyWriter = Mockito.mock(TaskHistoryWriter.class);
+
+    private WriteBehindTaskStateStore store;
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+        CronExpressionCache.clear();
+    }
+
+    @Test
+    void testStartDoesNotTouchTheDatabase() {
+        store = new WriteBehindTaskStateStore(taskRepository, historyWriter, 10, 100);
+        Task task = task(1L);
+
+        TaskDetail detail = store.start(task);
+
+        assertEquals(TaskStatus.DOING, task.getStatus());
+        assertEquals(1L, detail.getTaskId());
+        assertEquals("node", detail.getNodeId());
+        assertNull(detail.getId());
+        verifyNoInteractions(taskRepository, historyWriter);
+    }
+
+    @Test
+    void testResultsAreWrittenInBatches() throws Exception {
+        List<List<TaskResult>> batches = new ArrayList<>();
+        when(taskRepository.saveResults(anyList())).thenAnswer(invocation -> {
+            List<TaskResult> batch = invocation.getArgument(0);
+            synchronized (batches) {
+                batches.add(new ArrayList<>(batch));
+            }
+            return batch.size();
+        });
+        store = new WriteBehindTaskStateStore(taskRepository, historyWriter, 200, 3);
+        for (long id = 1; id <= 5; id++) {
+            Task task = task(id);
+            TaskDetail detail = store.start(task);
+            if (id % 2 == 0) {
+                store.fail(task, detail, "error");
+            } else {
+                store.finish(task, detail);
+            }
+        }
+        store.shutdown();
+
+        List<TaskResult> written = new ArrayList<>();
+        batches.forEach(written::addAll);
+        assertEquals(5, written.size());
+        assertTrue(batches.size() <= 3, "batches: " + batches.size());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 3));
+        TaskResult first = written.get(0);
+        assertEquals(TaskStatus.NOT_STARTED, first.getTask().getStatus());
+        assertNotNull(first.getTask().getNextStartTime());
+        assertEquals(TaskStatus.FINISH, first.getDetail().getStatus());
+        TaskResult second = written.get(1);
+        assertEquals(TaskStatus.ERROR, second.getTask().getStatus());
+        assertEquals("error", second.getDetail().getErrorMsg());
+        assertEquals(0, store.pending());
+        verify(historyWriter, times(batches.size())).end(anyList());
+    }
+
+    @Test
+    void testFailedBatchIsRetried() throws Exception {
+        List<Integer> sizes = new ArrayList<>();
+        when(taskRepository.saveResults(anyList())).thenAnswer(invocation -> {
+            List<TaskResult> batch = invocation.getArgument(0);
+            synchronized (sizes) {
+                sizes.add(batch.size());
+                if (sizes.size() == 1) {
+                    throw new IllegalStateException("db down");
+                }
+            }
+            return batch.size();
+        });
+        store = new WriteBehindTaskStateStore(taskRepository, historyWriter, 5, 10);
+        Task task = task(1L);
+        store.finish(task, store.start(task));
+
+        verify(taskRepository, timeout(2000).times(2)).saveResults(anyList());
+        synchronized (sizes) {
+            assertEquals(Arrays.asList(1, 1), sizes);
+        }
+    }
+
+    @Test
+    void testFlushWaitsForTheResultsOfTheGivenTasks() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        when(taskRepository.saveResults(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            proceed.await();
+            return invocation.<List<TaskResult>>getArgument(0).size();
+        });
+        store = new WriteBehindTaskStateStore(taskRepository, historyWriter, 5, 10);
+        Task task = task(1L);
+        store.finish(task, store.start(task));
+        assertTrue(writing.await(2, TimeUnit.SECONDS));
+
+        // Other tasks do not wait
+        store.flush(Collections.singletonList(2L));
+
+        Thread flushing = new Thread(() -> {
+            try {
+                store.flush(Arrays.asList(1L, 2L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        flushing.start();
+        flushing.join(100);
+        assertTrue(flushing.isAlive());
+        proceed.countDown();
+        flushing.join(2000);
+        assertFalse(flushing.isAlive());
+    }
+
+    private static Task task(Long id) {
+        Task task = new Task();
+        task.setId(id);
+        task.setNodeId("node");
+        task.setCronExpr("0/1 * * * * ?");
+        task.setStatus(TaskStatus.PENDING);
+        return task;
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.copilot.task.strategy;
+
+import com.github.copilot.task.entity.Node;
+import com.github.copilot.task.entity.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashStrategyTest {
+
+    private static final int TASKS = 20000;
+
+    @Test
+    void testEveryTaskHasExactlyOneOwner() {
+        List<Node> nodes = nodes(5);
+        Strategy strategy = Strategy.choose(Strategy.CONSISTENT_HASH);
+        assertTrue(strategy instanceof ConsistentHashStrategy);
+
+        for (long id = 0; id < 1000; id++) {
+            Task task = task(id);
+            int owners = 0;
+            for (Node node : nodes) {
+                if (strategy.accept(nodes, task, node.getNodeId())) {
+                    owners++;
+                }
+            }
+            assertEquals(1, owners);
+        }
+    }
+
+    @Test
+    void testJoiningNodeOnlyTakesItsShare() {
+        List<Node> nodes = nodes(10);
+        Map<Long, String> before = owners(new ConsistentHashStrategy(), nodes);
+        nodes.add(new Node("node-10"));
+        Map<Long, String> after = owners(new ConsistentHashStrategy(), nodes);
+
+        int moved = 0;
+        for (long id = 0; id < TASKS; id++) {
+            if (!before.get(id).equals(after.get(id))) {
+                // Tasks only move to the new node
+                assertEquals("node-10", after.get(id));
+                moved++;
+            }
+        }
+        double share = moved / (double) TASKS;
+        assertTrue(share > 0.04 && share < 0.16, "moved share " + share);
+    }
+
+    @Test
+    void testWeightAndMembershipOrder() {
+        List<Node> nodes = nodes(2);
+        nodes.get(0).setWeight(3);
+        ConsistentHashStrategy strategy = new ConsistentHashStrategy();
+        Map<Long, String> owners = owners(strategy, nodes);
+        long heavy = owners.values().stream().filter("node-0"::equals).count();
+        double share = heavy / (double) TASKS;
+        assertTrue(share > 0.65 && share < 0.85, "weighted share " + share);
+
+        // The same membership in another list and order keeps the ring
+        ConsistentHashStrategy.Ring ring = strategy.ring(nodes);
+        List<Node> reordered = new ArrayList<>(nodes);
+        Collections.reverse(reordered);
+        assertEquals(owners, owners(strategy, reordered));
+        assertEquals(4 * ConsistentHashStrategy.VIRTUAL_NODES, strategy.ring(reordered).size());
+        assertNotSame(ring, strategy.ring(new ArrayList<>()));
+        assertFalse(strategy.accept(new ArrayList<>(), task(1L), "node-0"));
+    }
+
+    private static Map<Long, String> owners(ConsistentHashStrategy strategy, List<Node> nodes) {
+        Map<Long, String> owners = new HashMap<>();
+        for (long id = 0; id < TASKS; id++) {
+            Task task = task(id);
+            for (Node node : nodes) {
+                if (strategy.accept(nodes, task, node.getNodeId())) {
+                    owners.put(id, node.getNodeId());
+                }
+            }
+        }
+        return owners;
+    }
+
+    private static List<Node> nodes(int count) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(new Node("node-" + i));
+        }
+        return nodes;
+    }
+
+    private static Task task(long id) {
+        Task task = new Task();
+        task.setId(id);
+        return task;
+    }
+}
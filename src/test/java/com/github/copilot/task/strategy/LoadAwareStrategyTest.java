@@ -0,0 +1,78 @@
+package com.github.copilot.task.strategy;
+
+import com.github.copilot.task.entity.Node;
+import com.github.copilot.task.entity.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadAwareStrategyTest {
+
+    private static final int TASKS = 10000;
+
+    @Test
+    void testIdleNodeGetsMostTasks() {
+        List<Node> nodes = Arrays.asList(node("idle", 0, 0, 10, null), node("busy", 8, 11, 10, null));
+        Map<String, Integer> counts = counts(Strategy.choose(Strategy.LEAST_COUNT), nodes);
+
+        assertEquals(TASKS, counts.get("idle") + counts.get("busy"));
+        // Shares 1 and 1/20
+        assertTrue(counts.get("busy") < TASKS / 10, "busy node got " + counts.get("busy"));
+    }
+
+    @Test
+    void testSaturatedNodeGetsNothing() {
+        List<Node> nodes = Arrays.asList(node("a", 10, 0, 10, null), node("b", 9, 40, 10, null));
+        assertEquals(TASKS, counts(Strategy.choose(Strategy.LEAST_COUNT), nodes).get("b"));
+
+        // Unless every node is saturated
+        List<Node> saturated = Arrays.asList(node("a", 10, 0, 10, null), node("b", 10, 0, 10, null));
+        Map<String, Integer> counts = counts(Strategy.choose(Strategy.LEAST_COUNT), saturated);
+        assertTrue(counts.get("a") > TASKS / 3 && counts.get("b") > TASKS / 3);
+    }
+
+    @Test
+    void testSlowNodeGetsFewerTasks() {
+        List<Node> nodes = Arrays.asList(node("fast", 2, 0, 10, 100L), node("slow", 2, 0, 10, 900L),
+                node("new", null, null, null, null));
+        Map<String, Integer> counts = counts(Strategy.choose(Strategy.LATENCY_AWARE), nodes);
+
+        assertTrue(counts.get("fast") > 5 * counts.get("slow"), counts.toString());
+        // Without a reported p95 a node counts as an average one
+        assertTrue(counts.get("new") > counts.get("slow") && counts.get("new") < counts.get("fast"), counts.toString());
+    }
+
+    private static Map<String, Integer> counts(Strategy strategy, List<Node> nodes) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Node node : nodes) {
+            counts.put(node.getNodeId(), 0);
+        }
+        for (long id = 0; id < TASKS; id++) {
+            Task task = new Task();
+            task.setId(id);
+            int owners = 0;
+            for (Node node : nodes) {
+                if (strategy.accept(nodes, task, node.getNodeId())) {
+                    counts.merge(node.getNodeId(), 1, Integer::sum);
+                    owners++;
+                }
+            }
+            assertEquals(1, owners);
+        }
+        return counts;
+    }
+
+    private static Node node(String id, Integer active, Integer queued, Integer capacity, Long p95) {
+        Node node = new Node(id);
+        node.setActiveCount(active);
+        node.setQueueDepth(queued);
+        node.setCapacity(capacity);
+        node.setP95Millis(p95);
+        return node;
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.copilot.task.trigger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTriggerEngineTest {
+
+    private HashedWheelTriggerEngine<String> engine;
+
+    @BeforeEach
+    void setUp() {
+        // 1ms ticks and 16 buckets per level, so level 1 covers 16ms and level 2 covers 256ms
+        engine = new HashedWheelTriggerEngine<>(1, 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testImmediateTrigger() throws InterruptedException {
+        engine.schedule("now", 0);
+        assertEquals("now", engine.take());
+        assertEquals(0, engine.size());
+    }
+
+    @Test
+    void testTriggersFireInDeadlineOrder() throws InterruptedException {
+        engine.schedule("third", 120);
+        engine.schedule("first", 5);
+        engine.schedule("second", 40);
+        assertEquals(3, engine.size());
+
+        List<String> fired = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            fired.add(engine.take());
+        }
+        assertEquals(List.of("first", "second", "third"), fired);
+    }
+
+    @Test
+    void testTriggerIsNotEarlyAcrossLevels() throws InterruptedException {
+        long start = System.nanoTime();
+        // 300ms is beyond level 1, the entry has to be moved down twice before it fires
+        engine.schedule("late", 300);
+        assertEquals("late", engine.take());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs >= 300, "fired after " + elapsedMs + "ms");
+        assertTrue(elapsedMs < 1000, "fired after " + elapsedMs + "ms");
+    }
+
+    @Test
+    void testCancelledTriggerDoesNotFire() throws InterruptedException {
+        TriggerHandle cancelled = engine.schedule("cancelled", 20);
+        engine.schedule("kept", 60);
+
+        assertTrue(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+        assertFalse(cancelled.cancel());
+
+        assertEquals("kept", engine.take());
+        assertEquals(0, engine.size());
+    }
+
+    @Test
+    void testCancelAfterFireFails() throws InterruptedException {
+        TriggerHandle handle = engine.schedule("fired", 5);
+        assertEquals("fired", engine.take());
+        assertFalse(handle.cancel());
+        assertFalse(handle.isCancelled());
+    }
+
+    @Test
+    void testScheduleAfterShutdownFails() {
+        engine.shutdown();
+        assertThrows(IllegalStateException.class, () -> engine.schedule("late", 10));
+    }
+}
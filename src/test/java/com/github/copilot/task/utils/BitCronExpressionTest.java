@@ -0,0 +1,161 @@
+package com.github.copilot.task.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential test of {@link BitCronExpression} against {@link CronExpression}. The number of random instants per
+ * expression and zone can be raised with {@code -Dcron.differential.samples}, e.g. to a million for a full run.
+ */
+class BitCronExpressionTest {
+
+    private static final int SAMPLES = Integer.getInteger("cron.differential.samples", 1000);
+
+    private static final String[] EXPRESSIONS = {
+            "* * * * * ?",
+            "0/1 * * * * ?",
+            "0/7 * * * * ?",
+            "10-20/3 5,35 * * * ?",
+            "0 0/15 8-18 * * ?",
+            "0 30 2 * * ?",
+            "30 59 23 * * ?",
+            "0 0 12 * * ?",
+            "0 0 0 1 * ?",
+            "0 0 12 1/5 * ?",
+            "0 0 0 31 * ?",
+            "0 0 0 29 2 ?",
+            "0 15 10 L * ?",
+            "0 15 10 LW * ?",
+            "0 0 9 15W * ?",
+            "0 0 9 1W * ?",
+            "0 0 9 31W * ?",
+            "0 30 9 ? * MON-FRI",
+            "0 0 10 ? * SAT,SUN",
+            "0 0 22 ? * 1",
+            "0 15 10 ? * 6L",
+            "0 15 10 ? * L",
+            "0 15 10 ? * 6#3",
+            "0 0 1 ? * 2#5",
+            "0 0 8 ? JAN-MAR,NOV *",
+            "0 0 0 1 JAN ? 2031-2035",
+            "0 11 11 11 11 ? 2040/5",
+    };
+
+    private static final String[] ZONES = {
+            "UTC",
+            "Asia/Shanghai",
+            "America/New_York",
+            "Australia/Sydney",
+            "America/Sao_Paulo",
+            "Asia/Kolkata",
+    };
+
+    /**
+     * 2000-01-01 to 2090-01-01 in seconds.
+     */
+    private static final long FROM = 946684800L;
+
+    private static final long TO = 3786825600L;
+
+    @Test
+    void testNextFireTimeMatchesCronExpression() throws ParseException {
+        Random random = new Random(20240607L);
+        for (String zoneId : ZONES) {
+            TimeZone timeZone = TimeZone.getTimeZone(zoneId);
+            for (String expr : EXPRESSIONS) {
+                CronExpression reference = new CronExpression(expr);
+                reference.setTimeZone(timeZone);
+                BitCronExpression bit = new BitCronExpression(expr, timeZone);
+                for (int i = 0; i < SAMPLES; i++) {
+                    long after = (FROM + (long) (random.nextDouble() * (TO - FROM))) * 1000L;
+                    Date expected = reference.getNextValidTimeAfter(new Date(after));
+                    assertEquals(expected, bit.getNextValidTimeAfter(new Date(after)), expr + " in " + zoneId + " after " + after);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFireTimeSequencesMatchCronExpression() throws ParseException {
+        for (String zoneId : ZONES) {
+            TimeZone timeZone = TimeZone.getTimeZone(zoneId);
+            for (String expr : EXPRESSIONS) {
+                CronExpression reference = new CronExpression(expr);
+                reference.setTimeZone(timeZone);
+                BitCronExpression bit = new BitCronExpression(expr, timeZone);
+                Date expected = new Date(FROM * 1000L);
+                long actual = FROM * 1000L;
+                // Chained calls go through every DST transition the expression fires around
+                for (int i = 0; i < 200 && expected != null; i++) {
+                    expected = reference.getNextValidTimeAfter(expected);
+                    actual = bit.nextFireTime(actual);
+                    assertEquals(expected == null ? -1 : expected.getTime(), actual, expr + " in " + zoneId + " step " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testMillisecondsAreTruncated() throws ParseException {
+        CronExpression reference = new CronExpression("0/5 * * * * ?");
+        BitCronExpression bit = new BitCronExpression("0/5 * * * * ?");
+        Random random = new Random(7);
+        for (int i = 0; i < SAMPLES; i++) {
+            long after = FROM * 1000L + (long) (random.nextDouble() * (TO - FROM) * 1000L);
+            assertEquals(reference.getNextValidTimeAfter(new Date(after)).getTime(), bit.nextFireTime(after));
+        }
+    }
+
+    @Test
+    void testPreviousFireTime() throws ParseException {
+        Random random = new Random(11);
+        for (String expr : EXPRESSIONS) {
+            CronExpression reference = new CronExpression(expr);
+            BitCronExpression bit = new BitCronExpression(expr);
+            for (int i = 0; i < 50; i++) {
+                long before = (FROM + (long) (random.nextDouble() * (TO - FROM))) * 1000L;
+                long previous = bit.previousFireTime(before);
+                if (previous < 0) {
+                    // Only expressions limited to years after the instant have no previous fire time
+                    Date first = reference.getNextValidTimeAfter(new Date(FROM * 1000L));
+                    assertTrue(first == null || first.getTime() >= before, expr + " before " + before);
+                    continue;
+                }
+                assertTrue(previous < before, expr);
+                assertTrue(reference.isSatisfiedBy(new Date(previous)), expr + " at " + previous);
+                Date next = reference.getNextValidTimeAfter(new Date(previous));
+                assertTrue(next == null || next.getTime() >= before, expr + " skipped " + next);
+            }
+        }
+    }
+
+    @Test
+    void testIsSatisfiedBy() throws ParseException {
+        BitCronExpression bit = new BitCronExpression("0 15 10 ? * 6#3", TimeZone.getTimeZone("UTC"));
+        // 2024-06-21 is the third Friday of June
+        assertTrue(bit.isSatisfiedBy(1718964900000L));
+        assertTrue(bit.isSatisfiedBy(1718964900999L));
+        assertFalse(bit.isSatisfiedBy(1718964901000L));
+        assertFalse(bit.isSatisfiedBy(1718964900000L - 7 * 86400000L));
+    }
+
+    @Test
+    void testExhaustedExpressionReturnsMinusOne() throws ParseException {
+        BitCronExpression bit = new BitCronExpression("0 0 0 1 JAN ? 2031", TimeZone.getTimeZone("UTC"));
+        long only = bit.nextFireTime(FROM * 1000L);
+        assertEquals(1924992000000L, only);
+        assertEquals(-1, bit.nextFireTime(only));
+        assertNull(bit.getNextValidTimeAfter(new Date(only)));
+    }
+
+    @Test
+    void testInvalidExpressionIsRejected() {
+        assertThrows(ParseException.class, () -> new BitCronExpression("0 0 0 ? * ?"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.copilot.task.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CronExpressionCacheTest {
+
+    private static final String[] EXPRESSIONS = {
+            "0/1 * * * * ?",
+            "0/5 * * * * ?",
+            "15 0/2 * * * ?",
+            "0 0 12 * * ?",
+            "0 30 9 ? * MON-FRI",
+            "0 0 0 L * ?",
+            "0 0 8 1 1 ? 2030",
+    };
+
+    @AfterEach
+    void tearDown() {
+        CronExpressionCache.clear();
+    }
+
+    @Test
+    void testSameInstanceForSameExpressionAndTimeZone() throws ParseException {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        CronExpression first = CronExpressionCache.get("0/1 * * * * ?", utc);
+        assertSame(first, CronExpressionCache.get("0/1 * * * * ?", utc));
+        assertNotSame(first, CronExpressionCache.get("0/1 * * * * ?", TimeZone.getTimeZone("Asia/Shanghai")));
+        assertEquals(2, CronExpressionCache.size());
+    }
+
+    @Test
+    void testInvalidExpressionIsRejected() {
+        assertThrows(ParseException.class, () -> CronExpressionCache.nextFireTime("not a cron", new Date()));
+        assertEquals(0, CronExpressionCache.size());
+    }
+
+    @Test
+    void testNextFireTimeMatchesCronExpression() throws ParseException {
+        Random random = new Random(42);
+        for (String expr : EXPRESSIONS) {
+            CronExpression reference = new CronExpression(expr);
+            long after = System.currentTimeMillis();
+            for (int i = 0; i < 500; i++) {
+                Date expected = reference.getNextValidTimeAfter(new Date(after));
+                assertEquals(expected, CronExpressionCache.nextFireTime(expr, new Date(after)), expr + " after " + after);
+                if (expected == null) {
+                    break;
+                }
+                // Mostly move forward like a finishing task, sometimes jump back or far ahead
+                int step = random.nextInt(10);
+                if (step == 0) {
+                    after -= random.nextInt(3_600_000);
+                } else if (step == 1) {
+                    after += random.nextInt(Integer.MAX_VALUE);
+                } else {
+                    after = expected.getTime() + random.nextInt(1500);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testExhaustedExpressionReturnsNull() throws ParseException {
+        Date last = new CronExpression("0 0 8 1 1 ? 2030").getNextValidTimeAfter(new Date());
+        assertEquals(last, CronExpressionCache.nextFireTime("0 0 8 1 1 ? 2030", new Date()));
+        assertNull(CronExpressionCache.nextFireTime("0 0 8 1 1 ? 2030", last));
+    }
+}